@@ -0,0 +1,34 @@
+package com.ciaranmckenna.bookclub.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory side effects of a write until its transaction commits, so caches, indexes and
+ * leaderboards never see a change that is rolled back. Outside a transaction the action runs at
+ * once
+ */
+public final class AfterCommit {
+
+  private AfterCommit() {}
+
+  /**
+   * Run an action once the current transaction commits, or immediately if there is none. The
+   * action is dropped if the transaction rolls back
+   *
+   * @param action Side effect to apply
+   */
+  public static void run(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+}
@@ -0,0 +1,52 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches row counts for a short time so totals can be shown without running COUNT(*) on every
+ * request. Values may be up to {@link #TTL} out of date, which is fine for "about N results"
+ * displays and for clients of the count-free slice endpoints
+ */
+@Component
+public class ApproximateCountCache {
+
+  /** How long a count is served before it is recomputed */
+  public static final Duration TTL = Duration.ofSeconds(60);
+
+  private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+  private final Clock clock;
+
+  public ApproximateCountCache() {
+    this(Clock.systemUTC());
+  }
+
+  ApproximateCountCache(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Get a cached count, recomputing it when it is missing or older than {@link #TTL}
+   *
+   * @param key Cache key identifying the counted query
+   * @param counter Computes the exact count
+   * @return Count, possibly slightly stale
+   */
+  public long get(String key, LongSupplier counter) {
+    long now = clock.millis();
+    CachedCount cached = counts.get(key);
+    if (cached != null && cached.expiresAt() > now) {
+      return cached.value();
+    }
+    long value = counter.getAsLong();
+    counts.put(key, new CachedCount(value, now + TTL.toMillis()));
+    return value;
+  }
+
+  private record CachedCount(long value, long expiresAt) {}
+}
@@ -0,0 +1,26 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated result
+ *
+ * @param content Items on this page
+ * @param nextCursor Opaque token to pass back for the next page, null on the last page
+ * @param hasNext Whether another page follows
+ * @param <T> The type of the items
+ */
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasNext) {
+
+  /**
+   * Create a page from its items and the cursor of the following page
+   *
+   * @param content Items on this page
+   * @param nextCursor Cursor of the next page, null if there is none
+   * @param <T> Type of the items
+   * @return CursorPage
+   */
+  public static <T> CursorPage<T> of(List<T> content, String nextCursor) {
+    return new CursorPage<>(content, nextCursor, nextCursor != null);
+  }
+}
@@ -0,0 +1,272 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Exponentially time-decayed scores of books, ranked in a concurrent sorted set so the top K can
+ * be read without sorting. A weight added at time t is worth weight * 2^(-(now - t) / halfLife)
+ * at time now.
+ *
+ * <p>Rather than decaying every score as time passes, each score is kept as the log of its value
+ * at the epoch, log(sum of weight * e^(rate * t)). Decay then multiplies every score by the same
+ * factor, so the ranking never changes on its own and only the book being scored moves. Logs keep
+ * the growing e^(rate * t) factors within range of a double.
+ *
+ * <p>Books whose score is changed are remembered as dirty until {@link #drainDirty} is called, so
+ * the scores can be checkpointed incrementally
+ */
+public class DecayingLeaderboard {
+
+  private static final Comparator<Ranked> RANKING =
+      Comparator.comparingDouble(Ranked::logScore).reversed().thenComparingLong(Ranked::bookId);
+
+  /** Decay rate per millisecond, ln 2 / half-life */
+  private final double rate;
+
+  private final Map<Long, Double> logScores = new ConcurrentHashMap<>();
+
+  private final ConcurrentSkipListSet<Ranked> ranking = new ConcurrentSkipListSet<>(RANKING);
+
+  private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+  public DecayingLeaderboard(Duration halfLife) {
+    if (halfLife.isNegative() || halfLife.isZero()) {
+      throw new IllegalArgumentException("Half-life must be positive");
+    }
+    this.rate = Math.log(2) / halfLife.toMillis();
+  }
+
+  /**
+   * Add a weight to a book's score. A negative weight takes back an earlier one and should be
+   * given the time the earlier weight was added; a book whose score would drop to zero or below
+   * is removed
+   *
+   * @param bookId Book ID
+   * @param weight Weight to add, or take back if negative
+   * @param atMillis Time of the event, in epoch milliseconds
+   */
+  public void add(long bookId, double weight, long atMillis) {
+    if (weight == 0 || Double.isNaN(weight)) {
+      return;
+    }
+    double logWeight = Math.log(Math.abs(weight)) + rate * atMillis;
+    logScores.compute(
+        bookId,
+        (id, current) -> {
+          Double updated;
+          if (weight > 0) {
+            updated = current == null ? logWeight : logAddExp(current, logWeight);
+          } else {
+            updated = current == null ? null : logSubExp(current, logWeight);
+          }
+          rerank(id, current, updated, true);
+          return updated;
+        });
+  }
+
+  /**
+   * Merge a checkpointed score into a book's score, as if the weights behind it had been added
+   * again
+   *
+   * @param bookId Book ID
+   * @param logScore Checkpointed log score
+   */
+  public void restore(long bookId, double logScore) {
+    logScores.compute(
+        bookId,
+        (id, current) -> {
+          double merged = current == null ? logScore : logAddExp(current, logScore);
+          // Already checkpointed, unless an earlier event made the book dirty anyway
+          rerank(id, current, merged, false);
+          return merged;
+        });
+  }
+
+  /**
+   * Forget a book, as when it is deleted
+   *
+   * @param bookId Book ID
+   */
+  public void remove(long bookId) {
+    logScores.computeIfPresent(
+        bookId,
+        (id, current) -> {
+          rerank(id, current, null, true);
+          return null;
+        });
+  }
+
+  /**
+   * Highest scoring books, best first
+   *
+   * @param limit Maximum number of books to return
+   * @param nowMillis Time the scores are decayed to, in epoch milliseconds
+   * @return Book IDs with their decayed scores
+   */
+  public List<Score> top(int limit, long nowMillis) {
+    List<Score> top = new ArrayList<>(Math.min(limit, logScores.size()));
+    // A book being rescored can briefly be seen at both its old and new rank
+    Set<Long> seen = new HashSet<>();
+    for (Ranked ranked : ranking) {
+      if (top.size() >= limit) {
+        break;
+      }
+      if (seen.add(ranked.bookId())) {
+        top.add(new Score(ranked.bookId(), decay(ranked.logScore(), nowMillis)));
+      }
+    }
+    return top;
+  }
+
+  /**
+   * Decayed score of a book
+   *
+   * @param bookId Book ID
+   * @param nowMillis Time the score is decayed to, in epoch milliseconds
+   * @return Score, or 0 if the book has none
+   */
+  public double score(long bookId, long nowMillis) {
+    Double logScore = logScores.get(bookId);
+    return logScore == null ? 0 : decay(logScore, nowMillis);
+  }
+
+  /**
+   * Decayed scores of every book, in no particular order, for rankings that combine several
+   * boards and so cannot be read off one board's order
+   *
+   * @param nowMillis Time the scores are decayed to, in epoch milliseconds
+   * @return Score of each book
+   */
+  public Map<Long, Double> scores(long nowMillis) {
+    Map<Long, Double> scores = new HashMap<>(logScores.size());
+    logScores.forEach((bookId, logScore) -> scores.put(bookId, decay(logScore, nowMillis)));
+    return scores;
+  }
+
+  /**
+   * Remove books whose score has decayed below a threshold, so that the board only holds books
+   * that are still of interest. Removed books are marked dirty
+   *
+   * @param minScore Smallest score worth keeping
+   * @param nowMillis Current time, in epoch milliseconds
+   * @return Number of books removed
+   */
+  public int prune(double minScore, long nowMillis) {
+    double minLogScore = Math.log(minScore) + rate * nowMillis;
+    int removed = 0;
+    // Lowest scores are at the end of the ranking
+    for (Ranked ranked : ranking.descendingSet()) {
+      if (ranked.logScore() >= minLogScore) {
+        break;
+      }
+      boolean[] pruned = new boolean[1];
+      logScores.computeIfPresent(
+          ranked.bookId(),
+          (id, current) -> {
+            if (current >= minLogScore) {
+              return current;
+            }
+            rerank(id, current, null, true);
+            pruned[0] = true;
+            return null;
+          });
+      if (pruned[0]) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Take the log scores of the books changed since the last call
+   *
+   * @return Log score of each changed book, or null if it no longer has one
+   */
+  public Map<Long, Double> drainDirty() {
+    Map<Long, Double> changed = new HashMap<>();
+    for (Long bookId : dirty) {
+      dirty.remove(bookId);
+      changed.put(bookId, logScores.get(bookId));
+    }
+    return changed;
+  }
+
+  /**
+   * Mark books as changed again after their checkpoint failed
+   *
+   * @param bookIds Book IDs
+   */
+  public void markDirty(Set<Long> bookIds) {
+    dirty.addAll(bookIds);
+  }
+
+  /**
+   * Books with a score, as a live read-only view
+   *
+   * @return Book IDs
+   */
+  public Set<Long> bookIds() {
+    return Collections.unmodifiableSet(logScores.keySet());
+  }
+
+  /**
+   * Number of books with a score
+   *
+   * @return Number of books
+   */
+  public int size() {
+    return logScores.size();
+  }
+
+  /** Called with the book's map entry locked, which keeps its ranking entry in step */
+  private void rerank(long bookId, Double oldLogScore, Double newLogScore, boolean changed) {
+    if (oldLogScore != null) {
+      ranking.remove(new Ranked(oldLogScore, bookId));
+    }
+    if (newLogScore != null) {
+      ranking.add(new Ranked(newLogScore, bookId));
+    }
+    if (changed) {
+      dirty.add(bookId);
+    }
+  }
+
+  private double decay(double logScore, long nowMillis) {
+    return Math.exp(logScore - rate * nowMillis);
+  }
+
+  /** log(e^a + e^b) without overflow */
+  private static double logAddExp(double a, double b) {
+    double max = Math.max(a, b);
+    return max + Math.log1p(Math.exp(Math.min(a, b) - max));
+  }
+
+  /** log(e^a - e^b), or null if that is not positive */
+  private static Double logSubExp(double a, double b) {
+    if (b >= a) {
+      return null;
+    }
+    double difference = a + Math.log1p(-Math.exp(b - a));
+    return Double.isFinite(difference) ? difference : null;
+  }
+
+  /**
+   * A book's decayed score
+   *
+   * @param bookId Book ID
+   * @param score Score at the time it was read
+   */
+  public record Score(long bookId, double score) {}
+
+  private record Ranked(double logScore, long bookId) {}
+}
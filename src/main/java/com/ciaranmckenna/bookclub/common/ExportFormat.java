@@ -0,0 +1,57 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.util.Locale;
+import org.springframework.http.MediaType;
+
+/** Formats a bulk export can be written in */
+public enum ExportFormat {
+  /** One JSON object per line */
+  NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+
+  /** RFC 4180 comma-separated values with a header row */
+  CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+  private final MediaType mediaType;
+
+  private final String fileExtension;
+
+  ExportFormat(MediaType mediaType, String fileExtension) {
+    this.mediaType = mediaType;
+    this.fileExtension = fileExtension;
+  }
+
+  /**
+   * Content type of an export in this format
+   *
+   * @return Media type
+   */
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  /**
+   * File name for an export in this format
+   *
+   * @param baseName File name without extension
+   * @return File name with this format's extension
+   */
+  public String fileName(String baseName) {
+    return baseName + "." + fileExtension;
+  }
+
+  /**
+   * Parse a format request parameter
+   *
+   * @param value "ndjson" or "csv", in any case
+   * @return Export format
+   * @throws IllegalArgumentException if the value is not a supported format
+   */
+  public static ExportFormat fromParameter(String value) {
+    for (ExportFormat format : values()) {
+      if (format.fileExtension.equals(value.toLowerCase(Locale.ROOT))) {
+        return format;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported export format: " + value);
+  }
+}
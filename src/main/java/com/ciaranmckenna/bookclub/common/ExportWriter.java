@@ -0,0 +1,119 @@
+package com.ciaranmckenna.bookclub.common;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes export rows to a stream one at a time, so an export holds no more than one row in
+ * memory whatever its size. Numbers are written as numbers, nulls as JSON null or an empty CSV
+ * field, and everything else, including dates, as its string form. Closing the writer flushes it
+ * but leaves the underlying stream open
+ */
+public class ExportWriter implements Closeable {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private final ExportFormat format;
+
+  private final List<String> columns;
+
+  private final Writer writer;
+
+  /**
+   * Start an export, writing the header row for CSV
+   *
+   * @param format Export format
+   * @param columns Column names, in the order row values are given
+   * @param out Stream to write to
+   * @throws IOException if the header cannot be written
+   */
+  public ExportWriter(ExportFormat format, List<String> columns, OutputStream out)
+      throws IOException {
+    this.format = format;
+    this.columns = List.copyOf(columns);
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    if (format == ExportFormat.CSV) {
+      writeCsvRecord(this.columns);
+    }
+  }
+
+  /**
+   * Write one row
+   *
+   * @param values Values in column order
+   * @throws IOException if the row cannot be written
+   */
+  public void writeRow(List<?> values) throws IOException {
+    if (values.size() != columns.size()) {
+      throw new IllegalArgumentException(
+          "Expected " + columns.size() + " values but got " + values.size());
+    }
+    if (format == ExportFormat.CSV) {
+      writeCsvRecord(values);
+    } else {
+      writeJsonLine(values);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.flush();
+  }
+
+  private void writeJsonLine(List<?> values) throws IOException {
+    JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+    json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    json.writeStartObject();
+    for (int i = 0; i < columns.size(); i++) {
+      json.writeFieldName(columns.get(i));
+      Object value = values.get(i);
+      if (value == null) {
+        json.writeNull();
+      } else if (value instanceof Long || value instanceof Integer) {
+        json.writeNumber(((Number) value).longValue());
+      } else if (value instanceof Number number) {
+        json.writeNumber(number.toString());
+      } else if (value instanceof Boolean bool) {
+        json.writeBoolean(bool);
+      } else {
+        json.writeString(value.toString());
+      }
+    }
+    json.writeEndObject();
+    json.flush();
+    writer.write('\n');
+  }
+
+  private void writeCsvRecord(List<?> values) throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      Object value = values.get(i);
+      if (value != null) {
+        writer.write(csvField(value.toString()));
+      }
+    }
+    writer.write("\r\n");
+  }
+
+  /** Quote a field if it holds a separator, quote or line break, doubling any quotes */
+  private static String csvField(String value) {
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.EntityNotFoundException;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -104,6 +105,22 @@ public class GlobalExceptionHandler {
         HttpStatus.CONFLICT);
   }
 
+  /**
+   * Handle a write that lost a lock wait or a deadlock to a concurrent write of the same rows, such
+   * as a double-submitted review. The transaction has been rolled back, so it is reported as a
+   * conflict the client can retry rather than as a server error
+   *
+   * @param ex Exception instance
+   * @return Conflict response
+   */
+  @ExceptionHandler(PessimisticLockingFailureException.class)
+  public ResponseEntity<ApiResponse<?>> handlePessimisticLockingFailure(
+      PessimisticLockingFailureException ex) {
+    return errorResponseEntity(
+        "Conflicting concurrent write, please retry: " + ex.getMostSpecificCause().getMessage(),
+        HttpStatus.CONFLICT);
+  }
+
   /**
    * Fallback handler for all other exceptions
    *
@@ -0,0 +1,65 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * ISBN normalisation. The same edition can be written as ISBN-10 or ISBN-13, with or without
+ * hyphens, spaces or an "ISBN" prefix; {@link #canonicalKey(String)} maps all of those spellings
+ * to one key so duplicate checks compare editions rather than strings
+ */
+public final class Isbn {
+
+  /**
+   * "ISBN", "ISBN-10" or "ISBN-13" with an optional colon. A 10 or 13 written without a hyphen
+   * only counts as part of the prefix when a space or colon follows it, so it is never taken from
+   * the number itself
+   */
+  private static final Pattern PREFIX =
+      Pattern.compile("^ISBN(?:-1[03]|\\s?1[03](?=[\\s:]))?\\s*:?");
+
+  private Isbn() {}
+
+  /**
+   * Canonical key for an ISBN. Any "ISBN", "ISBN-10" or "ISBN-13" prefix is removed, then the
+   * separators, and a valid ISBN-10 is converted to its 978-prefixed ISBN-13. Values that are not a
+   * valid ISBN-10 are returned with separators removed, so they still only collide with themselves
+   *
+   * @param isbn ISBN as entered, may be null
+   * @return Canonical key, or null if the ISBN is null or blank
+   */
+  public static String canonicalKey(String isbn) {
+    if (isbn == null) {
+      return null;
+    }
+    String unprefixed = PREFIX.matcher(isbn.strip().toUpperCase(Locale.ROOT)).replaceFirst("");
+    String compact = unprefixed.replaceAll("[\\s-]", "");
+    if (compact.isEmpty()) {
+      return null;
+    }
+    return isValidIsbn10(compact) ? toIsbn13(compact) : compact;
+  }
+
+  private static boolean isValidIsbn10(String compact) {
+    if (!compact.matches("\\d{9}[\\dX]")) {
+      return false;
+    }
+    int sum = 0;
+    for (int i = 0; i < 10; i++) {
+      char c = compact.charAt(i);
+      int digit = c == 'X' ? 10 : c - '0';
+      sum += digit * (10 - i);
+    }
+    return sum % 11 == 0;
+  }
+
+  private static String toIsbn13(String isbn10) {
+    String body = "978" + isbn10.substring(0, 9);
+    int sum = 0;
+    for (int i = 0; i < body.length(); i++) {
+      int digit = body.charAt(i) - '0';
+      sum += i % 2 == 0 ? digit : digit * 3;
+    }
+    return body + (10 - sum % 10) % 10;
+  }
+}
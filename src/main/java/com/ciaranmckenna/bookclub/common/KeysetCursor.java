@@ -0,0 +1,116 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Position in a keyset-paginated book listing: the sort key and ID of the last row returned. It
+ * travels to clients as an opaque URL-safe token and carries its own sort, so a page always
+ * continues in the order the first page was requested in
+ *
+ * @param sortField Sort field, one of {@link #SORT_FIELDS}
+ * @param direction Sort direction
+ * @param sortValue Sort key of the last row, null for the first page
+ * @param id ID of the last row, null for the first page
+ */
+public record KeysetCursor(String sortField, Sort.Direction direction, Object sortValue, Long id) {
+
+  /** Book fields a keyset listing can be sorted by; ID is always the tie-breaker */
+  public static final Set<String> SORT_FIELDS = Set.of("id", "title", "author", "publicationDate");
+
+  private static final String SEPARATOR = "|";
+
+  public KeysetCursor {
+    if (!SORT_FIELDS.contains(sortField)) {
+      throw new IllegalArgumentException(
+          "Cannot paginate by cursor on '" + sortField + "', supported fields: " + SORT_FIELDS);
+    }
+  }
+
+  /**
+   * Cursor for the first page of a listing
+   *
+   * @param sortField Sort field
+   * @param direction Sort direction
+   * @return Cursor positioned before the first row
+   */
+  public static KeysetCursor first(String sortField, Sort.Direction direction) {
+    return new KeysetCursor(sortField, direction, null, null);
+  }
+
+  /**
+   * Decode a token produced by {@link #encode()}
+   *
+   * @param token Opaque cursor token
+   * @return Decoded cursor
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  public static KeysetCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = decoded.split("\\" + SEPARATOR, 4);
+      String sortField = parts[0];
+      Sort.Direction direction = Sort.Direction.fromString(parts[1]);
+      Long id = Long.valueOf(parts[2]);
+      Object sortValue = "publicationDate".equals(sortField) ? LocalDate.parse(parts[3]) : parts[3];
+      return new KeysetCursor(sortField, direction, "id".equals(sortField) ? id : sortValue, id);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+
+  /**
+   * Encode this cursor as an opaque URL-safe token
+   *
+   * @return Cursor token
+   */
+  public String encode() {
+    String raw = sortField + SEPARATOR + direction + SEPARATOR + id + SEPARATOR + sortValue;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Move the cursor to a new last row
+   *
+   * @param newSortValue Sort key of the last row
+   * @param newId ID of the last row
+   * @return Cursor positioned after that row
+   */
+  public KeysetCursor after(Object newSortValue, Long newId) {
+    return new KeysetCursor(sortField, direction, newSortValue, newId);
+  }
+
+  /**
+   * Sort to query with: the sort field, then ID in the same direction
+   *
+   * @return Sort
+   */
+  public Sort toSort() {
+    Sort byId = Sort.by(direction, "id");
+    return "id".equals(sortField) ? byId : Sort.by(direction, sortField).and(byId);
+  }
+
+  /**
+   * Scroll position to seek from
+   *
+   * @return Keyset scroll position, initial for the first page
+   */
+  public KeysetScrollPosition toScrollPosition() {
+    if (id == null) {
+      return ScrollPosition.keyset();
+    }
+    Map<String, Object> keys = new LinkedHashMap<>();
+    keys.put(sortField, sortValue);
+    keys.put("id", id);
+    return ScrollPosition.forward(keys);
+  }
+}
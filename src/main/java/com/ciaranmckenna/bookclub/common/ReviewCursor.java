@@ -0,0 +1,57 @@
+package com.ciaranmckenna.bookclub.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated review feed, newest first: the creation time and ID of the last
+ * review returned. Feeds are always ordered by creation time then ID, descending, which the
+ * (created_at, id) suffix of the reviews indexes serves directly, so the cursor only carries the
+ * position. It travels to clients as an opaque URL-safe token
+ *
+ * @param createdAt Creation time of the last review, null for the first page
+ * @param id ID of the last review, null for the first page
+ */
+public record ReviewCursor(LocalDateTime createdAt, Long id) {
+
+  private static final String SEPARATOR = "|";
+
+  /**
+   * Cursor for the first page of a feed
+   *
+   * @return Cursor positioned before the newest review
+   */
+  public static ReviewCursor first() {
+    return new ReviewCursor(null, null);
+  }
+
+  /**
+   * Decode a token produced by {@link #encode()}
+   *
+   * @param token Opaque cursor token
+   * @return Decoded cursor
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  public static ReviewCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = decoded.split("\\" + SEPARATOR, 2);
+      return new ReviewCursor(LocalDateTime.parse(parts[1]), Long.valueOf(parts[0]));
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+
+  /**
+   * Encode this cursor as an opaque URL-safe token
+   *
+   * @return Cursor token
+   */
+  public String encode() {
+    String raw = id + SEPARATOR + createdAt;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+}
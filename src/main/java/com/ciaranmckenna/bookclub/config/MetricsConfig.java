@@ -1,6 +1,8 @@
 package com.ciaranmckenna.bookclub.config;
 
+import com.ciaranmckenna.bookclub.search.SuggestionIndex;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,4 +30,13 @@ public class MetricsConfig {
         .description("Number of users registered")
         .register(meterRegistry);
   }
+
+  @Bean
+  public Gauge suggestionIndexMemoryGauge(
+      MeterRegistry meterRegistry, SuggestionIndex suggestionIndex) {
+    return Gauge.builder("bookclub.suggest.memory", suggestionIndex, SuggestionIndex::estimatedBytes)
+        .description("Estimated heap used by the autocomplete index")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
 }
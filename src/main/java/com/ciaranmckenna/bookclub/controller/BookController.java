@@ -1,37 +1,58 @@
 package com.ciaranmckenna.bookclub.controller;
 
 import com.ciaranmckenna.bookclub.common.ApiResponse;
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ExportFormat;
+import com.ciaranmckenna.bookclub.common.KeysetCursor;
 import com.ciaranmckenna.bookclub.dto.BookCreateAndAddDto;
 import com.ciaranmckenna.bookclub.dto.BookDto;
-import com.ciaranmckenna.bookclub.dto.ReadingListDto;
+import com.ciaranmckenna.bookclub.dto.BookFacetFilter;
+import com.ciaranmckenna.bookclub.dto.BookRatingStatsDto;
+import com.ciaranmckenna.bookclub.dto.FacetedSearchResultDto;
+import com.ciaranmckenna.bookclub.dto.LeaderboardEntryDto;
+import com.ciaranmckenna.bookclub.dto.RatedBookDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
+import com.ciaranmckenna.bookclub.dto.SuggestionDto;
 import com.ciaranmckenna.bookclub.security.CustomUserDetails;
 import com.ciaranmckenna.bookclub.service.BookService;
+import com.ciaranmckenna.bookclub.service.LeaderboardService;
 import com.ciaranmckenna.bookclub.service.ReadingListService;
+import com.ciaranmckenna.bookclub.service.ReviewService;
 import jakarta.validation.Valid;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** REST controller for book endpoints */
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
+  private static final int MAX_SUGGESTIONS = 20;
+
   @Autowired private BookService bookService;
 
   @Autowired private ReadingListService readingListService;
 
+  @Autowired private ReviewService reviewService;
+
+  @Autowired private LeaderboardService leaderboardService;
+
   /**
    * Create a new book
    *
@@ -78,21 +99,130 @@ public class BookController {
    * @param size Page size
    * @param sort Sort field
    * @param direction Sort direction
+   * @param slice Skip the total count and only report whether there is a next page
+   * @param ratings Embed each book's rating statistics, read for the whole page in one lookup
    * @return ResponseEntity with page of books
    */
   @GetMapping("/public")
-  public ResponseEntity<ApiResponse<Page<BookDto>>> getAllBooks(
+  public ResponseEntity<ApiResponse<Slice<?>>> getAllBooks(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice,
       @RequestParam(defaultValue = "title") String sort,
-      @RequestParam(defaultValue = "asc") String direction) {
+      @RequestParam(defaultValue = "asc") String direction,
+      @RequestParam(defaultValue = "false") boolean ratings) {
     try {
       Sort.Direction sortDirection =
           direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
       Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
 
-      Page<BookDto> books = bookService.getAllBooks(pageable);
-      return ResponseEntity.ok(ApiResponse.success("Books retrieved successfully", books));
+      Slice<BookDto> books =
+          slice ? bookService.getAllBooksSlice(pageable) : bookService.getAllBooks(pageable);
+      return ResponseEntity.ok(
+          ApiResponse.success(
+              "Books retrieved successfully", ratings ? withRatings(books) : books));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Get all books by keyset pagination. Pass the nextCursor of a response back as cursor to get
+   * the following page; the cursor keeps the sort of the first page
+   *
+   * @param cursor Cursor returned by the previous page, omitted for the first page
+   * @param size Page size
+   * @param sort Sort field for the first page (id, title, author or publicationDate)
+   * @param direction Sort direction for the first page
+   * @param ratings Embed each book's rating statistics, read for the whole page in one lookup
+   * @return ResponseEntity with page of books and the next cursor
+   */
+  @GetMapping("/public/scroll")
+  public ResponseEntity<ApiResponse<CursorPage<?>>> scrollAllBooks(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "title") String sort,
+      @RequestParam(defaultValue = "asc") String direction,
+      @RequestParam(defaultValue = "false") boolean ratings) {
+    try {
+      KeysetCursor keysetCursor =
+          cursor != null
+              ? KeysetCursor.decode(cursor)
+              : KeysetCursor.first(
+                  sort,
+                  direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC);
+
+      CursorPage<BookDto> books = bookService.getAllBooks(keysetCursor, size);
+      CursorPage<?> page =
+          ratings
+              ? new CursorPage<>(withRatings(books.content()), books.nextCursor(), books.hasNext())
+              : books;
+      return ResponseEntity.ok(ApiResponse.success("Books retrieved successfully", page));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Get the books trending now: those most reviewed and added to reading lists recently, with
+   * older activity counting for less. Served from memory
+   *
+   * @param limit Maximum number of books, at most 50
+   * @return ResponseEntity with the books and their scores, best first
+   */
+  @GetMapping("/public/trending")
+  public ResponseEntity<ApiResponse<List<LeaderboardEntryDto>>> getTrendingBooks(
+      @RequestParam(defaultValue = "10") int limit) {
+    try {
+      return ResponseEntity.ok(
+          ApiResponse.success(
+              "Trending books retrieved successfully", leaderboardService.getTrending(limit)));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Get the books most highly rated by recent reviews, with older reviews counting for less and
+   * books with few reviews pulled towards the average rating. Served from memory
+   *
+   * @param limit Maximum number of books, at most 50
+   * @return ResponseEntity with the books and their Bayesian average ratings, best first
+   */
+  @GetMapping("/public/top-rated")
+  public ResponseEntity<ApiResponse<List<LeaderboardEntryDto>>> getTopRatedBooks(
+      @RequestParam(defaultValue = "10") int limit) {
+    try {
+      return ResponseEntity.ok(
+          ApiResponse.success(
+              "Top rated books retrieved successfully", leaderboardService.getTopRated(limit)));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Count books, optionally within one category. The count is cached for a short time, so it
+   * can lag behind recent writes
+   *
+   * @param categoryId Category ID, omitted to count all books
+   * @return ResponseEntity with the approximate number of books
+   */
+  @GetMapping("/public/count")
+  public ResponseEntity<ApiResponse<Long>> countBooks(
+      @RequestParam(required = false) Long categoryId) {
+    try {
+      long count =
+          categoryId != null
+              ? bookService.getApproximateBookCountByCategory(categoryId)
+              : bookService.getApproximateBookCount();
+      return ResponseEntity.ok(ApiResponse.success("Approximate book count", count));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body(ApiResponse.error(e.getMessage()));
@@ -152,21 +282,79 @@ public class BookController {
   }
 
   /**
-   * Search books by title or author
+   * Start rebuilding the search indexes from the books table in the background (admin only)
+   *
+   * @return ResponseEntity with rebuild result
+   */
+  @PostMapping("/search-index/rebuild")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<ApiResponse<Void>> rebuildSearchIndexes() {
+    try {
+      bookService.rebuildSearchIndexes();
+      return ResponseEntity.ok(ApiResponse.success("Search index rebuild started", null));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Export every book in the catalogue (admin only). Rows are written to the response as they are
+   * read, so the export runs in constant memory whatever its size
+   *
+   * @param format "ndjson" (default) or "csv"
+   * @return ResponseEntity streaming the export as an attachment, or an error for an unknown
+   *     format
+   */
+  @GetMapping("/export")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<?> exportBooks(
+      @RequestParam(defaultValue = "ndjson") String format) {
+    ExportFormat exportFormat;
+    try {
+      exportFormat = ExportFormat.fromParameter(format);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+    StreamingResponseBody body = out -> bookService.exportBooks(exportFormat, out);
+    return ResponseEntity.ok()
+        .contentType(exportFormat.getMediaType())
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + exportFormat.fileName("books") + "\"")
+        .body(body);
+  }
+
+  /**
+   * Search books by title or author. Each word of the search term matches the start of a word in
+   * the title or author; shortly after startup, while the search index is still being built, the
+   * whole term is matched as a substring instead
    *
    * @param searchTerm Search term
    * @param page Page number
    * @param size Page size
+   * @param slice Skip the total count and only report whether there is a next page
+   * @param fuzzy Match words within a small edit distance, closest matches first; the total is
+   *     always included since the fuzzy index counts for free
    * @return ResponseEntity with page of books
    */
   @GetMapping("/public/search")
-  public ResponseEntity<ApiResponse<Page<BookDto>>> searchBooks(
+  public ResponseEntity<ApiResponse<Slice<BookDto>>> searchBooks(
       @RequestParam String searchTerm,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice,
+      @RequestParam(defaultValue = "false") boolean fuzzy) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<BookDto> books = bookService.searchBooks(searchTerm, pageable);
+      Slice<BookDto> books;
+      if (fuzzy) {
+        books = bookService.fuzzySearchBooks(searchTerm, pageable);
+      } else if (slice) {
+        books = bookService.searchBooksSlice(searchTerm, pageable);
+      } else {
+        books = bookService.searchBooks(searchTerm, pageable);
+      }
       return ResponseEntity.ok(ApiResponse.success("Search results", books));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -174,22 +362,115 @@ public class BookController {
     }
   }
 
+  /**
+   * Search books by title or author by keyset pagination, in ascending ID order
+   *
+   * @param searchTerm Search term
+   * @param cursor Cursor returned by the previous page, omitted for the first page
+   * @param size Page size
+   * @return ResponseEntity with page of books and the next cursor
+   */
+  @GetMapping("/public/search/scroll")
+  public ResponseEntity<ApiResponse<CursorPage<BookDto>>> scrollSearchBooks(
+      @RequestParam String searchTerm,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size) {
+    try {
+      KeysetCursor keysetCursor =
+          cursor != null ? KeysetCursor.decode(cursor) : KeysetCursor.first("id", Sort.Direction.ASC);
+      CursorPage<BookDto> books = bookService.searchBooks(searchTerm, keysetCursor, size);
+      return ResponseEntity.ok(ApiResponse.success("Search results", books));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Suggest completions for a partially typed search term
+   *
+   * @param q Partially typed search term
+   * @param limit Maximum number of suggestions (capped at 20)
+   * @return ResponseEntity with suggestions
+   */
+  @GetMapping("/public/suggest")
+  public ResponseEntity<ApiResponse<List<SuggestionDto>>> suggest(
+      @RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+    try {
+      List<SuggestionDto> suggestions =
+          bookService.suggest(q, Math.min(limit, MAX_SUGGESTIONS));
+      return ResponseEntity.ok(ApiResponse.success("Suggestions", suggestions));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Faceted book search. Combines category, publication year range, author, minimum rating and
+   * search term filters in one request and returns the number of matches for each category, year
+   * and rating value alongside the page of books
+   *
+   * @param categoryId Category IDs; books in any of them match
+   * @param yearFrom First publication year, inclusive
+   * @param yearTo Last publication year, inclusive
+   * @param author Author name words, all of which must appear
+   * @param minRating Minimum average review rating (1-5)
+   * @param searchTerm Title or author search term
+   * @param page Page number
+   * @param size Page size
+   * @return ResponseEntity with page of books, in ascending ID order, and facet counts
+   */
+  @GetMapping("/public/faceted-search")
+  public ResponseEntity<ApiResponse<FacetedSearchResultDto>> facetedSearch(
+      @RequestParam(required = false) List<Long> categoryId,
+      @RequestParam(required = false) Integer yearFrom,
+      @RequestParam(required = false) Integer yearTo,
+      @RequestParam(required = false) String author,
+      @RequestParam(required = false) Integer minRating,
+      @RequestParam(required = false) String searchTerm,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "10") int size) {
+    try {
+      BookFacetFilter filter =
+          new BookFacetFilter(categoryId, yearFrom, yearTo, author, minRating);
+      FacetedSearchResultDto result =
+          bookService.facetedSearch(filter, searchTerm, PageRequest.of(page, size));
+      return ResponseEntity.ok(ApiResponse.success("Faceted search results", result));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .body(ApiResponse.error(e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
   /**
    * Find books by title
    *
    * @param title Title to search for
    * @param page Page number
    * @param size Page size
+   * @param slice Skip the total count and only report whether there is a next page
    * @return ResponseEntity with page of books
    */
   @GetMapping("/public/by-title")
-  public ResponseEntity<ApiResponse<Page<BookDto>>> findBooksByTitle(
+  public ResponseEntity<ApiResponse<Slice<BookDto>>> findBooksByTitle(
       @RequestParam String title,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<BookDto> books = bookService.findBooksByTitle(title, pageable);
+      Slice<BookDto> books =
+          slice
+              ? bookService.findBooksByTitleSlice(title, pageable)
+              : bookService.findBooksByTitle(title, pageable);
       return ResponseEntity.ok(ApiResponse.success("Books with title containing: " + title, books));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -203,16 +484,21 @@ public class BookController {
    * @param author Author to search for
    * @param page Page number
    * @param size Page size
+   * @param slice Skip the total count and only report whether there is a next page
    * @return ResponseEntity with page of books
    */
   @GetMapping("/public/by-author")
-  public ResponseEntity<ApiResponse<Page<BookDto>>> findBooksByAuthor(
+  public ResponseEntity<ApiResponse<Slice<BookDto>>> findBooksByAuthor(
       @RequestParam String author,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<BookDto> books = bookService.findBooksByAuthor(author, pageable);
+      Slice<BookDto> books =
+          slice
+              ? bookService.findBooksByAuthorSlice(author, pageable)
+              : bookService.findBooksByAuthor(author, pageable);
       return ResponseEntity.ok(ApiResponse.success("Books by author containing: " + author, books));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -227,18 +513,22 @@ public class BookController {
    * @param endDate End date
    * @param page Page number
    * @param size Page size
+   * @param slice Skip the total count and only report whether there is a next page
    * @return ResponseEntity with page of books
    */
   @GetMapping("/public/by-date-range")
-  public ResponseEntity<ApiResponse<Page<BookDto>>> findBooksByPublicationDateRange(
+  public ResponseEntity<ApiResponse<Slice<BookDto>>> findBooksByPublicationDateRange(
       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<BookDto> books =
-          bookService.findBooksByPublicationDateRange(startDate, endDate, pageable);
+      Slice<BookDto> books =
+          slice
+              ? bookService.findBooksByPublicationDateRangeSlice(startDate, endDate, pageable)
+              : bookService.findBooksByPublicationDateRange(startDate, endDate, pageable);
       return ResponseEntity.ok(
           ApiResponse.success("Books published between " + startDate + " and " + endDate, books));
     } catch (Exception e) {
@@ -269,10 +559,10 @@ public class BookController {
    * Create a new book and add it to a reading list in a single operation
    *
    * @param createAndAddDto Book data and reading list ID
-   * @return ResponseEntity with the updated reading list
+   * @return ResponseEntity with a summary of the updated reading list
    */
   @PostMapping("/create-and-add")
-  public ResponseEntity<ApiResponse<ReadingListDto>> createBookAndAdd(
+  public ResponseEntity<ApiResponse<ReadingListSummaryDto>> createBookAndAdd(
       @Valid @RequestBody BookCreateAndAddDto createAndAddDto,
       @AuthenticationPrincipal CustomUserDetails userDetails) {
     try {
@@ -296,11 +586,11 @@ public class BookController {
             return ResponseEntity.ok(
                 ApiResponse.success(
                     "Book is already in the reading list",
-                    readingListService.getReadingListById(createAndAddDto.readingListId())));
+                    readingListService.getReadingListSummary(createAndAddDto.readingListId())));
           }
 
           // Book exists but not in reading list, add it
-          ReadingListDto updatedReadingList =
+          ReadingListSummaryDto updatedReadingList =
               readingListService.addBookToReadingList(
                   createAndAddDto.readingListId(), existingBook.get().id());
           return ResponseEntity.ok(
@@ -322,7 +612,7 @@ public class BookController {
           bookService.createBook(createAndAddDto.bookData(), userDetails.getUser().getId());
 
       // Add the book to the reading list
-      ReadingListDto updatedReadingList =
+      ReadingListSummaryDto updatedReadingList =
           readingListService.addBookToReadingList(
               createAndAddDto.readingListId(), createdBook.id());
 
@@ -362,17 +652,48 @@ public class BookController {
    * @param categoryId Category ID
    * @param page Page number
    * @param size Page size
+   * @param slice Skip the total count and only report whether there is a next page
    * @return ResponseEntity with page of books
    */
   @GetMapping("/public/by-category/{categoryId}")
-  public ResponseEntity<ApiResponse<Page<BookDto>>> findBooksByCategory(
+  public ResponseEntity<ApiResponse<Slice<BookDto>>> findBooksByCategory(
       @PathVariable Long categoryId,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<BookDto> books = bookService.findBooksByCategory(categoryId, pageable);
+      Slice<BookDto> books =
+          slice
+              ? bookService.findBooksByCategorySlice(categoryId, pageable)
+              : bookService.findBooksByCategory(categoryId, pageable);
+      return ResponseEntity.ok(ApiResponse.success("Books in category", books));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Find books by category by keyset pagination, in ascending ID order
+   *
+   * @param categoryId Category ID
+   * @param cursor Cursor returned by the previous page, omitted for the first page
+   * @param size Page size
+   * @return ResponseEntity with page of books and the next cursor
+   */
+  @GetMapping("/public/by-category/{categoryId}/scroll")
+  public ResponseEntity<ApiResponse<CursorPage<BookDto>>> scrollBooksByCategory(
+      @PathVariable Long categoryId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "10") int size) {
+    try {
+      KeysetCursor keysetCursor =
+          cursor != null ? KeysetCursor.decode(cursor) : KeysetCursor.first("id", Sort.Direction.ASC);
+      CursorPage<BookDto> books = bookService.findBooksByCategory(categoryId, keysetCursor, size);
       return ResponseEntity.ok(ApiResponse.success("Books in category", books));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body(ApiResponse.error(e.getMessage()));
@@ -401,4 +722,28 @@ public class BookController {
           .body(ApiResponse.error(e.getMessage()));
     }
   }
+
+  /**
+   * Attach rating statistics to a page of books
+   *
+   * @param books Page of books
+   * @return The same page with each book's statistics
+   */
+  private Slice<RatedBookDto> withRatings(Slice<BookDto> books) {
+    Map<Long, BookRatingStatsDto> stats =
+        reviewService.getRatingStats(books.map(BookDto::id).getContent());
+    return books.map(book -> new RatedBookDto(book, stats.get(book.id())));
+  }
+
+  /**
+   * Attach rating statistics to a list of books
+   *
+   * @param books Books
+   * @return The books with their statistics, in the same order
+   */
+  private List<RatedBookDto> withRatings(List<BookDto> books) {
+    Map<Long, BookRatingStatsDto> stats =
+        reviewService.getRatingStats(books.stream().map(BookDto::id).toList());
+    return books.stream().map(book -> new RatedBookDto(book, stats.get(book.id()))).toList();
+  }
 }
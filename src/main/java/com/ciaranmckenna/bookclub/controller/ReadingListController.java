@@ -1,23 +1,34 @@
 package com.ciaranmckenna.bookclub.controller;
 
 import com.ciaranmckenna.bookclub.common.ApiResponse;
+import com.ciaranmckenna.bookclub.common.ExportFormat;
 import com.ciaranmckenna.bookclub.dto.AddBooksToReadingListDto;
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.CloneReadingListDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListChangesDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListCreateDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
 import com.ciaranmckenna.bookclub.security.CustomUserDetails;
 import com.ciaranmckenna.bookclub.service.ReadingListService;
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /** REST controller for reading list endpoints */
 @RestController
@@ -47,6 +58,47 @@ public class ReadingListController {
     }
   }
 
+  /**
+   * Clone a reading list, with its books in the same order, for the authenticated user
+   *
+   * @param id ID of the reading list to clone
+   * @param userDetails Authenticated user details
+   * @return ResponseEntity with a summary of the new reading list
+   */
+  @PostMapping("/{id}/clone")
+  public ResponseEntity<ApiResponse<ReadingListSummaryDto>> cloneReadingList(
+      @PathVariable Long id, @AuthenticationPrincipal CustomUserDetails userDetails) {
+    try {
+      ReadingListSummaryDto copy =
+          readingListService.cloneReadingList(id, List.of(userDetails.getUser().getId())).get(0);
+      return ResponseEntity.status(HttpStatus.CREATED)
+          .body(ApiResponse.success("Reading list cloned successfully", copy));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Clone a reading list for each of several users in a single transaction (admin only)
+   *
+   * @param id ID of the reading list to clone
+   * @param cloneDto IDs of the users who get a copy
+   * @return ResponseEntity with summaries of the new reading lists
+   */
+  @PostMapping("/{id}/clone/bulk")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<ApiResponse<List<ReadingListSummaryDto>>> cloneReadingListForUsers(
+      @PathVariable Long id, @Valid @RequestBody CloneReadingListDto cloneDto) {
+    try {
+      List<ReadingListSummaryDto> copies =
+          readingListService.cloneReadingList(id, cloneDto.userIds());
+      return ResponseEntity.status(HttpStatus.CREATED)
+          .body(ApiResponse.success("Reading list cloned successfully", copies));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
   /**
    * Get all reading lists with pagination and sorting (admin only)
    *
@@ -54,13 +106,15 @@ public class ReadingListController {
    * @param size Page size
    * @param sort Sort field
    * @param direction Sort direction
-   * @return ResponseEntity with page of reading lists
+   * @param slice Skip the total count and only report whether there is a next page
+   * @return ResponseEntity with page of reading list summaries
    */
   @GetMapping("/all")
   @PreAuthorize("hasRole('ADMIN')")
-  public ResponseEntity<ApiResponse<Page<ReadingListDto>>> getAllReadingLists(
+  public ResponseEntity<ApiResponse<Slice<ReadingListSummaryDto>>> getAllReadingLists(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice,
       @RequestParam(defaultValue = "name") String sort,
       @RequestParam(defaultValue = "asc") String direction) {
     try {
@@ -68,7 +122,10 @@ public class ReadingListController {
           direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
       Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
 
-      Page<ReadingListDto> readingLists = readingListService.getAllReadingLists(pageable);
+      Slice<ReadingListSummaryDto> readingLists =
+          slice
+              ? readingListService.getAllReadingListsSlice(pageable)
+              : readingListService.getAllReadingLists(pageable);
       return ResponseEntity.ok(
           ApiResponse.success("Reading lists retrieved successfully", readingLists));
     } catch (Exception e) {
@@ -77,6 +134,79 @@ public class ReadingListController {
     }
   }
 
+  /**
+   * Count all reading lists (admin only). The count is cached for a short time, so it can lag
+   * behind recent writes
+   *
+   * @return ResponseEntity with the approximate number of reading lists
+   */
+  @GetMapping("/count")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<ApiResponse<Long>> countReadingLists() {
+    try {
+      long count = readingListService.getApproximateReadingListCount();
+      return ResponseEntity.ok(ApiResponse.success("Approximate reading list count", count));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Export a summary of every reading list (admin only). Rows are written to the response as they
+   * are read, so the export runs in constant memory whatever its size
+   *
+   * @param format "ndjson" (default) or "csv"
+   * @return ResponseEntity streaming the export as an attachment, or an error for an unknown
+   *     format
+   */
+  @GetMapping("/export")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<?> exportReadingLists(
+      @RequestParam(defaultValue = "ndjson") String format) {
+    ExportFormat exportFormat;
+    try {
+      exportFormat = ExportFormat.fromParameter(format);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+    StreamingResponseBody body = out -> readingListService.exportReadingLists(exportFormat, out);
+    return ResponseEntity.ok()
+        .contentType(exportFormat.getMediaType())
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + exportFormat.fileName("reading-lists") + "\"")
+        .body(body);
+  }
+
+  /**
+   * Export every (reading list, book) pair (admin only). Rows are written to the response as they
+   * are read, so the export runs in constant memory whatever its size
+   *
+   * @param format "ndjson" (default) or "csv"
+   * @return ResponseEntity streaming the export as an attachment, or an error for an unknown
+   *     format
+   */
+  @GetMapping("/export/entries")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<?> exportReadingListEntries(
+      @RequestParam(defaultValue = "ndjson") String format) {
+    ExportFormat exportFormat;
+    try {
+      exportFormat = ExportFormat.fromParameter(format);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+    StreamingResponseBody body =
+        out -> readingListService.exportReadingListEntries(exportFormat, out);
+    return ResponseEntity.ok()
+        .contentType(exportFormat.getMediaType())
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + exportFormat.fileName("reading-list-entries") + "\"")
+        .body(body);
+  }
+
   /**
    * Get reading lists for the authenticated user with pagination
    *
@@ -85,12 +215,14 @@ public class ReadingListController {
    * @param sort Sort field
    * @param direction Sort direction
    * @param userDetails Authenticated user details
-   * @return ResponseEntity with page of reading lists
+   * @param slice Skip the total count and only report whether there is a next page
+   * @return ResponseEntity with page of reading list summaries
    */
   @GetMapping
-  public ResponseEntity<ApiResponse<Page<ReadingListDto>>> getUserReadingLists(
+  public ResponseEntity<ApiResponse<Slice<ReadingListSummaryDto>>> getUserReadingLists(
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice,
       @RequestParam(defaultValue = "name") String sort,
       @RequestParam(defaultValue = "asc") String direction,
       @AuthenticationPrincipal CustomUserDetails userDetails) {
@@ -99,8 +231,11 @@ public class ReadingListController {
           direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
       Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
 
-      Page<ReadingListDto> readingLists =
-          readingListService.getReadingListsByUserId(userDetails.getUser().getId(), pageable);
+      Slice<ReadingListSummaryDto> readingLists =
+          slice
+              ? readingListService.getReadingListsByUserIdSlice(
+                  userDetails.getUser().getId(), pageable)
+              : readingListService.getReadingListsByUserId(userDetails.getUser().getId(), pageable);
       return ResponseEntity.ok(
           ApiResponse.success("Reading lists retrieved successfully", readingLists));
     } catch (Exception e) {
@@ -115,18 +250,22 @@ public class ReadingListController {
    * @param userId User ID
    * @param page Page number
    * @param size Page size
-   * @return ResponseEntity with page of reading lists
+   * @param slice Skip the total count and only report whether there is a next page
+   * @return ResponseEntity with page of reading list summaries
    */
   @GetMapping("/by-user/{userId}")
   @PreAuthorize("hasRole('ADMIN')")
-  public ResponseEntity<ApiResponse<Page<ReadingListDto>>> getReadingListsByUserId(
+  public ResponseEntity<ApiResponse<Slice<ReadingListSummaryDto>>> getReadingListsByUserId(
       @PathVariable Long userId,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<ReadingListDto> readingLists =
-          readingListService.getReadingListsByUserId(userId, pageable);
+      Slice<ReadingListSummaryDto> readingLists =
+          slice
+              ? readingListService.getReadingListsByUserIdSlice(userId, pageable)
+              : readingListService.getReadingListsByUserId(userId, pageable);
       return ResponseEntity.ok(
           ApiResponse.success("Reading lists retrieved successfully", readingLists));
     } catch (Exception e) {
@@ -136,17 +275,75 @@ public class ReadingListController {
   }
 
   /**
-   * Get a reading list by ID
+   * Get a reading list by ID. The response's ETag changes with the list, the order of its books,
+   * any of those books and its owner's username; a request whose If-None-Match still matches
+   * gets 304 Not Modified without the books being loaded
    *
    * @param id Reading list ID
-   * @return ResponseEntity with reading list
+   * @param request Current request, for its conditional headers
+   * @return ResponseEntity with reading list, or null once a 304 has been sent
    */
   @GetMapping("/{id}")
-  public ResponseEntity<ApiResponse<ReadingListDto>> getReadingListById(@PathVariable Long id) {
+  public ResponseEntity<ApiResponse<ReadingListDto>> getReadingListById(
+      @PathVariable Long id, WebRequest request) {
     try {
+      // Read before the list, so a change in between leaves the tag stale rather than the copy
+      String eTag = readingListService.getReadingListETag(id);
+      if (request.checkNotModified(eTag)) {
+        return null;
+      }
       ReadingListDto readingList = readingListService.getReadingListById(id);
+      return ResponseEntity.ok()
+          .eTag(eTag)
+          .body(ApiResponse.success("Reading list retrieved successfully", readingList));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Get the changes to a reading list since a version, for clients keeping a copy in sync
+   *
+   * @param id Reading list ID
+   * @param since Version of the client's copy, from a previous response
+   * @param booksUpdatedSince Latest book edit time of the client's copy, from a previous response;
+   *     without it, edits to the books are left out
+   * @return ResponseEntity with the changes and the list's current version and book edit time
+   */
+  @GetMapping("/{id}/changes")
+  public ResponseEntity<ApiResponse<ReadingListChangesDto>> getReadingListChanges(
+      @PathVariable Long id,
+      @RequestParam long since,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime booksUpdatedSince) {
+    try {
+      ReadingListChangesDto changes =
+          readingListService.getReadingListChanges(id, since, booksUpdatedSince);
+      return ResponseEntity.ok(
+          ApiResponse.success("Reading list changes retrieved successfully", changes));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
+  /**
+   * Get a page of the books in a reading list, in list order
+   *
+   * @param id Reading list ID
+   * @param page Page number
+   * @param size Page size
+   * @return ResponseEntity with page of books
+   */
+  @GetMapping("/{id}/books")
+  public ResponseEntity<ApiResponse<Page<BookDto>>> getReadingListBooks(
+      @PathVariable Long id,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size) {
+    try {
+      Page<BookDto> books =
+          readingListService.getBooksInReadingList(id, PageRequest.of(page, size));
       return ResponseEntity.ok(
-          ApiResponse.success("Reading list retrieved successfully", readingList));
+          ApiResponse.success("Reading list books retrieved successfully", books));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
     }
@@ -193,18 +390,22 @@ public class ReadingListController {
    * @param name Name to search for
    * @param page Page number
    * @param size Page size
-   * @return ResponseEntity with page of reading lists
+   * @param slice Skip the total count and only report whether there is a next page
+   * @return ResponseEntity with page of reading list summaries
    */
   @GetMapping("/search")
   @PreAuthorize("hasRole('ADMIN')")
-  public ResponseEntity<ApiResponse<Page<ReadingListDto>>> searchReadingListsByName(
+  public ResponseEntity<ApiResponse<Slice<ReadingListSummaryDto>>> searchReadingListsByName(
       @RequestParam String name,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "10") int size) {
+      @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<ReadingListDto> readingLists =
-          readingListService.searchReadingListsByName(name, pageable);
+      Slice<ReadingListSummaryDto> readingLists =
+          slice
+              ? readingListService.searchReadingListsByNameSlice(name, pageable)
+              : readingListService.searchReadingListsByName(name, pageable);
       return ResponseEntity.ok(ApiResponse.success("Search results", readingLists));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -219,19 +420,24 @@ public class ReadingListController {
    * @param page Page number
    * @param size Page size
    * @param userDetails Authenticated user details
-   * @return ResponseEntity with page of reading lists
+   * @param slice Skip the total count and only report whether there is a next page
+   * @return ResponseEntity with page of reading list summaries
    */
   @GetMapping("/search/my")
-  public ResponseEntity<ApiResponse<Page<ReadingListDto>>> searchMyReadingListsByName(
+  public ResponseEntity<ApiResponse<Slice<ReadingListSummaryDto>>> searchMyReadingListsByName(
       @RequestParam String name,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "10") int size,
+      @RequestParam(defaultValue = "false") boolean slice,
       @AuthenticationPrincipal CustomUserDetails userDetails) {
     try {
       Pageable pageable = PageRequest.of(page, size);
-      Page<ReadingListDto> readingLists =
-          readingListService.searchReadingListsByNameAndUserId(
-              name, userDetails.getUser().getId(), pageable);
+      Slice<ReadingListSummaryDto> readingLists =
+          slice
+              ? readingListService.searchReadingListsByNameAndUserIdSlice(
+                  name, userDetails.getUser().getId(), pageable)
+              : readingListService.searchReadingListsByNameAndUserId(
+                  name, userDetails.getUser().getId(), pageable);
       return ResponseEntity.ok(ApiResponse.success("Search results", readingLists));
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -244,14 +450,20 @@ public class ReadingListController {
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
-   * @return ResponseEntity with updated reading list
+   * @param index Zero-based index to insert the book at, moving it if it is already in the list;
+   *     appended to the end if omitted
+   * @return ResponseEntity with a summary of the updated reading list
    */
   @PostMapping("/{readingListId}/books/{bookId}")
-  public ResponseEntity<ApiResponse<ReadingListDto>> addBookToReadingList(
-      @PathVariable Long readingListId, @PathVariable Long bookId) {
+  public ResponseEntity<ApiResponse<ReadingListSummaryDto>> addBookToReadingList(
+      @PathVariable Long readingListId,
+      @PathVariable Long bookId,
+      @RequestParam(required = false) Integer index) {
     try {
-      ReadingListDto updatedReadingList =
-          readingListService.addBookToReadingList(readingListId, bookId);
+      ReadingListSummaryDto updatedReadingList =
+          index == null
+              ? readingListService.addBookToReadingList(readingListId, bookId)
+              : readingListService.addBookToReadingListAt(readingListId, bookId, index);
       return ResponseEntity.ok(
           ApiResponse.success("Book added to reading list successfully", updatedReadingList));
     } catch (Exception e) {
@@ -259,18 +471,37 @@ public class ReadingListController {
     }
   }
 
+  /**
+   * Move a book to an index within a reading list
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @param index Zero-based index to move the book to; past the end means last
+   * @return ResponseEntity with move result
+   */
+  @PutMapping("/{readingListId}/books/{bookId}/position")
+  public ResponseEntity<ApiResponse<Void>> moveBookInReadingList(
+      @PathVariable Long readingListId, @PathVariable Long bookId, @RequestParam int index) {
+    try {
+      readingListService.moveBookInReadingList(readingListId, bookId, index);
+      return ResponseEntity.ok(ApiResponse.success("Book moved successfully", null));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+  }
+
   /**
    * Remove a book from a reading list
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
-   * @return ResponseEntity with updated reading list
+   * @return ResponseEntity with a summary of the updated reading list
    */
   @DeleteMapping("/{readingListId}/books/{bookId}")
-  public ResponseEntity<ApiResponse<ReadingListDto>> removeBookFromReadingList(
+  public ResponseEntity<ApiResponse<ReadingListSummaryDto>> removeBookFromReadingList(
       @PathVariable Long readingListId, @PathVariable Long bookId) {
     try {
-      ReadingListDto updatedReadingList =
+      ReadingListSummaryDto updatedReadingList =
           readingListService.removeBookFromReadingList(readingListId, bookId);
       return ResponseEntity.ok(
           ApiResponse.success("Book removed from reading list successfully", updatedReadingList));
@@ -317,4 +548,26 @@ public class ReadingListController {
       return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
     }
   }
+
+  /**
+   * Add many books to a reading list by ID. Only the number of books added is returned, so this
+   * stays cheap for very large lists
+   *
+   * @param readingListId Reading list ID
+   * @param bookIds IDs of the books to add
+   * @return ResponseEntity with the number of books actually added
+   */
+  @PostMapping("/{readingListId}/books")
+  public ResponseEntity<ApiResponse<Integer>> addBookIdsToReadingList(
+      @PathVariable Long readingListId, @RequestBody List<Long> bookIds) {
+    if (bookIds == null || bookIds.isEmpty()) {
+      return ResponseEntity.badRequest().body(ApiResponse.error("Book IDs cannot be empty"));
+    }
+    try {
+      int added = readingListService.addBookIdsToReadingList(readingListId, bookIds);
+      return ResponseEntity.ok(ApiResponse.success(added + " books added to reading list", added));
+    } catch (Exception e) {
+      return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+    }
+  }
 }
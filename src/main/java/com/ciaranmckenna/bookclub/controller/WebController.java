@@ -1,17 +1,23 @@
 package com.ciaranmckenna.bookclub.controller;
 
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.KeysetCursor;
 import com.ciaranmckenna.bookclub.dto.BookDto;
 import com.ciaranmckenna.bookclub.dto.BookFormDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListCreateDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListFormDto;
 import com.ciaranmckenna.bookclub.dto.UserRegistrationDto;
 import com.ciaranmckenna.bookclub.entity.User;
 import com.ciaranmckenna.bookclub.security.CustomUserDetails;
 import com.ciaranmckenna.bookclub.service.BookService;
+import com.ciaranmckenna.bookclub.service.LeaderboardService;
 import com.ciaranmckenna.bookclub.service.PasswordResetService;
 import com.ciaranmckenna.bookclub.service.ReadingListService;
 import com.ciaranmckenna.bookclub.service.UserService;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -33,6 +39,9 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @Controller
 public class WebController {
 
+  /** Number of books on each of the home page's leaderboard shelves */
+  private static final int SHELF_SIZE = 5;
+
   @Autowired private UserService userService;
 
   @Autowired private BookService bookService;
@@ -41,14 +50,18 @@ public class WebController {
 
   @Autowired private PasswordResetService passwordResetService;
 
+  @Autowired private LeaderboardService leaderboardService;
+
   /**
-   * Home page
+   * Home page, with the trending and top rated shelves served from the in-memory leaderboards
    *
    * @param model Model
    * @return Home page template
    */
   @GetMapping("/")
   public String home(Model model) {
+    model.addAttribute("trendingBooks", leaderboardService.getTrending(SHELF_SIZE));
+    model.addAttribute("topRatedBooks", leaderboardService.getTopRated(SHELF_SIZE));
     return "home";
   }
 
@@ -226,10 +239,7 @@ public class WebController {
       model.addAttribute("recentBooks", books.getContent());
 
       // Add statistics
-      long readingListCount =
-          readingListService
-              .getReadingListsByUserId(user.getId(), Pageable.unpaged())
-              .getTotalElements();
+      long readingListCount = readingListService.getReadingListSummaries(user.getId()).size();
       model.addAttribute("readingListCount", readingListCount);
     }
 
@@ -237,31 +247,61 @@ public class WebController {
   }
 
   /**
-   * Books page
+   * Books page. Passing a cursor parameter (empty for the first page) switches from numbered
+   * pages to keyset pagination with a "next" link, which stays fast deep into the catalogue. A
+   * malformed or stale cursor, or a sort field keyset pagination does not support, starts again
+   * from the first page
    *
    * @param pageable Pagination information
+   * @param cursor Keyset cursor (optional)
    * @param model Model
    * @return Books page template
    */
   @GetMapping("/books")
   public String books(
       @PageableDefault(size = 10, sort = "title", direction = Sort.Direction.ASC) Pageable pageable,
+      @RequestParam(required = false) String cursor,
       @AuthenticationPrincipal CustomUserDetails userDetails,
       Model model) {
-    model.addAttribute("books", bookService.getAllBooks(pageable));
+    if (cursor != null) {
+      Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("title"));
+      CursorPage<BookDto> books =
+          bookService.getAllBooks(bookCursor(cursor, order), pageable.getPageSize());
+      model.addAttribute("books", books.content());
+      model.addAttribute("cursorMode", true);
+      model.addAttribute("nextCursor", books.nextCursor());
+    } else {
+      model.addAttribute("books", bookService.getAllBooks(pageable));
+    }
 
     // For authenticated users, add their reading lists for the "add to list" functionality
     if (userDetails != null) {
       model.addAttribute(
           "userReadingLists",
-          readingListService
-              .getReadingListsByUserId(userDetails.getUser().getId(), Pageable.unpaged())
-              .getContent());
+          readingListService.getReadingListSummaries(userDetails.getUser().getId()));
     }
 
     return "books";
   }
 
+  /**
+   * Cursor for the books page: the decoded cursor, or the first page in the requested order if it
+   * cannot be decoded, or by title if that order cannot be paginated by cursor
+   */
+  private static KeysetCursor bookCursor(String cursor, Sort.Order order) {
+    if (!cursor.isBlank()) {
+      try {
+        return KeysetCursor.decode(cursor);
+      } catch (IllegalArgumentException e) {
+        // Fall through to the first page
+      }
+    }
+    if (!KeysetCursor.SORT_FIELDS.contains(order.getProperty())) {
+      return KeysetCursor.first("title", Sort.Direction.ASC);
+    }
+    return KeysetCursor.first(order.getProperty(), order.getDirection());
+  }
+
   /**
    * Book details page
    *
@@ -277,17 +317,15 @@ public class WebController {
 
     // For authenticated users, add their reading lists
     if (userDetails != null) {
-      model.addAttribute(
-          "userReadingLists",
-          readingListService
-              .getReadingListsByUserId(userDetails.getUser().getId(), Pageable.unpaged())
-              .getContent());
+      Long userId = userDetails.getUser().getId();
+      List<ReadingListSummaryDto> userReadingLists =
+          readingListService.getReadingListSummaries(userId);
+      model.addAttribute("userReadingLists", userReadingLists);
 
+      Set<Long> containingIds = readingListService.findReadingListIdsContainingBook(userId, id);
       model.addAttribute(
           "userReadingListsContainingBook",
-          readingListService.findReadingListsByBookId(id).stream()
-              .filter(list -> list.userId().equals(userDetails.getUser().getId()))
-              .toList());
+          userReadingLists.stream().filter(list -> containingIds.contains(list.id())).toList());
     }
 
     return "book-details";
@@ -513,11 +551,8 @@ public class WebController {
   @PreAuthorize("hasRole('ADMIN')")
   public String adminDashboard(Model model) {
     model.addAttribute("users", userService.getAllUsers());
-    model.addAttribute(
-        "totalBooks", bookService.getAllBooks(Pageable.unpaged()).getTotalElements());
-    model.addAttribute(
-        "totalReadingLists",
-        readingListService.getAllReadingLists(Pageable.unpaged()).getTotalElements());
+    model.addAttribute("totalBooks", bookService.getApproximateBookCount());
+    model.addAttribute("totalReadingLists", readingListService.getApproximateReadingListCount());
     return "admin/dashboard";
   }
 
@@ -538,9 +573,7 @@ public class WebController {
     if (userDetails != null) {
       model.addAttribute(
           "userReadingLists",
-          readingListService
-              .getReadingListsByUserId(userDetails.getUser().getId(), Pageable.unpaged())
-              .getContent());
+          readingListService.getReadingListSummaries(userDetails.getUser().getId()));
     }
 
     return "book-form";
@@ -571,9 +604,7 @@ public class WebController {
       if (userDetails != null) {
         model.addAttribute(
             "userReadingLists",
-            readingListService
-                .getReadingListsByUserId(userDetails.getUser().getId(), Pageable.unpaged())
-                .getContent());
+            readingListService.getReadingListSummaries(userDetails.getUser().getId()));
       }
       model.addAttribute("isEdit", false);
       return "book-form";
@@ -619,9 +650,7 @@ public class WebController {
       if (userDetails != null) {
         model.addAttribute(
             "userReadingLists",
-            readingListService
-                .getReadingListsByUserId(userDetails.getUser().getId(), Pageable.unpaged())
-                .getContent());
+            readingListService.getReadingListSummaries(userDetails.getUser().getId()));
       }
       model.addAttribute("isEdit", false);
       model.addAttribute("errorMessage", e.getMessage());
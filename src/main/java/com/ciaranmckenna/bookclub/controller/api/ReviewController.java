@@ -1,13 +1,17 @@
 package com.ciaranmckenna.bookclub.controller.api;
 
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ReviewCursor;
+import com.ciaranmckenna.bookclub.dto.BookRatingStatsDto;
 import com.ciaranmckenna.bookclub.dto.ReviewDto;
 import com.ciaranmckenna.bookclub.security.CustomUserDetails;
 import com.ciaranmckenna.bookclub.service.ReviewService;
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +23,12 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/reviews")
 public class ReviewController {
 
+  /** Most books whose rating statistics can be fetched in one call */
+  private static final int MAX_STATS_BOOKS = 100;
+
+  /** Largest page of a review feed */
+  private static final int MAX_FEED_PAGE_SIZE = 100;
+
   @Autowired private ReviewService reviewService;
 
   @PostMapping
@@ -30,6 +40,25 @@ public class ReviewController {
     return ResponseEntity.status(HttpStatus.CREATED).body(createdReview);
   }
 
+  /**
+   * Create the caller's review of a book, or replace the one they already wrote, with one upsert
+   *
+   * @param reviewDto Review, naming its book
+   * @param userDetails Authenticated user
+   * @return 201 if the review was created, 204 if it replaced an existing one
+   */
+  @PutMapping
+  @PreAuthorize("isAuthenticated()")
+  public ResponseEntity<Void> saveReview(
+      @Valid @RequestBody ReviewDto reviewDto,
+      @AuthenticationPrincipal CustomUserDetails userDetails) {
+    boolean created =
+        reviewService.saveReview(reviewDto.getBookId(), reviewDto, userDetails.getUser().getId());
+    return created
+        ? ResponseEntity.status(HttpStatus.CREATED).build()
+        : ResponseEntity.noContent().build();
+  }
+
   @PutMapping("/{id}")
   @PreAuthorize("isAuthenticated()")
   public ResponseEntity<ReviewDto> updateReview(
@@ -61,10 +90,33 @@ public class ReviewController {
     return ResponseEntity.ok(reviews);
   }
 
+  /**
+   * Get a book's reviews, newest first, by keyset pagination. Pass the nextCursor of a response
+   * back as cursor to get the following page
+   *
+   * @param bookId Book ID
+   * @param cursor Cursor returned by the previous page, omitted for the first page
+   * @param size Page size
+   * @return Page of reviews and the next cursor
+   */
+  @GetMapping("/book/{bookId}/scroll")
+  public ResponseEntity<CursorPage<ReviewDto>> scrollReviewsByBookId(
+      @PathVariable Long bookId,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size) {
+    return ResponseEntity.ok(
+        reviewService.getReviewsByBookId(bookId, toCursor(cursor), checkFeedSize(size)));
+  }
+
   @GetMapping("/book/{bookId}/paged")
-  public ResponseEntity<Page<ReviewDto>> getReviewsByBookIdPaged(
-      @PathVariable Long bookId, @PageableDefault(size = 10) Pageable pageable) {
-    Page<ReviewDto> reviews = reviewService.getReviewsByBookId(bookId, pageable);
+  public ResponseEntity<Slice<ReviewDto>> getReviewsByBookIdPaged(
+      @PathVariable Long bookId,
+      @PageableDefault(size = 10) Pageable pageable,
+      @RequestParam(defaultValue = "false") boolean slice) {
+    Slice<ReviewDto> reviews =
+        slice
+            ? reviewService.getReviewsByBookIdSlice(bookId, pageable)
+            : reviewService.getReviewsByBookId(bookId, pageable);
     return ResponseEntity.ok(reviews);
   }
 
@@ -76,36 +128,48 @@ public class ReviewController {
     return ResponseEntity.ok(reviews);
   }
 
-  @GetMapping("/book/{bookId}/stats")
-  public ResponseEntity<ReviewStatsDto> getBookReviewStats(@PathVariable Long bookId) {
-    Double averageRating = reviewService.getAverageRatingByBookId(bookId);
-    Long reviewCount = reviewService.getReviewCountByBookId(bookId);
-
-    ReviewStatsDto stats = new ReviewStatsDto();
-    stats.setAverageRating(averageRating != null ? averageRating : 0.0);
-    stats.setReviewCount(reviewCount);
-
-    return ResponseEntity.ok(stats);
+  /**
+   * Get the caller's reviews, newest first, by keyset pagination
+   *
+   * @param cursor Cursor returned by the previous page, omitted for the first page
+   * @param size Page size
+   * @param userDetails Authenticated user
+   * @return Page of reviews and the next cursor
+   */
+  @GetMapping("/user/scroll")
+  @PreAuthorize("isAuthenticated()")
+  public ResponseEntity<CursorPage<ReviewDto>> scrollUserReviews(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "20") int size,
+      @AuthenticationPrincipal CustomUserDetails userDetails) {
+    return ResponseEntity.ok(
+        reviewService.getReviewsByUserId(
+            userDetails.getUser().getId(), toCursor(cursor), checkFeedSize(size)));
   }
 
-  public static class ReviewStatsDto {
-    private Double averageRating;
-    private Long reviewCount;
-
-    public Double getAverageRating() {
-      return averageRating;
-    }
+  @GetMapping("/book/{bookId}/stats")
+  public ResponseEntity<BookRatingStatsDto> getBookReviewStats(@PathVariable Long bookId) {
+    return ResponseEntity.ok(reviewService.getRatingStats(bookId));
+  }
 
-    public void setAverageRating(Double averageRating) {
-      this.averageRating = averageRating;
+  @GetMapping("/stats")
+  public ResponseEntity<Map<Long, BookRatingStatsDto>> getReviewStats(
+      @RequestParam List<Long> bookIds) {
+    if (bookIds.size() > MAX_STATS_BOOKS) {
+      throw new IllegalArgumentException(
+          "Cannot fetch rating statistics for more than " + MAX_STATS_BOOKS + " books at once");
     }
+    return ResponseEntity.ok(reviewService.getRatingStats(bookIds));
+  }
 
-    public Long getReviewCount() {
-      return reviewCount;
-    }
+  private static ReviewCursor toCursor(String cursor) {
+    return cursor != null ? ReviewCursor.decode(cursor) : ReviewCursor.first();
+  }
 
-    public void setReviewCount(Long reviewCount) {
-      this.reviewCount = reviewCount;
+  private static int checkFeedSize(int size) {
+    if (size < 1 || size > MAX_FEED_PAGE_SIZE) {
+      throw new IllegalArgumentException("Page size must be between 1 and " + MAX_FEED_PAGE_SIZE);
     }
+    return size;
   }
 }
@@ -0,0 +1,28 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import java.util.List;
+
+/**
+ * Faceted book search filter Data Transfer Object
+ * Every non-null field narrows the results; several category IDs match books in any of them
+ */
+public record BookFacetFilter(
+    List<Long> categoryIds,
+    Integer yearFrom,
+    Integer yearTo,
+    String author,
+    Integer minRating
+) {
+    /**
+     * Canonical constructor with validation
+     */
+    public BookFacetFilter {
+        categoryIds = categoryIds == null ? List.of() : List.copyOf(categoryIds);
+        if (minRating != null && (minRating < 1 || minRating > 5)) {
+            throw new IllegalArgumentException("Minimum rating must be between 1 and 5");
+        }
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new IllegalArgumentException("Start year must not be after end year");
+        }
+    }
+}
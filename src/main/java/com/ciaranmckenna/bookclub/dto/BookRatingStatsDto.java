@@ -0,0 +1,16 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import java.util.Map;
+
+/**
+ * Book rating statistics Data Transfer Object
+ * The average rating of a book's reviews, how many there are and how many gave each rating
+ * from 1 to 5. The average is 0 when the book has no reviews
+ */
+public record BookRatingStatsDto(
+    Long bookId,
+    double averageRating,
+    long reviewCount,
+    Map<Integer, Long> ratingCounts
+) {
+}
@@ -0,0 +1,16 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO for cloning a reading list for several users in a single operation
+ */
+public record CloneReadingListDto(
+        @NotEmpty(message = "User IDs cannot be empty")
+        @Size(max = 1000, message = "Cannot clone for more than 1000 users at once")
+        List<Long> userIds
+) {
+}
@@ -0,0 +1,17 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import java.util.Map;
+import org.springframework.data.domain.Page;
+
+/**
+ * Faceted book search result Data Transfer Object
+ * A page of matching books plus, for each facet, how many books each value would match if that
+ * facet's own filter were changed while the others stayed in place
+ */
+public record FacetedSearchResultDto(
+    Page<BookDto> books,
+    Map<Long, Long> categoryCounts,
+    Map<Integer, Long> yearCounts,
+    Map<Integer, Long> minRatingCounts
+) {
+}
@@ -0,0 +1,15 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * Leaderboard entry Data Transfer Object
+ * A book with its leaderboard score, serialised as the book's own fields plus score. The score is
+ * the time-decayed activity on the trending board and the Bayesian average rating, from 1 to 5,
+ * on the top-rated board
+ */
+public record LeaderboardEntryDto(
+    @JsonUnwrapped BookDto book,
+    double score
+) {
+}
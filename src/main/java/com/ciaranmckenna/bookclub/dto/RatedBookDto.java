@@ -0,0 +1,13 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * Book with its rating statistics, for listings that ask for them
+ * Serialised as the book's own fields plus a ratings object
+ */
+public record RatedBookDto(
+    @JsonUnwrapped BookDto book,
+    BookRatingStatsDto ratings
+) {
+}
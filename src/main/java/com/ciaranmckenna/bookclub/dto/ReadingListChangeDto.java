@@ -0,0 +1,15 @@
+package com.ciaranmckenna.bookclub.dto;
+
+/**
+ * Reading list change Data Transfer Object
+ * One entry of a reading list's change log. Added and updated books carry their current details;
+ * index is the zero-based place an added or moved book went to, or null for an append to the end
+ */
+public record ReadingListChangeDto(
+    long version,
+    String type,
+    Long bookId,
+    Integer index,
+    BookDto book
+) {
+}
@@ -0,0 +1,21 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reading list changes Data Transfer Object
+ * The changes to a reading list since a version, to be applied in order, with the list's current
+ * details, version and latest book edit time. When resyncRequired is set the changes are left out
+ * and the client should fetch the whole list again
+ */
+public record ReadingListChangesDto(
+    Long id,
+    String name,
+    String description,
+    long version,
+    LocalDateTime booksUpdatedAt,
+    boolean resyncRequired,
+    List<ReadingListChangeDto> changes
+) {
+}
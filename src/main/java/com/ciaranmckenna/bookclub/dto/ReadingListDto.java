@@ -5,7 +5,8 @@ import java.util.Set;
 
 /**
  * ReadingList Data Transfer Object
- * Used to transfer reading list data between layers without exposing entity details
+ * Used to transfer reading list data between layers without exposing entity details.
+ * The version and booksUpdatedAt are the ones to pass when asking for the changes since this copy
  */
 public record ReadingListDto(
     Long id,
@@ -14,6 +15,8 @@ public record ReadingListDto(
     LocalDateTime createdAt,
     Long userId,
     String username,
+    long version,
+    LocalDateTime booksUpdatedAt,
     Set<BookDto> books
 ) {
     /**
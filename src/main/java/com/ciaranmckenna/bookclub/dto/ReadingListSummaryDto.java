@@ -0,0 +1,19 @@
+package com.ciaranmckenna.bookclub.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reading list summary Data Transfer Object
+ * Used by pickers and paged listings: a reading list with its book count instead of its books,
+ * which are fetched page by page from the reading list's books endpoint
+ */
+public record ReadingListSummaryDto(
+    Long id,
+    String name,
+    String description,
+    LocalDateTime createdAt,
+    Long userId,
+    String username,
+    long bookCount
+) {
+}
@@ -0,0 +1,17 @@
+package com.ciaranmckenna.bookclub.dto;
+
+/**
+ * Autocomplete suggestion Data Transfer Object
+ * A completion for a search prefix together with what kind of value it completes to
+ */
+public record SuggestionDto(
+    String text,
+    Type type
+) {
+    /** Kind of value a suggestion completes to */
+    public enum Type {
+        TITLE,
+        AUTHOR,
+        CATEGORY
+    }
+}
@@ -1,5 +1,6 @@
 package com.ciaranmckenna.bookclub.entity;
 
+import com.ciaranmckenna.bookclub.common.Isbn;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -13,9 +14,19 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
-/** Book entity class Represents a book in the system which can be added to reading lists */
+/**
+ * Book entity class Represents a book in the system which can be added to reading lists. Each
+ * field a keyset listing can be sorted by is indexed together with the ID tie-breaker, so every
+ * page is a range read of one index
+ */
 @Entity
-@Table(name = "books")
+@Table(
+    name = "books",
+    indexes = {
+      @Index(name = "idx_books_title_id", columnList = "title, id"),
+      @Index(name = "idx_books_author_id", columnList = "author, id"),
+      @Index(name = "idx_books_publication_date_id", columnList = "publication_date, id")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
@@ -49,6 +60,10 @@ public class Book {
   @Column(name = "isbn", unique = true)
   private String isbn;
 
+  /** Canonical form of the ISBN, see {@link Isbn#canonicalKey(String)} */
+  @Column(name = "isbn_key", unique = true, length = 32)
+  private String isbnKey;
+
   @Column(name = "cover_image_url")
   private String coverImageUrl;
 
@@ -85,16 +100,18 @@ public class Book {
     return getClass().hashCode();
   }
 
-  /** PrePersist hook to set creation timestamp and creator */
+  /** PrePersist hook to set creation timestamp and ISBN key */
   @PrePersist
   protected void onCreate() {
     createdAt = LocalDateTime.now();
     updatedAt = LocalDateTime.now();
+    isbnKey = Isbn.canonicalKey(isbn);
   }
 
-  /** PreUpdate hook to update last modified timestamp */
+  /** PreUpdate hook to update last modified timestamp and ISBN key */
   @PreUpdate
   protected void onUpdate() {
     updatedAt = LocalDateTime.now();
+    isbnKey = Isbn.canonicalKey(isbn);
   }
 }
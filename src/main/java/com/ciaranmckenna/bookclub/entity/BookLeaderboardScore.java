@@ -0,0 +1,49 @@
+package com.ciaranmckenna.bookclub.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * BookLeaderboardScore entity class Represents the checkpointed score of one book on one
+ * leaderboard, so the in-memory leaderboards survive a restart. The score is stored as the log of
+ * its value at the epoch (see {@link com.ciaranmckenna.bookclub.common.DecayingLeaderboard}), so a
+ * checkpoint never needs rewriting just because time has passed.
+ *
+ * <p>The book is referenced by ID without a foreign key, like {@link BookRating}
+ */
+@Entity
+@Table(name = "book_leaderboard_scores")
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class BookLeaderboardScore {
+
+  @EmbeddedId private Key id;
+
+  @Column(name = "log_score", nullable = false)
+  private double logScore;
+
+  /** Composite primary key of a score: the leaderboard and the book */
+  @Embeddable
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  @ToString
+  public static class Key implements Serializable {
+
+    @Column(name = "board", length = 20)
+    private String board;
+
+    @Column(name = "book_id")
+    private Long bookId;
+  }
+}
@@ -0,0 +1,77 @@
+package com.ciaranmckenna.bookclub.entity;
+
+import jakarta.persistence.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * BookRating entity class Represents the review totals of one book: the sum and count of its
+ * ratings and how many reviews gave each rating. Kept up to date by the review writes
+ * themselves, so reading a book's rating statistics is a primary key lookup.
+ *
+ * <p>The book is referenced by ID without a foreign key, so a book can be deleted without
+ * touching this table
+ */
+@Entity
+@Table(name = "book_ratings")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class BookRating {
+
+  @Id
+  @Column(name = "book_id")
+  private Long bookId;
+
+  @Column(name = "rating_sum", nullable = false)
+  private long ratingSum;
+
+  @Column(name = "review_count", nullable = false)
+  private long reviewCount;
+
+  @Column(name = "rating_1", nullable = false)
+  private long rating1Count;
+
+  @Column(name = "rating_2", nullable = false)
+  private long rating2Count;
+
+  @Column(name = "rating_3", nullable = false)
+  private long rating3Count;
+
+  @Column(name = "rating_4", nullable = false)
+  private long rating4Count;
+
+  @Column(name = "rating_5", nullable = false)
+  private long rating5Count;
+
+  /**
+   * Average rating of the book's reviews
+   *
+   * @return Average rating, or null if the book has no reviews
+   */
+  public Double getAverageRating() {
+    return reviewCount > 0 ? (double) ratingSum / reviewCount : null;
+  }
+
+  /**
+   * Number of reviews giving each rating
+   *
+   * @return Review counts keyed by rating, from 1 to 5
+   */
+  public Map<Integer, Long> getRatingCounts() {
+    Map<Integer, Long> counts = new LinkedHashMap<>();
+    counts.put(1, rating1Count);
+    counts.put(2, rating2Count);
+    counts.put(3, rating3Count);
+    counts.put(4, rating4Count);
+    counts.put(5, rating5Count);
+    return counts;
+  }
+}
@@ -10,6 +10,7 @@ import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 /** ReadingList entity class Represents a reading list created by a user containing books */
 @Entity
@@ -37,6 +38,20 @@ public class ReadingList {
   @Column(name = "updated_at")
   private LocalDateTime updatedAt;
 
+  /**
+   * Sync version, moved on by every change to the list a client could see: its details, its books
+   * and their order. Edits to the books themselves are told apart by the books' own edit times.
+   * Not an optimistic lock; writers hold the row lock instead
+   */
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long version;
+
+  /** Highest version whose changes have been pruned from the change log, or 0 if none have */
+  @Column(name = "pruned_version", nullable = false)
+  @ColumnDefault("0")
+  private long prunedVersion;
+
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "user_id", nullable = false)
   private User user;
@@ -0,0 +1,73 @@
+package com.ciaranmckenna.bookclub.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * ReadingListChange entity class Represents one change to the books of a reading list, recorded
+ * under the version of the list it produced. Clients that hold a list at some version replay the
+ * changes after it instead of downloading the whole list again.
+ *
+ * <p>Rows are written with plain IDs and no relationships, so recording a change never loads the
+ * reading list's books
+ */
+@Entity
+@Table(
+    name = "reading_list_changes",
+    indexes =
+        @Index(name = "idx_reading_list_changes_version", columnList = "reading_list_id, version"))
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class ReadingListChange {
+
+  /** Kind of change to a reading list's books */
+  public enum Type {
+    /** The book was added; at {@code index} if set, otherwise at the end */
+    ADDED,
+    /** The book was removed */
+    REMOVED,
+    /** The book was moved to {@code index} */
+    MOVED,
+    /**
+     * The book's own details were edited. Reported from the books' edit times rather than logged,
+     * apart from rows logged before that
+     */
+    UPDATED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "reading_list_id", nullable = false)
+  private Long readingListId;
+
+  @Column(nullable = false)
+  private long version;
+
+  @Column(name = "book_id", nullable = false)
+  private Long bookId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "change_type", nullable = false, length = 16)
+  private Type type;
+
+  /** Zero-based index the book was placed at; null for appends, removals and edits */
+  @Column(name = "list_index")
+  private Integer index;
+
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private LocalDateTime createdAt;
+
+  /** PrePersist hook to set creation timestamp */
+  @PrePersist
+  protected void onCreate() {
+    createdAt = LocalDateTime.now();
+  }
+}
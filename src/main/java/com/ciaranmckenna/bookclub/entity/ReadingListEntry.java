@@ -0,0 +1,55 @@
+package com.ciaranmckenna.bookclub.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * ReadingListEntry entity class Represents one book's place in a reading list. It maps the same
+ * reading_list_books table as {@link ReadingList#getBooks()}, adding the position column, so
+ * entries can be ordered and moved without loading either side of the relationship.
+ *
+ * <p>Entries are ordered by position, then book ID. Positions are spaced {@link #POSITION_GAP}
+ * apart when a list is renumbered, so a book can be moved by giving it the midpoint of its new
+ * neighbours' positions: a single row update
+ */
+@Entity
+@Table(
+    name = "reading_list_books",
+    indexes =
+        @Index(name = "idx_reading_list_books_position", columnList = "reading_list_id, position"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReadingListEntry {
+
+  /** Distance between neighbouring positions after a renumbering */
+  public static final long POSITION_GAP = 1L << 16;
+
+  @EmbeddedId private Key id;
+
+  @Column(nullable = false)
+  @ColumnDefault("0")
+  private long position;
+
+  /** Composite primary key of an entry: the reading list and the book */
+  @Embeddable
+  @Getter
+  @Setter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static class Key implements Serializable {
+
+    @Column(name = "reading_list_id")
+    private Long readingListId;
+
+    @Column(name = "book_id")
+    private Long bookId;
+  }
+}
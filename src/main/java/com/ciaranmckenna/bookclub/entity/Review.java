@@ -14,13 +14,23 @@ import lombok.ToString;
 @Entity
 @Table(
     name = "reviews",
-    uniqueConstraints = @UniqueConstraint(columnNames = {"book_id", "user_id"}))
+    uniqueConstraints = @UniqueConstraint(columnNames = {"book_id", "user_id"}),
+    indexes = {
+      @Index(name = "idx_reviews_book_created", columnList = "book_id, created_at, id"),
+      @Index(name = "idx_reviews_user_created", columnList = "user_id, created_at, id")
+    })
 @Getter
 @Setter
 @NoArgsConstructor
 @ToString(exclude = {"book", "user"}) // Exclude relationships from toString
 public class Review {
 
+  /** Name of the foreign key from book_id to books, pinned to the one Hibernate first generated */
+  public static final String BOOK_FOREIGN_KEY = "FK6a9k6xvev80se5rreqvuqr7f9";
+
+  /** Name of the foreign key from user_id to users, pinned to the one Hibernate first generated */
+  public static final String USER_FOREIGN_KEY = "FKcgy7qjc1r99dp117y9en6lxye";
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
@@ -36,11 +46,17 @@ public class Review {
   private String reviewText;
 
   @ManyToOne(fetch = FetchType.LAZY)
-  @JoinColumn(name = "book_id", nullable = false)
+  @JoinColumn(
+      name = "book_id",
+      nullable = false,
+      foreignKey = @ForeignKey(name = BOOK_FOREIGN_KEY))
   private Book book;
 
   @ManyToOne(fetch = FetchType.LAZY)
-  @JoinColumn(name = "user_id", nullable = false)
+  @JoinColumn(
+      name = "user_id",
+      nullable = false,
+      foreignKey = @ForeignKey(name = USER_FOREIGN_KEY))
   private User user;
 
   @Column(name = "created_at", nullable = false, updatable = false)
@@ -0,0 +1,56 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import com.ciaranmckenna.bookclub.entity.BookLeaderboardScore;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** Repository for BookLeaderboardScore entity Provides the leaderboard checkpoints */
+@Repository
+public interface BookLeaderboardScoreRepository
+    extends JpaRepository<BookLeaderboardScore, BookLeaderboardScore.Key> {
+
+  /**
+   * Checkpointed scores of one leaderboard
+   *
+   * @param board Leaderboard name
+   * @return Scores of the leaderboard's books
+   */
+  List<BookLeaderboardScore> findByIdBoard(String board);
+
+  /**
+   * Write a book's score on a leaderboard in a single upsert
+   *
+   * @param board Leaderboard name
+   * @param bookId Book ID
+   * @param logScore Log score
+   * @return Number of rows affected, as reported by MySQL
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO book_leaderboard_scores (board, book_id, log_score)"
+              + " VALUES (:board, :bookId, :logScore) AS latest"
+              + " ON DUPLICATE KEY UPDATE log_score = latest.log_score",
+      nativeQuery = true)
+  int upsertScore(
+      @Param("board") String board,
+      @Param("bookId") Long bookId,
+      @Param("logScore") double logScore);
+
+  /**
+   * Delete the scores of books that have dropped off a leaderboard
+   *
+   * @param board Leaderboard name
+   * @param bookIds Book IDs
+   * @return Number of scores deleted
+   */
+  @Modifying
+  @Query(
+      "DELETE FROM BookLeaderboardScore s WHERE s.id.board = :board AND s.id.bookId IN :bookIds")
+  int deleteScores(@Param("board") String board, @Param("bookIds") Collection<Long> bookIds);
+}
@@ -0,0 +1,100 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import com.ciaranmckenna.bookclub.entity.BookRating;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** Repository for BookRating entity Provides the per-book review totals */
+@Repository
+public interface BookRatingRepository
+    extends JpaRepository<BookRating, Long>, BookRatingRepositoryCustom {
+
+  /**
+   * Average rating of a book, read from its totals
+   *
+   * @param bookId Book ID
+   * @return Optional containing the average if the book has reviews
+   */
+  @Query(
+      "SELECT CAST(r.ratingSum AS double) / r.reviewCount FROM BookRating r"
+          + " WHERE r.bookId = :bookId AND r.reviewCount > 0")
+  Optional<Double> findAverageRating(@Param("bookId") Long bookId);
+
+  /**
+   * Totals of several books aggregated from the reviews table rather than read from their stored
+   * rows, for use until the stored totals have first been reconciled. The totals returned are not
+   * managed; books without reviews are left out
+   *
+   * @param bookIds Book IDs
+   * @return Totals of the books that have reviews
+   */
+  @Query(
+      "SELECT new com.ciaranmckenna.bookclub.entity.BookRating(r.book.id, SUM(r.rating), COUNT(r),"
+          + " SUM(CASE WHEN r.rating = 1 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN r.rating = 2 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN r.rating = 3 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN r.rating = 4 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN r.rating = 5 THEN 1 ELSE 0 END))"
+          + " FROM Review r WHERE r.book.id IN :bookIds GROUP BY r.book.id")
+  List<BookRating> aggregateFromReviews(@Param("bookIds") Collection<Long> bookIds);
+
+  /**
+   * Rebuild the totals of every book in an ID range from the reviews table, in one statement.
+   * Reading the reviews this way locks them until the transaction ends, so reviews written
+   * meanwhile wait rather than being lost
+   *
+   * @param fromBookId First book ID of the range
+   * @param toBookId Last book ID of the range
+   * @return Number of rows affected, as reported by MySQL
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO book_ratings"
+              + " (book_id, rating_sum, review_count, rating_1, rating_2, rating_3, rating_4,"
+              + " rating_5)"
+              + " SELECT * FROM (SELECT r.book_id, SUM(r.rating) AS total_rating,"
+              + " COUNT(*) AS total_reviews,"
+              + " SUM(r.rating = 1) AS r1, SUM(r.rating = 2) AS r2, SUM(r.rating = 3) AS r3,"
+              + " SUM(r.rating = 4) AS r4, SUM(r.rating = 5) AS r5 FROM reviews r"
+              + " WHERE r.book_id BETWEEN :fromBookId AND :toBookId GROUP BY r.book_id) AS totals"
+              + " ON DUPLICATE KEY UPDATE rating_sum = totals.total_rating,"
+              + " review_count = totals.total_reviews, rating_1 = totals.r1, rating_2 = totals.r2,"
+              + " rating_3 = totals.r3, rating_4 = totals.r4, rating_5 = totals.r5",
+      nativeQuery = true)
+  int rebuildRange(@Param("fromBookId") long fromBookId, @Param("toBookId") long toBookId);
+
+  /**
+   * Delete the totals of books in an ID range that no longer have any reviews
+   *
+   * @param fromBookId First book ID of the range
+   * @param toBookId Last book ID of the range
+   * @return Number of rows deleted
+   */
+  @Modifying
+  @Query(
+      value =
+          "DELETE FROM book_ratings WHERE book_id BETWEEN :fromBookId AND :toBookId"
+              + " AND NOT EXISTS (SELECT 1 FROM reviews r WHERE r.book_id = book_ratings.book_id)",
+      nativeQuery = true)
+  int deleteUnreviewedInRange(
+      @Param("fromBookId") long fromBookId, @Param("toBookId") long toBookId);
+
+  /**
+   * Highest book ID that has totals or reviews, the upper bound of a rebuild
+   *
+   * @return Highest such book ID, or 0 if there are none
+   */
+  @Query(
+      value =
+          "SELECT GREATEST(COALESCE((SELECT MAX(book_id) FROM book_ratings), 0),"
+              + " COALESCE((SELECT MAX(book_id) FROM reviews), 0))",
+      nativeQuery = true)
+  long findMaxBookId();
+}
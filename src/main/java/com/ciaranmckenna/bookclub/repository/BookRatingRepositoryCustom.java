@@ -0,0 +1,18 @@
+package com.ciaranmckenna.bookclub.repository;
+
+/** Totals writes that return the totals they leave without reading the row again */
+public interface BookRatingRepositoryCustom {
+
+  /**
+   * Apply one review change to a book's totals in a single upsert, creating them if the book has
+   * none yet. The row is updated in place by the database, so concurrent reviews of the same book
+   * cannot lose each other's changes, and the same statement returns the new sum and count. The
+   * added and removed ratings must differ
+   *
+   * @param bookId Book ID
+   * @param addedRating Rating of the review added, or 0 if none
+   * @param removedRating Rating of the review removed, or 0 if none
+   * @return Average rating of the updated totals, or null if the book has no reviews left
+   */
+  Double adjustRating(Long bookId, int addedRating, int removedRating);
+}
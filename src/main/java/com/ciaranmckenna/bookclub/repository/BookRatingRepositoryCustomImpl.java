@@ -0,0 +1,58 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/** JDBC implementation of {@link BookRatingRepositoryCustom} */
+public class BookRatingRepositoryCustomImpl implements BookRatingRepositoryCustom {
+
+  /** Sum, count and the five histogram buckets */
+  private static final int DELTA_COLUMNS = 7;
+
+  /** Rating sums stay below 2^32 for any realistic review count */
+  private static final int SUM_BITS = 32;
+
+  /**
+   * Assignments run left to right, so the last one sees the updated sum and count. It keeps the
+   * book ID and only records them, packed into one BIGINT, as LAST_INSERT_ID
+   */
+  private static final String ADJUST_RATING =
+      "INSERT INTO book_ratings"
+          + " (book_id, rating_sum, review_count, rating_1, rating_2, rating_3, rating_4,"
+          + " rating_5)"
+          + " VALUES (?, ? - ?, (? > 0) - (? > 0), (? = 1) - (? = 1), (? = 2) - (? = 2),"
+          + " (? = 3) - (? = 3), (? = 4) - (? = 4), (? = 5) - (? = 5)) AS delta"
+          + " ON DUPLICATE KEY UPDATE"
+          + " rating_sum = book_ratings.rating_sum + delta.rating_sum,"
+          + " review_count = book_ratings.review_count + delta.review_count,"
+          + " rating_1 = book_ratings.rating_1 + delta.rating_1,"
+          + " rating_2 = book_ratings.rating_2 + delta.rating_2,"
+          + " rating_3 = book_ratings.rating_3 + delta.rating_3,"
+          + " rating_4 = book_ratings.rating_4 + delta.rating_4,"
+          + " rating_5 = book_ratings.rating_5 + delta.rating_5,"
+          + " book_id = IF(LAST_INSERT_ID((book_ratings.review_count << "
+          + SUM_BITS
+          + ") | book_ratings.rating_sum) = 0, book_id, book_id)";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public Double adjustRating(Long bookId, int addedRating, int removedRating) {
+    // Every column of the delta takes the added rating then the removed one
+    Object[] parameters = new Object[1 + 2 * DELTA_COLUMNS];
+    parameters[0] = bookId;
+    for (int column = 0; column < DELTA_COLUMNS; column++) {
+      parameters[1 + 2 * column] = addedRating;
+      parameters[2 + 2 * column] = removedRating;
+    }
+    InsertResult result = InsertResult.execute(entityManager, ADJUST_RATING, parameters);
+    if (result.inserted()) {
+      // New totals hold just this change
+      return addedRating > 0 ? (double) addedRating : null;
+    }
+    long packed = result.lastInsertId();
+    long reviewCount = packed >>> SUM_BITS;
+    long ratingSum = packed & ((1L << SUM_BITS) - 1);
+    return reviewCount > 0 ? (double) ratingSum / reviewCount : null;
+  }
+}
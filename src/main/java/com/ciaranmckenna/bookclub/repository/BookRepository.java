@@ -1,20 +1,65 @@
 package com.ciaranmckenna.bookclub.repository;
 
+import com.ciaranmckenna.bookclub.dto.BookDto;
 import com.ciaranmckenna.bookclub.entity.Book;
+import jakarta.persistence.QueryHint;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-/** Repository for Book entity Provides database operations for Book entities */
+/**
+ * Repository for Book entity Provides database operations for Book entities. Read-only listings
+ * return {@link BookDto}s built by the query itself, so no managed entities, snapshots or lazy
+ * proxies are created for them; entity-returning methods are kept for the write paths
+ */
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+  /** JPQL constructor expression building a {@link BookDto} from a book aliased as b */
+  String BOOK_DTO =
+      "new com.ciaranmckenna.bookclub.dto.BookDto(b.id, b.title, b.author, b.publicationDate,"
+          + " b.description, b.publisher, b.isbn, b.coverImageUrl)";
+
+  /**
+   * JDBC fetch size that makes MySQL Connector/J stream a result set row by row instead of
+   * buffering all of it. No other statement may run on the connection until the stream is closed
+   */
+  String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+
+  /**
+   * Find a book by ID as a DTO
+   *
+   * @param id Book ID
+   * @return Optional containing the book if found
+   */
+  Optional<BookDto> findDtoById(Long id);
+
+  /**
+   * Get all books as DTOs
+   *
+   * @param pageable Pagination information
+   * @return Page of books
+   */
+  @Query(value = "SELECT " + BOOK_DTO + " FROM Book b", countQuery = "SELECT COUNT(b) FROM Book b")
+  Page<BookDto> findAllDtos(Pageable pageable);
+
   /**
    * Find books by title containing the given text (case insensitive)
    *
@@ -22,7 +67,7 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @param pageable Pagination information
    * @return Page of books matching the title
    */
-  Page<Book> findByTitleContainingIgnoreCase(String title, Pageable pageable);
+  Page<BookDto> findByTitleContainingIgnoreCase(String title, Pageable pageable);
 
   /**
    * Find books by author containing the given text (case insensitive)
@@ -31,7 +76,7 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @param pageable Pagination information
    * @return Page of books matching the author
    */
-  Page<Book> findByAuthorContainingIgnoreCase(String author, Pageable pageable);
+  Page<BookDto> findByAuthorContainingIgnoreCase(String author, Pageable pageable);
 
   /**
    * Find books by publication date range
@@ -41,7 +86,7 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @param pageable Pagination information
    * @return Page of books in the publication date range
    */
-  Page<Book> findByPublicationDateBetween(
+  Page<BookDto> findByPublicationDateBetween(
       LocalDate startDate, LocalDate endDate, Pageable pageable);
 
   /**
@@ -60,17 +105,93 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @return Page of books matching the search term
    */
   @Query(
-      "SELECT b FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-  Page<Book> searchByTitleOrAuthor(@Param("searchTerm") String searchTerm, Pageable pageable);
+      "SELECT "
+          + BOOK_DTO
+          + " FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+  Page<BookDto> searchByTitleOrAuthor(@Param("searchTerm") String searchTerm, Pageable pageable);
 
   /**
-   * Find books that are in a reading list with the given ID
+   * Find books that are in a reading list with the given ID, in list order
    *
    * @param readingListId ID of the reading list
    * @return List of books in the reading list
    */
-  @Query("SELECT b FROM Book b JOIN FETCH b.readingLists rl WHERE rl.id = :readingListId")
-  List<Book> findBooksByReadingListId(@Param("readingListId") Long readingListId);
+  @Query(
+      "SELECT "
+          + BOOK_DTO
+          + " FROM ReadingListEntry e JOIN Book b ON b.id = e.id.bookId"
+          + " WHERE e.id.readingListId = :readingListId ORDER BY e.position, b.id")
+  List<BookDto> findBooksByReadingListId(@Param("readingListId") Long readingListId);
+
+  /**
+   * Stream every book in ID order over a forward-only result set, for exports. Rows are built as
+   * DTOs, so nothing accumulates in the persistence context however many are read. The stream
+   * must be consumed and closed inside a transaction
+   *
+   * @return Stream of all books
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT " + BOOK_DTO + " FROM Book b ORDER BY b.id")
+  Stream<BookDto> streamAllDtos();
+
+  /**
+   * Get a page of the books in a reading list, in list order. The page is read along the
+   * position index
+   *
+   * @param readingListId ID of the reading list
+   * @param pageable Pagination information; any sort is ignored
+   * @return Page of books in the reading list
+   */
+  @Query(
+      value =
+          "SELECT "
+              + BOOK_DTO
+              + " FROM ReadingListEntry e JOIN Book b ON b.id = e.id.bookId"
+              + " WHERE e.id.readingListId = :readingListId ORDER BY e.position, b.id",
+      countQuery =
+          "SELECT COUNT(e) FROM ReadingListEntry e WHERE e.id.readingListId = :readingListId")
+  Page<BookDto> findBooksByReadingListId(
+      @Param("readingListId") Long readingListId, Pageable pageable);
+
+  /**
+   * Books of a reading list edited after a time, oldest edit first, for syncing a client's copy
+   *
+   * @param readingListId ID of the reading list
+   * @param since Latest book edit time the client has seen
+   * @param limit Maximum number of books to return
+   * @return Books edited since then that are still in the reading list
+   */
+  @Query(
+      "SELECT "
+          + BOOK_DTO
+          + " FROM ReadingListEntry e JOIN Book b ON b.id = e.id.bookId"
+          + " WHERE e.id.readingListId = :readingListId AND b.updatedAt > :since"
+          + " ORDER BY b.updatedAt, b.id")
+  List<BookDto> findBooksOfReadingListUpdatedAfter(
+      @Param("readingListId") Long readingListId,
+      @Param("since") LocalDateTime since,
+      Limit limit);
+
+  /**
+   * Find the books of several reading lists in one query, tagged with the list they belong to
+   * and in list order within each list
+   *
+   * @param readingListIds Reading list IDs
+   * @return One row per reading list entry
+   */
+  @Query(
+      "SELECT e.id.readingListId AS readingListId, b.id AS id, b.title AS title,"
+          + " b.author AS author, b.publicationDate AS publicationDate,"
+          + " b.description AS description, b.publisher AS publisher, b.isbn AS isbn,"
+          + " b.coverImageUrl AS coverImageUrl, b.updatedAt AS updatedAt"
+          + " FROM ReadingListEntry e JOIN Book b ON b.id = e.id.bookId"
+          + " WHERE e.id.readingListId IN :readingListIds"
+          + " ORDER BY e.id.readingListId, e.position, b.id")
+  List<ReadingListBook> findBooksByReadingListIdIn(
+      @Param("readingListIds") Collection<Long> readingListIds);
 
   /**
    * Check if a book exists with the given ISBN
@@ -80,6 +201,58 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    */
   boolean existsByIsbn(String isbn);
 
+  /**
+   * Check if a book exists with the given ISBN or canonical ISBN key. The raw ISBN covers rows
+   * whose key has not been backfilled yet
+   *
+   * @param isbn ISBN as entered
+   * @param isbnKey Canonical ISBN key
+   * @return true if a book exists with either value
+   */
+  boolean existsByIsbnOrIsbnKey(String isbn, String isbnKey);
+
+  /**
+   * Find a book by ISBN or canonical ISBN key
+   *
+   * @param isbn ISBN as entered
+   * @param isbnKey Canonical ISBN key
+   * @return Optional containing the book if found
+   */
+  Optional<BookDto> findFirstByIsbnOrIsbnKey(String isbn, String isbnKey);
+
+  /**
+   * IDs and ISBNs of books that have an ISBN but no canonical ISBN key, which is the case for rows
+   * written before the key column existed, in ID order after a keyset position
+   *
+   * @param afterId Last book ID already processed
+   * @param limit Maximum number of books to return
+   * @return Books needing an ISBN key
+   */
+  @Query(
+      "SELECT b.id AS id, b.isbn AS isbn FROM Book b WHERE b.id > :afterId"
+          + " AND b.isbn IS NOT NULL AND b.isbnKey IS NULL ORDER BY b.id")
+  List<BookIsbn> findIsbnsWithoutKeyAfter(@Param("afterId") long afterId, Limit limit);
+
+  /**
+   * Which of the given canonical ISBN keys are already taken
+   *
+   * @param isbnKeys Canonical ISBN keys
+   * @return Keys held by some book
+   */
+  @Query("SELECT b.isbnKey FROM Book b WHERE b.isbnKey IN :isbnKeys")
+  List<String> findTakenIsbnKeys(@Param("isbnKeys") Collection<String> isbnKeys);
+
+  /**
+   * Set a book's canonical ISBN key without loading it
+   *
+   * @param id Book ID
+   * @param isbnKey Canonical ISBN key
+   * @return Number of rows updated
+   */
+  @Modifying
+  @Query("UPDATE Book b SET b.isbnKey = :isbnKey WHERE b.id = :id")
+  int setIsbnKey(@Param("id") Long id, @Param("isbnKey") String isbnKey);
+
   /**
    * Check if a book exists and is owned by a user
    *
@@ -90,14 +263,17 @@ public interface BookRepository extends JpaRepository<Book, Long> {
   boolean existsByIdAndCreatedBy_Id(Long bookId, Long userId);
 
   /**
-   * Find books by category
+   * Find books by category. Uses a plain join rather than a fetch join so the page limit is
+   * applied by the database
    *
    * @param categoryId Category ID
    * @param pageable Pagination information
    * @return Page of books in the category
    */
-  @Query("SELECT b FROM Book b JOIN FETCH b.categories c WHERE c.id = :categoryId")
-  Page<Book> findBooksByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+  @Query(
+      value = "SELECT " + BOOK_DTO + " FROM Book b JOIN b.categories c WHERE c.id = :categoryId",
+      countQuery = "SELECT COUNT(b) FROM Book b JOIN b.categories c WHERE c.id = :categoryId")
+  Page<BookDto> findBooksByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
 
   /**
    * Find books by category name
@@ -107,6 +283,215 @@ public interface BookRepository extends JpaRepository<Book, Long> {
    * @return Page of books in the category
    */
   @Query(
-      "SELECT b FROM Book b JOIN FETCH b.categories c WHERE LOWER(c.name) = LOWER(:categoryName)")
-  Page<Book> findBooksByCategoryName(@Param("categoryName") String categoryName, Pageable pageable);
+      value =
+          "SELECT "
+              + BOOK_DTO
+              + " FROM Book b JOIN b.categories c WHERE LOWER(c.name) = LOWER(:categoryName)",
+      countQuery =
+          "SELECT COUNT(b) FROM Book b JOIN b.categories c"
+              + " WHERE LOWER(c.name) = LOWER(:categoryName)")
+  Page<BookDto> findBooksByCategoryName(
+      @Param("categoryName") String categoryName, Pageable pageable);
+
+  /**
+   * Find the next batch of books after the given ID, in ID order
+   *
+   * @param id ID to start after
+   * @param pageable Batch size
+   * @return Books with an ID greater than the given one
+   */
+  List<BookDto> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+  /**
+   * Find which of the given IDs belong to a book, without loading the books
+   *
+   * @param ids Book IDs
+   * @return IDs that exist, in no particular order
+   */
+  @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+  List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Find books by ID
+   *
+   * @param ids Book IDs
+   * @return Books with the given IDs, in no particular order
+   */
+  List<BookDto> findByIdIn(Collection<Long> ids);
+
+  /**
+   * Scroll through all books by keyset, seeking past the given position instead of using OFFSET
+   *
+   * @param position Keyset position of the last row already returned
+   * @param sort Sort, ending with ID as the tie-breaker
+   * @param limit Page size
+   * @return Window of books after the position
+   */
+  Window<Book> findBy(ScrollPosition position, Sort sort, Limit limit);
+
+  /**
+   * Scroll through books whose title or author contains the given text (case insensitive) by
+   * keyset
+   *
+   * @param title Text to search for in the title
+   * @param author Text to search for in the author
+   * @param position Keyset position of the last row already returned
+   * @param sort Sort, ending with ID as the tie-breaker
+   * @param limit Page size
+   * @return Window of matching books after the position
+   */
+  Window<Book> findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
+      String title, String author, ScrollPosition position, Sort sort, Limit limit);
+
+  /**
+   * Scroll through the books of a category by keyset
+   *
+   * @param categoryId Category ID
+   * @param position Keyset position of the last row already returned
+   * @param sort Sort, ending with ID as the tie-breaker
+   * @param limit Page size
+   * @return Window of books in the category after the position
+   */
+  Window<Book> findByCategories_Id(
+      Long categoryId, ScrollPosition position, Sort sort, Limit limit);
+
+  /**
+   * Get a slice of all books without counting them
+   *
+   * @param pageable Pagination information
+   * @return Slice of books
+   */
+  Slice<BookDto> findSliceBy(Pageable pageable);
+
+  /**
+   * Search books by title or author containing the given text (case insensitive), without
+   * counting the matches
+   *
+   * @param searchTerm Text to search for in title or author
+   * @param pageable Pagination information
+   * @return Slice of books matching the search term
+   */
+  @Query(
+      "SELECT "
+          + BOOK_DTO
+          + " FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+  Slice<BookDto> searchSliceByTitleOrAuthor(
+      @Param("searchTerm") String searchTerm, Pageable pageable);
+
+  /**
+   * Find books by title containing the given text (case insensitive), without counting the
+   * matches
+   *
+   * @param title Title text to search for
+   * @param pageable Pagination information
+   * @return Slice of books matching the title
+   */
+  Slice<BookDto> findSliceByTitleContainingIgnoreCase(String title, Pageable pageable);
+
+  /**
+   * Find books by author containing the given text (case insensitive), without counting the
+   * matches
+   *
+   * @param author Author text to search for
+   * @param pageable Pagination information
+   * @return Slice of books matching the author
+   */
+  Slice<BookDto> findSliceByAuthorContainingIgnoreCase(String author, Pageable pageable);
+
+  /**
+   * Find books by publication date range without counting the matches
+   *
+   * @param startDate Start date of the range
+   * @param endDate End date of the range
+   * @param pageable Pagination information
+   * @return Slice of books in the publication date range
+   */
+  Slice<BookDto> findSliceByPublicationDateBetween(
+      LocalDate startDate, LocalDate endDate, Pageable pageable);
+
+  /**
+   * Find books by category without counting them. Uses a plain join rather than a fetch join so
+   * the page limit is applied by the database
+   *
+   * @param categoryId Category ID
+   * @param pageable Pagination information
+   * @return Slice of books in the category
+   */
+  @Query("SELECT " + BOOK_DTO + " FROM Book b JOIN b.categories c WHERE c.id = :categoryId")
+  Slice<BookDto> findSliceByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+  /**
+   * Count the books in a category
+   *
+   * @param categoryId Category ID
+   * @return Number of books in the category
+   */
+  long countByCategories_Id(Long categoryId);
+
+  /**
+   * Every book-category link as ID pairs, for loading the search facets without touching the
+   * entities
+   *
+   * @return One row per book-category link
+   */
+  @Query("SELECT b.id AS bookId, c.id AS categoryId FROM Book b JOIN b.categories c")
+  List<BookCategoryLink> findAllCategoryLinks();
+
+  /**
+   * Category IDs and names of the given books, for building search documents without loading the
+   * category entities
+   *
+   * @param bookIds Book IDs
+   * @return One row per book-category link
+   */
+  @Query(
+      "SELECT b.id AS bookId, c.id AS categoryId, c.name AS categoryName FROM Book b"
+          + " JOIN b.categories c WHERE b.id IN :bookIds")
+  List<BookCategoryName> findCategoryNamesByBookIdIn(@Param("bookIds") Collection<Long> bookIds);
+
+  /** Book and category ID of one book-category link */
+  interface BookCategoryLink {
+    Long getBookId();
+
+    Long getCategoryId();
+  }
+
+  /** One book of a reading list, with the ID of the list */
+  interface ReadingListBook {
+    Long getReadingListId();
+
+    Long getId();
+
+    String getTitle();
+
+    String getAuthor();
+
+    LocalDate getPublicationDate();
+
+    String getDescription();
+
+    String getPublisher();
+
+    String getIsbn();
+
+    String getCoverImageUrl();
+
+    LocalDateTime getUpdatedAt();
+  }
+
+  /** ID and ISBN of a book */
+  interface BookIsbn {
+    Long getId();
+
+    String getIsbn();
+  }
+
+  /** Book ID and category name of one book-category link */
+  interface BookCategoryName {
+    Long getBookId();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+  }
 }
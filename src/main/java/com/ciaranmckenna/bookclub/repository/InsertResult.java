@@ -0,0 +1,50 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import org.hibernate.Session;
+
+/**
+ * Outcome of a native INSERT, or INSERT ... ON DUPLICATE KEY UPDATE, run on the transaction's
+ * connection. The driver returns LAST_INSERT_ID with the row count, so an upsert that records a
+ * value through {@code LAST_INSERT_ID(expr)} hands it back without another round trip
+ *
+ * @param rowCount 1 if a row was inserted, 2 if an existing row was changed
+ * @param lastInsertId LAST_INSERT_ID left by the statement, or 0 if it set none
+ */
+record InsertResult(int rowCount, long lastInsertId) {
+
+  /**
+   * Run an insert or upsert after flushing pending entity changes, as a native query would
+   *
+   * @param entityManager Entity manager of the current transaction
+   * @param sql Statement with positional parameters
+   * @param parameters Parameter values in order
+   * @return Row count and LAST_INSERT_ID of the statement
+   */
+  static InsertResult execute(EntityManager entityManager, String sql, Object... parameters) {
+    entityManager.flush();
+    return entityManager
+        .unwrap(Session.class)
+        .doReturningWork(
+            connection -> {
+              try (PreparedStatement statement =
+                  connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < parameters.length; i++) {
+                  statement.setObject(i + 1, parameters[i]);
+                }
+                int rowCount = statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                  return new InsertResult(rowCount, keys.next() ? keys.getLong(1) : 0L);
+                }
+              }
+            });
+  }
+
+  /** Whether the statement inserted a new row rather than changing an existing one */
+  boolean inserted() {
+    return rowCount == 1;
+  }
+}
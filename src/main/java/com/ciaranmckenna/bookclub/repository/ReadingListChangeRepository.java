@@ -0,0 +1,101 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import com.ciaranmckenna.bookclub.entity.ReadingListChange;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/** Repository for ReadingListChange entity Provides the change log behind reading list syncs */
+@Repository
+public interface ReadingListChangeRepository extends JpaRepository<ReadingListChange, Long> {
+
+  /**
+   * Changes to a reading list after a version, oldest first, read from the version index
+   *
+   * @param readingListId Reading list ID
+   * @param version Version the client already has
+   * @param limit Maximum number of changes to return
+   * @return Changes in the order they were made
+   */
+  List<ReadingListChange> findByReadingListIdAndVersionGreaterThanOrderByVersionAscIdAsc(
+      Long readingListId, long version, Limit limit);
+
+  /**
+   * Record an ADDED change for every entry of a reading list after a position, in list order.
+   * Used after an append, whose new entries are exactly the ones past the old last position
+   *
+   * @param readingListId Reading list ID
+   * @param version Version the append produced
+   * @param afterPosition Last position of the list before the append
+   * @return Number of changes recorded
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO reading_list_changes"
+              + " (reading_list_id, version, book_id, change_type, created_at)"
+              + " SELECT reading_list_id, :version, book_id, 'ADDED', NOW(6)"
+              + " FROM reading_list_books"
+              + " WHERE reading_list_id = :readingListId AND position > :afterPosition"
+              + " ORDER BY position, book_id",
+      nativeQuery = true)
+  int insertAppendedBooks(
+      @Param("readingListId") Long readingListId,
+      @Param("version") long version,
+      @Param("afterPosition") long afterPosition);
+
+  /**
+   * Reading lists with changes logged before a time, each with the highest version among those
+   * changes, in reading list ID order
+   *
+   * @param before Changes logged before this are due for pruning
+   * @param afterReadingListId Reading list ID the previous batch ended at
+   * @param limit Maximum number of reading lists to return
+   * @return Reading lists with the highest version to prune up to
+   */
+  @Query(
+      "SELECT c.readingListId AS readingListId, MAX(c.version) AS version"
+          + " FROM ReadingListChange c"
+          + " WHERE c.createdAt < :before AND c.readingListId > :afterReadingListId"
+          + " GROUP BY c.readingListId ORDER BY c.readingListId")
+  List<PrunableLog> findLogsCreatedBefore(
+      @Param("before") LocalDateTime before,
+      @Param("afterReadingListId") long afterReadingListId,
+      Limit limit);
+
+  /**
+   * Delete the changes of a reading list up to a version
+   *
+   * @param readingListId Reading list ID
+   * @param version Highest version to delete
+   * @return Number of changes deleted
+   */
+  @Modifying
+  @Query(
+      "DELETE FROM ReadingListChange c"
+          + " WHERE c.readingListId = :readingListId AND c.version <= :version")
+  int deleteUpToVersion(
+      @Param("readingListId") Long readingListId, @Param("version") long version);
+
+  /**
+   * Delete the change log of a reading list
+   *
+   * @param readingListId Reading list ID
+   * @return Number of changes deleted
+   */
+  @Modifying
+  @Query("DELETE FROM ReadingListChange c WHERE c.readingListId = :readingListId")
+  int deleteByReadingListId(@Param("readingListId") Long readingListId);
+
+  /** A reading list's change log and the highest version of it due for pruning */
+  interface PrunableLog {
+    Long getReadingListId();
+
+    long getVersion();
+  }
+}
@@ -1,15 +1,27 @@
 package com.ciaranmckenna.bookclub.repository;
 
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
 import com.ciaranmckenna.bookclub.entity.ReadingList;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /** Repository for ReadingList entity Provides database operations for ReadingList entities */
 @Repository
@@ -30,8 +42,20 @@ public interface ReadingListRepository extends JpaRepository<ReadingList, Long>
    * @param pageable Pagination information
    * @return Page of reading lists
    */
+  @EntityGraph(attributePaths = {"user"})
   Page<ReadingList> findByUserId(Long userId, Pageable pageable);
 
+  /**
+   * Get a page of all reading lists with their owners joined in, so listing them does not load
+   * each owner separately
+   *
+   * @param pageable Pagination information
+   * @return Page of reading lists
+   */
+  @Override
+  @EntityGraph(attributePaths = {"user"})
+  Page<ReadingList> findAll(Pageable pageable);
+
   /**
    * Find reading lists by name containing the given text (case insensitive)
    *
@@ -39,6 +63,7 @@ public interface ReadingListRepository extends JpaRepository<ReadingList, Long>
    * @param pageable Pagination information
    * @return Page of reading lists matching the name
    */
+  @EntityGraph(attributePaths = {"user"})
   Page<ReadingList> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
   /**
@@ -49,6 +74,7 @@ public interface ReadingListRepository extends JpaRepository<ReadingList, Long>
    * @param pageable Pagination information
    * @return Page of reading lists matching the name for the user
    */
+  @EntityGraph(attributePaths = {"user"})
   Page<ReadingList> findByNameContainingIgnoreCaseAndUserId(
       String name, Long userId, Pageable pageable);
 
@@ -77,4 +103,377 @@ public interface ReadingListRepository extends JpaRepository<ReadingList, Long>
    * @return Count of reading lists
    */
   long countByUserId(Long userId);
+
+  /**
+   * Get a slice of all reading lists without counting them
+   *
+   * @param pageable Pagination information
+   * @return Slice of reading lists
+   */
+  @EntityGraph(attributePaths = {"user"})
+  Slice<ReadingList> findSliceBy(Pageable pageable);
+
+  /**
+   * Find reading lists belonging to a user without counting them
+   *
+   * @param userId User ID
+   * @param pageable Pagination information
+   * @return Slice of reading lists
+   */
+  @EntityGraph(attributePaths = {"user"})
+  Slice<ReadingList> findSliceByUserId(Long userId, Pageable pageable);
+
+  /**
+   * Find reading lists by name containing the given text (case insensitive) without counting them
+   *
+   * @param name Name text to search for
+   * @param pageable Pagination information
+   * @return Slice of reading lists matching the name
+   */
+  @EntityGraph(attributePaths = {"user"})
+  Slice<ReadingList> findSliceByNameContainingIgnoreCase(String name, Pageable pageable);
+
+  /**
+   * Find reading lists by name containing the given text (case insensitive) for a specific user
+   * without counting them
+   *
+   * @param name Name text to search for
+   * @param userId User ID
+   * @param pageable Pagination information
+   * @return Slice of reading lists matching the name for the user
+   */
+  @EntityGraph(attributePaths = {"user"})
+  Slice<ReadingList> findSliceByNameContainingIgnoreCaseAndUserId(
+      String name, Long userId, Pageable pageable);
+
+  /**
+   * Every (reading list, book) pair in a user's reading lists, as IDs only
+   *
+   * @param userId User ID
+   * @return One row per reading list entry
+   */
+  @Query(
+      "SELECT rl.id AS readingListId, b.id AS bookId FROM ReadingList rl JOIN rl.books b"
+          + " WHERE rl.user.id = :userId")
+  List<ReadingListBookLink> findBookLinksByUserId(@Param("userId") Long userId);
+
+  /**
+   * Summaries of a user's reading lists, ordered by name, with their book counts computed by the
+   * database
+   *
+   * @param userId User ID
+   * @return One summary per reading list
+   */
+  @Query(
+      "SELECT new com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto(rl.id, rl.name,"
+          + " rl.description, rl.createdAt, u.id, u.username, COUNT(b))"
+          + " FROM ReadingList rl JOIN rl.user u LEFT JOIN rl.books b WHERE u.id = :userId"
+          + " GROUP BY rl.id, rl.name, rl.description, rl.createdAt, u.id, u.username"
+          + " ORDER BY rl.name, rl.id")
+  List<ReadingListSummaryDto> findSummariesByUserId(@Param("userId") Long userId);
+
+  /**
+   * Summary of a reading list, with its book count computed by the database
+   *
+   * @param id Reading list ID
+   * @return Optional containing the summary if the reading list exists
+   */
+  @Query(
+      "SELECT new com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto(rl.id, rl.name,"
+          + " rl.description, rl.createdAt, u.id, u.username, COUNT(b))"
+          + " FROM ReadingList rl JOIN rl.user u LEFT JOIN rl.books b WHERE rl.id = :id"
+          + " GROUP BY rl.id, rl.name, rl.description, rl.createdAt, u.id, u.username")
+  Optional<ReadingListSummaryDto> findSummaryById(@Param("id") Long id);
+
+  /**
+   * Stream summaries of every reading list in ID order over a forward-only result set, for
+   * exports. The stream must be consumed and closed inside a transaction
+   *
+   * @return Stream of all reading list summaries
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = BookRepository.STREAMING_FETCH_SIZE),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query(
+      "SELECT new com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto(rl.id, rl.name,"
+          + " rl.description, rl.createdAt, u.id, u.username, COUNT(b))"
+          + " FROM ReadingList rl JOIN rl.user u LEFT JOIN rl.books b"
+          + " GROUP BY rl.id, rl.name, rl.description, rl.createdAt, u.id, u.username"
+          + " ORDER BY rl.id")
+  Stream<ReadingListSummaryDto> streamAllSummaries();
+
+  /**
+   * Stream every (reading list, book) pair ordered by reading list, then by position within the
+   * list, for exports. The stream must be consumed and closed inside a transaction
+   *
+   * @return Stream of all reading list entries
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = BookRepository.STREAMING_FETCH_SIZE),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query(
+      "SELECT e.id.readingListId AS readingListId, e.id.bookId AS bookId FROM ReadingListEntry e"
+          + " ORDER BY e.id.readingListId, e.position, e.id.bookId")
+  Stream<ReadingListBookLink> streamAllBookLinks();
+
+  /**
+   * Find a reading list by ID and lock its row until the transaction ends, so changes to the
+   * positions of its books are applied one at a time
+   *
+   * @param id Reading list ID
+   * @return Optional containing the reading list if found
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT rl FROM ReadingList rl WHERE rl.id = :id")
+  Optional<ReadingList> findAndLockById(@Param("id") Long id);
+
+  /**
+   * Everything a reading list's ETag is derived from, read without loading the list or its books:
+   * its version, the latest edit time of its books and its owner's username
+   *
+   * @param id Reading list ID
+   * @return Optional containing the sync state if the reading list exists
+   */
+  @Query(
+      "SELECT rl.version AS version, u.username AS username,"
+          + " (SELECT MAX(b.updatedAt) FROM ReadingListEntry e JOIN Book b ON b.id = e.id.bookId"
+          + " WHERE e.id.readingListId = rl.id) AS booksUpdatedAt"
+          + " FROM ReadingList rl JOIN rl.user u WHERE rl.id = :id")
+  Optional<ReadingListSyncState> findSyncStateById(@Param("id") Long id);
+
+  /**
+   * Record that a reading list's changes up to a version have been pruned, unless a later prune
+   * already has. A bulk update, so the list's own edit time is left alone
+   *
+   * @param id Reading list ID
+   * @param version Highest version pruned
+   * @return Number of reading lists updated
+   */
+  @Modifying
+  @Query(
+      "UPDATE ReadingList rl SET rl.prunedVersion = :version"
+          + " WHERE rl.id = :id AND rl.prunedVersion < :version")
+  int raisePrunedVersion(@Param("id") Long id, @Param("version") long version);
+
+  /**
+   * Add books to the end of a reading list in one statement, in the order given, skipping books
+   * that are already in it and IDs that match no book. Works on IDs only, so neither side's
+   * collection is loaded
+   *
+   * @param readingListId Reading list ID
+   * @param bookIds Book IDs to add
+   * @param afterPosition Position the new entries follow
+   * @param gap Distance between the positions of consecutive new entries
+   * @return Number of books actually added
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT IGNORE INTO reading_list_books (reading_list_id, book_id, position)"
+              + " SELECT :readingListId, b.id,"
+              + " :afterPosition + ROW_NUMBER() OVER (ORDER BY FIELD(b.id, :bookIds)) * :gap"
+              + " FROM books b WHERE b.id IN (:bookIds)",
+      nativeQuery = true)
+  int insertBooksIgnoringDuplicates(
+      @Param("readingListId") Long readingListId,
+      @Param("bookIds") Collection<Long> bookIds,
+      @Param("afterPosition") long afterPosition,
+      @Param("gap") long gap);
+
+  /**
+   * Copy the entries of one reading list, positions included, into each of several others in one
+   * statement. The copies must be empty; no book or reading list entity is loaded
+   *
+   * @param sourceId ID of the reading list to copy from
+   * @param targetIds IDs of the reading lists to copy into
+   * @return Number of entries written across all copies
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO reading_list_books (reading_list_id, book_id, position)"
+              + " SELECT rl.id, rlb.book_id, rlb.position FROM reading_lists rl"
+              + " JOIN reading_list_books rlb ON rlb.reading_list_id = :sourceId"
+              + " WHERE rl.id IN (:targetIds)",
+      nativeQuery = true)
+  int copyEntries(
+      @Param("sourceId") Long sourceId, @Param("targetIds") Collection<Long> targetIds);
+
+  /**
+   * Add one book to a reading list at a position, unless it is already in the list
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @param position Position of the new entry
+   * @return 1 if the book was added, 0 if it was already in the list
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT IGNORE INTO reading_list_books (reading_list_id, book_id, position)"
+              + " VALUES (:readingListId, :bookId, :position)",
+      nativeQuery = true)
+  int insertEntry(
+      @Param("readingListId") Long readingListId,
+      @Param("bookId") Long bookId,
+      @Param("position") long position);
+
+  /**
+   * Move one book within a reading list
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @param position New position
+   * @return 1 if the entry was moved, 0 if the book is not in the list
+   */
+  @Modifying
+  @Query(
+      "UPDATE ReadingListEntry e SET e.position = :position"
+          + " WHERE e.id.readingListId = :readingListId AND e.id.bookId = :bookId")
+  int updateEntryPosition(
+      @Param("readingListId") Long readingListId,
+      @Param("bookId") Long bookId,
+      @Param("position") long position);
+
+  /**
+   * Remove one book from a reading list
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @return 1 if the book was removed, 0 if it was not in the list
+   */
+  @Modifying
+  @Query(
+      "DELETE FROM ReadingListEntry e"
+          + " WHERE e.id.readingListId = :readingListId AND e.id.bookId = :bookId")
+  int deleteEntry(@Param("readingListId") Long readingListId, @Param("bookId") Long bookId);
+
+  /**
+   * Highest position in a reading list, read from the end of the position index
+   *
+   * @param readingListId Reading list ID
+   * @return Highest position, or 0 if the list is empty
+   */
+  @Query(
+      "SELECT COALESCE(MAX(e.position), 0) FROM ReadingListEntry e"
+          + " WHERE e.id.readingListId = :readingListId")
+  long findLastPosition(@Param("readingListId") Long readingListId);
+
+  /**
+   * IDs of the books of a reading list after a position, as appended since that was its last
+   * position
+   *
+   * @param readingListId Reading list ID
+   * @param afterPosition Last position of the list before the append
+   * @return Book IDs
+   */
+  @Query(
+      "SELECT e.id.bookId FROM ReadingListEntry e"
+          + " WHERE e.id.readingListId = :readingListId AND e.position > :afterPosition")
+  List<Long> findBookIdsAfterPosition(
+      @Param("readingListId") Long readingListId, @Param("afterPosition") long afterPosition);
+
+  /**
+   * Positions of up to two consecutive entries of a reading list in list order, leaving out one
+   * book, starting at an offset. Used to find the neighbours of the slot a book is moved to
+   *
+   * @param readingListId Reading list ID
+   * @param excludedBookId Book to leave out, normally the one being moved
+   * @param offset Number of entries to skip
+   * @return Positions of the entries at the offset and the one after it, if they exist
+   */
+  @Query(
+      value =
+          "SELECT position FROM reading_list_books"
+              + " WHERE reading_list_id = :readingListId AND book_id <> :excludedBookId"
+              + " ORDER BY position, book_id LIMIT 2 OFFSET :offset",
+      nativeQuery = true)
+  List<Long> findNeighbourPositions(
+      @Param("readingListId") Long readingListId,
+      @Param("excludedBookId") Long excludedBookId,
+      @Param("offset") int offset);
+
+  /**
+   * Respace the positions of a reading list's entries {@code gap} apart, keeping their order.
+   * Runs in its own transaction when called outside one
+   *
+   * @param readingListId Reading list ID
+   * @param gap Distance between consecutive positions
+   * @return Number of entries renumbered
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      value =
+          "UPDATE reading_list_books rlb JOIN (SELECT book_id,"
+              + " ROW_NUMBER() OVER (ORDER BY position, book_id) AS row_num"
+              + " FROM reading_list_books WHERE reading_list_id = :readingListId) ranked"
+              + " ON ranked.book_id = rlb.book_id"
+              + " SET rlb.position = ranked.row_num * :gap"
+              + " WHERE rlb.reading_list_id = :readingListId",
+      nativeQuery = true)
+  int renumberPositions(@Param("readingListId") Long readingListId, @Param("gap") long gap);
+
+  /**
+   * Count the join table rows for one reading list and book. The lookup is a primary key probe,
+   * so the result is 0 or 1 whatever the size of the list
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @return 1 if the book is in the reading list, otherwise 0
+   */
+  @Query(
+      value =
+          "SELECT COUNT(*) FROM reading_list_books"
+              + " WHERE reading_list_id = :readingListId AND book_id = :bookId",
+      nativeQuery = true)
+  long countEntries(@Param("readingListId") Long readingListId, @Param("bookId") Long bookId);
+
+  /**
+   * IDs of the books in a reading list, read from the join table alone
+   *
+   * @param readingListId Reading list ID
+   * @return Book IDs
+   */
+  @Query(
+      value = "SELECT book_id FROM reading_list_books WHERE reading_list_id = :readingListId",
+      nativeQuery = true)
+  List<Long> findBookIdsByReadingListId(@Param("readingListId") Long readingListId);
+
+  /**
+   * Count the books of several reading lists in one query. Lists without books have no row
+   *
+   * @param readingListIds Reading list IDs
+   * @return One row per reading list that has books
+   */
+  @Query(
+      "SELECT rl.id AS readingListId, COUNT(b) AS bookCount FROM ReadingList rl JOIN rl.books b"
+          + " WHERE rl.id IN :readingListIds GROUP BY rl.id")
+  List<ReadingListBookCount> countBooksByReadingListIdIn(
+      @Param("readingListIds") Collection<Long> readingListIds);
+
+  /** Reading list and book ID of one reading list entry */
+  interface ReadingListBookLink {
+    Long getReadingListId();
+
+    Long getBookId();
+  }
+
+  /** Number of books in one reading list */
+  interface ReadingListBookCount {
+    Long getReadingListId();
+
+    long getBookCount();
+  }
+
+  /** Version, latest book edit time and owner of a reading list */
+  interface ReadingListSyncState {
+    long getVersion();
+
+    LocalDateTime getBooksUpdatedAt();
+
+    String getUsername();
+  }
 }
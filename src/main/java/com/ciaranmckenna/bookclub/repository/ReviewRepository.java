@@ -1,26 +1,46 @@
 package com.ciaranmckenna.bookclub.repository;
 
+import com.ciaranmckenna.bookclub.dto.ReviewDto;
 import com.ciaranmckenna.bookclub.entity.Review;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, ReviewRepositoryCustom {
+
+  /** JPQL constructor expression for a ReviewDto over Review r joined to Book b and User u */
+  String REVIEW_DTO =
+      "new com.ciaranmckenna.bookclub.dto.ReviewDto(r.id, r.rating, r.reviewText, b.id, u.id,"
+          + " u.username, b.title, r.createdAt, r.updatedAt)";
 
   List<Review> findByBookId(Long bookId);
 
   Page<Review> findByBookId(Long bookId, Pageable pageable);
 
-  List<Review> findByUserId(Long userId);
-
   Optional<Review> findByBookIdAndUserId(Long bookId, Long userId);
 
+  /**
+   * Review as a DTO, with the username and book title joined in
+   *
+   * @param id Review ID
+   * @return Optional containing the review if found
+   */
+  @Query("SELECT " + REVIEW_DTO + " FROM Review r JOIN r.book b JOIN r.user u WHERE r.id = :id")
+  Optional<ReviewDto> findDtoById(@Param("id") Long id);
+
   boolean existsByBookIdAndUserId(Long bookId, Long userId);
 
   @Query("SELECT AVG(r.rating) FROM Review r WHERE r.book.id = :bookId")
@@ -29,6 +49,135 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
   @Query("SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId")
   Long getReviewCountByBookId(@Param("bookId") Long bookId);
 
-  @Query("SELECT r FROM Review r WHERE r.book.id = :bookId ORDER BY r.createdAt DESC")
-  List<Review> findByBookIdOrderByCreatedAtDesc(@Param("bookId") Long bookId);
+  /**
+   * Newest reviews of a book as DTOs, read from the (book_id, created_at, id) index with the
+   * username and book title joined in, so mapping them runs no further queries
+   *
+   * @param bookId Book ID
+   * @param limit Maximum number of reviews to return
+   * @return Reviews, newest first
+   */
+  @Query(
+      "SELECT "
+          + REVIEW_DTO
+          + " FROM Review r JOIN r.book b JOIN r.user u WHERE r.book.id = :bookId"
+          + " ORDER BY r.createdAt DESC, r.id DESC")
+  List<ReviewDto> findDtosByBookId(@Param("bookId") Long bookId, Limit limit);
+
+  /**
+   * Reviews of a book older than a keyset position as DTOs, newest first. The seek reads the
+   * (book_id, created_at, id) index from the position on
+   *
+   * @param bookId Book ID
+   * @param createdAt Creation time of the last review already returned
+   * @param id ID of the last review already returned
+   * @param limit Maximum number of reviews to return
+   * @return Reviews after the position, newest first
+   */
+  @Query(
+      "SELECT "
+          + REVIEW_DTO
+          + " FROM Review r JOIN r.book b JOIN r.user u WHERE r.book.id = :bookId"
+          + " AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id))"
+          + " ORDER BY r.createdAt DESC, r.id DESC")
+  List<ReviewDto> findDtosByBookIdBefore(
+      @Param("bookId") Long bookId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Limit limit);
+
+  /**
+   * Page of a book's reviews as DTOs
+   *
+   * @param bookId Book ID
+   * @param pageable Pagination information
+   * @return Page of reviews
+   */
+  @Query(
+      value =
+          "SELECT " + REVIEW_DTO + " FROM Review r JOIN r.book b JOIN r.user u"
+              + " WHERE r.book.id = :bookId",
+      countQuery = "SELECT COUNT(r) FROM Review r WHERE r.book.id = :bookId")
+  Page<ReviewDto> findDtosByBookId(@Param("bookId") Long bookId, Pageable pageable);
+
+  /**
+   * Slice of a book's reviews as DTOs, without a count query
+   *
+   * @param bookId Book ID
+   * @param pageable Pagination information
+   * @return Slice of reviews
+   */
+  @Query(
+      "SELECT " + REVIEW_DTO + " FROM Review r JOIN r.book b JOIN r.user u"
+          + " WHERE r.book.id = :bookId")
+  Slice<ReviewDto> findDtoSliceByBookId(@Param("bookId") Long bookId, Pageable pageable);
+
+  /**
+   * Newest reviews by a user as DTOs, read from the (user_id, created_at, id) index
+   *
+   * @param userId User ID
+   * @param limit Maximum number of reviews to return
+   * @return Reviews, newest first
+   */
+  @Query(
+      "SELECT "
+          + REVIEW_DTO
+          + " FROM Review r JOIN r.book b JOIN r.user u WHERE r.user.id = :userId"
+          + " ORDER BY r.createdAt DESC, r.id DESC")
+  List<ReviewDto> findDtosByUserId(@Param("userId") Long userId, Limit limit);
+
+  /**
+   * Reviews by a user older than a keyset position as DTOs, newest first
+   *
+   * @param userId User ID
+   * @param createdAt Creation time of the last review already returned
+   * @param id ID of the last review already returned
+   * @param limit Maximum number of reviews to return
+   * @return Reviews after the position, newest first
+   */
+  @Query(
+      "SELECT "
+          + REVIEW_DTO
+          + " FROM Review r JOIN r.book b JOIN r.user u WHERE r.user.id = :userId"
+          + " AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id))"
+          + " ORDER BY r.createdAt DESC, r.id DESC")
+  List<ReviewDto> findDtosByUserIdBefore(
+      @Param("userId") Long userId,
+      @Param("createdAt") LocalDateTime createdAt,
+      @Param("id") Long id,
+      Limit limit);
+
+  @Query(
+      "SELECT r.book.id AS bookId, AVG(r.rating) AS averageRating FROM Review r GROUP BY r.book.id")
+  List<BookAverageRating> findAverageRatings();
+
+  /**
+   * Stream the book, rating and last write time of every review written since a time, for
+   * seeding the leaderboards. The stream must be consumed and closed inside a transaction
+   *
+   * @param since Earliest write time
+   * @return Stream of recent review ratings
+   */
+  @QueryHints({
+    @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = BookRepository.STREAMING_FETCH_SIZE),
+    @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query(
+      "SELECT r.book.id AS bookId, r.rating AS rating, r.updatedAt AS updatedAt FROM Review r"
+          + " WHERE r.updatedAt >= :since")
+  Stream<RecentRating> streamRatingsWrittenSince(@Param("since") LocalDateTime since);
+
+  interface BookAverageRating {
+    Long getBookId();
+
+    Double getAverageRating();
+  }
+
+  interface RecentRating {
+    Long getBookId();
+
+    Integer getRating();
+
+    LocalDateTime getUpdatedAt();
+  }
 }
@@ -0,0 +1,45 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/** Review writes that return what they changed without reading the row first */
+public interface ReviewRepositoryCustom {
+
+  /**
+   * Insert a review without loading its book or user. A duplicate review or an unknown book or
+   * user fails on the table's constraints
+   *
+   * @param bookId Book ID
+   * @param userId User ID
+   * @param rating Rating
+   * @param reviewText Review text
+   * @param now Write time
+   * @return ID of the new review
+   */
+  long insertReview(Long bookId, Long userId, int rating, String reviewText, LocalDateTime now);
+
+  /**
+   * Create a user's review of a book, or replace it if they have already reviewed the book, in a
+   * single upsert on the (book_id, user_id) unique key. The rating and write time it replaces are
+   * returned by the same statement, so the row is neither read nor locked beforehand. Every
+   * replacement moves updated_at forward, so an existing review always counts as changed
+   *
+   * @param bookId Book ID
+   * @param userId User ID
+   * @param rating Rating
+   * @param reviewText Review text
+   * @param now Write time
+   * @return The replaced review's rating and write time, or empty if the review was created
+   */
+  Optional<ReplacedReview> upsertReview(
+      Long bookId, Long userId, int rating, String reviewText, LocalDateTime now);
+
+  /**
+   * Rating and last write time of a review an upsert replaced
+   *
+   * @param rating Previous rating
+   * @param updatedAt Previous write time
+   */
+  record ReplacedReview(int rating, LocalDateTime updatedAt) {}
+}
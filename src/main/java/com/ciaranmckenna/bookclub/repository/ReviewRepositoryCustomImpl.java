@@ -0,0 +1,64 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/** JDBC implementation of {@link ReviewRepositoryCustom} */
+public class ReviewRepositoryCustomImpl implements ReviewRepositoryCustom {
+
+  private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+  /** Ratings are 1 to 5, so they fit in the low three bits of the packed replaced review */
+  private static final int RATING_BITS = 3;
+
+  /** Write time in microseconds and rating of the row being replaced, packed into one BIGINT */
+  private static final String REPLACED_REVIEW =
+      "(TIMESTAMPDIFF(MICROSECOND, '1970-01-01', COALESCE(reviews.updated_at, reviews.created_at))"
+          + " << "
+          + RATING_BITS
+          + ") | reviews.rating";
+
+  private static final String INSERT_REVIEW =
+      "INSERT INTO reviews (book_id, user_id, rating, review_text, created_at, updated_at)"
+          + " VALUES (?, ?, ?, ?, ?, ?)";
+
+  /**
+   * Assignments run left to right, so the first one still sees the row being replaced. It keeps
+   * the ID and only records the replaced review as LAST_INSERT_ID
+   */
+  private static final String UPSERT_REVIEW =
+      INSERT_REVIEW
+          + " AS incoming ON DUPLICATE KEY UPDATE id = IF(LAST_INSERT_ID("
+          + REPLACED_REVIEW
+          + ") = 0, id, id), rating = incoming.rating, review_text = incoming.review_text,"
+          + " updated_at = GREATEST(incoming.updated_at,"
+          + " COALESCE(reviews.updated_at, reviews.created_at) + INTERVAL 1 MICROSECOND)";
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  public long insertReview(
+      Long bookId, Long userId, int rating, String reviewText, LocalDateTime now) {
+    return InsertResult.execute(
+            entityManager, INSERT_REVIEW, bookId, userId, rating, reviewText, now, now)
+        .lastInsertId();
+  }
+
+  @Override
+  public Optional<ReplacedReview> upsertReview(
+      Long bookId, Long userId, int rating, String reviewText, LocalDateTime now) {
+    InsertResult result =
+        InsertResult.execute(
+            entityManager, UPSERT_REVIEW, bookId, userId, rating, reviewText, now, now);
+    if (result.inserted()) {
+      return Optional.empty();
+    }
+    long packed = result.lastInsertId();
+    int previousRating = (int) (packed & ((1 << RATING_BITS) - 1));
+    LocalDateTime previousWrittenAt = EPOCH.plus(packed >>> RATING_BITS, ChronoUnit.MICROS);
+    return Optional.of(new ReplacedReview(previousRating, previousWrittenAt));
+  }
+}
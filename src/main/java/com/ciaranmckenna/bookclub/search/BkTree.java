@@ -0,0 +1,161 @@
+package com.ciaranmckenna.bookclub.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Burkhard-Keller tree over words under Levenshtein distance. A lookup with distance limit k only
+ * descends into children whose edge distance lies within k of the current node's distance, which
+ * the triangle inequality allows, so most of the vocabulary is never compared. Not thread-safe;
+ * callers guard access.
+ */
+public class BkTree {
+
+  private Node root;
+
+  private int size;
+
+  /**
+   * Add a word to the tree
+   *
+   * @param word Word to add
+   * @return true if the word was not already present
+   */
+  public boolean add(String word) {
+    if (root == null) {
+      root = new Node(word);
+      size++;
+      return true;
+    }
+    Node node = root;
+    while (true) {
+      int distance = distance(word, node.word);
+      if (distance == 0) {
+        return false;
+      }
+      Node child = node.child(distance);
+      if (child == null) {
+        node.setChild(distance, new Node(word));
+        size++;
+        return true;
+      }
+      node = child;
+    }
+  }
+
+  /**
+   * Find every word within a maximum edit distance of the query
+   *
+   * @param query Query word
+   * @param maxDistance Maximum Levenshtein distance
+   * @param visitor Receives each matching word with its distance
+   */
+  public void search(String query, int maxDistance, MatchVisitor visitor) {
+    if (root == null) {
+      return;
+    }
+    Deque<Node> pending = new ArrayDeque<>();
+    pending.push(root);
+    while (!pending.isEmpty()) {
+      Node node = pending.pop();
+      int distance = distance(query, node.word);
+      if (distance <= maxDistance) {
+        visitor.visit(node.word, distance);
+      }
+      int from = Math.max(1, distance - maxDistance);
+      int to = Math.min(node.children.length - 1, distance + maxDistance);
+      for (int edge = from; edge <= to; edge++) {
+        Node child = node.children[edge];
+        if (child != null) {
+          pending.push(child);
+        }
+      }
+    }
+  }
+
+  /**
+   * Number of distinct words in the tree
+   *
+   * @return Word count
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Remove every word */
+  public void clear() {
+    root = null;
+    size = 0;
+  }
+
+  /**
+   * Levenshtein distance between two strings, using two rolling rows
+   *
+   * @param a First string
+   * @param b Second string
+   * @return Minimum number of single-character insertions, deletions and substitutions
+   */
+  public static int distance(String a, String b) {
+    if (a.length() < b.length()) {
+      String swap = a;
+      a = b;
+      b = swap;
+    }
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      char ca = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); j++) {
+        int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /** Callback for {@link #search(String, int, MatchVisitor)} */
+  @FunctionalInterface
+  public interface MatchVisitor {
+
+    /**
+     * Called once for each word within the distance limit
+     *
+     * @param word Matching word
+     * @param distance Edit distance from the query
+     */
+    void visit(String word, int distance);
+  }
+
+  private static final class Node {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final String word;
+
+    /** Children indexed by their distance from this node's word */
+    private Node[] children = NO_CHILDREN;
+
+    private Node(String word) {
+      this.word = word;
+    }
+
+    private Node child(int distance) {
+      return distance < children.length ? children[distance] : null;
+    }
+
+    private void setChild(int distance, Node child) {
+      if (distance >= children.length) {
+        children = Arrays.copyOf(children, distance + 1);
+      }
+      children[distance] = child;
+    }
+  }
+}
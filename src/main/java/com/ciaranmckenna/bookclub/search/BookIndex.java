@@ -0,0 +1,46 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+
+/**
+ * In-memory index over the book catalogue. Implementations are kept in sync with the books table
+ * by {@link BookIndexManager}
+ */
+public interface BookIndex {
+
+  /**
+   * Add a book to the index, replacing any previous entry for the same ID
+   *
+   * @param book Book data
+   */
+  void index(BookDto book);
+
+  /**
+   * Remove a book from the index
+   *
+   * @param bookId Book ID
+   */
+  void remove(Long bookId);
+
+  /**
+   * A new, empty index of the same kind for a rebuild to load in the background while this one
+   * keeps serving queries
+   *
+   * @return Empty index
+   */
+  BookIndex emptyCopy();
+
+  /**
+   * Swap in the contents of a rebuilt index in one step. Queries see either the old or the new
+   * contents, never a partly loaded index
+   *
+   * @param rebuilt Index created by {@link #emptyCopy()} and loaded with every book
+   */
+  void replaceWith(BookIndex rebuilt);
+
+  /**
+   * Called once a full rebuild has indexed every book, so indexes that also hold data from
+   * other tables can load it in bulk
+   */
+  default void rebuildComplete() {}
+}
@@ -0,0 +1,208 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.common.AfterCommit;
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps every {@link BookIndex} in sync with the books table. The indexes are built from the
+ * database in the background once the application has started, and book writes are applied
+ * after their transaction commits so a rolled-back write never reaches an index.
+ *
+ * <p>A rebuild loads fresh copies of the indexes while the current ones keep serving queries.
+ * Writes that commit meanwhile are applied to the current indexes and recorded; once the copies
+ * are loaded the recorded writes are replayed into them and every index swaps in its copy, so a
+ * write the rebuild read too early is never lost and a deleted book never comes back
+ */
+@Component
+public class BookIndexManager {
+
+  private static final int REBUILD_BATCH_SIZE = 1000;
+
+  @Autowired private BookRepository bookRepository;
+
+  @Autowired private List<BookIndex> indexes;
+
+  @Autowired private ObjectProvider<LuceneBookSearch> luceneBookSearch;
+
+  private final Object rebuildLock = new Object();
+
+  /** Serialises index writes with the recording and replay of writes made during a rebuild */
+  private final Object writeLock = new Object();
+
+  /** Writes made since the running rebuild started, or null when none is running */
+  private List<Consumer<BookIndex>> pendingWrites;
+
+  private volatile boolean ready;
+
+  /**
+   * Build all indexes from the books table once the application is ready. Runs in the background
+   * so startup and readiness do not wait on a full table scan; searches use the database until it
+   * has finished
+   */
+  @Async
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    rebuild();
+  }
+
+  /**
+   * Rebuild all indexes in the background, for the admin endpoint. Searches keep using the
+   * current indexes until the rebuilt ones are swapped in
+   */
+  @Async
+  public void rebuildInBackground() {
+    rebuild();
+  }
+
+  /**
+   * Load fresh copies of all indexes from the books table in ID order, one batch at a time so the
+   * catalogue is never held in memory as entities, then swap them in. Concurrent calls run one
+   * after the other
+   */
+  public void rebuild() {
+    synchronized (rebuildLock) {
+      List<BookIndex> rebuilt = indexes.stream().map(BookIndex::emptyCopy).toList();
+      synchronized (writeLock) {
+        pendingWrites = new ArrayList<>();
+      }
+      try {
+        load(rebuilt);
+        synchronized (writeLock) {
+          for (Consumer<BookIndex> write : pendingWrites) {
+            rebuilt.forEach(write);
+          }
+          for (int i = 0; i < indexes.size(); i++) {
+            indexes.get(i).replaceWith(rebuilt.get(i));
+          }
+        }
+        ready = true;
+      } finally {
+        synchronized (writeLock) {
+          pendingWrites = null;
+        }
+      }
+    }
+  }
+
+  private void load(List<BookIndex> rebuilt) {
+    long lastId = 0L;
+    List<BookDto> batch;
+    do {
+      batch =
+          bookRepository.findByIdGreaterThanOrderByIdAsc(
+              lastId, PageRequest.ofSize(REBUILD_BATCH_SIZE));
+      for (BookDto book : batch) {
+        rebuilt.forEach(index -> index.index(book));
+        lastId = book.id();
+      }
+    } while (batch.size() == REBUILD_BATCH_SIZE);
+    rebuilt.forEach(BookIndex::rebuildComplete);
+  }
+
+  /**
+   * Whether the initial build has completed. Until it has, callers should fall back to the
+   * database. Later rebuilds do not reset this, as the current indexes stay in use until they are
+   * replaced
+   *
+   * @return true if the indexes can be queried
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Add or replace a book in every index once the current transaction commits, and queue it for
+   * the Lucene index when that backend is enabled
+   *
+   * @param book Saved book data
+   */
+  public void bookSaved(BookDto book) {
+    AfterCommit.run(
+        () -> {
+          write(index -> index.index(book));
+          luceneBookSearch.ifAvailable(lucene -> lucene.bookSaved(book.id()));
+        });
+  }
+
+  /**
+   * Remove a book from every index once the current transaction commits, and queue its removal
+   * from the Lucene index when that backend is enabled
+   *
+   * @param bookId Deleted book ID
+   */
+  public void bookDeleted(Long bookId) {
+    AfterCommit.run(
+        () -> {
+          write(index -> index.remove(bookId));
+          luceneBookSearch.ifAvailable(lucene -> lucene.bookDeleted(bookId));
+        });
+  }
+
+  /**
+   * Record a book's new average rating in the facet index once the current transaction commits
+   *
+   * @param bookId Book ID
+   * @param averageRating Average review rating, or null if the book has no reviews
+   */
+  public void ratingChanged(Long bookId, Double averageRating) {
+    AfterCommit.run(
+        () ->
+            write(
+                index -> {
+                  if (index instanceof FacetIndex facets) {
+                    facets.ratingChanged(bookId, averageRating);
+                  }
+                }));
+  }
+
+  /**
+   * Queue the books of a renamed category for the Lucene index once the current transaction
+   * commits. Only the Lucene documents hold category names
+   *
+   * @param categoryId Category ID
+   */
+  public void categoryChanged(Long categoryId) {
+    AfterCommit.run(
+        () -> luceneBookSearch.ifAvailable(lucene -> lucene.categoryChanged(categoryId)));
+  }
+
+  /**
+   * Drop a deleted category from the facet index and queue its books for the Lucene index once
+   * the current transaction commits
+   *
+   * @param categoryId Category ID
+   */
+  public void categoryDeleted(Long categoryId) {
+    AfterCommit.run(
+        () -> {
+          write(
+              index -> {
+                if (index instanceof FacetIndex facets) {
+                  facets.categoryDeleted(categoryId);
+                }
+              });
+          luceneBookSearch.ifAvailable(lucene -> lucene.categoryChanged(categoryId));
+        });
+  }
+
+  /** Apply a write to the current indexes, and record it for replay if a rebuild is running */
+  private void write(Consumer<BookIndex> write) {
+    synchronized (writeLock) {
+      indexes.forEach(write);
+      if (pendingWrites != null) {
+        pendingWrites.add(write);
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token-based inverted index over book titles and authors. Each query token matches any indexed
+ * token it is a prefix of, and a book matches when every query token does
+ */
+@Component
+public class BookSearchIndex implements BookIndex {
+
+  private NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+
+  private Map<Long, Set<String>> tokensByBook = new HashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  @Override
+  public void index(BookDto book) {
+    Set<String> tokens = SearchTokenizer.tokenize(book.title());
+    tokens.addAll(SearchTokenizer.tokenize(book.author()));
+
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(book.id());
+      for (String token : tokens) {
+        postings.computeIfAbsent(token, t -> new TreeSet<>()).add(book.id());
+      }
+      tokensByBook.put(book.id(), tokens);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    return new BookSearchIndex();
+  }
+
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    BookSearchIndex index = (BookSearchIndex) rebuilt;
+    lock.writeLock().lock();
+    try {
+      postings = index.postings;
+      tokensByBook = index.tokensByBook;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find the IDs of books whose title or author contains every token of the search term
+   *
+   * @param searchTerm Search term
+   * @return Matching book IDs in ascending order
+   */
+  public List<Long> search(String searchTerm) {
+    Set<String> queryTokens = SearchTokenizer.tokenize(searchTerm);
+    if (queryTokens.isEmpty()) {
+      return List.of();
+    }
+
+    lock.readLock().lock();
+    try {
+      TreeSet<Long> matches = null;
+      for (String queryToken : queryTokens) {
+        TreeSet<Long> tokenMatches = new TreeSet<>();
+        postings
+            .subMap(queryToken, true, queryToken + Character.MAX_VALUE, false)
+            .values()
+            .forEach(tokenMatches::addAll);
+
+        if (matches == null) {
+          matches = tokenMatches;
+        } else {
+          matches.retainAll(tokenMatches);
+        }
+        if (matches.isEmpty()) {
+          return List.of();
+        }
+      }
+      return new ArrayList<>(matches);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Number of books currently held in the index
+   *
+   * @return Indexed book count
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return tokensByBook.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeUnlocked(Long bookId) {
+    Set<String> previous = tokensByBook.remove(bookId);
+    if (previous == null) {
+      return;
+    }
+    for (String token : previous) {
+      Set<Long> ids = postings.get(token);
+      if (ids != null) {
+        ids.remove(bookId);
+        if (ids.isEmpty()) {
+          postings.remove(token);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sort keys of every book, so matches from the other in-memory indexes can be ordered and paged
+ * without handing the whole match set to the database. Only the books on the requested page are
+ * then loaded. Titles and authors compare case-insensitively; ties are broken by ascending ID
+ */
+@Component
+public class BookSortIndex implements BookIndex {
+
+  /** Book fields search results can be sorted by */
+  public static final Set<String> SORT_FIELDS = Set.of("id", "title", "author", "publicationDate");
+
+  private Map<Long, SortKeys> books = new HashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  @Override
+  public void index(BookDto book) {
+    SortKeys keys = new SortKeys(book.id(), book.title(), book.author(), book.publicationDate());
+    lock.writeLock().lock();
+    try {
+      books.put(book.id(), keys);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      books.remove(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    return new BookSortIndex();
+  }
+
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    BookSortIndex index = (BookSortIndex) rebuilt;
+    lock.writeLock().lock();
+    try {
+      books = index.books;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * One page of a set of books in sort order. Only the first {@code offset + limit} books are
+   * kept while scanning, so the cost grows with the depth of the page rather than with a full
+   * sort of the matches
+   *
+   * @param ids Book IDs to order
+   * @param sort Sort, by fields in {@link #SORT_FIELDS}
+   * @param offset Number of books to skip
+   * @param limit Maximum number of books to return
+   * @return IDs of the books on the page, in sort order
+   * @throws IllegalArgumentException if the sort uses a field the index does not hold
+   */
+  public List<Long> page(Collection<Long> ids, Sort sort, long offset, int limit) {
+    Comparator<SortKeys> order = comparator(sort);
+    long keep = Math.min(offset + limit, ids.size());
+    if (keep <= offset) {
+      return List.of();
+    }
+
+    // Max-heap of the best books seen so far; its head is the first to drop
+    PriorityQueue<SortKeys> best = new PriorityQueue<>((int) keep, order.reversed());
+    lock.readLock().lock();
+    try {
+      for (Long id : ids) {
+        SortKeys keys = books.get(id);
+        if (keys == null) {
+          continue;
+        }
+        if (best.size() < keep) {
+          best.add(keys);
+        } else if (order.compare(keys, best.peek()) < 0) {
+          best.poll();
+          best.add(keys);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    List<SortKeys> sorted = new ArrayList<>(best);
+    sorted.sort(order);
+    int from = (int) Math.min(offset, sorted.size());
+    return sorted.subList(from, sorted.size()).stream().map(SortKeys::id).toList();
+  }
+
+  private static Comparator<SortKeys> comparator(Sort sort) {
+    Comparator<SortKeys> order = null;
+    for (Sort.Order sortOrder : sort) {
+      Comparator<SortKeys> field = field(sortOrder.getProperty());
+      if (sortOrder.isDescending()) {
+        field = field.reversed();
+      }
+      order = order == null ? field : order.thenComparing(field);
+    }
+    Comparator<SortKeys> byId = Comparator.comparingLong(SortKeys::id);
+    return order == null ? byId : order.thenComparing(byId);
+  }
+
+  private static Comparator<SortKeys> field(String property) {
+    return switch (property) {
+      case "id" -> Comparator.comparingLong(SortKeys::id);
+      case "title" ->
+          Comparator.comparing(
+              SortKeys::title, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+      case "author" ->
+          Comparator.comparing(
+              SortKeys::author, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+      case "publicationDate" ->
+          Comparator.comparing(
+              SortKeys::publicationDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+      default ->
+          throw new IllegalArgumentException(
+              "Cannot sort search results by '" + property + "', supported fields: "
+                  + SORT_FIELDS);
+    };
+  }
+
+  private record SortKeys(Long id, String title, String author, LocalDate publicationDate) {}
+}
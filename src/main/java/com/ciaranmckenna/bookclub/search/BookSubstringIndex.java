@@ -0,0 +1,58 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/** Trigram indexes answering "title contains" and "author contains" lookups */
+@Component
+public class BookSubstringIndex implements BookIndex {
+
+  private volatile TrigramIndex titles = new TrigramIndex();
+
+  private volatile TrigramIndex authors = new TrigramIndex();
+
+  @Override
+  public void index(BookDto book) {
+    titles.put(book.id(), book.title());
+    authors.put(book.id(), book.author());
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    titles.remove(bookId);
+    authors.remove(bookId);
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    return new BookSubstringIndex();
+  }
+
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    BookSubstringIndex index = (BookSubstringIndex) rebuilt;
+    titles = index.titles;
+    authors = index.authors;
+  }
+
+  /**
+   * Find books whose title contains the given text, best matches first
+   *
+   * @param title Title text, see {@link TrigramIndex#supports(String)}
+   * @return Matching book IDs in rank order
+   */
+  public List<Long> searchTitles(String title) {
+    return titles.search(title);
+  }
+
+  /**
+   * Find books whose author contains the given text, best matches first
+   *
+   * @param author Author text, see {@link TrigramIndex#supports(String)}
+   * @return Matching book IDs in rank order
+   */
+  public List<Long> searchAuthors(String author) {
+    return authors.search(author);
+  }
+}
@@ -0,0 +1,412 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.BookFacetFilter;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import com.ciaranmckenna.bookclub.repository.ReviewRepository;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compressed bitmaps of book IDs per category, publication year, author token and minimum average
+ * rating. A faceted search intersects the bitmaps of the active filters, and each facet's counts
+ * come from intersecting its value bitmaps with the other filters only, so a client can see how
+ * many books every alternative value would return. Book IDs are held as ints.
+ *
+ * <p>Years and authors follow the book writes through {@link BookIndexManager}; category links and
+ * ratings are loaded in bulk after a rebuild and updated by the review write paths once they commit
+ */
+@Component
+public class FacetIndex implements BookIndex {
+
+  private static final int MAX_RATING = 5;
+
+  @Autowired private BookRepository bookRepository;
+
+  @Autowired private ReviewRepository reviewRepository;
+
+  private RoaringBitmap all = new RoaringBitmap();
+
+  private Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+
+  private NavigableMap<Integer, RoaringBitmap> byYear = new TreeMap<>();
+
+  private Map<String, RoaringBitmap> byAuthorToken = new HashMap<>();
+
+  /** Index k holds books whose average rating is at least k */
+  private RoaringBitmap[] byMinRating = new RoaringBitmap[MAX_RATING + 1];
+
+  private Map<Long, IndexedBook> books = new HashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public FacetIndex() {
+    for (int rating = 1; rating <= MAX_RATING; rating++) {
+      byMinRating[rating] = new RoaringBitmap();
+    }
+  }
+
+  @Override
+  public void index(BookDto book) {
+    int id = Math.toIntExact(book.id());
+    Integer year = book.publicationDate() != null ? book.publicationDate().getYear() : null;
+    Set<String> authorTokens = SearchTokenizer.tokenize(book.author());
+
+    lock.writeLock().lock();
+    try {
+      removeBookFacetsUnlocked(book.id(), id);
+      all.add(id);
+      if (year != null) {
+        byYear.computeIfAbsent(year, y -> new RoaringBitmap()).add(id);
+      }
+      for (String token : authorTokens) {
+        byAuthorToken.computeIfAbsent(token, t -> new RoaringBitmap()).add(id);
+      }
+      books.put(book.id(), new IndexedBook(year, authorTokens));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    int id = Math.toIntExact(bookId);
+    lock.writeLock().lock();
+    try {
+      removeBookFacetsUnlocked(bookId, id);
+      all.remove(id);
+      byCategory.values().forEach(bitmap -> bitmap.remove(id));
+      setRatingUnlocked(id, null);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    FacetIndex copy = new FacetIndex();
+    copy.bookRepository = bookRepository;
+    copy.reviewRepository = reviewRepository;
+    return copy;
+  }
+
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    FacetIndex index = (FacetIndex) rebuilt;
+    lock.writeLock().lock();
+    try {
+      all = index.all;
+      byCategory = index.byCategory;
+      byYear = index.byYear;
+      byAuthorToken = index.byAuthorToken;
+      byMinRating = index.byMinRating;
+      books = index.books;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Load every category link and average rating once the books themselves are indexed */
+  @Override
+  public void rebuildComplete() {
+    List<BookRepository.BookCategoryLink> links = bookRepository.findAllCategoryLinks();
+    List<ReviewRepository.BookAverageRating> ratings = reviewRepository.findAverageRatings();
+
+    lock.writeLock().lock();
+    try {
+      for (BookRepository.BookCategoryLink link : links) {
+        byCategory
+            .computeIfAbsent(link.getCategoryId(), c -> new RoaringBitmap())
+            .add(Math.toIntExact(link.getBookId()));
+      }
+      for (ReviewRepository.BookAverageRating rating : ratings) {
+        setRatingUnlocked(Math.toIntExact(rating.getBookId()), rating.getAverageRating());
+      }
+      byCategory.values().forEach(RoaringBitmap::runOptimize);
+      byYear.values().forEach(RoaringBitmap::runOptimize);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Record a book's new average rating
+   *
+   * @param bookId Book ID
+   * @param averageRating Average review rating, or null if the book has no reviews
+   */
+  public void ratingChanged(Long bookId, Double averageRating) {
+    lock.writeLock().lock();
+    try {
+      setRatingUnlocked(Math.toIntExact(bookId), averageRating);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Drop a deleted category's bitmap
+   *
+   * @param categoryId Category ID
+   */
+  public void categoryDeleted(Long categoryId) {
+    lock.writeLock().lock();
+    try {
+      byCategory.remove(categoryId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find the books matching a filter and count each facet's values
+   *
+   * @param filter Facet filter
+   * @param textMatches IDs already matched by a text search, or null for no text restriction
+   * @return Matching books in ascending ID order with the facet counts
+   */
+  public Result search(BookFacetFilter filter, Collection<Long> textMatches) {
+    lock.readLock().lock();
+    try {
+      RoaringBitmap categoryFilter = categoryFilter(filter.categoryIds());
+      RoaringBitmap yearFilter = yearFilter(filter.yearFrom(), filter.yearTo());
+      RoaringBitmap authorFilter = authorFilter(filter.author());
+      RoaringBitmap ratingFilter =
+          filter.minRating() != null ? byMinRating[filter.minRating()] : null;
+      RoaringBitmap textFilter = textMatches != null ? toBitmap(textMatches) : null;
+
+      RoaringBitmap matches =
+          intersect(categoryFilter, yearFilter, authorFilter, ratingFilter, textFilter);
+      if (matches == all) {
+        matches = all.clone();
+      }
+
+      RoaringBitmap withoutCategory =
+          intersect(yearFilter, authorFilter, ratingFilter, textFilter);
+      Map<Long, Long> categoryCounts = new TreeMap<>();
+      byCategory.forEach(
+          (categoryId, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(bitmap, withoutCategory);
+            if (count > 0) {
+              categoryCounts.put(categoryId, count);
+            }
+          });
+
+      RoaringBitmap withoutYear =
+          intersect(categoryFilter, authorFilter, ratingFilter, textFilter);
+      Map<Integer, Long> yearCounts = new LinkedHashMap<>();
+      byYear.forEach(
+          (year, bitmap) -> {
+            long count = RoaringBitmap.andCardinality(bitmap, withoutYear);
+            if (count > 0) {
+              yearCounts.put(year, count);
+            }
+          });
+
+      RoaringBitmap withoutRating =
+          intersect(categoryFilter, yearFilter, authorFilter, textFilter);
+      Map<Integer, Long> minRatingCounts = new LinkedHashMap<>();
+      for (int rating = 1; rating <= MAX_RATING; rating++) {
+        minRatingCounts.put(
+            rating, (long) RoaringBitmap.andCardinality(byMinRating[rating], withoutRating));
+      }
+
+      return new Result(matches, categoryCounts, yearCounts, minRatingCounts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Intersect the catalogue with every non-null filter; returns the live catalogue if none */
+  private RoaringBitmap intersect(RoaringBitmap... filters) {
+    RoaringBitmap result = all;
+    for (RoaringBitmap filter : filters) {
+      if (filter != null) {
+        result = RoaringBitmap.and(result, filter);
+      }
+    }
+    return result;
+  }
+
+  private RoaringBitmap categoryFilter(List<Long> categoryIds) {
+    if (categoryIds.isEmpty()) {
+      return null;
+    }
+    List<RoaringBitmap> bitmaps = new ArrayList<>();
+    for (Long categoryId : categoryIds) {
+      RoaringBitmap bitmap = byCategory.get(categoryId);
+      if (bitmap != null) {
+        bitmaps.add(bitmap);
+      }
+    }
+    return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+  }
+
+  private RoaringBitmap yearFilter(Integer yearFrom, Integer yearTo) {
+    if (yearFrom == null && yearTo == null) {
+      return null;
+    }
+    Collection<RoaringBitmap> years =
+        byYear
+            .subMap(
+                yearFrom != null ? yearFrom : Integer.MIN_VALUE,
+                true,
+                yearTo != null ? yearTo : Integer.MAX_VALUE,
+                true)
+            .values();
+    return years.isEmpty() ? new RoaringBitmap() : FastAggregation.or(years.iterator());
+  }
+
+  private RoaringBitmap authorFilter(String author) {
+    Set<String> tokens = SearchTokenizer.tokenize(author);
+    if (tokens.isEmpty()) {
+      return null;
+    }
+    RoaringBitmap result = null;
+    for (String token : tokens) {
+      RoaringBitmap bitmap = byAuthorToken.get(token);
+      if (bitmap == null) {
+        return new RoaringBitmap();
+      }
+      result = result == null ? bitmap : RoaringBitmap.and(result, bitmap);
+    }
+    return result;
+  }
+
+  private static RoaringBitmap toBitmap(Collection<Long> ids) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (Long id : ids) {
+      bitmap.add(Math.toIntExact(id));
+    }
+    return bitmap;
+  }
+
+  private void removeBookFacetsUnlocked(Long bookId, int id) {
+    IndexedBook previous = books.remove(bookId);
+    if (previous == null) {
+      return;
+    }
+    if (previous.year() != null) {
+      removeFrom(byYear, previous.year(), id);
+    }
+    for (String token : previous.authorTokens()) {
+      removeFrom(byAuthorToken, token, id);
+    }
+  }
+
+  private void setRatingUnlocked(int id, Double averageRating) {
+    for (int rating = 1; rating <= MAX_RATING; rating++) {
+      if (averageRating != null && averageRating >= rating) {
+        byMinRating[rating].add(id);
+      } else {
+        byMinRating[rating].remove(id);
+      }
+    }
+  }
+
+  private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int id) {
+    RoaringBitmap bitmap = bitmaps.get(key);
+    if (bitmap != null) {
+      bitmap.remove(id);
+      if (bitmap.isEmpty()) {
+        bitmaps.remove(key);
+      }
+    }
+  }
+
+  /** Facets of an indexed book; the year is null when the publication date is unknown */
+  private record IndexedBook(Integer year, Set<String> authorTokens) {}
+
+  /** Books matched by a faceted search, in ascending ID order, with the facet counts */
+  public static final class Result {
+
+    private final RoaringBitmap matches;
+
+    private final Map<Long, Long> categoryCounts;
+
+    private final Map<Integer, Long> yearCounts;
+
+    private final Map<Integer, Long> minRatingCounts;
+
+    private Result(
+        RoaringBitmap matches,
+        Map<Long, Long> categoryCounts,
+        Map<Integer, Long> yearCounts,
+        Map<Integer, Long> minRatingCounts) {
+      this.matches = matches;
+      this.categoryCounts = categoryCounts;
+      this.yearCounts = yearCounts;
+      this.minRatingCounts = minRatingCounts;
+    }
+
+    /**
+     * Number of matching books
+     *
+     * @return Match count
+     */
+    public long total() {
+      return matches.getLongCardinality();
+    }
+
+    /**
+     * IDs of one page of matching books
+     *
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of IDs to return
+     * @return Book IDs in ascending order
+     */
+    public List<Long> ids(long offset, int limit) {
+      List<Long> ids = new ArrayList<>(limit);
+      if (offset >= matches.getLongCardinality()) {
+        return ids;
+      }
+      PeekableIntIterator iterator = matches.getIntIterator();
+      iterator.advanceIfNeeded(matches.select((int) offset));
+      while (iterator.hasNext() && ids.size() < limit) {
+        ids.add((long) iterator.next());
+      }
+      return ids;
+    }
+
+    /**
+     * Matching books per category, ignoring the category filter
+     *
+     * @return Count by category ID, categories without matches omitted
+     */
+    public Map<Long, Long> categoryCounts() {
+      return categoryCounts;
+    }
+
+    /**
+     * Matching books per publication year, ignoring the year filter
+     *
+     * @return Count by year in ascending order, years without matches omitted
+     */
+    public Map<Integer, Long> yearCounts() {
+      return yearCounts;
+    }
+
+    /**
+     * Matching books per minimum average rating, ignoring the rating filter
+     *
+     * @return Count of books rated at least 1 to 5
+     */
+    public Map<Integer, Long> minRatingCounts() {
+      return minRatingCounts;
+    }
+  }
+}
@@ -0,0 +1,334 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.stereotype.Component;
+
+/**
+ * Typo-tolerant index over title and author tokens. Each query token matches indexed tokens within
+ * a small edit distance, found through a {@link BkTree} over the token vocabulary, and a book
+ * matches when every query token does.
+ *
+ * <p>Short tokens have many near neighbours, and common ones have long posting lists, so what a
+ * query token expands to is bounded: a token that is itself a common word matches only exactly,
+ * and its typo matches may add at most {@link #MAX_FUZZY_BOOKS} books. Query tokens are then
+ * intersected rarest first, later ones only checking the books still in the running
+ */
+@Component
+public class FuzzyBookIndex implements BookIndex {
+
+  /** Books above which a word is treated as a stop word and matched exactly only */
+  static final int COMMON_WORD_BOOKS = 10_000;
+
+  /** Most books the typo matches of one query token may add to its exact matches */
+  static final int MAX_FUZZY_BOOKS = 50_000;
+
+  private BkTree vocabulary = new BkTree();
+
+  private Map<String, Set<Long>> postings = new HashMap<>();
+
+  private Map<Long, Set<String>> tokensByBook = new HashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** Words left in the vocabulary after their last book was removed */
+  private int staleWords;
+
+  @Override
+  public void index(BookDto book) {
+    Set<String> tokens = SearchTokenizer.tokenize(book.title());
+    tokens.addAll(SearchTokenizer.tokenize(book.author()));
+
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(book.id());
+      for (String token : tokens) {
+        Set<Long> ids = postings.get(token);
+        if (ids == null) {
+          ids = new HashSet<>();
+          postings.put(token, ids);
+          if (!vocabulary.add(token)) {
+            staleWords--;
+          }
+        }
+        ids.add(book.id());
+      }
+      tokensByBook.put(book.id(), tokens);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    return new FuzzyBookIndex();
+  }
+
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    FuzzyBookIndex index = (FuzzyBookIndex) rebuilt;
+    lock.writeLock().lock();
+    try {
+      vocabulary = index.vocabulary;
+      postings = index.postings;
+      tokensByBook = index.tokensByBook;
+      staleWords = index.staleWords;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find books whose title or author contains a close match for every token of the search term
+   *
+   * @param searchTerm Search term, possibly misspelled
+   * @return Matching books with their total edit distance
+   */
+  public Matches search(String searchTerm) {
+    Set<String> queryTokens = SearchTokenizer.tokenize(searchTerm);
+    if (queryTokens.isEmpty()) {
+      return Matches.NONE;
+    }
+
+    lock.readLock().lock();
+    try {
+      List<List<Expansion>> expansions = new ArrayList<>();
+      for (String queryToken : queryTokens) {
+        List<Expansion> expansion = expand(queryToken);
+        if (expansion.isEmpty()) {
+          return Matches.NONE;
+        }
+        expansions.add(expansion);
+      }
+      expansions.sort(Comparator.comparingLong(FuzzyBookIndex::bookCount));
+
+      // Sized up front, since the rarest token can still match most of the catalogue
+      long expected = Math.min(bookCount(expansions.get(0)), tokensByBook.size());
+      Map<Long, Integer> distances = new HashMap<>((int) (expected / 0.75f) + 1);
+      for (Expansion match : expansions.get(0)) {
+        for (Long id : match.ids()) {
+          distances.merge(id, match.distance(), Math::min);
+        }
+      }
+      for (List<Expansion> expansion : expansions.subList(1, expansions.size())) {
+        Iterator<Map.Entry<Long, Integer>> candidates = distances.entrySet().iterator();
+        while (candidates.hasNext()) {
+          Map.Entry<Long, Integer> candidate = candidates.next();
+          int distance = closest(expansion, candidate.getKey());
+          if (distance < 0) {
+            candidates.remove();
+          } else {
+            candidate.setValue(candidate.getValue() + distance);
+          }
+        }
+        if (distances.isEmpty()) {
+          return Matches.NONE;
+        }
+      }
+      return new Matches(distances);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Number of books currently held in the index
+   *
+   * @return Indexed book count
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return tokensByBook.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Edit distance allowed for a query token: exact for very short tokens, one typo up to five
+   * characters and two beyond that
+   *
+   * @param token Normalized query token
+   * @return Maximum Levenshtein distance
+   */
+  static int maxDistance(String token) {
+    if (token.length() <= 2) {
+      return 0;
+    }
+    return token.length() <= 5 ? 1 : 2;
+  }
+
+  /**
+   * Indexed words a query token matches, closest first. A common word matches only itself, and
+   * typo matches that would take the token past {@link #MAX_FUZZY_BOOKS} books are left out,
+   * rarest kept first
+   */
+  private List<Expansion> expand(String queryToken) {
+    Set<Long> exact = postings.get(queryToken);
+    if (exact != null && exact.size() > COMMON_WORD_BOOKS) {
+      return List.of(new Expansion(0, exact));
+    }
+
+    List<Expansion> matches = new ArrayList<>();
+    vocabulary.search(
+        queryToken,
+        maxDistance(queryToken),
+        (word, distance) -> {
+          Set<Long> ids = postings.get(word);
+          if (ids != null) {
+            matches.add(new Expansion(distance, ids));
+          }
+        });
+    matches.sort(
+        Comparator.comparingInt(Expansion::distance)
+            .thenComparingInt(match -> match.ids().size()));
+
+    List<Expansion> kept = new ArrayList<>(matches.size());
+    long fuzzyBooks = 0;
+    for (Expansion match : matches) {
+      if (match.distance() > 0) {
+        if (fuzzyBooks + match.ids().size() > MAX_FUZZY_BOOKS) {
+          continue;
+        }
+        fuzzyBooks += match.ids().size();
+      }
+      kept.add(match);
+    }
+    return kept;
+  }
+
+  /** Upper bound on the books a query token matches, summed over the words it expands to */
+  private static long bookCount(List<Expansion> expansion) {
+    long count = 0;
+    for (Expansion match : expansion) {
+      count += match.ids().size();
+    }
+    return count;
+  }
+
+  /** Distance of the closest word a book has among a token's matches, or -1 if it has none */
+  private static int closest(List<Expansion> expansion, Long bookId) {
+    for (Expansion match : expansion) {
+      if (match.ids().contains(bookId)) {
+        return match.distance();
+      }
+    }
+    return -1;
+  }
+
+  private void removeUnlocked(Long bookId) {
+    Set<String> previous = tokensByBook.remove(bookId);
+    if (previous == null) {
+      return;
+    }
+    for (String token : previous) {
+      Set<Long> ids = postings.get(token);
+      if (ids != null) {
+        ids.remove(bookId);
+        if (ids.isEmpty()) {
+          postings.remove(token);
+          staleWords++;
+        }
+      }
+    }
+    if (staleWords > postings.size()) {
+      rebuildVocabulary();
+    }
+  }
+
+  /** BK-trees cannot delete, so drop unused words by rebuilding once they dominate the tree */
+  private void rebuildVocabulary() {
+    vocabulary.clear();
+    postings.keySet().forEach(vocabulary::add);
+    staleWords = 0;
+  }
+
+  /** An indexed word a query token matched, as the books holding it */
+  private record Expansion(int distance, Set<Long> ids) {}
+
+  /** Books matched by a fuzzy search, each with the total edit distance of its closest words */
+  public static final class Matches {
+
+    static final Matches NONE = new Matches(Map.of());
+
+    private static final Comparator<Map.Entry<Long, Integer>> RANK =
+        Map.Entry.<Long, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    private final Map<Long, Integer> distances;
+
+    private Matches(Map<Long, Integer> distances) {
+      this.distances = distances;
+    }
+
+    /**
+     * Number of matching books
+     *
+     * @return Match count
+     */
+    public int count() {
+      return distances.size();
+    }
+
+    /**
+     * IDs of every matching book, in no particular order
+     *
+     * @return Matching book IDs
+     */
+    public Set<Long> ids() {
+      return Collections.unmodifiableSet(distances.keySet());
+    }
+
+    /**
+     * The closest matches, ties in ascending ID order. Only the best {@code limit} are kept while
+     * scanning, so the matches are never sorted in full
+     *
+     * @param limit Maximum number of IDs to return
+     * @return Best matching book IDs, closest first
+     */
+    public List<Long> top(int limit) {
+      int keep = Math.min(limit, distances.size());
+      if (keep <= 0) {
+        return List.of();
+      }
+
+      // Max-heap of the best matches seen so far; its head is the first to drop
+      PriorityQueue<Map.Entry<Long, Integer>> best = new PriorityQueue<>(keep, RANK.reversed());
+      for (Map.Entry<Long, Integer> match : distances.entrySet()) {
+        if (best.size() < keep) {
+          best.add(match);
+        } else if (RANK.compare(match, best.peek()) < 0) {
+          best.poll();
+          best.add(match);
+        }
+      }
+
+      List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(best);
+      ranked.sort(RANK);
+      List<Long> ids = new ArrayList<>(ranked.size());
+      ranked.forEach(match -> ids.add(match.getKey()));
+      return ids;
+    }
+  }
+}
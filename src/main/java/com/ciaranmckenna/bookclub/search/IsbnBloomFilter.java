@@ -0,0 +1,156 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.common.Isbn;
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bloom filter over the canonical ISBN keys of the catalogue. A negative answer is definite, so
+ * duplicate checks for a new ISBN can skip the database; a positive answer may be a false positive
+ * and must be confirmed with a query. The filter is sized for twice the catalogue at rebuild time
+ * with a 1% false-positive rate, and bits are set lock-free so lookups never block.
+ *
+ * <p>Bits cannot be cleared, so deleting a book or changing its ISBN leaves the old key set until
+ * the next rebuild. That only adds false positives. If more keys are added than the filter was
+ * sized for it answers "maybe" for everything rather than let the false-positive rate climb
+ */
+@Component
+public class IsbnBloomFilter implements BookIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(IsbnBloomFilter.class);
+
+  private static final int MIN_CAPACITY = 10_000;
+
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+
+  @Autowired private BookRepository bookRepository;
+
+  private volatile Bits bits = new Bits(MIN_CAPACITY);
+
+  /**
+   * Whether a canonical ISBN key may already be registered
+   *
+   * @param isbnKey Canonical ISBN key
+   * @return false if the key is definitely absent, true if it may be present
+   */
+  public boolean mightContain(String isbnKey) {
+    return bits.mightContain(isbnKey);
+  }
+
+  /**
+   * Record a canonical ISBN key
+   *
+   * @param isbnKey Canonical ISBN key, ignored if null
+   */
+  public void add(String isbnKey) {
+    if (isbnKey != null) {
+      bits.add(isbnKey);
+    }
+  }
+
+  @Override
+  public void index(BookDto book) {
+    add(Isbn.canonicalKey(book.isbn()));
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    // Bloom filter bits are shared between keys; the stale key is dropped on the next rebuild
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    IsbnBloomFilter copy = new IsbnBloomFilter();
+    copy.bookRepository = bookRepository;
+    copy.bits = new Bits(Math.max(MIN_CAPACITY, 2 * bookRepository.count()));
+    return copy;
+  }
+
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    bits = ((IsbnBloomFilter) rebuilt).bits;
+  }
+
+  /** Bit array, hash count and capacity for one build of the filter */
+  private static final class Bits {
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private final long capacity;
+
+    private final AtomicLong added = new AtomicLong();
+
+    private Bits(long capacity) {
+      double ln2 = Math.log(2);
+      long size = (long) Math.ceil(-capacity * Math.log(FALSE_POSITIVE_RATE) / (ln2 * ln2));
+      this.words = new AtomicLongArray((int) ((size + 63) / 64));
+      this.bitCount = words.length() * 64L;
+      this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+      this.capacity = capacity;
+    }
+
+    private void add(String key) {
+      long hash = hash(key);
+      boolean changed = false;
+      for (int i = 0; i < hashCount; i++) {
+        long bit = bitIndex(hash, i);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long previous = words.getAndUpdate(word, value -> value | mask);
+        changed |= (previous & mask) == 0;
+      }
+      if (changed && added.incrementAndGet() == capacity + 1) {
+        log.warn(
+            "ISBN filter is over capacity ({} keys); lookups will query the database", capacity);
+      }
+    }
+
+    private boolean mightContain(String key) {
+      if (added.get() > capacity) {
+        return true;
+      }
+      long hash = hash(key);
+      for (int i = 0; i < hashCount; i++) {
+        long bit = bitIndex(hash, i);
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Kirsch-Mitzenmacher double hashing: the i-th probe is h1 + i * h2 */
+    private long bitIndex(long hash, int i) {
+      int h1 = (int) hash;
+      int h2 = (int) (hash >>> 32);
+      long combined = h1 + (long) i * h2;
+      return (combined & Long.MAX_VALUE) % bitCount;
+    }
+
+    /** 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer */
+    private static long hash(String key) {
+      long hash = 0xcbf29ce484222325L;
+      for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+        hash ^= b & 0xff;
+        hash *= 0x100000001b3L;
+      }
+      hash ^= hash >>> 33;
+      hash *= 0xff51afd7ed558ccdL;
+      hash ^= hash >>> 33;
+      hash *= 0xc4ceb93fe1a85ec5L;
+      hash ^= hash >>> 33;
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,540 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relevance-ranked book search over an on-disk Lucene index of titles, authors, descriptions,
+ * publishers and category names. Enabled with {@code bookclub.search.backend=lucene}.
+ *
+ * <p>Book writes only queue the book ID. A single background indexer drains the queue, reloads
+ * the committed rows and applies them in batches, so request threads never wait on Lucene and
+ * changes reach searches within about a second through near-real-time reopening. Full rebuilds
+ * run on the same thread, which keeps them ordered with the writes queued around them. A batch
+ * that fails, for instance on a lost database connection, goes back to the head of the queue and
+ * is retried with a growing delay, so no change is dropped while the database is unavailable.
+ *
+ * <p>A rebuild replaces documents in place rather than clearing the index first, so searches keep
+ * seeing the whole catalogue while it runs. Each document is stamped with the rebuild that wrote
+ * it, and whatever the rebuild did not rewrite is deleted when it finishes
+ */
+@Component
+@ConditionalOnProperty(prefix = "bookclub.search", name = "backend", havingValue = "lucene")
+public class LuceneBookSearch {
+
+  private static final Logger log = LoggerFactory.getLogger(LuceneBookSearch.class);
+
+  private static final int BATCH_SIZE = 1000;
+
+  /** Delay before the first retry of a failed batch; doubled on each further failure */
+  private static final long MIN_RETRY_DELAY_MS = 1_000L;
+
+  private static final long MAX_RETRY_DELAY_MS = 60_000L;
+
+  private static final String ID = "id";
+
+  private static final String TITLE = "title";
+
+  private static final String AUTHOR = "author";
+
+  private static final String DESCRIPTION = "description";
+
+  private static final String PUBLISHER = "publisher";
+
+  private static final String CATEGORY = "category";
+
+  private static final String CATEGORY_ID = "category_id";
+
+  private static final String GENERATION = "generation";
+
+  /** Commit data key of the document layout version */
+  private static final String FORMAT_KEY = "format";
+
+  /** Document layout version; an index written with another one is rebuilt at startup */
+  private static final String FORMAT = "2";
+
+  private static final Map<String, Float> FIELD_BOOSTS =
+      Map.of(TITLE, 3f, AUTHOR, 2f, CATEGORY, 1.5f, PUBLISHER, 1f, DESCRIPTION, 1f);
+
+  @Autowired private BookRepository bookRepository;
+
+  @Value("${bookclub.search.lucene.directory}")
+  private Path indexPath;
+
+  private final Analyzer analyzer = new FoldingAnalyzer();
+
+  private final BlockingDeque<Operation> queue = new LinkedBlockingDeque<>();
+
+  /** Released on shutdown, cutting short the wait before a retry */
+  private final CountDownLatch stopping = new CountDownLatch(1);
+
+  private Directory directory;
+
+  private IndexWriter writer;
+
+  private SearcherManager searcherManager;
+
+  private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+  private Thread indexerThread;
+
+  /** Stamp of the last rebuild, written into every document indexed since. Indexer thread only */
+  private long generation;
+
+  /**
+   * Open the index directory and start the reopen and indexer threads
+   *
+   * @throws IOException if the index cannot be opened
+   */
+  @PostConstruct
+  public void open() throws IOException {
+    directory = FSDirectory.open(Files.createDirectories(indexPath));
+    writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+    searcherManager = new SearcherManager(writer, null);
+    reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, 1.0, 0.1);
+    reopenThread.setName("lucene-reopen");
+    reopenThread.setDaemon(true);
+    reopenThread.start();
+
+    indexerThread = new Thread(this::runIndexer, "lucene-indexer");
+    indexerThread.setDaemon(true);
+    indexerThread.start();
+  }
+
+  /**
+   * Build the index from the database on first start, when the directory is still empty, or when
+   * it was written with an older document layout
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (writer.getDocStats().numDocs == 0 || !FORMAT.equals(committedFormat())) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Stop the background threads and commit the index
+   *
+   * @throws IOException if the final commit fails
+   */
+  @PreDestroy
+  public void close() throws IOException {
+    // Lucene must not be interrupted mid-write, so the indexer is stopped through the queue
+    stopping.countDown();
+    queue.add(new Operation(OperationType.STOP, null));
+    try {
+      indexerThread.join(10_000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    reopenThread.close();
+    searcherManager.close();
+    writer.close();
+    directory.close();
+  }
+
+  /**
+   * Queue a book to be (re)indexed from its committed row
+   *
+   * @param bookId Saved book ID
+   */
+  public void bookSaved(Long bookId) {
+    queue.add(new Operation(OperationType.SAVE, bookId));
+  }
+
+  /**
+   * Queue a book to be removed from the index
+   *
+   * @param bookId Deleted book ID
+   */
+  public void bookDeleted(Long bookId) {
+    queue.add(new Operation(OperationType.DELETE, bookId));
+  }
+
+  /**
+   * Queue the books of a renamed or deleted category to be reindexed, found by the category ID
+   * their documents were indexed with
+   *
+   * @param categoryId Category ID
+   */
+  public void categoryChanged(Long categoryId) {
+    queue.add(new Operation(OperationType.CATEGORY, categoryId));
+  }
+
+  /** Queue a full rebuild that replaces the index with the current books table */
+  public void rebuild() {
+    queue.add(new Operation(OperationType.REBUILD, null));
+  }
+
+  /**
+   * Number of queued changes not yet applied
+   *
+   * @return Queue length
+   */
+  public int pendingChanges() {
+    return queue.size();
+  }
+
+  /**
+   * Search books by relevance. Every word must appear in at least one field; matches in the
+   * title count most, then author, then category names, publisher and description
+   *
+   * @param searchTerm Free-text search term
+   * @param pageable Page to return; sorting is ignored in favour of relevance
+   * @return Page of matching book IDs, most relevant first
+   */
+  public Page<Long> search(String searchTerm, Pageable pageable) {
+    if (searchTerm == null || searchTerm.isBlank()) {
+      return Page.empty(pageable);
+    }
+    Query query = parse(searchTerm);
+
+    IndexSearcher searcher = null;
+    try {
+      searcher = searcherManager.acquire();
+      int end = Math.toIntExact(pageable.getOffset() + pageable.getPageSize());
+      TopDocs topDocs = searcher.search(query, Math.max(end, 1));
+      long total =
+          topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO
+              ? topDocs.totalHits.value
+              : searcher.count(query);
+
+      List<Long> ids = new ArrayList<>(pageable.getPageSize());
+      ScoreDoc[] hits = topDocs.scoreDocs;
+      for (int i = (int) pageable.getOffset(); i < hits.length; i++) {
+        ids.add(Long.valueOf(searcher.storedFields().document(hits[i].doc).get(ID)));
+      }
+      return new PageImpl<>(ids, pageable, total);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      if (searcher != null) {
+        try {
+          searcherManager.release(searcher);
+        } catch (IOException e) {
+          log.warn("Failed to release Lucene searcher", e);
+        }
+      }
+    }
+  }
+
+  private Query parse(String searchTerm) {
+    MultiFieldQueryParser parser =
+        new MultiFieldQueryParser(
+            FIELD_BOOSTS.keySet().toArray(String[]::new), analyzer, FIELD_BOOSTS);
+    parser.setDefaultOperator(QueryParser.Operator.AND);
+    try {
+      return parser.parse(QueryParser.escape(searchTerm));
+    } catch (ParseException e) {
+      throw new IllegalArgumentException("Invalid search term", e);
+    }
+  }
+
+  /**
+   * Apply queued operations in batches until the application shuts down. Every operation is
+   * idempotent, so a failed batch is put back in front of anything queued since and applied again
+   * once the retry delay has passed. At shutdown it gets one last attempt
+   */
+  private void runIndexer() {
+    List<Operation> batch = new ArrayList<>();
+    long retryDelayMs = MIN_RETRY_DELAY_MS;
+    boolean running = true;
+    while (running) {
+      try {
+        batch.add(queue.take());
+        queue.drainTo(batch, BATCH_SIZE - 1);
+        running = apply(batch);
+        if (queue.isEmpty()) {
+          writer.commit();
+        }
+        retryDelayMs = MIN_RETRY_DELAY_MS;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        running = false;
+      } catch (Exception e) {
+        if (batch.stream().anyMatch(operation -> operation.type() == OperationType.STOP)) {
+          log.error("Failed to apply {} queued search index changes at shutdown", batch.size(), e);
+          running = false;
+        } else {
+          log.error(
+              "Failed to apply {} queued search index changes, retrying in {} ms",
+              batch.size(),
+              retryDelayMs,
+              e);
+          running = requeue(batch, retryDelayMs);
+          retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+        }
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Put a failed batch back at the head of the queue, in its original order, after waiting out
+   * the retry delay or until shutdown begins
+   *
+   * @return false if the indexer thread was interrupted while waiting
+   */
+  private boolean requeue(List<Operation> batch, long delayMs) {
+    try {
+      stopping.await(delayMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    for (int i = batch.size() - 1; i >= 0; i--) {
+      queue.addFirst(batch.get(i));
+    }
+    return true;
+  }
+
+  /**
+   * Apply a batch in queue order. Saves and deletes between rebuilds are collapsed per book,
+   * keeping the last operation for each
+   *
+   * @return false once the stop operation has been reached
+   */
+  private boolean apply(List<Operation> batch) throws IOException {
+    Map<Long, OperationType> changes = new HashMap<>();
+    for (Operation operation : batch) {
+      switch (operation.type()) {
+        case SAVE, DELETE -> changes.put(operation.id(), operation.type());
+        case CATEGORY -> {
+          // Earlier saves may have moved books into or out of the category
+          applyChanges(changes);
+          changes.clear();
+          findBooksInCategory(operation.id())
+              .forEach(bookId -> changes.put(bookId, OperationType.SAVE));
+        }
+        case REBUILD -> {
+          applyChanges(changes);
+          changes.clear();
+          rebuildIndex();
+        }
+        case STOP -> {
+          applyChanges(changes);
+          return false;
+        }
+      }
+    }
+    applyChanges(changes);
+    return true;
+  }
+
+  private void applyChanges(Map<Long, OperationType> changes) throws IOException {
+    if (changes.isEmpty()) {
+      return;
+    }
+    List<Long> savedIds = new ArrayList<>();
+    changes.forEach(
+        (bookId, type) -> {
+          if (type == OperationType.SAVE) {
+            savedIds.add(bookId);
+          }
+        });
+    for (Map.Entry<Long, OperationType> change : changes.entrySet()) {
+      if (change.getValue() == OperationType.DELETE) {
+        writer.deleteDocuments(new Term(ID, change.getKey().toString()));
+      }
+    }
+    List<BookDto> books = bookRepository.findByIdIn(savedIds);
+    index(books);
+    // A book saved and then deleted before the indexer ran is no longer in the table
+    Set<Long> found = books.stream().map(BookDto::id).collect(Collectors.toSet());
+    for (Long bookId : savedIds) {
+      if (!found.contains(bookId)) {
+        writer.deleteDocuments(new Term(ID, bookId.toString()));
+      }
+    }
+  }
+
+  /**
+   * Replace the whole index with the books table, streamed in ID order one batch at a time. Each
+   * book's document is replaced under a new generation, and documents of books no longer in the
+   * table, which still carry an older one, are deleted once every book has been rewritten
+   */
+  private void rebuildIndex() throws IOException {
+    generation = Math.max(generation + 1, System.currentTimeMillis());
+    long lastId = 0L;
+    List<BookDto> batch;
+    do {
+      batch =
+          bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(BATCH_SIZE));
+      index(batch);
+      if (!batch.isEmpty()) {
+        lastId = batch.get(batch.size() - 1).id();
+      }
+    } while (batch.size() == BATCH_SIZE);
+    writer.deleteDocuments(
+        new BooleanQuery.Builder()
+            .add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER)
+            .add(LongPoint.newExactQuery(GENERATION, generation), BooleanClause.Occur.MUST_NOT)
+            .build());
+    writer.setLiveCommitData(Map.of(FORMAT_KEY, FORMAT).entrySet());
+    writer.commit();
+  }
+
+  /** IDs of the books whose documents list a category, including changes not yet committed */
+  private List<Long> findBooksInCategory(Long categoryId) throws IOException {
+    List<Long> bookIds = new ArrayList<>();
+    Term term = new Term(CATEGORY_ID, categoryId.toString());
+    try (DirectoryReader reader = DirectoryReader.open(writer)) {
+      for (LeafReaderContext leaf : reader.leaves()) {
+        PostingsEnum postings = leaf.reader().postings(term, PostingsEnum.NONE);
+        if (postings == null) {
+          continue;
+        }
+        Bits liveDocs = leaf.reader().getLiveDocs();
+        StoredFields storedFields = leaf.reader().storedFields();
+        for (int doc = postings.nextDoc();
+            doc != DocIdSetIterator.NO_MORE_DOCS;
+            doc = postings.nextDoc()) {
+          if (liveDocs == null || liveDocs.get(doc)) {
+            bookIds.add(Long.valueOf(storedFields.document(doc).get(ID)));
+          }
+        }
+      }
+    }
+    return bookIds;
+  }
+
+  /** Layout version recorded with the last commit, or null if there is none */
+  private String committedFormat() {
+    Iterable<Map.Entry<String, String>> commitData = writer.getLiveCommitData();
+    if (commitData != null) {
+      for (Map.Entry<String, String> entry : commitData) {
+        if (FORMAT_KEY.equals(entry.getKey())) {
+          return entry.getValue();
+        }
+      }
+    }
+    return null;
+  }
+
+  private void index(List<BookDto> books) throws IOException {
+    if (books.isEmpty()) {
+      return;
+    }
+    Map<Long, List<BookRepository.BookCategoryName>> categories = new HashMap<>();
+    bookRepository
+        .findCategoryNamesByBookIdIn(books.stream().map(BookDto::id).toList())
+        .forEach(
+            row -> categories.computeIfAbsent(row.getBookId(), id -> new ArrayList<>()).add(row));
+
+    for (BookDto book : books) {
+      Document document = toDocument(book, categories.getOrDefault(book.id(), List.of()));
+      writer.updateDocument(new Term(ID, book.id().toString()), document);
+    }
+  }
+
+  private Document toDocument(BookDto book, List<BookRepository.BookCategoryName> categories) {
+    Document document = new Document();
+    document.add(new StringField(ID, book.id().toString(), Field.Store.YES));
+    document.add(new LongPoint(GENERATION, generation));
+    document.add(new TextField(TITLE, book.title(), Field.Store.NO));
+    document.add(new TextField(AUTHOR, book.author(), Field.Store.NO));
+    if (book.description() != null) {
+      document.add(new TextField(DESCRIPTION, book.description(), Field.Store.NO));
+    }
+    if (book.publisher() != null) {
+      document.add(new TextField(PUBLISHER, book.publisher(), Field.Store.NO));
+    }
+    for (BookRepository.BookCategoryName category : categories) {
+      document.add(new TextField(CATEGORY, category.getCategoryName(), Field.Store.NO));
+      document.add(
+          new StringField(CATEGORY_ID, category.getCategoryId().toString(), Field.Store.NO));
+    }
+    return document;
+  }
+
+  private enum OperationType {
+    SAVE,
+    DELETE,
+    CATEGORY,
+    REBUILD,
+    STOP
+  }
+
+  /**
+   * A queued index operation
+   *
+   * @param type Operation type
+   * @param id Book ID, or category ID for a category operation
+   */
+  private record Operation(OperationType type, Long id) {}
+
+  /** Standard tokenization, lower-cased with accents folded like {@link SearchTokenizer} */
+  private static final class FoldingAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+      Tokenizer tokenizer = new StandardTokenizer();
+      TokenStream stream = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+      return new TokenStreamComponents(tokenizer, stream);
+    }
+  }
+}
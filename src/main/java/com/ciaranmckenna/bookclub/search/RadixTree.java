@@ -0,0 +1,317 @@
+package com.ciaranmckenna.bookclub.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Compressed prefix tree of weighted completions. Every node caches the best weight found in its
+ * subtree, so the top completions for a prefix are found best-first without visiting the rest of
+ * the subtree. Keys are expected to be normalized by the caller. Not thread-safe
+ */
+public class RadixTree {
+
+  /** Rough per-object sizes on a 64-bit JVM with compressed oops, used for the footprint estimate */
+  private static final int NODE_BYTES = 40;
+
+  private static final int STRING_BYTES = 40;
+
+  private static final int COMPLETION_BYTES = 24;
+
+  private static final int CHILD_SLOT_BYTES = 6;
+
+  private final Node root = new Node("");
+
+  private int nodeCount = 1;
+
+  private long labelChars;
+
+  private int completionCount;
+
+  private long completionChars;
+
+  /**
+   * Add one occurrence of a key, creating its completion on first use
+   *
+   * @param key Normalized key
+   * @param text Text to return for the completion
+   */
+  public void add(String key, String text) {
+    if (key.isEmpty()) {
+      return;
+    }
+    List<Node> path = new ArrayList<>();
+    Node node = root;
+    int i = 0;
+    while (true) {
+      path.add(node);
+      if (i == key.length()) {
+        if (node.completion == null) {
+          node.completion = new Completion(text, 0);
+          completionCount++;
+          completionChars += text.length();
+        }
+        node.completion.weight++;
+        break;
+      }
+      Node child = node.child(key.charAt(i));
+      if (child == null) {
+        Node leaf = new Node(key.substring(i));
+        leaf.completion = new Completion(text, 1);
+        node.addChild(leaf);
+        nodeCount++;
+        labelChars += leaf.label.length();
+        completionCount++;
+        completionChars += text.length();
+        path.add(leaf);
+        break;
+      }
+      int common = commonPrefixLength(child.label, key, i);
+      if (common < child.label.length()) {
+        Node middle = new Node(child.label.substring(0, common));
+        node.replaceChild(middle);
+        child.label = child.label.substring(common);
+        middle.addChild(child);
+        middle.best = child.best;
+        nodeCount++;
+        child = middle;
+      }
+      node = child;
+      i += common;
+    }
+    for (int p = path.size() - 1; p >= 0; p--) {
+      path.get(p).recomputeBest();
+    }
+  }
+
+  /**
+   * Remove one occurrence of a key, dropping its completion when no occurrence is left
+   *
+   * @param key Normalized key
+   */
+  public void removeOne(String key) {
+    if (key.isEmpty()) {
+      return;
+    }
+    List<Node> path = new ArrayList<>();
+    Node node = root;
+    int i = 0;
+    while (i < key.length()) {
+      path.add(node);
+      Node child = node.child(key.charAt(i));
+      if (child == null || !key.startsWith(child.label, i)) {
+        return;
+      }
+      node = child;
+      i += child.label.length();
+    }
+    if (node.completion == null) {
+      return;
+    }
+
+    node.completion.weight--;
+    if (node.completion.weight == 0) {
+      completionCount--;
+      completionChars -= node.completion.text.length();
+      node.completion = null;
+      compact(node, path.get(path.size() - 1));
+    }
+    node.recomputeBest();
+    for (int p = path.size() - 1; p >= 0; p--) {
+      path.get(p).recomputeBest();
+    }
+  }
+
+  /**
+   * Find the highest-weighted completions whose key starts with the prefix. Ties are broken by
+   * key
+   *
+   * @param prefix Normalized prefix
+   * @param limit Maximum number of completions
+   * @return Completion texts, best first
+   */
+  public List<String> topCompletions(String prefix, int limit) {
+    Node node = root;
+    StringBuilder path = new StringBuilder();
+    int i = 0;
+    while (i < prefix.length()) {
+      Node child = node.child(prefix.charAt(i));
+      if (child == null) {
+        return List.of();
+      }
+      int common = commonPrefixLength(child.label, prefix, i);
+      if (common < child.label.length() && i + common < prefix.length()) {
+        return List.of();
+      }
+      node = child;
+      path.append(child.label);
+      i += common;
+    }
+
+    // Best-first by weight, then by key; a subtree is expanded before a completion with an equal
+    // key because its own keys can only sort after its path
+    List<String> results = new ArrayList<>(limit);
+    PriorityQueue<Candidate> queue =
+        new PriorityQueue<>(
+            Comparator.comparingInt((Candidate c) -> -c.weight())
+                .thenComparing(Candidate::key)
+                .thenComparing(c -> c.node() == null));
+    queue.add(new Candidate(node.best, path.toString(), node, null));
+    while (!queue.isEmpty() && results.size() < limit) {
+      Candidate candidate = queue.poll();
+      if (candidate.node() == null) {
+        results.add(candidate.text());
+        continue;
+      }
+      Node current = candidate.node();
+      if (current.completion != null) {
+        queue.add(
+            new Candidate(
+                current.completion.weight, candidate.key(), null, current.completion.text));
+      }
+      for (Node child : current.children) {
+        queue.add(new Candidate(child.best, candidate.key() + child.label, child, null));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Number of distinct completions in the tree
+   *
+   * @return Completion count
+   */
+  public int size() {
+    return completionCount;
+  }
+
+  /**
+   * Estimated heap used by the tree, in bytes
+   *
+   * @return Estimated footprint
+   */
+  public long estimatedBytes() {
+    return (long) nodeCount * (NODE_BYTES + STRING_BYTES + CHILD_SLOT_BYTES)
+        + labelChars
+        + (long) completionCount * (COMPLETION_BYTES + STRING_BYTES)
+        + completionChars;
+  }
+
+  /** Remove every completion */
+  public void clear() {
+    root.children = new Node[0];
+    root.completion = null;
+    root.best = 0;
+    nodeCount = 1;
+    labelChars = 0;
+    completionCount = 0;
+    completionChars = 0;
+  }
+
+  /** Drop or merge a node that no longer holds a completion, keeping the tree compressed */
+  private void compact(Node node, Node parent) {
+    if (node.children.length == 0) {
+      parent.removeChild(node);
+      nodeCount--;
+      labelChars -= node.label.length();
+      if (parent != root && parent.completion == null && parent.children.length == 1) {
+        mergeWithOnlyChild(parent);
+      }
+    } else if (node.children.length == 1) {
+      mergeWithOnlyChild(node);
+    }
+  }
+
+  private void mergeWithOnlyChild(Node node) {
+    Node child = node.children[0];
+    node.label = node.label + child.label;
+    node.completion = child.completion;
+    node.children = child.children;
+    node.best = child.best;
+    nodeCount--;
+  }
+
+  private static int commonPrefixLength(String label, String key, int offset) {
+    int max = Math.min(label.length(), key.length() - offset);
+    int i = 0;
+    while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+      i++;
+    }
+    return i;
+  }
+
+  private static final class Node {
+    private String label;
+    private Node[] children = new Node[0];
+    private Completion completion;
+    private int best;
+
+    private Node(String label) {
+      this.label = label;
+    }
+
+    private Node child(char first) {
+      int index = indexOf(first);
+      return index >= 0 ? children[index] : null;
+    }
+
+    private void addChild(Node child) {
+      int insertion = -indexOf(child.label.charAt(0)) - 1;
+      Node[] grown = new Node[children.length + 1];
+      System.arraycopy(children, 0, grown, 0, insertion);
+      grown[insertion] = child;
+      System.arraycopy(children, insertion, grown, insertion + 1, children.length - insertion);
+      children = grown;
+    }
+
+    private void replaceChild(Node child) {
+      children[indexOf(child.label.charAt(0))] = child;
+    }
+
+    private void removeChild(Node child) {
+      int index = indexOf(child.label.charAt(0));
+      Node[] shrunk = new Node[children.length - 1];
+      System.arraycopy(children, 0, shrunk, 0, index);
+      System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+      children = shrunk;
+    }
+
+    private int indexOf(char first) {
+      int low = 0;
+      int high = children.length - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        char midChar = children[mid].label.charAt(0);
+        if (midChar < first) {
+          low = mid + 1;
+        } else if (midChar > first) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -(low + 1);
+    }
+
+    private void recomputeBest() {
+      int max = completion != null ? completion.weight : 0;
+      for (Node child : children) {
+        max = Math.max(max, child.best);
+      }
+      best = max;
+    }
+  }
+
+  private static final class Completion {
+    private final String text;
+    private int weight;
+
+    private Completion(String text, int weight) {
+      this.text = text;
+      this.weight = weight;
+    }
+  }
+
+  private record Candidate(int weight, String key, Node node, String text) {}
+}
@@ -0,0 +1,47 @@
+package com.ciaranmckenna.bookclub.search;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/** Splits book text into normalized lower-case tokens shared by the in-memory search indexes */
+public final class SearchTokenizer {
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+  private SearchTokenizer() {}
+
+  /**
+   * Normalize text for indexing: strip accents and lower-case it
+   *
+   * @param text Raw text, may be null
+   * @return Normalized text, empty if the input is null
+   */
+  public static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Tokenize text into distinct normalized tokens, preserving their order of appearance
+   *
+   * @param text Raw text, may be null
+   * @return Distinct tokens
+   */
+  public static Set<String> tokenize(String text) {
+    Set<String> tokens = new LinkedHashSet<>();
+    for (String token : SEPARATORS.split(normalize(text))) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,217 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.SuggestionDto;
+import com.ciaranmckenna.bookclub.entity.Category;
+import com.ciaranmckenna.bookclub.repository.CategoryRepository;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Autocomplete over book titles, authors and category names, held in one {@link RadixTree} per
+ * kind. Titles and authors are weighted by how many books share them, so prolific authors surface
+ * first. Book entries are maintained through {@link BookIndexManager}; categories are loaded at
+ * startup and updated from the category write paths
+ */
+@Component
+public class SuggestionIndex implements BookIndex {
+
+  /** Rough heap cost of one entry in the per-book bookkeeping map */
+  private static final int BOOK_ENTRY_BYTES = 64;
+
+  @Autowired private CategoryRepository categoryRepository;
+
+  private final Map<SuggestionDto.Type, RadixTree> trees = new EnumMap<>(SuggestionDto.Type.class);
+
+  private Map<Long, BookEntry> books = new HashMap<>();
+
+  private final Map<Long, String> categories = new HashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  public SuggestionIndex() {
+    for (SuggestionDto.Type type : SuggestionDto.Type.values()) {
+      trees.put(type, new RadixTree());
+    }
+  }
+
+  /** Load category names once the application is ready */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadCategories() {
+    List<Category> all = categoryRepository.findAll();
+    lock.writeLock().lock();
+    try {
+      trees.get(SuggestionDto.Type.CATEGORY).clear();
+      categories.clear();
+      for (Category category : all) {
+        putCategoryUnlocked(category.getId(), category.getName());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void index(BookDto book) {
+    lock.writeLock().lock();
+    try {
+      removeBookUnlocked(book.id());
+      books.put(book.id(), new BookEntry(book.title(), book.author()));
+      add(SuggestionDto.Type.TITLE, book.title());
+      add(SuggestionDto.Type.AUTHOR, book.author());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(Long bookId) {
+    lock.writeLock().lock();
+    try {
+      removeBookUnlocked(bookId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public BookIndex emptyCopy() {
+    SuggestionIndex copy = new SuggestionIndex();
+    copy.categoryRepository = categoryRepository;
+    return copy;
+  }
+
+  /** Swaps in the rebuilt title and author suggestions; categories are kept as they are */
+  @Override
+  public void replaceWith(BookIndex rebuilt) {
+    SuggestionIndex index = (SuggestionIndex) rebuilt;
+    lock.writeLock().lock();
+    try {
+      trees.put(SuggestionDto.Type.TITLE, index.trees.get(SuggestionDto.Type.TITLE));
+      trees.put(SuggestionDto.Type.AUTHOR, index.trees.get(SuggestionDto.Type.AUTHOR));
+      books = index.books;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Add or rename a category
+   *
+   * @param categoryId Category ID
+   * @param name Current category name
+   */
+  public void categorySaved(Long categoryId, String name) {
+    lock.writeLock().lock();
+    try {
+      removeCategoryUnlocked(categoryId);
+      putCategoryUnlocked(categoryId, name);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove a category
+   *
+   * @param categoryId Category ID
+   */
+  public void categoryDeleted(Long categoryId) {
+    lock.writeLock().lock();
+    try {
+      removeCategoryUnlocked(categoryId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find the top completions for a prefix across titles, authors and categories
+   *
+   * @param prefix Raw prefix typed by the user
+   * @param limit Maximum number of suggestions
+   * @return Suggestions, categories first, then authors, then titles
+   */
+  public List<SuggestionDto> suggest(String prefix, int limit) {
+    String key = SearchTokenizer.normalize(prefix).strip();
+    if (key.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+
+    List<SuggestionDto> suggestions = new ArrayList<>(limit);
+    lock.readLock().lock();
+    try {
+      for (SuggestionDto.Type type :
+          List.of(SuggestionDto.Type.CATEGORY, SuggestionDto.Type.AUTHOR, SuggestionDto.Type.TITLE)) {
+        for (String text : trees.get(type).topCompletions(key, limit - suggestions.size())) {
+          suggestions.add(new SuggestionDto(text, type));
+        }
+        if (suggestions.size() >= limit) {
+          break;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return suggestions;
+  }
+
+  /**
+   * Estimated heap used by the suggestion structures, in bytes
+   *
+   * @return Estimated footprint
+   */
+  public long estimatedBytes() {
+    lock.readLock().lock();
+    try {
+      long bytes = (long) (books.size() + categories.size()) * BOOK_ENTRY_BYTES;
+      for (RadixTree tree : trees.values()) {
+        bytes += tree.estimatedBytes();
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeBookUnlocked(Long bookId) {
+    BookEntry previous = books.remove(bookId);
+    if (previous != null) {
+      trees.get(SuggestionDto.Type.TITLE).removeOne(key(previous.title()));
+      trees.get(SuggestionDto.Type.AUTHOR).removeOne(key(previous.author()));
+    }
+  }
+
+  private void putCategoryUnlocked(Long categoryId, String name) {
+    categories.put(categoryId, name);
+    add(SuggestionDto.Type.CATEGORY, name);
+  }
+
+  private void removeCategoryUnlocked(Long categoryId) {
+    String previous = categories.remove(categoryId);
+    if (previous != null) {
+      trees.get(SuggestionDto.Type.CATEGORY).removeOne(key(previous));
+    }
+  }
+
+  private void add(SuggestionDto.Type type, String text) {
+    if (text != null) {
+      trees.get(type).add(key(text), text.strip());
+    }
+  }
+
+  private static String key(String text) {
+    return SearchTokenizer.normalize(text).strip();
+  }
+
+  private record BookEntry(String title, String author) {}
+}
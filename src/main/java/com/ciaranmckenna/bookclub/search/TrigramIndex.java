@@ -0,0 +1,187 @@
+package com.ciaranmckenna.bookclub.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram posting-list index over one text value per ID. A substring query is answered by
+ * intersecting the posting lists of its trigrams and then verifying each candidate, so it never
+ * scans the whole data set
+ */
+public class TrigramIndex {
+
+  /** Shortest query the index can answer; shorter queries have no trigram to look up */
+  public static final int MIN_QUERY_LENGTH = 3;
+
+  private final Map<String, Set<Long>> postings = new HashMap<>();
+
+  private final Map<Long, String> values = new HashMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Whether a query is long enough to be answered by the index
+   *
+   * @param query Raw query
+   * @return true if the normalized query has at least {@link #MIN_QUERY_LENGTH} characters
+   */
+  public static boolean supports(String query) {
+    return SearchTokenizer.normalize(query).length() >= MIN_QUERY_LENGTH;
+  }
+
+  /**
+   * Index a text value, replacing any previous value for the ID
+   *
+   * @param id Entry ID
+   * @param text Raw text
+   */
+  public void put(Long id, String text) {
+    String normalized = SearchTokenizer.normalize(text);
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(id);
+      for (String trigram : trigrams(normalized)) {
+        postings.computeIfAbsent(trigram, t -> new HashSet<>()).add(id);
+      }
+      values.put(id, normalized);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Remove an entry
+   *
+   * @param id Entry ID
+   */
+  public void remove(Long id) {
+    lock.writeLock().lock();
+    try {
+      removeUnlocked(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Find the IDs whose text contains the query, best matches first: exact matches, then prefix
+   * matches, then matches at the start of a word, then any other substring. Ties are broken by
+   * shorter text and then by ID
+   *
+   * @param query Raw query, at least {@link #MIN_QUERY_LENGTH} characters once normalized
+   * @return Matching IDs in rank order
+   * @throws IllegalArgumentException if the query is too short
+   */
+  public List<Long> search(String query) {
+    String normalized = SearchTokenizer.normalize(query);
+    if (normalized.length() < MIN_QUERY_LENGTH) {
+      throw new IllegalArgumentException(
+          "Query must have at least " + MIN_QUERY_LENGTH + " characters");
+    }
+
+    lock.readLock().lock();
+    try {
+      List<Set<Long>> lists = new ArrayList<>();
+      for (String trigram : trigrams(normalized)) {
+        Set<Long> ids = postings.get(trigram);
+        if (ids == null) {
+          return List.of();
+        }
+        lists.add(ids);
+      }
+      lists.sort(Comparator.comparingInt(Set::size));
+
+      List<Match> matches = new ArrayList<>();
+      for (Long id : lists.get(0)) {
+        if (inAll(id, lists)) {
+          String text = values.get(id);
+          int position = text.indexOf(normalized);
+          if (position >= 0) {
+            matches.add(new Match(id, score(text, normalized, position), text.length()));
+          }
+        }
+      }
+      matches.sort(
+          Comparator.comparingInt(Match::score)
+              .thenComparingInt(Match::length)
+              .thenComparingLong(Match::id));
+      return matches.stream().map(Match::id).toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Number of entries in the index
+   *
+   * @return Entry count
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return values.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeUnlocked(Long id) {
+    String previous = values.remove(id);
+    if (previous == null) {
+      return;
+    }
+    for (String trigram : trigrams(previous)) {
+      Set<Long> ids = postings.get(trigram);
+      if (ids != null) {
+        ids.remove(id);
+        if (ids.isEmpty()) {
+          postings.remove(trigram);
+        }
+      }
+    }
+  }
+
+  private static boolean inAll(Long id, List<Set<Long>> lists) {
+    for (int i = 1; i < lists.size(); i++) {
+      if (!lists.get(i).contains(id)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int score(String text, String query, int position) {
+    if (text.length() == query.length()) {
+      return 0;
+    }
+    if (position == 0) {
+      return 1;
+    }
+    int wordStart = -1;
+    for (int i = position; i >= 0; i = text.indexOf(query, i + 1)) {
+      if (!Character.isLetterOrDigit(text.charAt(i - 1))) {
+        wordStart = i;
+        break;
+      }
+    }
+    return wordStart >= 0 ? 2 : 3;
+  }
+
+  private static Set<String> trigrams(String normalized) {
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (int i = 0; i + MIN_QUERY_LENGTH <= normalized.length(); i++) {
+      trigrams.add(normalized.substring(i, i + MIN_QUERY_LENGTH));
+    }
+    return trigrams;
+  }
+
+  private record Match(Long id, int score, int length) {}
+}
@@ -1,11 +1,20 @@
 package com.ciaranmckenna.bookclub.service;
 
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ExportFormat;
+import com.ciaranmckenna.bookclub.common.KeysetCursor;
 import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.BookFacetFilter;
+import com.ciaranmckenna.bookclub.dto.FacetedSearchResultDto;
+import com.ciaranmckenna.bookclub.dto.SuggestionDto;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 /** Service interface for managing books */
 public interface BookService {
@@ -55,14 +64,73 @@ public interface BookService {
   Page<BookDto> getAllBooks(Pageable pageable);
 
   /**
-   * Search books by title or author
+   * Get all books by keyset pagination
+   *
+   * @param cursor Position and sort to continue from
+   * @param size Page size
+   * @return Page of books with the cursor of the next page
+   */
+  CursorPage<BookDto> getAllBooks(KeysetCursor cursor, int size);
+
+  /**
+   * Search books by title or author. Every word of the search term must begin a word of the title
+   * or author, ignoring case and accents, so "tolk hob" finds The Hobbit by J.R.R. Tolkien but
+   * "obbit" finds nothing. Until the search index has been built after startup, and for terms
+   * without any letter or digit, the whole term is instead matched as a substring of the title or
+   * author. Index matches can be sorted by id, title, author and publicationDate
    *
    * @param searchTerm Search term
    * @param pageable Pagination information
    * @return Page of books matching the search term
+   * @throws IllegalArgumentException if sorted by any other field
    */
   Page<BookDto> searchBooks(String searchTerm, Pageable pageable);
 
+  /**
+   * Search books by title or author, tolerating typos in each word
+   *
+   * @param searchTerm Search term, possibly misspelled
+   * @param pageable Pagination information
+   * @return Page of books matching the search term, closest matches first unless sorted
+   * @throws IllegalArgumentException if sorted by a field other than id, title, author and
+   *     publicationDate
+   */
+  Page<BookDto> fuzzySearchBooks(String searchTerm, Pageable pageable);
+
+  /**
+   * Search books by title or author by keyset pagination, in ascending ID order, matching as
+   * {@link #searchBooks(String, Pageable)} does
+   *
+   * @param searchTerm Search term
+   * @param cursor Position to continue from, sorted by ascending ID
+   * @param size Page size
+   * @return Page of books matching the search term with the cursor of the next page
+   */
+  CursorPage<BookDto> searchBooks(String searchTerm, KeysetCursor cursor, int size);
+
+  /**
+   * Suggest completions for a partially typed search term from titles, authors and category
+   * names, without querying the database
+   *
+   * @param prefix Partially typed search term
+   * @param limit Maximum number of suggestions
+   * @return Suggestions, best first
+   */
+  List<SuggestionDto> suggest(String prefix, int limit);
+
+  /**
+   * Search books by any combination of category, publication year range, author, minimum rating
+   * and search term in one call, with the number of matches for each facet value
+   *
+   * @param filter Facet filter
+   * @param searchTerm Optional title or author search term
+   * @param pageable Pagination information; results are in ascending ID order
+   * @return Page of matching books with the facet counts
+   * @throws IllegalStateException if the search indexes are still being built
+   */
+  FacetedSearchResultDto facetedSearch(
+      BookFacetFilter filter, String searchTerm, Pageable pageable);
+
   /**
    * Find books by title
    *
@@ -144,4 +212,97 @@ public interface BookService {
    * @return Page of books in the category
    */
   Page<BookDto> findBooksByCategoryName(String categoryName, Pageable pageable);
+
+  /**
+   * Find books by category by keyset pagination
+   *
+   * @param categoryId Category ID
+   * @param cursor Position and sort to continue from
+   * @param size Page size
+   * @return Page of books in the category with the cursor of the next page
+   */
+  CursorPage<BookDto> findBooksByCategory(Long categoryId, KeysetCursor cursor, int size);
+
+  /**
+   * Get all books without counting them
+   *
+   * @param pageable Pagination information
+   * @return Slice of books
+   */
+  Slice<BookDto> getAllBooksSlice(Pageable pageable);
+
+  /**
+   * Search books by title or author without counting the matches, matching as {@link
+   * #searchBooks(String, Pageable)} does
+   *
+   * @param searchTerm Search term
+   * @param pageable Pagination information
+   * @return Slice of books matching the search term
+   */
+  Slice<BookDto> searchBooksSlice(String searchTerm, Pageable pageable);
+
+  /**
+   * Find books by title without counting the matches
+   *
+   * @param title Title to search for
+   * @param pageable Pagination information
+   * @return Slice of books matching the title
+   */
+  Slice<BookDto> findBooksByTitleSlice(String title, Pageable pageable);
+
+  /**
+   * Find books by author without counting the matches
+   *
+   * @param author Author to search for
+   * @param pageable Pagination information
+   * @return Slice of books matching the author
+   */
+  Slice<BookDto> findBooksByAuthorSlice(String author, Pageable pageable);
+
+  /**
+   * Find books by publication date range without counting the matches
+   *
+   * @param startDate Start date of the range
+   * @param endDate End date of the range
+   * @param pageable Pagination information
+   * @return Slice of books in the publication date range
+   */
+  Slice<BookDto> findBooksByPublicationDateRangeSlice(
+      LocalDate startDate, LocalDate endDate, Pageable pageable);
+
+  /**
+   * Find books by category without counting them
+   *
+   * @param categoryId Category ID
+   * @param pageable Pagination information
+   * @return Slice of books in the category
+   */
+  Slice<BookDto> findBooksByCategorySlice(Long categoryId, Pageable pageable);
+
+  /**
+   * Get the total number of books from a short-lived cache
+   *
+   * @return Approximate number of books
+   */
+  long getApproximateBookCount();
+
+  /**
+   * Get the number of books in a category from a short-lived cache
+   *
+   * @param categoryId Category ID
+   * @return Approximate number of books in the category
+   */
+  long getApproximateBookCountByCategory(Long categoryId);
+
+  /** Start rebuilding the search indexes from the books table in the background */
+  void rebuildSearchIndexes();
+
+  /**
+   * Write every book to a stream, one row at a time
+   *
+   * @param format Export format
+   * @param out Stream to write to; left open
+   * @throws IOException if writing fails
+   */
+  void exportBooks(ExportFormat format, OutputStream out) throws IOException;
 }
@@ -0,0 +1,73 @@
+package com.ciaranmckenna.bookclub.service;
+
+import com.ciaranmckenna.bookclub.dto.LeaderboardEntryDto;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service interface for the trending and top-rated book leaderboards. Scores decay exponentially
+ * with time and are fed by the review and reading list write paths; events are applied when the
+ * writing transaction commits
+ */
+public interface LeaderboardService {
+
+  /**
+   * Get the books with the most recent reviews and reading list adds
+   *
+   * @param limit Maximum number of books to return
+   * @return Books with their scores, best first
+   */
+  List<LeaderboardEntryDto> getTrending(int limit);
+
+  /**
+   * Get the books most highly rated by recent reviews, ranked by their average rating pulled
+   * towards the mean of all recent ratings in proportion to how few ratings they have
+   *
+   * @param limit Maximum number of books to return
+   * @return Books with their Bayesian average ratings, best first
+   */
+  List<LeaderboardEntryDto> getTopRated(int limit);
+
+  /**
+   * Record a new review of a book
+   *
+   * @param bookId Book ID
+   * @param rating Rating of the review
+   */
+  void reviewCreated(Long bookId, int rating);
+
+  /**
+   * Record a change to the rating of a review
+   *
+   * @param bookId Book ID
+   * @param rating New rating
+   * @param previousRating Rating before the change
+   * @param previousWrittenAt When the previous rating was written
+   */
+  void reviewRatingChanged(
+      Long bookId, int rating, int previousRating, LocalDateTime previousWrittenAt);
+
+  /**
+   * Record the deletion of a review
+   *
+   * @param bookId Book ID
+   * @param rating Rating of the deleted review
+   * @param writtenAt When that rating was written
+   */
+  void reviewDeleted(Long bookId, int rating, LocalDateTime writtenAt);
+
+  /**
+   * Record books added to a reading list
+   *
+   * @param bookIds IDs of the books added
+   */
+  void booksAddedToReadingList(Collection<Long> bookIds);
+
+  /**
+   * Remove a deleted book from every leaderboard
+   *
+   * @param bookId Book ID
+   */
+  void bookDeleted(Long bookId);
+}
@@ -1,10 +1,20 @@
 package com.ciaranmckenna.bookclub.service;
 
+import com.ciaranmckenna.bookclub.common.ExportFormat;
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListChangesDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListCreateDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 /** Service interface for managing reading lists */
 public interface ReadingListService {
@@ -27,6 +37,39 @@ public interface ReadingListService {
    */
   ReadingListDto getReadingListById(Long id);
 
+  /**
+   * Get a reading list's summary, with its book count instead of its books
+   *
+   * @param id Reading list ID
+   * @return Summary of the reading list
+   * @throws jakarta.persistence.EntityNotFoundException if reading list not found
+   */
+  ReadingListSummaryDto getReadingListSummary(Long id);
+
+  /**
+   * Get the entity tag of a reading list without loading its books. It changes whenever the
+   * list, the order of its books, any of those books or its owner's username does
+   *
+   * @param id Reading list ID
+   * @return Current entity tag of the reading list
+   * @throws jakarta.persistence.EntityNotFoundException if reading list not found
+   */
+  String getReadingListETag(Long id);
+
+  /**
+   * Get the changes to a reading list's books since a version, and the books in it edited since
+   * a time
+   *
+   * @param id Reading list ID
+   * @param sinceVersion Version the client already has
+   * @param booksUpdatedSince Latest book edit time the client has seen, or null to leave book
+   *     edits out
+   * @return Changes since then, or a request to resync
+   * @throws jakarta.persistence.EntityNotFoundException if reading list not found
+   */
+  ReadingListChangesDto getReadingListChanges(
+      Long id, long sinceVersion, LocalDateTime booksUpdatedSince);
+
   /**
    * Update a reading list
    *
@@ -50,26 +93,35 @@ public interface ReadingListService {
    *
    * @param userId User ID
    * @param pageable Pagination information
-   * @return Page of reading lists
+   * @return Page of reading list summaries
+   */
+  Page<ReadingListSummaryDto> getReadingListsByUserId(Long userId, Pageable pageable);
+
+  /**
+   * Get summaries (ID, name and book count) of every reading list a user owns, for pickers that
+   * do not need the books themselves. Served from a per-user cache cleared on reading list writes
+   *
+   * @param userId User ID
+   * @return Reading list summaries ordered by name
    */
-  Page<ReadingListDto> getReadingListsByUserId(Long userId, Pageable pageable);
+  List<ReadingListSummaryDto> getReadingListSummaries(Long userId);
 
   /**
    * Get all reading lists
    *
    * @param pageable Pagination information
-   * @return Page of reading lists
+   * @return Page of reading list summaries
    */
-  Page<ReadingListDto> getAllReadingLists(Pageable pageable);
+  Page<ReadingListSummaryDto> getAllReadingLists(Pageable pageable);
 
   /**
    * Search reading lists by name
    *
    * @param name Name to search for
    * @param pageable Pagination information
-   * @return Page of reading lists matching the name
+   * @return Page of reading list summaries matching the name
    */
-  Page<ReadingListDto> searchReadingListsByName(String name, Pageable pageable);
+  Page<ReadingListSummaryDto> searchReadingListsByName(String name, Pageable pageable);
 
   /**
    * Search reading lists by name for a specific user
@@ -77,30 +129,106 @@ public interface ReadingListService {
    * @param name Name to search for
    * @param userId User ID
    * @param pageable Pagination information
-   * @return Page of reading lists matching the name for the user
+   * @return Page of reading list summaries matching the name for the user
    */
-  Page<ReadingListDto> searchReadingListsByNameAndUserId(
+  Page<ReadingListSummaryDto> searchReadingListsByNameAndUserId(
       String name, Long userId, Pageable pageable);
 
+  /**
+   * Get reading lists for a user without counting them
+   *
+   * @param userId User ID
+   * @param pageable Pagination information
+   * @return Slice of reading list summaries
+   */
+  Slice<ReadingListSummaryDto> getReadingListsByUserIdSlice(Long userId, Pageable pageable);
+
+  /**
+   * Get all reading lists without counting them
+   *
+   * @param pageable Pagination information
+   * @return Slice of reading list summaries
+   */
+  Slice<ReadingListSummaryDto> getAllReadingListsSlice(Pageable pageable);
+
+  /**
+   * Search reading lists by name without counting the matches
+   *
+   * @param name Name to search for
+   * @param pageable Pagination information
+   * @return Slice of reading list summaries matching the name
+   */
+  Slice<ReadingListSummaryDto> searchReadingListsByNameSlice(String name, Pageable pageable);
+
+  /**
+   * Search reading lists by name for a specific user without counting the matches
+   *
+   * @param name Name to search for
+   * @param userId User ID
+   * @param pageable Pagination information
+   * @return Slice of reading list summaries matching the name for the user
+   */
+  Slice<ReadingListSummaryDto> searchReadingListsByNameAndUserIdSlice(
+      String name, Long userId, Pageable pageable);
+
+  /**
+   * Get a page of the books in a reading list, in list order
+   *
+   * @param readingListId Reading list ID
+   * @param pageable Pagination and sorting information
+   * @return Page of books in the reading list
+   * @throws jakarta.persistence.EntityNotFoundException if reading list not found
+   */
+  Page<BookDto> getBooksInReadingList(Long readingListId, Pageable pageable);
+
+  /**
+   * Get the total number of reading lists from a short-lived cache
+   *
+   * @return Approximate number of reading lists
+   */
+  long getApproximateReadingListCount();
+
   /**
    * Add a book to a reading list
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
-   * @return Updated reading list
+   * @return Summary of the updated reading list
+   * @throws jakarta.persistence.EntityNotFoundException if reading list or book not found
+   */
+  ReadingListSummaryDto addBookToReadingList(Long readingListId, Long bookId);
+
+  /**
+   * Add a book to a reading list at an index, or move it there if it is already in the list
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @param index Zero-based index; past the end means last
+   * @return Summary of the updated reading list
    * @throws jakarta.persistence.EntityNotFoundException if reading list or book not found
    */
-  ReadingListDto addBookToReadingList(Long readingListId, Long bookId);
+  ReadingListSummaryDto addBookToReadingListAt(Long readingListId, Long bookId, int index);
+
+  /**
+   * Move a book to an index within a reading list, updating that book's position only
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @param index Zero-based index; past the end means last
+   * @throws jakarta.persistence.EntityNotFoundException if reading list not found or the book is
+   *     not in it
+   */
+  void moveBookInReadingList(Long readingListId, Long bookId, int index);
 
   /**
    * Remove a book from a reading list
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
-   * @return Updated reading list
+   * @return Summary of the updated reading list
    * @throws jakarta.persistence.EntityNotFoundException if reading list or book not found
    */
-  ReadingListDto removeBookFromReadingList(Long readingListId, Long bookId);
+  ReadingListSummaryDto removeBookFromReadingList(Long readingListId, Long bookId);
 
   /**
    * Find reading lists containing a specific book
@@ -110,6 +238,15 @@ public interface ReadingListService {
    */
   List<ReadingListDto> findReadingListsByBookId(Long bookId);
 
+  /**
+   * Find which of a user's reading lists contain a book, from a per-user membership cache
+   *
+   * @param userId User ID
+   * @param bookId Book ID
+   * @return IDs of the user's reading lists containing the book
+   */
+  Set<Long> findReadingListIdsContainingBook(Long userId, Long bookId);
+
   /**
    * Check if a book is already in a reading list
    *
@@ -128,4 +265,44 @@ public interface ReadingListService {
    * @throws jakarta.persistence.EntityNotFoundException if reading list or any book not found
    */
   ReadingListDto addBooksToReadingList(Long readingListId, List<Long> bookIds);
+
+  /**
+   * Add books to a reading list by ID without loading the list's books. Books already in the list
+   * are skipped
+   *
+   * @param readingListId Reading list ID
+   * @param bookIds IDs of the books to add
+   * @return Number of books actually added
+   * @throws jakarta.persistence.EntityNotFoundException if reading list or any book not found
+   */
+  int addBookIdsToReadingList(Long readingListId, Collection<Long> bookIds);
+
+  /**
+   * Clone a reading list, with its books in the same order, once for each of several users, in a
+   * single transaction. The books are copied in the database without being loaded
+   *
+   * @param readingListId ID of the reading list to clone
+   * @param userIds IDs of the users who get a copy
+   * @return Summaries of the copies, in the order of the user IDs; empty if no user IDs are given
+   * @throws jakarta.persistence.EntityNotFoundException if reading list or any user not found
+   */
+  List<ReadingListSummaryDto> cloneReadingList(Long readingListId, Collection<Long> userIds);
+
+  /**
+   * Write a summary of every reading list to a stream, one row at a time
+   *
+   * @param format Export format
+   * @param out Stream to write to; left open
+   * @throws IOException if writing fails
+   */
+  void exportReadingLists(ExportFormat format, OutputStream out) throws IOException;
+
+  /**
+   * Write every (reading list, book) pair to a stream, one row at a time
+   *
+   * @param format Export format
+   * @param out Stream to write to; left open
+   * @throws IOException if writing fails
+   */
+  void exportReadingListEntries(ExportFormat format, OutputStream out) throws IOException;
 }
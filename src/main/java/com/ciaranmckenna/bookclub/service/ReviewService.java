@@ -1,14 +1,22 @@
 package com.ciaranmckenna.bookclub.service;
 
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ReviewCursor;
+import com.ciaranmckenna.bookclub.dto.BookRatingStatsDto;
 import com.ciaranmckenna.bookclub.dto.ReviewDto;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 public interface ReviewService {
 
   ReviewDto createReview(ReviewDto reviewDto, Long userId);
 
+  boolean saveReview(Long bookId, ReviewDto reviewDto, Long userId);
+
   ReviewDto updateReview(Long id, ReviewDto reviewDto, Long userId);
 
   void deleteReview(Long id, Long userId);
@@ -17,13 +25,23 @@ public interface ReviewService {
 
   List<ReviewDto> getReviewsByBookId(Long bookId);
 
+  CursorPage<ReviewDto> getReviewsByBookId(Long bookId, ReviewCursor cursor, int size);
+
   Page<ReviewDto> getReviewsByBookId(Long bookId, Pageable pageable);
 
+  Slice<ReviewDto> getReviewsByBookIdSlice(Long bookId, Pageable pageable);
+
   List<ReviewDto> getReviewsByUserId(Long userId);
 
+  CursorPage<ReviewDto> getReviewsByUserId(Long userId, ReviewCursor cursor, int size);
+
   Double getAverageRatingByBookId(Long bookId);
 
   Long getReviewCountByBookId(Long bookId);
 
+  BookRatingStatsDto getRatingStats(Long bookId);
+
+  Map<Long, BookRatingStatsDto> getRatingStats(Collection<Long> bookIds);
+
   boolean hasUserReviewedBook(Long bookId, Long userId);
 }
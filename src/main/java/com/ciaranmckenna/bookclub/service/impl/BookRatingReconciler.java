@@ -0,0 +1,86 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.repository.BookRatingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Rebuilds the per-book review totals from the reviews table, correcting any drift from the
+ * incremental updates and filling the table on first deploy. Books are processed in ranges of
+ * IDs, each in its own short transaction, so a rebuild never holds locks on more than one range
+ * of reviews at a time.
+ *
+ * <p>The first rebuild runs in the background as soon as the application is ready. Until it has
+ * completed without a failed range, the stored totals may be missing or hold only the reviews
+ * written since startup, so readers should aggregate the reviews table instead
+ */
+@Component
+public class BookRatingReconciler {
+
+  private static final Logger log = LoggerFactory.getLogger(BookRatingReconciler.class);
+
+  @Autowired private BookRatingRepository bookRatingRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${bookclub.ratings.reconcile-chunk-size:1000}")
+  private int chunkSize;
+
+  private volatile boolean reconciled;
+
+  /** Rebuild the totals once the application is ready, so they can be trusted from then on */
+  @Async
+  @EventListener(ApplicationReadyEvent.class)
+  public void reconcileOnStartup() {
+    reconcile();
+  }
+
+  /**
+   * Whether every book's totals have been rebuilt since startup
+   *
+   * @return true if the stored totals can be read
+   */
+  public boolean isReconciled() {
+    return reconciled;
+  }
+
+  /**
+   * Rebuild the totals of every book, one range of book IDs at a time. Runs at startup and then
+   * on a fixed delay
+   */
+  @Scheduled(
+      initialDelayString = "${bookclub.ratings.reconcile-delay-ms:86400000}",
+      fixedDelayString = "${bookclub.ratings.reconcile-delay-ms:86400000}")
+  public synchronized void reconcile() {
+    long maxBookId = bookRatingRepository.findMaxBookId();
+    int chunks = 0;
+    boolean failed = false;
+    for (long start = 1; start <= maxBookId; start += chunkSize) {
+      long from = start;
+      long to = start + chunkSize - 1;
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              bookRatingRepository.rebuildRange(from, to);
+              bookRatingRepository.deleteUnreviewedInRange(from, to);
+            });
+        chunks++;
+      } catch (RuntimeException e) {
+        log.warn("Failed to rebuild ratings of books {} to {}", from, to, e);
+        failed = true;
+      }
+    }
+    if (!failed) {
+      reconciled = true;
+    }
+    log.info("Reconciled book ratings up to book {} in {} chunks", maxBookId, chunks);
+  }
+}
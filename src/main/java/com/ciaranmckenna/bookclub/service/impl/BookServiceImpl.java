@@ -1,21 +1,57 @@
 package com.ciaranmckenna.bookclub.service.impl;
 
+import com.ciaranmckenna.bookclub.common.ApproximateCountCache;
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ExportFormat;
+import com.ciaranmckenna.bookclub.common.ExportWriter;
+import com.ciaranmckenna.bookclub.common.Isbn;
+import com.ciaranmckenna.bookclub.common.KeysetCursor;
 import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.BookFacetFilter;
+import com.ciaranmckenna.bookclub.dto.FacetedSearchResultDto;
+import com.ciaranmckenna.bookclub.dto.SuggestionDto;
 import com.ciaranmckenna.bookclub.entity.Book;
 import com.ciaranmckenna.bookclub.entity.User;
 import com.ciaranmckenna.bookclub.repository.BookRepository;
 import com.ciaranmckenna.bookclub.repository.UserRepository;
+import com.ciaranmckenna.bookclub.search.BookIndexManager;
+import com.ciaranmckenna.bookclub.search.BookSearchIndex;
+import com.ciaranmckenna.bookclub.search.BookSortIndex;
+import com.ciaranmckenna.bookclub.search.BookSubstringIndex;
+import com.ciaranmckenna.bookclub.search.FacetIndex;
+import com.ciaranmckenna.bookclub.search.FuzzyBookIndex;
+import com.ciaranmckenna.bookclub.search.IsbnBloomFilter;
+import com.ciaranmckenna.bookclub.search.LuceneBookSearch;
+import com.ciaranmckenna.bookclub.search.SearchTokenizer;
+import com.ciaranmckenna.bookclub.search.SuggestionIndex;
+import com.ciaranmckenna.bookclub.search.TrigramIndex;
 import com.ciaranmckenna.bookclub.service.BookService;
+import com.ciaranmckenna.bookclub.service.LeaderboardService;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,10 +59,48 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class BookServiceImpl implements BookService {
 
+  /** Columns of a catalogue export */
+  private static final List<String> EXPORT_COLUMNS =
+      List.of(
+          "id",
+          "title",
+          "author",
+          "publicationDate",
+          "description",
+          "publisher",
+          "isbn",
+          "coverImageUrl");
+
+  /** Most books loaded by ID in one query */
+  private static final int LOAD_BATCH_SIZE = 1000;
+
   @Autowired private BookRepository bookRepository;
 
   @Autowired private UserRepository userRepository;
 
+  @Autowired private BookIndexManager bookIndexManager;
+
+  @Autowired private BookSearchIndex bookSearchIndex;
+
+  @Autowired private BookSubstringIndex bookSubstringIndex;
+
+  @Autowired private BookSortIndex bookSortIndex;
+
+  @Autowired private SuggestionIndex suggestionIndex;
+
+  @Autowired private FuzzyBookIndex fuzzyBookIndex;
+
+  @Autowired private FacetIndex facetIndex;
+
+  @Autowired private IsbnBloomFilter isbnBloomFilter;
+
+  @Autowired(required = false)
+  private LuceneBookSearch luceneBookSearch;
+
+  @Autowired private ApproximateCountCache approximateCountCache;
+
+  @Autowired private LeaderboardService leaderboardService;
+
   /**
    * Create a new book
    *
@@ -38,9 +112,7 @@ public class BookServiceImpl implements BookService {
   @Transactional
   public BookDto createBook(BookDto bookDto, Long userId) {
     // Check if ISBN is provided and not already taken
-    if (bookDto.isbn() != null
-        && !bookDto.isbn().isBlank()
-        && bookRepository.existsByIsbn(bookDto.isbn())) {
+    if (isbnTaken(bookDto.isbn())) {
       throw new IllegalArgumentException("ISBN is already registered for another book");
     }
 
@@ -57,8 +129,10 @@ public class BookServiceImpl implements BookService {
     // Save book
     Book savedBook = bookRepository.save(book);
 
-    // Convert to DTO and return
-    return convertToDto(savedBook);
+    // Convert to DTO, index and return
+    BookDto savedBookDto = convertToDto(savedBook);
+    bookIndexManager.bookSaved(savedBookDto);
+    return savedBookDto;
   }
 
   /**
@@ -69,13 +143,12 @@ public class BookServiceImpl implements BookService {
    * @throws EntityNotFoundException if book not found
    */
   @Override
+  @Transactional(readOnly = true)
   @Cacheable(value = "books", key = "#id")
   public BookDto getBookById(Long id) {
-    Book book =
-        bookRepository
-            .findById(id)
-            .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + id));
-    return convertToDto(book);
+    return bookRepository
+        .findDtoById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + id));
   }
 
   /**
@@ -96,10 +169,8 @@ public class BookServiceImpl implements BookService {
             .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + id));
 
     // Check if ISBN is changed and not already taken
-    if (bookDto.isbn() != null
-        && !bookDto.isbn().isBlank()
-        && !bookDto.isbn().equals(book.getIsbn())
-        && bookRepository.existsByIsbn(bookDto.isbn())) {
+    if (!Objects.equals(Isbn.canonicalKey(bookDto.isbn()), Isbn.canonicalKey(book.getIsbn()))
+        && isbnTaken(bookDto.isbn())) {
       throw new IllegalArgumentException("ISBN is already registered for another book");
     }
 
@@ -115,8 +186,10 @@ public class BookServiceImpl implements BookService {
     // Save updated book
     Book updatedBook = bookRepository.save(book);
 
-    // Convert to DTO and return
-    return convertToDto(updatedBook);
+    // Convert to DTO, re-index and return
+    BookDto updatedBookDto = convertToDto(updatedBook);
+    bookIndexManager.bookSaved(updatedBookDto);
+    return updatedBookDto;
   }
 
   /**
@@ -132,6 +205,8 @@ public class BookServiceImpl implements BookService {
       throw new EntityNotFoundException("Book not found with id: " + id);
     }
     bookRepository.deleteById(id);
+    bookIndexManager.bookDeleted(id);
+    leaderboardService.bookDeleted(id);
   }
 
   /**
@@ -141,46 +216,197 @@ public class BookServiceImpl implements BookService {
    * @return Page of books
    */
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> getAllBooks(Pageable pageable) {
-    return bookRepository.findAll(pageable).map(this::convertToDto);
+    return bookRepository.findAllDtos(pageable);
   }
 
   /**
-   * Search books by title or author
+   * Get all books by keyset pagination
+   *
+   * @param cursor Position and sort to continue from
+   * @param size Page size
+   * @return Page of books with the cursor of the next page
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<BookDto> getAllBooks(KeysetCursor cursor, int size) {
+    return toCursorPage(
+        bookRepository.findBy(cursor.toScrollPosition(), cursor.toSort(), Limit.of(size)), cursor);
+  }
+
+  /**
+   * Search books by title or author. With the Lucene backend enabled, unsorted requests are
+   * ranked by relevance over titles, authors, descriptions, publishers and category names.
+   * Otherwise served from the in-memory search index once it has been built, which matches each
+   * token by prefix; until then, and for terms without any searchable token, falls back to a
+   * substring match in the database. The fallback only covers the background build after startup
+   * and admin rebuilds, so the differing semantics are accepted rather than emulated in SQL
    *
    * @param searchTerm Search term
    * @param pageable Pagination information
    * @return Page of books matching the search term
    */
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> searchBooks(String searchTerm, Pageable pageable) {
-    return bookRepository.searchByTitleOrAuthor(searchTerm, pageable).map(this::convertToDto);
+    if (usesLucene(pageable)) {
+      Page<Long> hits = luceneBookSearch.search(searchTerm, pageable);
+      return new PageImpl<>(loadInOrder(hits.getContent()), pageable, hits.getTotalElements());
+    }
+    if (!bookIndexManager.isReady() || SearchTokenizer.tokenize(searchTerm).isEmpty()) {
+      return bookRepository.searchByTitleOrAuthor(searchTerm, pageable);
+    }
+
+    return pageOfMatches(bookSearchIndex.search(searchTerm), pageable);
+  }
+
+  /**
+   * Search books by title or author, tolerating typos in each word. Needs the in-memory fuzzy
+   * index; until it has been built this falls back to the exact database search. Unless sorted,
+   * only the closest matches up to the end of the page are ranked
+   *
+   * @param searchTerm Search term, possibly misspelled
+   * @param pageable Pagination information
+   * @return Page of books matching the search term, closest matches first unless sorted
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Page<BookDto> fuzzySearchBooks(String searchTerm, Pageable pageable) {
+    if (!bookIndexManager.isReady() || SearchTokenizer.tokenize(searchTerm).isEmpty()) {
+      return bookRepository.searchByTitleOrAuthor(searchTerm, pageable);
+    }
+
+    FuzzyBookIndex.Matches matches = fuzzyBookIndex.search(searchTerm);
+    if (pageable.getSort().isSorted()) {
+      return pageOfMatches(List.copyOf(matches.ids()), pageable);
+    }
+    long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+    int limit = pageable.isPaged() ? pageable.getPageSize() : matches.count();
+    List<Long> ranked = matches.top((int) Math.min(offset + limit, matches.count()));
+    List<Long> idsOnPage = ranked.subList((int) Math.min(offset, ranked.size()), ranked.size());
+    return new PageImpl<>(loadInOrder(idsOnPage), pageable, matches.count());
   }
 
   /**
-   * Find books by title
+   * Search books by title or author by keyset pagination, in ascending ID order. Seeks through
+   * the search index's ID list once it has been built; otherwise seeks in the database
+   *
+   * @param searchTerm Search term
+   * @param cursor Position to continue from, sorted by ascending ID
+   * @param size Page size
+   * @return Page of books matching the search term with the cursor of the next page
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<BookDto> searchBooks(String searchTerm, KeysetCursor cursor, int size) {
+    if (!"id".equals(cursor.sortField()) || cursor.direction() != Sort.Direction.ASC) {
+      throw new IllegalArgumentException("Search results can only be paginated by ascending id");
+    }
+
+    if (!bookIndexManager.isReady() || SearchTokenizer.tokenize(searchTerm).isEmpty()) {
+      return toCursorPage(
+          bookRepository.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
+              searchTerm,
+              searchTerm,
+              cursor.toScrollPosition(),
+              cursor.toSort(),
+              Limit.of(size)),
+          cursor);
+    }
+
+    List<Long> matchingIds = bookSearchIndex.search(searchTerm);
+    int from = 0;
+    if (cursor.id() != null) {
+      int position = Collections.binarySearch(matchingIds, cursor.id());
+      from = position >= 0 ? position + 1 : -position - 1;
+    }
+    int to = Math.min(from + size, matchingIds.size());
+    List<Long> pageIds = matchingIds.subList(from, to);
+
+    List<BookDto> content = loadInOrder(pageIds);
+    String nextCursor =
+        to < matchingIds.size() && !pageIds.isEmpty()
+            ? cursor.after(pageIds.get(pageIds.size() - 1), pageIds.get(pageIds.size() - 1))
+                .encode()
+            : null;
+    return CursorPage.of(content, nextCursor);
+  }
+
+  /**
+   * Suggest completions for a partially typed search term from titles, authors and category
+   * names, without querying the database
+   *
+   * @param prefix Partially typed search term
+   * @param limit Maximum number of suggestions
+   * @return Suggestions, best first
+   */
+  @Override
+  public List<SuggestionDto> suggest(String prefix, int limit) {
+    return suggestionIndex.suggest(prefix, limit);
+  }
+
+  /**
+   * Faceted search answered entirely from in-memory bitmaps: the search term is resolved through
+   * the search index, then intersected with the category, year, author and rating bitmaps
+   *
+   * @param filter Facet filter
+   * @param searchTerm Optional title or author search term
+   * @param pageable Pagination information; results are in ascending ID order
+   * @return Page of matching books with the facet counts
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public FacetedSearchResultDto facetedSearch(
+      BookFacetFilter filter, String searchTerm, Pageable pageable) {
+    if (!bookIndexManager.isReady()) {
+      throw new IllegalStateException("Search indexes are still being built");
+    }
+
+    List<Long> textMatches =
+        searchTerm == null || searchTerm.isBlank() ? null : bookSearchIndex.search(searchTerm);
+    FacetIndex.Result result = facetIndex.search(filter, textMatches);
+    Page<BookDto> books =
+        new PageImpl<>(
+            loadInOrder(result.ids(pageable.getOffset(), pageable.getPageSize())),
+            pageable,
+            result.total());
+    return new FacetedSearchResultDto(
+        books, result.categoryCounts(), result.yearCounts(), result.minRatingCounts());
+  }
+
+  /**
+   * Find books by title. Served from the trigram index, ranked by match quality, once it has been
+   * built and the title is long enough to look up; otherwise falls back to the database
    *
    * @param title Title to search for
    * @param pageable Pagination information
    * @return Page of books matching the title
    */
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> findBooksByTitle(String title, Pageable pageable) {
-    return bookRepository.findByTitleContainingIgnoreCase(title, pageable).map(this::convertToDto);
+    if (!bookIndexManager.isReady() || !TrigramIndex.supports(title)) {
+      return bookRepository.findByTitleContainingIgnoreCase(title, pageable);
+    }
+    return pageOfMatches(bookSubstringIndex.searchTitles(title), pageable);
   }
 
   /**
-   * Find books by author
+   * Find books by author. Served from the trigram index, ranked by match quality, once it has
+   * been built and the author is long enough to look up; otherwise falls back to the database
    *
    * @param author Author to search for
    * @param pageable Pagination information
    * @return Page of books matching the author
    */
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> findBooksByAuthor(String author, Pageable pageable) {
-    return bookRepository
-        .findByAuthorContainingIgnoreCase(author, pageable)
-        .map(this::convertToDto);
+    if (!bookIndexManager.isReady() || !TrigramIndex.supports(author)) {
+      return bookRepository.findByAuthorContainingIgnoreCase(author, pageable);
+    }
+    return pageOfMatches(bookSubstringIndex.searchAuthors(author), pageable);
   }
 
   /**
@@ -192,11 +418,10 @@ public class BookServiceImpl implements BookService {
    * @return Page of books in the publication date range
    */
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> findBooksByPublicationDateRange(
       LocalDate startDate, LocalDate endDate, Pageable pageable) {
-    return bookRepository
-        .findByPublicationDateBetween(startDate, endDate, pageable)
-        .map(this::convertToDto);
+    return bookRepository.findByPublicationDateBetween(startDate, endDate, pageable);
   }
 
   /**
@@ -206,10 +431,9 @@ public class BookServiceImpl implements BookService {
    * @return List of books in the reading list
    */
   @Override
+  @Transactional(readOnly = true)
   public List<BookDto> findBooksByReadingListId(Long readingListId) {
-    return bookRepository.findBooksByReadingListId(readingListId).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return bookRepository.findBooksByReadingListId(readingListId);
   }
 
   /**
@@ -219,8 +443,32 @@ public class BookServiceImpl implements BookService {
    * @return Optional containing the book if found, empty otherwise
    */
   @Override
+  @Transactional(readOnly = true)
   public Optional<BookDto> findBookByIsbn(String isbn) {
-    return bookRepository.findByIsbn(isbn).map(this::convertToDto);
+    String isbnKey = Isbn.canonicalKey(isbn);
+    if (isbnKey == null || isbnDefinitelyAbsent(isbnKey)) {
+      return Optional.empty();
+    }
+    return bookRepository.findFirstByIsbnOrIsbnKey(isbn, isbnKey);
+  }
+
+  /**
+   * Whether another book already has this ISBN in any spelling. Once the indexes are built, the
+   * Bloom filter answers most checks for new ISBNs without a query
+   *
+   * @param isbn ISBN as entered, may be null or blank
+   * @return true if a book with the same canonical ISBN exists
+   */
+  private boolean isbnTaken(String isbn) {
+    String isbnKey = Isbn.canonicalKey(isbn);
+    if (isbnKey == null || isbnDefinitelyAbsent(isbnKey)) {
+      return false;
+    }
+    return bookRepository.existsByIsbnOrIsbnKey(isbn, isbnKey);
+  }
+
+  private boolean isbnDefinitelyAbsent(String isbnKey) {
+    return bookIndexManager.isReady() && !isbnBloomFilter.mightContain(isbnKey);
   }
 
   /**
@@ -240,10 +488,8 @@ public class BookServiceImpl implements BookService {
             .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + id));
 
     // Check if ISBN is changed and not already taken
-    if (bookDto.isbn() != null
-        && !bookDto.isbn().isBlank()
-        && !bookDto.isbn().equals(book.getIsbn())
-        && bookRepository.existsByIsbn(bookDto.isbn())) {
+    if (!Objects.equals(Isbn.canonicalKey(bookDto.isbn()), Isbn.canonicalKey(book.getIsbn()))
+        && isbnTaken(bookDto.isbn())) {
       throw new IllegalArgumentException("ISBN is already registered for another book");
     }
 
@@ -270,8 +516,118 @@ public class BookServiceImpl implements BookService {
     // Save updated book
     Book updatedBook = bookRepository.save(book);
 
-    // Convert to DTO and return
-    return convertToDto(updatedBook);
+    // Convert to DTO, re-index and return
+    BookDto updatedBookDto = convertToDto(updatedBook);
+    bookIndexManager.bookSaved(updatedBookDto);
+    return updatedBookDto;
+  }
+
+  /**
+   * Build a page of books from IDs matched by an in-memory index. An explicit sort is applied in
+   * memory by the sort index, which keeps only the books up to the end of the page; otherwise the
+   * index order is kept. Either way only the books on the page are loaded
+   *
+   * @param matchingIds Matching book IDs in index order
+   * @param pageable Pagination information
+   * @return Page of books
+   * @throws IllegalArgumentException if sorted by a field the sort index does not hold
+   */
+  private Page<BookDto> pageOfMatches(List<Long> matchingIds, Pageable pageable) {
+    if (matchingIds.isEmpty()) {
+      return Page.empty(pageable);
+    }
+    return new PageImpl<>(
+        loadInOrder(idsOnPage(matchingIds, pageable)), pageable, matchingIds.size());
+  }
+
+  /**
+   * Whether a search should go to Lucene: the backend is enabled and the request wants relevance
+   * order, which is all Lucene ranks by
+   */
+  private boolean usesLucene(Pageable pageable) {
+    return luceneBookSearch != null && pageable.isPaged() && pageable.getSort().isUnsorted();
+  }
+
+  /**
+   * Build a slice of books from IDs matched by an in-memory index, like {@link #pageOfMatches}.
+   * The match count is known, so whether a next slice exists costs nothing
+   *
+   * @param matchingIds Matching book IDs in index order
+   * @param pageable Pagination information
+   * @return Slice of books
+   * @throws IllegalArgumentException if sorted by a field the sort index does not hold
+   */
+  private Slice<BookDto> sliceOfMatches(List<Long> matchingIds, Pageable pageable) {
+    if (matchingIds.isEmpty()) {
+      return new SliceImpl<>(List.of(), pageable, false);
+    }
+    boolean hasNext =
+        pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() < matchingIds.size();
+    return new SliceImpl<>(loadInOrder(idsOnPage(matchingIds, pageable)), pageable, hasNext);
+  }
+
+  /**
+   * IDs of the matches on one page, in the requested sort order or else in index order. An
+   * unpaged request gets every match
+   */
+  private List<Long> idsOnPage(List<Long> matchingIds, Pageable pageable) {
+    long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+    int limit = pageable.isPaged() ? pageable.getPageSize() : matchingIds.size();
+    if (pageable.getSort().isSorted()) {
+      return bookSortIndex.page(matchingIds, pageable.getSort(), offset, limit);
+    }
+    int from = (int) Math.min(offset, matchingIds.size());
+    int to = (int) Math.min(from + (long) limit, matchingIds.size());
+    return matchingIds.subList(from, to);
+  }
+
+  /**
+   * Load books by ID, keeping the order of the IDs. Long lists are loaded in batches so no
+   * single IN list grows with them
+   *
+   * @param ids Ordered book IDs
+   * @return Books in the same order
+   */
+  private List<BookDto> loadInOrder(List<Long> ids) {
+    Map<Long, BookDto> books = new HashMap<>();
+    for (int from = 0; from < ids.size(); from += LOAD_BATCH_SIZE) {
+      List<Long> batch = ids.subList(from, Math.min(from + LOAD_BATCH_SIZE, ids.size()));
+      bookRepository.findByIdIn(batch).forEach(book -> books.put(book.id(), book));
+    }
+    return ids.stream().map(books::get).filter(Objects::nonNull).collect(Collectors.toList());
+  }
+
+  /**
+   * Convert a keyset window to a cursor page, encoding the position of its last row
+   *
+   * @param window Window of books
+   * @param cursor Cursor the window was read from
+   * @return Page of books with the cursor of the next page
+   */
+  private CursorPage<BookDto> toCursorPage(Window<Book> window, KeysetCursor cursor) {
+    List<Book> books = window.getContent();
+    String nextCursor = null;
+    if (window.hasNext() && !books.isEmpty()) {
+      Book last = books.get(books.size() - 1);
+      nextCursor = cursor.after(sortValue(last, cursor.sortField()), last.getId()).encode();
+    }
+    return CursorPage.of(books.stream().map(this::convertToDto).toList(), nextCursor);
+  }
+
+  /**
+   * Read the value of a keyset sort field from a book
+   *
+   * @param book Book entity
+   * @param sortField One of {@link KeysetCursor#SORT_FIELDS}
+   * @return Sort key value
+   */
+  private Object sortValue(Book book, String sortField) {
+    return switch (sortField) {
+      case "title" -> book.getTitle();
+      case "author" -> book.getAuthor();
+      case "publicationDate" -> book.getPublicationDate();
+      default -> book.getId();
+    };
   }
 
   /**
@@ -318,17 +674,131 @@ public class BookServiceImpl implements BookService {
    * @return true if the user owns the book, false otherwise
    */
   @Override
+  @Transactional(readOnly = true)
   public boolean isBookOwner(Long bookId, Long userId) {
     return bookRepository.existsByIdAndCreatedBy_Id(bookId, userId);
   }
 
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> findBooksByCategory(Long categoryId, Pageable pageable) {
-    return bookRepository.findBooksByCategoryId(categoryId, pageable).map(this::convertToDto);
+    return bookRepository.findBooksByCategoryId(categoryId, pageable);
   }
 
   @Override
+  @Transactional(readOnly = true)
   public Page<BookDto> findBooksByCategoryName(String categoryName, Pageable pageable) {
-    return bookRepository.findBooksByCategoryName(categoryName, pageable).map(this::convertToDto);
+    return bookRepository.findBooksByCategoryName(categoryName, pageable);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<BookDto> findBooksByCategory(Long categoryId, KeysetCursor cursor, int size) {
+    return toCursorPage(
+        bookRepository.findByCategories_Id(
+            categoryId, cursor.toScrollPosition(), cursor.toSort(), Limit.of(size)),
+        cursor);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<BookDto> getAllBooksSlice(Pageable pageable) {
+    return bookRepository.findSliceBy(pageable);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<BookDto> searchBooksSlice(String searchTerm, Pageable pageable) {
+    if (usesLucene(pageable)) {
+      return searchBooks(searchTerm, pageable);
+    }
+    if (!bookIndexManager.isReady() || SearchTokenizer.tokenize(searchTerm).isEmpty()) {
+      return bookRepository.searchSliceByTitleOrAuthor(searchTerm, pageable);
+    }
+    return sliceOfMatches(bookSearchIndex.search(searchTerm), pageable);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<BookDto> findBooksByTitleSlice(String title, Pageable pageable) {
+    if (!bookIndexManager.isReady() || !TrigramIndex.supports(title)) {
+      return bookRepository.findSliceByTitleContainingIgnoreCase(title, pageable);
+    }
+    return sliceOfMatches(bookSubstringIndex.searchTitles(title), pageable);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<BookDto> findBooksByAuthorSlice(String author, Pageable pageable) {
+    if (!bookIndexManager.isReady() || !TrigramIndex.supports(author)) {
+      return bookRepository.findSliceByAuthorContainingIgnoreCase(author, pageable);
+    }
+    return sliceOfMatches(bookSubstringIndex.searchAuthors(author), pageable);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<BookDto> findBooksByPublicationDateRangeSlice(
+      LocalDate startDate, LocalDate endDate, Pageable pageable) {
+    return bookRepository.findSliceByPublicationDateBetween(startDate, endDate, pageable);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<BookDto> findBooksByCategorySlice(Long categoryId, Pageable pageable) {
+    return bookRepository.findSliceByCategoryId(categoryId, pageable);
+  }
+
+  @Override
+  public long getApproximateBookCount() {
+    return approximateCountCache.get("books", bookRepository::count);
+  }
+
+  @Override
+  public long getApproximateBookCountByCategory(Long categoryId) {
+    return approximateCountCache.get(
+        "books:category:" + categoryId, () -> bookRepository.countByCategories_Id(categoryId));
+  }
+
+  /**
+   * Rebuild the search indexes from the books table without waiting for them. The Lucene rebuild
+   * is queued on its background indexer and the in-memory indexes are rebuilt on the async
+   * executor; both keep answering searches until their rebuilt copies are swapped in
+   */
+  @Override
+  public void rebuildSearchIndexes() {
+    if (luceneBookSearch != null) {
+      luceneBookSearch.rebuild();
+    }
+    bookIndexManager.rebuildInBackground();
+  }
+
+  /**
+   * Write every book to a stream. Rows come from a forward-only result set and are written as
+   * they arrive, so memory use does not grow with the catalogue
+   *
+   * @param format Export format
+   * @param out Stream to write to; left open
+   * @throws IOException if writing fails
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void exportBooks(ExportFormat format, OutputStream out) throws IOException {
+    try (Stream<BookDto> books = bookRepository.streamAllDtos();
+        ExportWriter writer = new ExportWriter(format, EXPORT_COLUMNS, out)) {
+      for (Iterator<BookDto> rows = books.iterator(); rows.hasNext(); ) {
+        BookDto book = rows.next();
+        writer.writeRow(
+            Arrays.asList(
+                book.id(),
+                book.title(),
+                book.author(),
+                book.publicationDate(),
+                book.description(),
+                book.publisher(),
+                book.isbn(),
+                book.coverImageUrl()));
+      }
+    }
   }
 }
@@ -3,6 +3,8 @@ package com.ciaranmckenna.bookclub.service.impl;
 import com.ciaranmckenna.bookclub.dto.CategoryDto;
 import com.ciaranmckenna.bookclub.entity.Category;
 import com.ciaranmckenna.bookclub.repository.CategoryRepository;
+import com.ciaranmckenna.bookclub.search.BookIndexManager;
+import com.ciaranmckenna.bookclub.search.SuggestionIndex;
 import com.ciaranmckenna.bookclub.service.CategoryService;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,6 +18,10 @@ public class CategoryServiceImpl implements CategoryService {
 
   @Autowired private CategoryRepository categoryRepository;
 
+  @Autowired private SuggestionIndex suggestionIndex;
+
+  @Autowired private BookIndexManager bookIndexManager;
+
   @Override
   public CategoryDto createCategory(CategoryDto categoryDto) {
     if (existsByName(categoryDto.getName())) {
@@ -28,6 +34,7 @@ public class CategoryServiceImpl implements CategoryService {
     category.setDescription(categoryDto.getDescription());
 
     Category savedCategory = categoryRepository.save(category);
+    suggestionIndex.categorySaved(savedCategory.getId(), savedCategory.getName());
     return convertToDto(savedCategory);
   }
 
@@ -68,7 +75,8 @@ public class CategoryServiceImpl implements CategoryService {
             .findById(id)
             .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
 
-    if (!category.getName().equals(categoryDto.getName()) && existsByName(categoryDto.getName())) {
+    boolean renamed = !category.getName().equals(categoryDto.getName());
+    if (renamed && existsByName(categoryDto.getName())) {
       throw new RuntimeException(
           "Category with name '" + categoryDto.getName() + "' already exists");
     }
@@ -77,6 +85,10 @@ public class CategoryServiceImpl implements CategoryService {
     category.setDescription(categoryDto.getDescription());
 
     Category updatedCategory = categoryRepository.save(category);
+    suggestionIndex.categorySaved(updatedCategory.getId(), updatedCategory.getName());
+    if (renamed) {
+      bookIndexManager.categoryChanged(id);
+    }
     return convertToDto(updatedCategory);
   }
 
@@ -87,6 +99,8 @@ public class CategoryServiceImpl implements CategoryService {
             .findById(id)
             .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
     categoryRepository.delete(category);
+    suggestionIndex.categoryDeleted(id);
+    bookIndexManager.categoryDeleted(id);
   }
 
   @Override
@@ -0,0 +1,92 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.common.Isbn;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Fills in the canonical ISBN key of books written before the key column existed. Runs in the
+ * background once the application is ready, reading IDs and ISBNs in keyset batches and writing
+ * each batch's keys in one short transaction, so neither startup nor the catalogue waits on it
+ */
+@Component
+public class IsbnKeyBackfill {
+
+  private static final Logger log = LoggerFactory.getLogger(IsbnKeyBackfill.class);
+
+  private static final int BATCH_SIZE = 500;
+
+  @Autowired private BookRepository bookRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  /** Fill in every missing ISBN key, one batch of books at a time */
+  @Async
+  @EventListener(ApplicationReadyEvent.class)
+  public void backfill() {
+    long lastId = 0L;
+    int filled = 0;
+    List<BookRepository.BookIsbn> batch;
+    do {
+      batch = bookRepository.findIsbnsWithoutKeyAfter(lastId, Limit.of(BATCH_SIZE));
+      if (batch.isEmpty()) {
+        break;
+      }
+      long from = lastId;
+      lastId = batch.get(batch.size() - 1).getId();
+      List<BookRepository.BookIsbn> books = batch;
+      try {
+        filled += transactionTemplate.execute(status -> fill(books));
+      } catch (RuntimeException e) {
+        log.warn("Failed to fill in ISBN keys of books after {}", from, e);
+      }
+    } while (batch.size() == BATCH_SIZE);
+    if (filled > 0) {
+      log.info("Filled in {} ISBN keys", filled);
+    }
+  }
+
+  /**
+   * Write the keys of one batch, skipping books whose ISBN duplicates another edition's key
+   *
+   * @return Number of keys written
+   */
+  private int fill(List<BookRepository.BookIsbn> books) {
+    Map<Long, String> keys = new LinkedHashMap<>();
+    for (BookRepository.BookIsbn book : books) {
+      String key = Isbn.canonicalKey(book.getIsbn());
+      if (key != null) {
+        keys.put(book.getId(), key);
+      }
+    }
+    if (keys.isEmpty()) {
+      return 0;
+    }
+    Set<String> taken = new HashSet<>(bookRepository.findTakenIsbnKeys(Set.copyOf(keys.values())));
+    int filled = 0;
+    for (Map.Entry<Long, String> entry : keys.entrySet()) {
+      if (!taken.add(entry.getValue())) {
+        log.warn(
+            "Book {} has ISBN key {} which duplicates another edition; leaving it empty",
+            entry.getKey(),
+            entry.getValue());
+        continue;
+      }
+      filled += bookRepository.setIsbnKey(entry.getKey(), entry.getValue());
+    }
+    return filled;
+  }
+}
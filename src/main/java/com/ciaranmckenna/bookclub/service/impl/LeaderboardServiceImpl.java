@@ -0,0 +1,450 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.common.AfterCommit;
+import com.ciaranmckenna.bookclub.common.DecayingLeaderboard;
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.LeaderboardEntryDto;
+import com.ciaranmckenna.bookclub.entity.BookLeaderboardScore;
+import com.ciaranmckenna.bookclub.repository.BookLeaderboardScoreRepository;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import com.ciaranmckenna.bookclub.repository.ReviewRepository;
+import com.ciaranmckenna.bookclub.service.LeaderboardService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Trending and top-rated leaderboards held in memory as {@link DecayingLeaderboard}s. A new
+ * review counts {@link #TRENDING_REVIEW_WEIGHT} towards trending and a reading list add counts
+ * {@link #TRENDING_ADD_WEIGHT}.
+ *
+ * <p>Top-rated keeps two boards with the same half-life, the decayed sum of each book's ratings
+ * and the decayed number of them, and takes a review back out of both when it is changed or
+ * deleted. Books are ranked by their Bayesian average, (sum + weight * mean) / (count + weight),
+ * which pulls books with few recent ratings towards the mean of all recent ratings so that
+ * neither a single five-star review nor a large number of middling ones tops the board. The
+ * averages are kept ranked: a rating event rescores only its own book, against the mean of the
+ * last refresh. Decay shrinks every book's sum and count alike, which moves averages relative to
+ * the prior, so the mean and every book's average are recomputed from the two boards on a fixed
+ * delay.
+ *
+ * <p>Changed scores are checkpointed to the book_leaderboard_scores table on a fixed delay and at
+ * shutdown, and restored at startup. When there is no checkpoint at all, the leaderboards are
+ * seeded from recent reviews instead
+ */
+@Service
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+  private static final Logger log = LoggerFactory.getLogger(LeaderboardServiceImpl.class);
+
+  /** Most books returned by one leaderboard read */
+  private static final int MAX_LIMIT = 50;
+
+  private static final double TRENDING_REVIEW_WEIGHT = 2;
+
+  private static final double TRENDING_ADD_WEIGHT = 1;
+
+  /** Books whose score decays below this are dropped at the next checkpoint */
+  private static final double MIN_SCORE = 0.05;
+
+  /** How many half-lives of reviews are read when seeding, beyond which scores are negligible */
+  private static final int SEED_HALF_LIVES = 4;
+
+  private enum Board {
+    TRENDING,
+    RATING_SUM,
+    RATING_COUNT
+  }
+
+  @Autowired private BookRepository bookRepository;
+
+  @Autowired private ReviewRepository reviewRepository;
+
+  @Autowired private BookLeaderboardScoreRepository scoreRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${bookclub.leaderboards.trending-half-life:7d}")
+  private Duration trendingHalfLife;
+
+  @Value("${bookclub.leaderboards.top-rated-half-life:30d}")
+  private Duration topRatedHalfLife;
+
+  /** Number of mean ratings every book's top-rated average starts from */
+  @Value("${bookclub.leaderboards.top-rated-prior-weight:5}")
+  private double topRatedPriorWeight;
+
+  private final Map<Board, DecayingLeaderboard> boards = new EnumMap<>(Board.class);
+
+  private final Map<Board, Duration> halfLives = new EnumMap<>(Board.class);
+
+  /** Serialises rescoring books in the top-rated ranking with refreshing the whole of it */
+  private final Object topRatedLock = new Object();
+
+  /** Top-rated ranking, or null until it is first read or refreshed */
+  private volatile TopRated topRated;
+
+  @PostConstruct
+  public void createBoards() {
+    halfLives.put(Board.TRENDING, trendingHalfLife);
+    halfLives.put(Board.RATING_SUM, topRatedHalfLife);
+    halfLives.put(Board.RATING_COUNT, topRatedHalfLife);
+    halfLives.forEach((board, halfLife) -> boards.put(board, new DecayingLeaderboard(halfLife)));
+  }
+
+  /**
+   * Restore the leaderboards from their checkpoint once the application has started, and seed
+   * any board with nothing checkpointed yet from recent reviews. The rating sums are seeded
+   * whenever the rating counts are, since the ranking divides one by the other
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void restore() {
+    int restored = 0;
+    Set<Board> unseeded = EnumSet.noneOf(Board.class);
+    for (Board board : Board.values()) {
+      List<BookLeaderboardScore> scores = scoreRepository.findByIdBoard(board.name());
+      for (BookLeaderboardScore score : scores) {
+        boards.get(board).restore(score.getId().getBookId(), score.getLogScore());
+      }
+      if (scores.isEmpty()) {
+        unseeded.add(board);
+      }
+      restored += scores.size();
+    }
+    if (restored > 0) {
+      log.info("Restored {} leaderboard scores", restored);
+    }
+    if (unseeded.contains(Board.RATING_COUNT)) {
+      // Sums without counts cannot be averaged; seed them afresh along with the counts
+      DecayingLeaderboard ratingSums = boards.get(Board.RATING_SUM);
+      ratingSums.bookIds().forEach(ratingSums::remove);
+      unseeded.add(Board.RATING_SUM);
+    }
+    if (unseeded.isEmpty()) {
+      return;
+    }
+
+    Duration window = Collections.max(unseeded.stream().map(halfLives::get).toList());
+    LocalDateTime since = LocalDateTime.now().minus(window.multipliedBy(SEED_HALF_LIVES));
+    int seeded =
+        transactionTemplate.execute(
+            status -> {
+              try (Stream<ReviewRepository.RecentRating> ratings =
+                  reviewRepository.streamRatingsWrittenSince(since)) {
+                int count = 0;
+                for (Iterator<ReviewRepository.RecentRating> it = ratings.iterator();
+                    it.hasNext(); ) {
+                  seed(it.next(), unseeded);
+                  count++;
+                }
+                return count;
+              }
+            });
+    log.info("Seeded leaderboards {} from {} reviews written since {}", unseeded, seeded, since);
+  }
+
+  private void seed(ReviewRepository.RecentRating rating, Set<Board> unseeded) {
+    long at = toMillis(rating.getUpdatedAt());
+    if (unseeded.contains(Board.TRENDING)) {
+      boards.get(Board.TRENDING).add(rating.getBookId(), TRENDING_REVIEW_WEIGHT, at);
+    }
+    if (unseeded.contains(Board.RATING_SUM)) {
+      addRating(rating.getBookId(), rating.getRating(), at);
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<LeaderboardEntryDto> getTrending(int limit) {
+    return entries(
+        boards.get(Board.TRENDING).top(boundedLimit(limit), System.currentTimeMillis()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public List<LeaderboardEntryDto> getTopRated(int limit) {
+    TopRated ranking = topRated;
+    if (ranking == null) {
+      refreshTopRated();
+      ranking = topRated;
+    }
+    return entries(ranking.top(boundedLimit(limit)));
+  }
+
+  @Override
+  public void reviewCreated(Long bookId, int rating) {
+    AfterCommit.run(
+        () -> {
+          long now = System.currentTimeMillis();
+          boards.get(Board.TRENDING).add(bookId, TRENDING_REVIEW_WEIGHT, now);
+          addRating(bookId, rating, now);
+        });
+  }
+
+  @Override
+  public void reviewRatingChanged(
+      Long bookId, int rating, int previousRating, LocalDateTime previousWrittenAt) {
+    AfterCommit.run(
+        () -> {
+          removeRating(bookId, previousRating, toMillis(previousWrittenAt));
+          addRating(bookId, rating, System.currentTimeMillis());
+        });
+  }
+
+  @Override
+  public void reviewDeleted(Long bookId, int rating, LocalDateTime writtenAt) {
+    AfterCommit.run(() -> removeRating(bookId, rating, toMillis(writtenAt)));
+  }
+
+  @Override
+  public void booksAddedToReadingList(Collection<Long> bookIds) {
+    List<Long> added = List.copyOf(bookIds);
+    AfterCommit.run(
+        () -> {
+          long now = System.currentTimeMillis();
+          for (Long bookId : added) {
+            boards.get(Board.TRENDING).add(bookId, TRENDING_ADD_WEIGHT, now);
+          }
+        });
+  }
+
+  @Override
+  public void bookDeleted(Long bookId) {
+    AfterCommit.run(
+        () -> {
+          boards.values().forEach(board -> board.remove(bookId));
+          rescoreTopRated(bookId, System.currentTimeMillis());
+        });
+  }
+
+  /**
+   * Drop books whose scores have decayed away and write every score changed since the last
+   * checkpoint, in one transaction. A book is dropped from the rating boards once its rating
+   * count has decayed away, whatever its rating sum. If the write fails the scores stay dirty and
+   * are retried at the next checkpoint
+   */
+  @Scheduled(
+      initialDelayString = "${bookclub.leaderboards.checkpoint-delay-ms:300000}",
+      fixedDelayString = "${bookclub.leaderboards.checkpoint-delay-ms:300000}")
+  public void checkpoint() {
+    long now = System.currentTimeMillis();
+    Map<Board, Map<Long, Double>> changes = new EnumMap<>(Board.class);
+    boards.values().forEach(leaderboard -> leaderboard.prune(MIN_SCORE, now));
+    DecayingLeaderboard ratingSums = boards.get(Board.RATING_SUM);
+    Set<Long> ratedBooks = boards.get(Board.RATING_COUNT).bookIds();
+    for (Long bookId : ratingSums.bookIds()) {
+      if (!ratedBooks.contains(bookId)) {
+        ratingSums.remove(bookId);
+      }
+    }
+    boards.forEach((board, leaderboard) -> changes.put(board, leaderboard.drainDirty()));
+    try {
+      transactionTemplate.executeWithoutResult(status -> changes.forEach(this::write));
+    } catch (RuntimeException e) {
+      changes.forEach((board, changed) -> boards.get(board).markDirty(changed.keySet()));
+      log.warn("Failed to checkpoint leaderboards", e);
+      return;
+    }
+    log.debug(
+        "Checkpointed {} leaderboard scores",
+        changes.values().stream().mapToInt(Map::size).sum());
+  }
+
+  /** Checkpoint once more at shutdown so scores changed since the last checkpoint are kept */
+  @PreDestroy
+  public void checkpointOnShutdown() {
+    try {
+      checkpoint();
+    } catch (RuntimeException e) {
+      log.warn("Failed to checkpoint leaderboards at shutdown", e);
+    }
+  }
+
+  private void write(Board board, Map<Long, Double> changed) {
+    List<Long> removed = new ArrayList<>();
+    changed.forEach(
+        (bookId, logScore) -> {
+          if (logScore == null) {
+            removed.add(bookId);
+          } else {
+            scoreRepository.upsertScore(board.name(), bookId, logScore);
+          }
+        });
+    if (!removed.isEmpty()) {
+      scoreRepository.deleteScores(board.name(), removed);
+    }
+  }
+
+  /**
+   * Recompute the prior mean and every book's Bayesian average from the decayed rating boards,
+   * and rank them afresh. Between refreshes rating events only rescore their own book
+   */
+  @Scheduled(
+      initialDelayString = "${bookclub.leaderboards.top-rated-refresh-ms:60000}",
+      fixedDelayString = "${bookclub.leaderboards.top-rated-refresh-ms:60000}")
+  public void refreshTopRated() {
+    synchronized (topRatedLock) {
+      long now = System.currentTimeMillis();
+      Map<Long, Double> counts = boards.get(Board.RATING_COUNT).scores(now);
+      Map<Long, Double> sums = boards.get(Board.RATING_SUM).scores(now);
+      double totalCount = 0;
+      double totalSum = 0;
+      for (Map.Entry<Long, Double> count : counts.entrySet()) {
+        totalCount += count.getValue();
+        totalSum += sums.getOrDefault(count.getKey(), 0.0);
+      }
+      TopRated ranking = new TopRated(totalCount > 0 ? totalSum / totalCount : 0);
+      counts.forEach(
+          (bookId, count) ->
+              ranking.put(bookId, bayesianAverage(sums.getOrDefault(bookId, 0.0), count, ranking)));
+      topRated = ranking;
+    }
+  }
+
+  /** Move one book within the top-rated ranking after its ratings have changed */
+  private void rescoreTopRated(Long bookId, long nowMillis) {
+    synchronized (topRatedLock) {
+      TopRated ranking = topRated;
+      if (ranking == null) {
+        // Not read yet; the first read ranks every book from the boards
+        return;
+      }
+      double count = boards.get(Board.RATING_COUNT).score(bookId, nowMillis);
+      double sum = boards.get(Board.RATING_SUM).score(bookId, nowMillis);
+      ranking.put(bookId, count > 0 ? bayesianAverage(sum, count, ranking) : null);
+    }
+  }
+
+  private double bayesianAverage(double sum, double count, TopRated ranking) {
+    return (sum + topRatedPriorWeight * ranking.mean()) / (count + topRatedPriorWeight);
+  }
+
+  private List<LeaderboardEntryDto> entries(List<DecayingLeaderboard.Score> top) {
+    if (top.isEmpty()) {
+      return List.of();
+    }
+    Map<Long, BookDto> books =
+        bookRepository
+            .findByIdIn(top.stream().map(DecayingLeaderboard.Score::bookId).toList())
+            .stream()
+            .collect(Collectors.toMap(BookDto::id, Function.identity()));
+    // Keep the leaderboard's order, skipping books deleted since they were scored
+    List<LeaderboardEntryDto> entries = new ArrayList<>(top.size());
+    for (DecayingLeaderboard.Score score : top) {
+      BookDto book = books.get(score.bookId());
+      if (book != null) {
+        entries.add(new LeaderboardEntryDto(book, score.score()));
+      }
+    }
+    return entries;
+  }
+
+  private static int boundedLimit(int limit) {
+    return Math.max(1, Math.min(limit, MAX_LIMIT));
+  }
+
+  private void addRating(Long bookId, int rating, long atMillis) {
+    boards.get(Board.RATING_SUM).add(bookId, rating, atMillis);
+    boards.get(Board.RATING_COUNT).add(bookId, 1, atMillis);
+    rescoreTopRated(bookId, System.currentTimeMillis());
+  }
+
+  /** Take back a rating, given the time it was added */
+  private void removeRating(Long bookId, int rating, long atMillis) {
+    boards.get(Board.RATING_SUM).add(bookId, -rating, atMillis);
+    boards.get(Board.RATING_COUNT).add(bookId, -1, atMillis);
+    rescoreTopRated(bookId, System.currentTimeMillis());
+  }
+
+  /** A review without a recorded write time is treated as just written */
+  private static long toMillis(LocalDateTime time) {
+    if (time == null) {
+      return System.currentTimeMillis();
+    }
+    return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  /**
+   * Books ranked by Bayesian average rating against one prior mean, in a concurrent sorted set so
+   * the top can be read without sorting. Writes are made under the service's top-rated lock
+   */
+  private static final class TopRated {
+
+    private static final Comparator<DecayingLeaderboard.Score> RANKING =
+        Comparator.comparingDouble(DecayingLeaderboard.Score::score)
+            .reversed()
+            .thenComparingLong(DecayingLeaderboard.Score::bookId);
+
+    private final double mean;
+
+    private final Map<Long, DecayingLeaderboard.Score> scores = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListSet<DecayingLeaderboard.Score> ranking =
+        new ConcurrentSkipListSet<>(RANKING);
+
+    TopRated(double mean) {
+      this.mean = mean;
+    }
+
+    double mean() {
+      return mean;
+    }
+
+    /** Set a book's average, or drop the book if it is null */
+    void put(long bookId, Double average) {
+      DecayingLeaderboard.Score updated =
+          average == null ? null : new DecayingLeaderboard.Score(bookId, average);
+      DecayingLeaderboard.Score previous =
+          updated == null ? scores.remove(bookId) : scores.put(bookId, updated);
+      if (updated != null) {
+        ranking.add(updated);
+      }
+      if (previous != null && !previous.equals(updated)) {
+        ranking.remove(previous);
+      }
+    }
+
+    List<DecayingLeaderboard.Score> top(int limit) {
+      List<DecayingLeaderboard.Score> top = new ArrayList<>(limit);
+      // A book being rescored can briefly be seen at both its old and new rank
+      Set<Long> seen = new HashSet<>();
+      for (DecayingLeaderboard.Score score : ranking) {
+        if (top.size() >= limit) {
+          break;
+        }
+        if (seen.add(score.bookId())) {
+          top.add(score);
+        }
+      }
+      return top;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.entity.ReadingList;
+import com.ciaranmckenna.bookclub.entity.ReadingListChange;
+import com.ciaranmckenna.bookclub.repository.ReadingListChangeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Versions of reading lists and the log of changes to their books. Every change to a list a
+ * client could see moves it on to its next version; changes to its books are also logged under
+ * that version, so a client holding an older version can catch up by replaying them. Edits to the
+ * books themselves are neither versioned nor logged per list, since one book can be in any number
+ * of lists; they are found from the books' edit times instead.
+ *
+ * <p>Methods that take a reading list must be called with its row lock held (see {@link
+ * com.ciaranmckenna.bookclub.repository.ReadingListRepository#findAndLockById}) so two writers
+ * cannot claim the same version
+ */
+@Component
+public class ReadingListChangeLog {
+
+  @Autowired private ReadingListChangeRepository readingListChangeRepository;
+
+  /**
+   * Move a reading list on to its next version without logging a change to its books, as for an
+   * edit of its name or description
+   *
+   * @param readingList Locked reading list
+   * @return New version
+   */
+  public long listChanged(ReadingList readingList) {
+    long version = readingList.getVersion() + 1;
+    readingList.setVersion(version);
+    return version;
+  }
+
+  /**
+   * Log the books just appended to a reading list, in list order
+   *
+   * @param readingList Locked reading list
+   * @param afterPosition Last position of the list before the append
+   */
+  public void booksAppended(ReadingList readingList, long afterPosition) {
+    readingListChangeRepository.insertAppendedBooks(
+        readingList.getId(), listChanged(readingList), afterPosition);
+  }
+
+  /**
+   * Log a book added to or moved within a reading list at an index
+   *
+   * @param readingList Locked reading list
+   * @param bookId Book ID
+   * @param index Zero-based index the book was placed at
+   * @param added true if the book was added, false if it was moved
+   */
+  public void bookPlaced(ReadingList readingList, Long bookId, int index, boolean added) {
+    record(
+        readingList,
+        bookId,
+        added ? ReadingListChange.Type.ADDED : ReadingListChange.Type.MOVED,
+        index);
+  }
+
+  /**
+   * Log a book removed from a reading list
+   *
+   * @param readingList Locked reading list
+   * @param bookId Book ID
+   */
+  public void bookRemoved(ReadingList readingList, Long bookId) {
+    record(readingList, bookId, ReadingListChange.Type.REMOVED, null);
+  }
+
+  /**
+   * Forget the change log of a reading list that is being deleted
+   *
+   * @param readingListId Reading list ID
+   */
+  public void listDeleted(Long readingListId) {
+    readingListChangeRepository.deleteByReadingListId(readingListId);
+  }
+
+  private void record(
+      ReadingList readingList, Long bookId, ReadingListChange.Type type, Integer index) {
+    ReadingListChange change = new ReadingListChange();
+    change.setReadingListId(readingList.getId());
+    change.setVersion(listChanged(readingList));
+    change.setBookId(bookId);
+    change.setType(type);
+    change.setIndex(index);
+    readingListChangeRepository.save(change);
+  }
+}
@@ -0,0 +1,85 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.repository.ReadingListChangeRepository;
+import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Deletes reading list changes older than the retention period. Each list's pruned version is
+ * raised to the highest version deleted before its changes go, so a client whose copy is older
+ * than that is told to resync rather than handed an incomplete log. Lists are pruned in batches in
+ * ID order, each batch in its own short transaction
+ */
+@Component
+public class ReadingListChangePruner {
+
+  private static final Logger log = LoggerFactory.getLogger(ReadingListChangePruner.class);
+
+  private static final int BATCH_SIZE = 200;
+
+  @Autowired private ReadingListChangeRepository readingListChangeRepository;
+
+  @Autowired private ReadingListRepository readingListRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  @Value("${bookclub.reading-lists.change-retention:30d}")
+  private Duration retention;
+
+  /** Prune the change log of every reading list, one batch of lists at a time */
+  @Scheduled(
+      initialDelayString = "${bookclub.reading-lists.change-prune-delay-ms:86400000}",
+      fixedDelayString = "${bookclub.reading-lists.change-prune-delay-ms:86400000}")
+  public void prune() {
+    LocalDateTime before = LocalDateTime.now().minus(retention);
+    long lastReadingListId = 0L;
+    int pruned = 0;
+    List<ReadingListChangeRepository.PrunableLog> batch;
+    do {
+      batch =
+          readingListChangeRepository.findLogsCreatedBefore(
+              before, lastReadingListId, Limit.of(BATCH_SIZE));
+      if (batch.isEmpty()) {
+        break;
+      }
+      long from = lastReadingListId;
+      lastReadingListId = batch.get(batch.size() - 1).getReadingListId();
+      List<ReadingListChangeRepository.PrunableLog> logs = batch;
+      try {
+        pruned += transactionTemplate.execute(status -> prune(logs));
+      } catch (RuntimeException e) {
+        log.warn("Failed to prune the changes of reading lists after {}", from, e);
+      }
+    } while (batch.size() == BATCH_SIZE);
+    if (pruned > 0) {
+      log.info("Pruned {} reading list changes logged before {}", pruned, before);
+    }
+  }
+
+  /**
+   * Prune one batch of change logs
+   *
+   * @return Number of changes deleted
+   */
+  private int prune(List<ReadingListChangeRepository.PrunableLog> logs) {
+    int pruned = 0;
+    for (ReadingListChangeRepository.PrunableLog changeLog : logs) {
+      readingListRepository.raisePrunedVersion(
+          changeLog.getReadingListId(), changeLog.getVersion());
+      pruned +=
+          readingListChangeRepository.deleteUpToVersion(
+              changeLog.getReadingListId(), changeLog.getVersion());
+    }
+    return pruned;
+  }
+}
@@ -0,0 +1,176 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.common.AfterCommit;
+import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
+import jakarta.persistence.EntityNotFoundException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches of reading list membership, loaded from the join table with ID-only queries.
+ *
+ * <p>The per-user cache answers "which of this user's reading lists contain book X" with one hash
+ * lookup: each user's entry maps book IDs to the IDs of their lists holding the book.
+ *
+ * <p>The per-list cache, enabled with {@code bookclub.reading-lists.list-cache.enabled}, holds the
+ * book IDs of each list as a compressed bitmap so "is book X in list Y" never reaches the
+ * database. It is off by default because the indexed exists query is already cheap and the cache
+ * is local to one instance.
+ *
+ * <p>Entries are evicted after a membership change commits
+ */
+@Component
+public class ReadingListMembershipCache {
+
+  /** Users whose membership is kept; beyond this an arbitrary entry is dropped */
+  private static final int MAX_USERS = 10_000;
+
+  /** Lists whose book IDs are kept; beyond this an arbitrary entry is dropped */
+  private static final int MAX_LISTS = 1_000;
+
+  private static final long[] NO_LISTS = new long[0];
+
+  @Autowired private ReadingListRepository readingListRepository;
+
+  @Value("${bookclub.reading-lists.list-cache.enabled:false}")
+  private boolean listCacheEnabled;
+
+  private final Map<Long, Map<Long, long[]>> listsByBookByUser = new ConcurrentHashMap<>();
+
+  private final Map<Long, RoaringBitmap> booksByList = new ConcurrentHashMap<>();
+
+  /**
+   * Get the IDs of a user's reading lists that contain a book
+   *
+   * @param userId User ID
+   * @param bookId Book ID
+   * @return Reading list IDs, empty if none of the user's lists contain the book
+   */
+  public Set<Long> readingListsContaining(Long userId, Long bookId) {
+    long[] readingListIds = membership(userId).getOrDefault(bookId, NO_LISTS);
+    return Arrays.stream(readingListIds).boxed().collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * Whether membership checks for single lists should be answered by {@link #listContains}
+   *
+   * @return true if the per-list cache is enabled
+   */
+  public boolean cachesLists() {
+    return listCacheEnabled;
+  }
+
+  /**
+   * Check whether a reading list contains a book, loading the list's book IDs on first use. The
+   * bitmaps hold IDs as ints, so a book ID outside that range is checked in the join table instead
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @return true if the book is in the reading list
+   * @throws EntityNotFoundException if the reading list does not exist
+   */
+  public boolean listContains(Long readingListId, Long bookId) {
+    if (!fitsInBitmap(bookId)) {
+      return joinTableContains(readingListId, bookId);
+    }
+    RoaringBitmap bookIds = booksByList.get(readingListId);
+    if (bookIds == null) {
+      evictArbitraryEntryIfFull(booksByList, MAX_LISTS);
+      bookIds = booksByList.computeIfAbsent(readingListId, this::loadList);
+    }
+    return bookIds.contains(Math.toIntExact(bookId));
+  }
+
+  /**
+   * Drop a user's entry once the current transaction commits, so a concurrent read cannot cache
+   * the state from before the change
+   *
+   * @param userId ID of the user whose reading lists changed
+   */
+  public void evictAfterCommit(Long userId) {
+    AfterCommit.run(() -> listsByBookByUser.remove(userId));
+  }
+
+  /**
+   * Drop a reading list's book IDs once the current transaction commits
+   *
+   * @param readingListId ID of the reading list whose books changed
+   */
+  public void evictListAfterCommit(Long readingListId) {
+    AfterCommit.run(() -> booksByList.remove(readingListId));
+  }
+
+  /**
+   * Load a user's membership if it is not cached. The load runs inside computeIfAbsent, so an
+   * eviction for the same user waits for it and then removes what it loaded
+   */
+  private Map<Long, long[]> membership(Long userId) {
+    Map<Long, long[]> membership = listsByBookByUser.get(userId);
+    if (membership != null) {
+      return membership;
+    }
+    evictArbitraryEntryIfFull(listsByBookByUser, MAX_USERS);
+    return listsByBookByUser.computeIfAbsent(userId, this::load);
+  }
+
+  private Map<Long, long[]> load(Long userId) {
+    Map<Long, long[]> membership = new HashMap<>();
+    for (ReadingListRepository.ReadingListBookLink link :
+        readingListRepository.findBookLinksByUserId(userId)) {
+      long[] readingListIds = membership.getOrDefault(link.getBookId(), NO_LISTS);
+      long[] grown = Arrays.copyOf(readingListIds, readingListIds.length + 1);
+      grown[readingListIds.length] = link.getReadingListId();
+      membership.put(link.getBookId(), grown);
+    }
+    return membership;
+  }
+
+  private RoaringBitmap loadList(Long readingListId) {
+    List<Long> bookIds = readingListRepository.findBookIdsByReadingListId(readingListId);
+    if (bookIds.isEmpty() && !readingListRepository.existsById(readingListId)) {
+      throw new EntityNotFoundException("Reading list not found with id: " + readingListId);
+    }
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (Long bookId : bookIds) {
+      // IDs that do not fit are never looked up in the bitmap
+      if (fitsInBitmap(bookId)) {
+        bitmap.add(bookId.intValue());
+      }
+    }
+    bitmap.runOptimize();
+    return bitmap;
+  }
+
+  private boolean joinTableContains(Long readingListId, Long bookId) {
+    if (readingListRepository.countEntries(readingListId, bookId) > 0) {
+      return true;
+    }
+    if (!readingListRepository.existsById(readingListId)) {
+      throw new EntityNotFoundException("Reading list not found with id: " + readingListId);
+    }
+    return false;
+  }
+
+  private static boolean fitsInBitmap(long bookId) {
+    return bookId >= 0 && bookId <= Integer.MAX_VALUE;
+  }
+
+  private static void evictArbitraryEntryIfFull(Map<Long, ?> cache, int maxEntries) {
+    if (cache.size() >= maxEntries) {
+      Iterator<Long> keys = cache.keySet().iterator();
+      if (keys.hasNext()) {
+        cache.remove(keys.next());
+      }
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.entity.ReadingListEntry;
+import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Positions of books within reading lists. A book placed between two others gets the midpoint of
+ * their positions, so moving or inserting a book writes one row. Repeated inserts into the same
+ * slot halve the gap each time; once a gap falls below {@link #MIN_GAP} the list is queued and a
+ * background job respaces its positions, and a list whose gap is used up entirely is respaced on
+ * the spot.
+ *
+ * <p>Callers must hold the reading list's row lock (see {@link
+ * ReadingListRepository#findAndLockById}) so two moves in the same list cannot pick the same
+ * midpoint
+ */
+@Component
+public class ReadingListPositions {
+
+  private static final Logger log = LoggerFactory.getLogger(ReadingListPositions.class);
+
+  /** Gap below which a list is queued for renumbering */
+  private static final long MIN_GAP = 64;
+
+  @Autowired private ReadingListRepository readingListRepository;
+
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private final Set<Long> crowdedLists = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Add books to the end of a reading list, in the order given. Books already in the list keep
+   * their place
+   *
+   * @param readingListId Reading list ID
+   * @param bookIds IDs of existing books
+   * @return Number of books actually added
+   */
+  public int append(Long readingListId, Collection<Long> bookIds) {
+    long last = readingListRepository.findLastPosition(readingListId);
+    return readingListRepository.insertBooksIgnoringDuplicates(
+        readingListId, bookIds, last, ReadingListEntry.POSITION_GAP);
+  }
+
+  /**
+   * Put a book at an index of a reading list, moving it if it is already in the list and adding
+   * it otherwise
+   *
+   * @param readingListId Reading list ID
+   * @param bookId ID of an existing book
+   * @param index Zero-based index the book should end up at; past the end means last
+   * @return true if the book was added, false if it was moved
+   */
+  public boolean place(Long readingListId, Long bookId, int index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Index cannot be negative");
+    }
+    long position = positionForIndex(readingListId, bookId, index);
+    if (readingListRepository.updateEntryPosition(readingListId, bookId, position) > 0) {
+      return false;
+    }
+    return readingListRepository.insertEntry(readingListId, bookId, position) > 0;
+  }
+
+  /**
+   * Respace the positions of the lists queued as crowded. Each list is renumbered in its own
+   * transaction under its row lock
+   */
+  @Scheduled(fixedDelayString = "${bookclub.reading-lists.renumber-delay-ms:60000}")
+  public void renumberCrowdedLists() {
+    for (Long readingListId : List.copyOf(crowdedLists)) {
+      crowdedLists.remove(readingListId);
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> {
+              if (readingListRepository.findAndLockById(readingListId).isPresent()) {
+                readingListRepository.renumberPositions(
+                    readingListId, ReadingListEntry.POSITION_GAP);
+              }
+            });
+      } catch (RuntimeException e) {
+        log.warn("Failed to renumber reading list {}; will retry", readingListId, e);
+        crowdedLists.add(readingListId);
+      }
+    }
+  }
+
+  /**
+   * Position that puts a book at an index, among the other books of the list. Respaces the list
+   * first if the two neighbours of that index have no room between them
+   */
+  private long positionForIndex(Long readingListId, Long bookId, int index) {
+    List<Long> neighbours =
+        readingListRepository.findNeighbourPositions(
+            readingListId, bookId, Math.max(index - 1, 0));
+    if (neighbours.isEmpty()) {
+      // Empty list, or an index past the end
+      long last = readingListRepository.findLastPosition(readingListId);
+      return last + ReadingListEntry.POSITION_GAP;
+    }
+    if (index == 0) {
+      return neighbours.get(0) - ReadingListEntry.POSITION_GAP;
+    }
+    if (neighbours.size() == 1) {
+      return neighbours.get(0) + ReadingListEntry.POSITION_GAP;
+    }
+
+    long before = neighbours.get(0);
+    long after = neighbours.get(1);
+    long gap = after - before;
+    if (gap < 2) {
+      readingListRepository.renumberPositions(readingListId, ReadingListEntry.POSITION_GAP);
+      crowdedLists.remove(readingListId);
+      return positionForIndex(readingListId, bookId, index);
+    }
+    if (gap / 2 < MIN_GAP) {
+      crowdedLists.add(readingListId);
+    }
+    return before + gap / 2;
+  }
+}
@@ -1,23 +1,54 @@
 package com.ciaranmckenna.bookclub.service.impl;
 
+import com.ciaranmckenna.bookclub.common.ApproximateCountCache;
+import com.ciaranmckenna.bookclub.common.ExportFormat;
+import com.ciaranmckenna.bookclub.common.ExportWriter;
 import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListChangeDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListChangesDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListCreateDto;
 import com.ciaranmckenna.bookclub.dto.ReadingListDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
 import com.ciaranmckenna.bookclub.entity.Book;
 import com.ciaranmckenna.bookclub.entity.ReadingList;
+import com.ciaranmckenna.bookclub.entity.ReadingListChange;
 import com.ciaranmckenna.bookclub.entity.User;
 import com.ciaranmckenna.bookclub.repository.BookRepository;
+import com.ciaranmckenna.bookclub.repository.ReadingListChangeRepository;
 import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
 import com.ciaranmckenna.bookclub.repository.UserRepository;
+import com.ciaranmckenna.bookclub.service.LeaderboardService;
 import com.ciaranmckenna.bookclub.service.ReadingListService;
 import jakarta.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,12 +56,45 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class ReadingListServiceImpl implements ReadingListService {
 
+  /** Maximum number of IDs bound into one IN list */
+  private static final int ID_BATCH_SIZE = 1000;
+
+  /** Most changes returned by one sync; a client further behind is told to fetch the list */
+  private static final int MAX_SYNC_CHANGES = 1000;
+
+  /**
+   * How far before the client's latest book edit time edits are reported again. An edit is
+   * stamped before it commits, so one can become visible after a later-stamped edit was synced
+   */
+  private static final Duration BOOK_EDIT_OVERLAP = Duration.ofSeconds(30);
+
+  /** Columns of a reading list export */
+  private static final List<String> EXPORT_COLUMNS =
+      List.of("id", "name", "description", "createdAt", "userId", "username", "bookCount");
+
+  /** Columns of a reading list entry export */
+  private static final List<String> ENTRY_EXPORT_COLUMNS = List.of("readingListId", "bookId");
+
   @Autowired private ReadingListRepository readingListRepository;
 
   @Autowired private UserRepository userRepository;
 
   @Autowired private BookRepository bookRepository;
 
+  @Autowired private ApproximateCountCache approximateCountCache;
+
+  @Autowired private ReadingListMembershipCache membershipCache;
+
+  @Autowired private ReadingListPositions readingListPositions;
+
+  @Autowired private ReadingListChangeLog readingListChangeLog;
+
+  @Autowired private ReadingListChangeRepository readingListChangeRepository;
+
+  @Autowired private LeaderboardService leaderboardService;
+
+  @Autowired private CacheManager cacheManager;
+
   /**
    * Create a new reading list for a user
    *
@@ -58,6 +122,7 @@ public class ReadingListServiceImpl implements ReadingListService {
 
     // Save reading list
     ReadingList savedReadingList = readingListRepository.save(readingList);
+    readingListsChanged(userId);
 
     // Convert to DTO and return
     return convertToDto(savedReadingList);
@@ -71,13 +136,150 @@ public class ReadingListServiceImpl implements ReadingListService {
    * @throws EntityNotFoundException if reading list not found
    */
   @Override
+  @Transactional(readOnly = true)
   public ReadingListDto getReadingListById(Long id) {
     ReadingList readingList =
         readingListRepository
-            .findWithBooksById(id)
+            .findById(id)
+            .orElseThrow(
+                () -> new EntityNotFoundException("Reading list not found with id: " + id));
+    return withBooks(List.of(readingList)).apply(readingList);
+  }
+
+  /**
+   * Get a reading list's summary in one query, counting its books without loading them
+   *
+   * @param id Reading list ID
+   * @return Summary of the reading list
+   * @throws EntityNotFoundException if reading list not found
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public ReadingListSummaryDto getReadingListSummary(Long id) {
+    return readingListRepository
+        .findSummaryById(id)
+        .orElseThrow(() -> new EntityNotFoundException("Reading list not found with id: " + id));
+  }
+
+  /**
+   * Get the entity tag of a reading list without loading its books, from its version, the latest
+   * edit time of its books and a hash of its owner's username. Book edits therefore change the
+   * tag of every list holding the book without writing to any of those lists
+   *
+   * @param id Reading list ID
+   * @return Current entity tag of the reading list
+   * @throws EntityNotFoundException if reading list not found
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public String getReadingListETag(Long id) {
+    ReadingListRepository.ReadingListSyncState state =
+        readingListRepository
+            .findSyncStateById(id)
+            .orElseThrow(
+                () -> new EntityNotFoundException("Reading list not found with id: " + id));
+    LocalDateTime booksUpdatedAt = state.getBooksUpdatedAt();
+    long booksUpdatedMillis =
+        booksUpdatedAt == null ? 0 : booksUpdatedAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+    return state.getVersion()
+        + "-"
+        + booksUpdatedMillis
+        + "-"
+        + Integer.toHexString(state.getUsername().hashCode());
+  }
+
+  /**
+   * Get the changes to a reading list's books since a version, read from the change log, followed
+   * by the books in the list edited since a time, read from the books' edit times. Only the books
+   * added or edited since then are loaded, in one query each. The reads share one transaction, so
+   * the latest book edit time returned covers exactly the edits reported
+   *
+   * @param id Reading list ID
+   * @param sinceVersion Version the client already has
+   * @param booksUpdatedSince Latest book edit time the client has seen, or null to leave book
+   *     edits out
+   * @return Changes since then, or a request to resync if the client is too far behind, its
+   *     version is unknown or the changes after it have been pruned
+   * @throws EntityNotFoundException if reading list not found
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public ReadingListChangesDto getReadingListChanges(
+      Long id, long sinceVersion, LocalDateTime booksUpdatedSince) {
+    ReadingList readingList =
+        readingListRepository
+            .findById(id)
             .orElseThrow(
                 () -> new EntityNotFoundException("Reading list not found with id: " + id));
-    return convertToDto(readingList);
+
+    boolean resyncRequired =
+        sinceVersion < readingList.getPrunedVersion()
+            || sinceVersion < 0
+            || sinceVersion > readingList.getVersion();
+    List<ReadingListChange> changes = List.of();
+    List<BookDto> updatedBooks = List.of();
+    if (!resyncRequired) {
+      changes =
+          readingListChangeRepository
+              .findByReadingListIdAndVersionGreaterThanOrderByVersionAscIdAsc(
+                  id, sinceVersion, Limit.of(MAX_SYNC_CHANGES + 1));
+      if (booksUpdatedSince != null) {
+        updatedBooks =
+            bookRepository.findBooksOfReadingListUpdatedAfter(
+                id, booksUpdatedSince.minus(BOOK_EDIT_OVERLAP), Limit.of(MAX_SYNC_CHANGES + 1));
+      }
+      resyncRequired = changes.size() + updatedBooks.size() > MAX_SYNC_CHANGES;
+    }
+    if (resyncRequired) {
+      changes = List.of();
+      updatedBooks = List.of();
+    }
+    LocalDateTime booksUpdatedAt =
+        readingListRepository
+            .findSyncStateById(id)
+            .map(ReadingListRepository.ReadingListSyncState::getBooksUpdatedAt)
+            .orElse(null);
+
+    Set<Long> changedBookIds =
+        changes.stream()
+            .filter(change -> change.getType() != ReadingListChange.Type.REMOVED)
+            .map(ReadingListChange::getBookId)
+            .collect(Collectors.toSet());
+    Map<Long, BookDto> books =
+        changedBookIds.isEmpty()
+            ? Map.of()
+            : bookRepository.findByIdIn(changedBookIds).stream()
+                .collect(Collectors.toMap(BookDto::id, Function.identity()));
+
+    return new ReadingListChangesDto(
+        readingList.getId(),
+        readingList.getName(),
+        readingList.getDescription(),
+        readingList.getVersion(),
+        booksUpdatedAt,
+        resyncRequired,
+        Stream.concat(
+                changes.stream()
+                    .map(
+                        change ->
+                            new ReadingListChangeDto(
+                                change.getVersion(),
+                                change.getType().name(),
+                                change.getBookId(),
+                                change.getIndex(),
+                                change.getType() == ReadingListChange.Type.REMOVED
+                                    ? null
+                                    : books.get(change.getBookId()))),
+                updatedBooks.stream()
+                    .map(
+                        book ->
+                            new ReadingListChangeDto(
+                                readingList.getVersion(),
+                                ReadingListChange.Type.UPDATED.name(),
+                                book.id(),
+                                null,
+                                book)))
+            .toList());
   }
 
   /**
@@ -94,15 +296,13 @@ public class ReadingListServiceImpl implements ReadingListService {
     // Validate the DTO
     createDto.validateForProcessing();
 
-    ReadingList readingList =
-        readingListRepository
-            .findById(id)
-            .orElseThrow(
-                () -> new EntityNotFoundException("Reading list not found with id: " + id));
+    ReadingList readingList = lockReadingList(id);
 
     // Update reading list fields
     readingList.setName(createDto.name());
     readingList.setDescription(createDto.description());
+    readingListChangeLog.listChanged(readingList);
+    readingListsChanged(readingList.getUser().getId());
 
     // Save updated reading list
     ReadingList updatedReadingList = readingListRepository.save(readingList);
@@ -120,10 +320,14 @@ public class ReadingListServiceImpl implements ReadingListService {
   @Override
   @Transactional
   public void deleteReadingList(Long id) {
-    if (!readingListRepository.existsById(id)) {
-      throw new EntityNotFoundException("Reading list not found with id: " + id);
-    }
-    readingListRepository.deleteById(id);
+    ReadingList readingList =
+        readingListRepository
+            .findById(id)
+            .orElseThrow(
+                () -> new EntityNotFoundException("Reading list not found with id: " + id));
+    readingListRepository.delete(readingList);
+    readingListChangeLog.listDeleted(id);
+    readingListBooksChanged(readingList);
   }
 
   /**
@@ -131,22 +335,39 @@ public class ReadingListServiceImpl implements ReadingListService {
    *
    * @param userId User ID
    * @param pageable Pagination information
-   * @return Page of reading lists
+   * @return Page of reading list summaries
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Page<ReadingListSummaryDto> getReadingListsByUserId(Long userId, Pageable pageable) {
+    Page<ReadingList> readingLists = readingListRepository.findByUserId(userId, pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
+  }
+
+  /**
+   * Get summaries of a user's reading lists
+   *
+   * @param userId User ID
+   * @return Reading list summaries ordered by name
    */
   @Override
-  public Page<ReadingListDto> getReadingListsByUserId(Long userId, Pageable pageable) {
-    return readingListRepository.findByUserId(userId, pageable).map(this::convertToDto);
+  @Transactional(readOnly = true)
+  @Cacheable(value = "readingListSummaries", key = "#userId")
+  public List<ReadingListSummaryDto> getReadingListSummaries(Long userId) {
+    return readingListRepository.findSummariesByUserId(userId);
   }
 
   /**
    * Get all reading lists
    *
    * @param pageable Pagination information
-   * @return Page of reading lists
+   * @return Page of reading list summaries
    */
   @Override
-  public Page<ReadingListDto> getAllReadingLists(Pageable pageable) {
-    return readingListRepository.findAll(pageable).map(this::convertToDto);
+  @Transactional(readOnly = true)
+  public Page<ReadingListSummaryDto> getAllReadingLists(Pageable pageable) {
+    Page<ReadingList> readingLists = readingListRepository.findAll(pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
   }
 
   /**
@@ -154,13 +375,14 @@ public class ReadingListServiceImpl implements ReadingListService {
    *
    * @param name Name to search for
    * @param pageable Pagination information
-   * @return Page of reading lists matching the name
+   * @return Page of reading list summaries matching the name
    */
   @Override
-  public Page<ReadingListDto> searchReadingListsByName(String name, Pageable pageable) {
-    return readingListRepository
-        .findByNameContainingIgnoreCase(name, pageable)
-        .map(this::convertToDto);
+  @Transactional(readOnly = true)
+  public Page<ReadingListSummaryDto> searchReadingListsByName(String name, Pageable pageable) {
+    Page<ReadingList> readingLists =
+        readingListRepository.findByNameContainingIgnoreCase(name, pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
   }
 
   /**
@@ -169,82 +391,159 @@ public class ReadingListServiceImpl implements ReadingListService {
    * @param name Name to search for
    * @param userId User ID
    * @param pageable Pagination information
-   * @return Page of reading lists matching the name for the user
+   * @return Page of reading list summaries matching the name for the user
    */
   @Override
-  public Page<ReadingListDto> searchReadingListsByNameAndUserId(
+  @Transactional(readOnly = true)
+  public Page<ReadingListSummaryDto> searchReadingListsByNameAndUserId(
       String name, Long userId, Pageable pageable) {
-    return readingListRepository
-        .findByNameContainingIgnoreCaseAndUserId(name, userId, pageable)
-        .map(this::convertToDto);
+    Page<ReadingList> readingLists =
+        readingListRepository.findByNameContainingIgnoreCaseAndUserId(name, userId, pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<ReadingListSummaryDto> getReadingListsByUserIdSlice(Long userId, Pageable pageable) {
+    Slice<ReadingList> readingLists = readingListRepository.findSliceByUserId(userId, pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<ReadingListSummaryDto> getAllReadingListsSlice(Pageable pageable) {
+    Slice<ReadingList> readingLists = readingListRepository.findSliceBy(pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<ReadingListSummaryDto> searchReadingListsByNameSlice(
+      String name, Pageable pageable) {
+    Slice<ReadingList> readingLists =
+        readingListRepository.findSliceByNameContainingIgnoreCase(name, pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public Slice<ReadingListSummaryDto> searchReadingListsByNameAndUserIdSlice(
+      String name, Long userId, Pageable pageable) {
+    Slice<ReadingList> readingLists =
+        readingListRepository.findSliceByNameContainingIgnoreCaseAndUserId(name, userId, pageable);
+    return readingLists.map(withBookCounts(readingLists.getContent()));
+  }
+
+  /**
+   * Get a page of the books in a reading list, read straight into DTOs
+   *
+   * @param readingListId Reading list ID
+   * @param pageable Pagination and sorting information
+   * @return Page of books in the reading list
+   * @throws EntityNotFoundException if reading list not found
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public Page<BookDto> getBooksInReadingList(Long readingListId, Pageable pageable) {
+    if (!readingListRepository.existsById(readingListId)) {
+      throw new EntityNotFoundException("Reading list not found with id: " + readingListId);
+    }
+    return bookRepository.findBooksByReadingListId(readingListId, pageable);
+  }
+
+  @Override
+  public long getApproximateReadingListCount() {
+    return approximateCountCache.get("readingLists", readingListRepository::count);
   }
 
   /**
-   * Add a book to a reading list
+   * Add a book to the end of a reading list. Only the new join table row is written, and the
+   * summary returned counts the list's books without loading them
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
-   * @return Updated reading list
+   * @return Summary of the updated reading list
    * @throws EntityNotFoundException if reading list or book not found
    */
   @Override
   @Transactional
-  public ReadingListDto addBookToReadingList(Long readingListId, Long bookId) {
-    ReadingList readingList =
-        readingListRepository
-            .findById(readingListId)
-            .orElseThrow(
-                () ->
-                    new EntityNotFoundException(
-                        "Reading list not found with id: " + readingListId));
-
-    Book book =
-        bookRepository
-            .findById(bookId)
-            .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + bookId));
-
-    // Add book to reading list
-    readingList.addBook(book);
-
-    // Save updated reading list
-    ReadingList updatedReadingList = readingListRepository.save(readingList);
-
-    // Convert to DTO and return
-    return convertToDto(updatedReadingList);
+  public ReadingListSummaryDto addBookToReadingList(Long readingListId, Long bookId) {
+    ReadingList readingList = lockReadingList(readingListId);
+    requireBook(bookId);
+
+    long lastPosition = readingListRepository.findLastPosition(readingListId);
+    if (readingListPositions.append(readingListId, List.of(bookId)) > 0) {
+      readingListChangeLog.booksAppended(readingList, lastPosition);
+      readingListBooksChanged(readingList);
+      leaderboardService.booksAddedToReadingList(List.of(bookId));
+    }
+    return getReadingListSummary(readingListId);
   }
 
   /**
-   * Remove a book from a reading list
+   * Add a book to a reading list at an index, or move it there if it is already in the list
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
-   * @return Updated reading list
+   * @param index Zero-based index; past the end means last
+   * @return Summary of the updated reading list
    * @throws EntityNotFoundException if reading list or book not found
    */
   @Override
   @Transactional
-  public ReadingListDto removeBookFromReadingList(Long readingListId, Long bookId) {
-    ReadingList readingList =
-        readingListRepository
-            .findById(readingListId)
-            .orElseThrow(
-                () ->
-                    new EntityNotFoundException(
-                        "Reading list not found with id: " + readingListId));
-
-    Book book =
-        bookRepository
-            .findById(bookId)
-            .orElseThrow(() -> new EntityNotFoundException("Book not found with id: " + bookId));
+  public ReadingListSummaryDto addBookToReadingListAt(Long readingListId, Long bookId, int index) {
+    ReadingList readingList = lockReadingList(readingListId);
+    requireBook(bookId);
+
+    boolean added = readingListPositions.place(readingListId, bookId, index);
+    readingListChangeLog.bookPlaced(readingList, bookId, index, added);
+    if (added) {
+      readingListBooksChanged(readingList);
+      leaderboardService.booksAddedToReadingList(List.of(bookId));
+    }
+    return getReadingListSummary(readingListId);
+  }
 
-    // Remove book from reading list
-    readingList.removeBook(book);
+  /**
+   * Move a book to an index within a reading list. The move writes the book's own row only
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @param index Zero-based index; past the end means last
+   * @throws EntityNotFoundException if reading list not found or the book is not in it
+   */
+  @Override
+  @Transactional
+  public void moveBookInReadingList(Long readingListId, Long bookId, int index) {
+    ReadingList readingList = lockReadingList(readingListId);
+    if (readingListRepository.countEntries(readingListId, bookId) == 0) {
+      throw new EntityNotFoundException(
+          "Book " + bookId + " is not in reading list " + readingListId);
+    }
+    readingListPositions.place(readingListId, bookId, index);
+    readingListChangeLog.bookPlaced(readingList, bookId, index, false);
+  }
 
-    // Save updated reading list
-    ReadingList updatedReadingList = readingListRepository.save(readingList);
+  /**
+   * Remove a book from a reading list. Only the book's join table row is deleted, and the list's
+   * books are not loaded
+   *
+   * @param readingListId Reading list ID
+   * @param bookId Book ID
+   * @return Summary of the updated reading list
+   * @throws EntityNotFoundException if reading list or book not found
+   */
+  @Override
+  @Transactional
+  public ReadingListSummaryDto removeBookFromReadingList(Long readingListId, Long bookId) {
+    ReadingList readingList = lockReadingList(readingListId);
+    requireBook(bookId);
 
-    // Convert to DTO and return
-    return convertToDto(updatedReadingList);
+    if (readingListRepository.deleteEntry(readingListId, bookId) > 0) {
+      readingListChangeLog.bookRemoved(readingList, bookId);
+      readingListBooksChanged(readingList);
+    }
+    return getReadingListSummary(readingListId);
   }
 
   /**
@@ -254,30 +553,48 @@ public class ReadingListServiceImpl implements ReadingListService {
    * @return List of reading lists containing the book
    */
   @Override
+  @Transactional(readOnly = true)
   public List<ReadingListDto> findReadingListsByBookId(Long bookId) {
-    return readingListRepository.findReadingListsByBookId(bookId).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    List<ReadingList> readingLists = readingListRepository.findReadingListsByBookId(bookId);
+    return readingLists.stream().map(withBooks(readingLists)).collect(Collectors.toList());
+  }
+
+  /**
+   * Find which of a user's reading lists contain a book. Answered from the user's cached
+   * membership without loading any reading list or book
+   *
+   * @param userId User ID
+   * @param bookId Book ID
+   * @return IDs of the user's reading lists containing the book
+   */
+  @Override
+  public Set<Long> findReadingListIdsContainingBook(Long userId, Long bookId) {
+    return membershipCache.readingListsContaining(userId, bookId);
   }
 
   /**
-   * Check if a book is already in a reading list
+   * Check if a book is already in a reading list. Answered from the per-list cache when it is
+   * enabled, otherwise by an exists query on the join table's primary key; the list's books are
+   * never loaded
    *
    * @param readingListId Reading list ID
    * @param bookId Book ID
    * @return true if the book is in the reading list, false otherwise
+   * @throws EntityNotFoundException if reading list not found
    */
   @Override
+  @Transactional(readOnly = true)
   public boolean isBookInReadingList(Long readingListId, Long bookId) {
-    ReadingList readingList =
-        readingListRepository
-            .findWithBooksById(readingListId)
-            .orElseThrow(
-                () ->
-                    new EntityNotFoundException(
-                        "Reading list not found with id: " + readingListId));
-
-    return readingList.getBooks().stream().anyMatch(book -> book.getId().equals(bookId));
+    if (membershipCache.cachesLists()) {
+      return membershipCache.listContains(readingListId, bookId);
+    }
+    if (readingListRepository.countEntries(readingListId, bookId) > 0) {
+      return true;
+    }
+    if (!readingListRepository.existsById(readingListId)) {
+      throw new EntityNotFoundException("Reading list not found with id: " + readingListId);
+    }
+    return false;
   }
 
   /**
@@ -291,37 +608,230 @@ public class ReadingListServiceImpl implements ReadingListService {
   @Override
   @Transactional
   public ReadingListDto addBooksToReadingList(Long readingListId, List<Long> bookIds) {
-    ReadingList readingList =
-        readingListRepository
-            .findById(readingListId)
-            .orElseThrow(
-                () ->
-                    new EntityNotFoundException(
-                        "Reading list not found with id: " + readingListId));
+    addBookIdsToReadingList(readingListId, bookIds);
+    return getReadingListById(readingListId);
+  }
+
+  /**
+   * Add books to the end of a reading list by ID, in the order given. Existence is checked with
+   * ID-only queries and the join rows are written with INSERT IGNORE, one statement per batch of
+   * IDs, so neither the list's books nor the books themselves are loaded and duplicates cost
+   * nothing
+   *
+   * @param readingListId Reading list ID
+   * @param bookIds IDs of the books to add
+   * @return Number of books actually added
+   * @throws EntityNotFoundException if reading list or any book not found
+   */
+  @Override
+  @Transactional
+  public int addBookIdsToReadingList(Long readingListId, Collection<Long> bookIds) {
+    ReadingList readingList = lockReadingList(readingListId);
 
-    // Find all books
-    List<Book> books = bookRepository.findAllById(bookIds);
+    List<Long> distinctBookIds = new ArrayList<>(new LinkedHashSet<>(bookIds));
 
-    // Check if all books were found
-    if (books.size() != bookIds.size()) {
-      List<Long> foundBookIds = books.stream().map(Book::getId).toList();
+    // Check that every book exists before writing anything
+    Set<Long> foundBookIds = new HashSet<>();
+    for (List<Long> batch : batches(distinctBookIds)) {
+      foundBookIds.addAll(bookRepository.findExistingIds(batch));
+    }
+    if (foundBookIds.size() != distinctBookIds.size()) {
       List<Long> missingBookIds =
-          bookIds.stream().filter(id -> !foundBookIds.contains(id)).toList();
+          distinctBookIds.stream().filter(id -> !foundBookIds.contains(id)).toList();
       throw new EntityNotFoundException("Books not found with ids: " + missingBookIds);
     }
 
-    // Add each book to the reading list
-    for (Book book : books) {
-      if (!readingList.getBooks().contains(book)) {
-        readingList.addBook(book);
+    long lastPosition = readingListRepository.findLastPosition(readingListId);
+    int added = 0;
+    for (List<Long> batch : batches(distinctBookIds)) {
+      added += readingListPositions.append(readingListId, batch);
+    }
+    if (added > 0) {
+      readingListChangeLog.booksAppended(readingList, lastPosition);
+      readingListBooksChanged(readingList);
+      leaderboardService.booksAddedToReadingList(
+          readingListRepository.findBookIdsAfterPosition(readingListId, lastPosition));
+    }
+    return added;
+  }
+
+  /**
+   * Clone a reading list once for each of several users. The copies' rows are inserted one per
+   * user, since their generated IDs are needed; their books are then copied for all of them by
+   * one INSERT ... SELECT per batch of copies, so no book is loaded however long the list is. The
+   * source list is locked so every copy gets the same books. The copied books are not written to
+   * the change log, so each copy starts at version 1 with the versions before it marked as pruned,
+   * and a client syncing from version 0 is told to resync
+   *
+   * @param readingListId ID of the reading list to clone
+   * @param userIds IDs of the users who get a copy
+   * @return Summaries of the copies, in the order of the user IDs
+   * @throws EntityNotFoundException if reading list or any user not found
+   */
+  @Override
+  @Transactional
+  public List<ReadingListSummaryDto> cloneReadingList(
+      Long readingListId, Collection<Long> userIds) {
+    ReadingList source = lockReadingList(readingListId);
+    if (userIds.isEmpty()) {
+      return List.of();
+    }
+
+    List<Long> distinctUserIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+    Map<Long, User> users =
+        userRepository.findAllById(distinctUserIds).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+    if (users.size() != distinctUserIds.size()) {
+      List<Long> missingUserIds =
+          distinctUserIds.stream().filter(id -> !users.containsKey(id)).toList();
+      throw new EntityNotFoundException("Users not found with ids: " + missingUserIds);
+    }
+
+    List<ReadingList> copies = new ArrayList<>();
+    for (Long userId : distinctUserIds) {
+      ReadingList copy = new ReadingList();
+      copy.setName(source.getName());
+      copy.setDescription(source.getDescription());
+      copy.setUser(users.get(userId));
+      copy.setVersion(1);
+      copy.setPrunedVersion(1);
+      copies.add(copy);
+    }
+    readingListRepository.saveAll(copies);
+
+    long copied = 0;
+    for (List<Long> batch : batches(copies.stream().map(ReadingList::getId).toList())) {
+      copied += readingListRepository.copyEntries(readingListId, batch);
+    }
+    long bookCount = copied / copies.size();
+
+    distinctUserIds.forEach(this::readingListsChanged);
+    return copies.stream()
+        .map(
+            copy ->
+                new ReadingListSummaryDto(
+                    copy.getId(),
+                    copy.getName(),
+                    copy.getDescription(),
+                    copy.getCreatedAt(),
+                    copy.getUser().getId(),
+                    copy.getUser().getUsername(),
+                    bookCount))
+        .toList();
+  }
+
+  /**
+   * Write a summary of every reading list to a stream. Rows come from a forward-only result set
+   * and are written as they arrive, so memory use does not grow with the number of lists
+   *
+   * @param format Export format
+   * @param out Stream to write to; left open
+   * @throws IOException if writing fails
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void exportReadingLists(ExportFormat format, OutputStream out) throws IOException {
+    try (Stream<ReadingListSummaryDto> summaries = readingListRepository.streamAllSummaries();
+        ExportWriter writer = new ExportWriter(format, EXPORT_COLUMNS, out)) {
+      for (Iterator<ReadingListSummaryDto> rows = summaries.iterator(); rows.hasNext(); ) {
+        ReadingListSummaryDto summary = rows.next();
+        writer.writeRow(
+            Arrays.asList(
+                summary.id(),
+                summary.name(),
+                summary.description(),
+                summary.createdAt(),
+                summary.userId(),
+                summary.username(),
+                summary.bookCount()));
+      }
+    }
+  }
+
+  /**
+   * Write every (reading list, book) pair to a stream as it is read from the join table
+   *
+   * @param format Export format
+   * @param out Stream to write to; left open
+   * @throws IOException if writing fails
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public void exportReadingListEntries(ExportFormat format, OutputStream out) throws IOException {
+    try (Stream<ReadingListRepository.ReadingListBookLink> links =
+            readingListRepository.streamAllBookLinks();
+        ExportWriter writer = new ExportWriter(format, ENTRY_EXPORT_COLUMNS, out)) {
+      for (Iterator<ReadingListRepository.ReadingListBookLink> rows = links.iterator();
+          rows.hasNext(); ) {
+        ReadingListRepository.ReadingListBookLink link = rows.next();
+        writer.writeRow(List.of(link.getReadingListId(), link.getBookId()));
       }
     }
+  }
 
-    // Save updated reading list
-    ReadingList updatedReadingList = readingListRepository.save(readingList);
+  /**
+   * Load a reading list and lock its row until the transaction ends
+   *
+   * @param readingListId Reading list ID
+   * @return Reading list
+   * @throws EntityNotFoundException if reading list not found
+   */
+  private ReadingList lockReadingList(Long readingListId) {
+    return readingListRepository
+        .findAndLockById(readingListId)
+        .orElseThrow(
+            () -> new EntityNotFoundException("Reading list not found with id: " + readingListId));
+  }
 
-    // Convert to DTO and return
-    return convertToDto(updatedReadingList);
+  /**
+   * Check that a book exists
+   *
+   * @param bookId Book ID
+   * @throws EntityNotFoundException if book not found
+   */
+  private void requireBook(Long bookId) {
+    if (!bookRepository.existsById(bookId)) {
+      throw new EntityNotFoundException("Book not found with id: " + bookId);
+    }
+  }
+
+  /**
+   * Split IDs into batches small enough for one IN list
+   *
+   * @param ids IDs to split
+   * @return Consecutive sublists of at most {@link #ID_BATCH_SIZE} IDs
+   */
+  private static List<List<Long>> batches(List<Long> ids) {
+    List<List<Long>> batches = new ArrayList<>();
+    for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+      batches.add(ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size())));
+    }
+    return batches;
+  }
+
+  /**
+   * Clear a user's cached reading list summaries and membership once the current transaction
+   * commits, so a concurrent read cannot cache the state from before the change
+   *
+   * @param userId ID of the user whose reading lists changed
+   */
+  private void readingListsChanged(Long userId) {
+    Cache summaries = cacheManager.getCache("readingListSummaries");
+    if (summaries != null) {
+      new TransactionAwareCacheDecorator(summaries).evict(userId);
+    }
+    membershipCache.evictAfterCommit(userId);
+  }
+
+  /**
+   * Clear the caches affected by a change to the books of a reading list once the current
+   * transaction commits
+   *
+   * @param readingList Reading list whose books changed
+   */
+  private void readingListBooksChanged(ReadingList readingList) {
+    readingListsChanged(readingList.getUser().getId());
+    membershipCache.evictListAfterCommit(readingList.getId());
   }
 
   /**
@@ -332,12 +842,98 @@ public class ReadingListServiceImpl implements ReadingListService {
    */
   private ReadingListDto convertToDto(ReadingList readingList) {
     Set<BookDto> bookDtos = new HashSet<>();
+    LocalDateTime booksUpdatedAt = null;
 
     if (readingList.getBooks() != null) {
       bookDtos =
           readingList.getBooks().stream().map(this::convertBookToDto).collect(Collectors.toSet());
+      booksUpdatedAt =
+          readingList.getBooks().stream()
+              .map(Book::getUpdatedAt)
+              .filter(Objects::nonNull)
+              .max(Comparator.naturalOrder())
+              .orElse(null);
+    }
+
+    return convertToDto(readingList, bookDtos, booksUpdatedAt);
+  }
+
+  /**
+   * Build a converter for reading lists read by a listing. The books of every list are loaded
+   * in one query straight into DTOs, so no Book entities are created and the lists' book
+   * collections are never initialised. Each list's books keep their list order
+   *
+   * @param readingLists Reading lists that will be converted
+   * @return Converter from each of those reading lists to a ReadingListDto
+   */
+  private Function<ReadingList, ReadingListDto> withBooks(List<ReadingList> readingLists) {
+    Map<Long, Set<BookDto>> booksByReadingList = new HashMap<>();
+    Map<Long, LocalDateTime> booksUpdatedAt = new HashMap<>();
+    if (!readingLists.isEmpty()) {
+      for (BookRepository.ReadingListBook row :
+          bookRepository.findBooksByReadingListIdIn(
+              readingLists.stream().map(ReadingList::getId).toList())) {
+        booksByReadingList
+            .computeIfAbsent(row.getReadingListId(), id -> new LinkedHashSet<>())
+            .add(
+                new BookDto(
+                    row.getId(),
+                    row.getTitle(),
+                    row.getAuthor(),
+                    row.getPublicationDate(),
+                    row.getDescription(),
+                    row.getPublisher(),
+                    row.getIsbn(),
+                    row.getCoverImageUrl()));
+        if (row.getUpdatedAt() != null) {
+          booksUpdatedAt.merge(
+              row.getReadingListId(), row.getUpdatedAt(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+      }
+    }
+    return readingList ->
+        convertToDto(
+            readingList,
+            booksByReadingList.getOrDefault(readingList.getId(), new LinkedHashSet<>()),
+            booksUpdatedAt.get(readingList.getId()));
+  }
+
+  /**
+   * Build a converter to summaries for reading lists read by a paged listing. The lists' owners
+   * are join fetched with the page and their book counts come from one grouped query, so a page
+   * costs the same number of queries however many lists it holds
+   *
+   * @param readingLists Reading lists that will be converted, with their owners loaded
+   * @return Converter from each of those reading lists to a ReadingListSummaryDto
+   */
+  private Function<ReadingList, ReadingListSummaryDto> withBookCounts(
+      List<ReadingList> readingLists) {
+    Map<Long, Long> bookCounts = new HashMap<>();
+    if (!readingLists.isEmpty()) {
+      readingListRepository
+          .countBooksByReadingListIdIn(readingLists.stream().map(ReadingList::getId).toList())
+          .forEach(row -> bookCounts.put(row.getReadingListId(), row.getBookCount()));
     }
+    return readingList ->
+        new ReadingListSummaryDto(
+            readingList.getId(),
+            readingList.getName(),
+            readingList.getDescription(),
+            readingList.getCreatedAt(),
+            readingList.getUser().getId(),
+            readingList.getUser().getUsername(),
+            bookCounts.getOrDefault(readingList.getId(), 0L));
+  }
 
+  /**
+   * Convert a ReadingList entity to a ReadingListDto with the given books
+   *
+   * @param readingList ReadingList entity
+   * @param bookDtos Books in the reading list
+   * @return ReadingListDto
+   */
+  private ReadingListDto convertToDto(
+      ReadingList readingList, Set<BookDto> bookDtos, LocalDateTime booksUpdatedAt) {
     return new ReadingListDto(
         readingList.getId(),
         readingList.getName(),
@@ -345,6 +941,8 @@ public class ReadingListServiceImpl implements ReadingListService {
         readingList.getCreatedAt(),
         readingList.getUser().getId(),
         readingList.getUser().getUsername(),
+        readingList.getVersion(),
+        booksUpdatedAt,
         bookDtos);
   }
 
@@ -1,53 +1,133 @@
 package com.ciaranmckenna.bookclub.service.impl;
 
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ReviewCursor;
+import com.ciaranmckenna.bookclub.dto.BookRatingStatsDto;
 import com.ciaranmckenna.bookclub.dto.ReviewDto;
-import com.ciaranmckenna.bookclub.entity.Book;
+import com.ciaranmckenna.bookclub.entity.BookRating;
 import com.ciaranmckenna.bookclub.entity.Review;
-import com.ciaranmckenna.bookclub.entity.User;
+import com.ciaranmckenna.bookclub.repository.BookRatingRepository;
 import com.ciaranmckenna.bookclub.repository.BookRepository;
 import com.ciaranmckenna.bookclub.repository.ReviewRepository;
 import com.ciaranmckenna.bookclub.repository.UserRepository;
+import com.ciaranmckenna.bookclub.search.BookIndexManager;
+import com.ciaranmckenna.bookclub.service.LeaderboardService;
 import com.ciaranmckenna.bookclub.service.ReviewService;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class ReviewServiceImpl implements ReviewService {
 
+  /** Most reviews returned by the unpaginated feeds */
+  private static final int MAX_UNPAGED_REVIEWS = 200;
+
+  /** MySQL error for a row referencing a parent row that does not exist */
+  private static final int ER_NO_REFERENCED_ROW = 1452;
+
   @Autowired private ReviewRepository reviewRepository;
 
   @Autowired private BookRepository bookRepository;
 
+  @Autowired private BookRatingRepository bookRatingRepository;
+
+  @Autowired private BookRatingReconciler bookRatingReconciler;
+
   @Autowired private UserRepository userRepository;
 
+  @Autowired private BookIndexManager bookIndexManager;
+
+  @Autowired private LeaderboardService leaderboardService;
+
+  /**
+   * Create a review without reading anything first. The review is inserted by the IDs of its book
+   * and user, and a duplicate review or unknown book or user is caught by the database's
+   * constraints instead of being checked for. The totals update returns the new average for the
+   * rating facet, and the created review is read back as one projection with its book title and
+   * username
+   *
+   * @param reviewDto Review data
+   * @param userId ID of the reviewing user
+   * @return Created review
+   */
   @Override
+  @Transactional
   public ReviewDto createReview(ReviewDto reviewDto, Long userId) {
-    if (hasUserReviewedBook(reviewDto.getBookId(), userId)) {
-      throw new RuntimeException("User has already reviewed this book");
+    Long bookId = reviewDto.getBookId();
+    int rating = reviewDto.getRating();
+    long reviewId;
+    try {
+      reviewId =
+          reviewRepository.insertReview(
+              bookId, userId, rating, reviewDto.getReviewText(), LocalDateTime.now());
+    } catch (DataIntegrityViolationException e) {
+      throw reviewConflict(e, bookId);
     }
+    adjustRating(bookId, rating, 0);
+    leaderboardService.reviewCreated(bookId, rating);
+    return reviewRepository
+        .findDtoById(reviewId)
+        .orElseThrow(() -> new RuntimeException("Review not found"));
+  }
 
-    Book book =
-        bookRepository
-            .findById(reviewDto.getBookId())
-            .orElseThrow(() -> new RuntimeException("Book not found"));
-    User user =
-        userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-
-    Review review = new Review();
-    review.setRating(reviewDto.getRating());
-    review.setReviewText(reviewDto.getReviewText());
-    review.setBook(book);
-    review.setUser(user);
-
-    Review savedReview = reviewRepository.save(review);
-    return convertToDto(savedReview);
+  /**
+   * Create a user's review of a book, or replace the one they already wrote, with an upsert on the
+   * (book_id, user_id) unique key. The upsert itself returns the rating it replaced, so nothing is
+   * read or locked first, and a replacement moves the book's totals and the top-rated leaderboard
+   * by the difference, as {@link #updateReview} does
+   *
+   * @param bookId Book ID
+   * @param reviewDto Review data
+   * @param userId ID of the reviewing user
+   * @return true if the review was created, false if it replaced an existing one
+   */
+  @Override
+  @Transactional
+  public boolean saveReview(Long bookId, ReviewDto reviewDto, Long userId) {
+    int rating = reviewDto.getRating();
+    Optional<ReviewRepository.ReplacedReview> replaced;
+    try {
+      replaced =
+          reviewRepository.upsertReview(
+              bookId, userId, rating, reviewDto.getReviewText(), LocalDateTime.now());
+    } catch (DataIntegrityViolationException e) {
+      throw reviewConflict(e, bookId);
+    }
+    if (replaced.isEmpty()) {
+      adjustRating(bookId, rating, 0);
+      leaderboardService.reviewCreated(bookId, rating);
+      return true;
+    }
+    int previousRating = replaced.get().rating();
+    if (rating != previousRating) {
+      adjustRating(bookId, rating, previousRating);
+    }
+    // The replacement always moves updated_at, which is when the leaderboard next takes it back
+    leaderboardService.reviewRatingChanged(
+        bookId, rating, previousRating, replaced.get().updatedAt());
+    return false;
   }
 
   @Override
+  @Transactional
   public ReviewDto updateReview(Long id, ReviewDto reviewDto, Long userId) {
     Review review =
         reviewRepository.findById(id).orElseThrow(() -> new RuntimeException("Review not found"));
@@ -56,14 +136,28 @@ public class ReviewServiceImpl implements ReviewService {
       throw new RuntimeException("User can only update their own reviews");
     }
 
+    int previousRating = review.getRating();
+    LocalDateTime previousWrittenAt = review.getUpdatedAt();
+    boolean changed =
+        previousRating != reviewDto.getRating()
+            || !Objects.equals(review.getReviewText(), reviewDto.getReviewText());
     review.setRating(reviewDto.getRating());
     review.setReviewText(reviewDto.getReviewText());
 
     Review updatedReview = reviewRepository.save(review);
+    if (updatedReview.getRating() != previousRating) {
+      adjustRating(review.getBook().getId(), updatedReview.getRating(), previousRating);
+    }
+    if (changed) {
+      // Any change moves updated_at, which is when the leaderboard next takes the rating back
+      leaderboardService.reviewRatingChanged(
+          review.getBook().getId(), updatedReview.getRating(), previousRating, previousWrittenAt);
+    }
     return convertToDto(updatedReview);
   }
 
   @Override
+  @Transactional
   public void deleteReview(Long id, Long userId) {
     Review review =
         reviewRepository.findById(id).orElseThrow(() -> new RuntimeException("Review not found"));
@@ -73,42 +167,129 @@ public class ReviewServiceImpl implements ReviewService {
     }
 
     reviewRepository.delete(review);
+    adjustRating(review.getBook().getId(), 0, review.getRating());
+    leaderboardService.reviewDeleted(
+        review.getBook().getId(), review.getRating(), review.getUpdatedAt());
   }
 
   @Override
   public ReviewDto getReviewById(Long id) {
-    Review review =
-        reviewRepository.findById(id).orElseThrow(() -> new RuntimeException("Review not found"));
-    return convertToDto(review);
+    return reviewRepository
+        .findDtoById(id)
+        .orElseThrow(() -> new RuntimeException("Review not found"));
   }
 
+  /**
+   * Get a book's newest reviews, at most {@link #MAX_UNPAGED_REVIEWS} of them. Use the cursor
+   * feed to read further back
+   *
+   * @param bookId Book ID
+   * @return Reviews, newest first
+   */
   @Override
   public List<ReviewDto> getReviewsByBookId(Long bookId) {
-    return reviewRepository.findByBookIdOrderByCreatedAtDesc(bookId).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return reviewRepository.findDtosByBookId(bookId, Limit.of(MAX_UNPAGED_REVIEWS));
+  }
+
+  /**
+   * Get a page of a book's reviews, newest first, by keyset pagination
+   *
+   * @param bookId Book ID
+   * @param cursor Position to continue from
+   * @param size Page size
+   * @return Page of reviews with the cursor of the next page
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<ReviewDto> getReviewsByBookId(Long bookId, ReviewCursor cursor, int size) {
+    Limit limit = Limit.of(size + 1);
+    List<ReviewDto> reviews =
+        cursor.id() == null
+            ? reviewRepository.findDtosByBookId(bookId, limit)
+            : reviewRepository.findDtosByBookIdBefore(
+                bookId, cursor.createdAt(), cursor.id(), limit);
+    return toCursorPage(reviews, size);
   }
 
   @Override
   public Page<ReviewDto> getReviewsByBookId(Long bookId, Pageable pageable) {
-    return reviewRepository.findByBookId(bookId, pageable).map(this::convertToDto);
+    return reviewRepository.findDtosByBookId(bookId, pageable);
+  }
+
+  @Override
+  public Slice<ReviewDto> getReviewsByBookIdSlice(Long bookId, Pageable pageable) {
+    return reviewRepository.findDtoSliceByBookId(bookId, pageable);
   }
 
+  /**
+   * Get a user's newest reviews, at most {@link #MAX_UNPAGED_REVIEWS} of them. Use the cursor
+   * feed to read further back
+   *
+   * @param userId User ID
+   * @return Reviews, newest first
+   */
   @Override
   public List<ReviewDto> getReviewsByUserId(Long userId) {
-    return reviewRepository.findByUserId(userId).stream()
-        .map(this::convertToDto)
-        .collect(Collectors.toList());
+    return reviewRepository.findDtosByUserId(userId, Limit.of(MAX_UNPAGED_REVIEWS));
+  }
+
+  /**
+   * Get a page of a user's reviews, newest first, by keyset pagination
+   *
+   * @param userId User ID
+   * @param cursor Position to continue from
+   * @param size Page size
+   * @return Page of reviews with the cursor of the next page
+   */
+  @Override
+  @Transactional(readOnly = true)
+  public CursorPage<ReviewDto> getReviewsByUserId(Long userId, ReviewCursor cursor, int size) {
+    Limit limit = Limit.of(size + 1);
+    List<ReviewDto> reviews =
+        cursor.id() == null
+            ? reviewRepository.findDtosByUserId(userId, limit)
+            : reviewRepository.findDtosByUserIdBefore(
+                userId, cursor.createdAt(), cursor.id(), limit);
+    return toCursorPage(reviews, size);
   }
 
   @Override
   public Double getAverageRatingByBookId(Long bookId) {
-    return reviewRepository.getAverageRatingByBookId(bookId);
+    return averageRating(bookId);
   }
 
   @Override
   public Long getReviewCountByBookId(Long bookId) {
-    return reviewRepository.getReviewCountByBookId(bookId);
+    return totals(bookId).map(BookRating::getReviewCount).orElse(0L);
+  }
+
+  @Override
+  public BookRatingStatsDto getRatingStats(Long bookId) {
+    return toStatsDto(bookId, totals(bookId).orElseGet(BookRating::new));
+  }
+
+  /**
+   * Get the rating statistics of several books with one primary key lookup on their totals, or
+   * one aggregate over their reviews until the totals have first been reconciled. Books without
+   * reviews, including unknown IDs, get empty statistics
+   *
+   * @param bookIds Book IDs
+   * @return Statistics keyed by book ID, in the order the IDs were given
+   */
+  @Override
+  public Map<Long, BookRatingStatsDto> getRatingStats(Collection<Long> bookIds) {
+    Set<Long> distinctBookIds = new LinkedHashSet<>(bookIds);
+    Map<Long, BookRating> ratings =
+        distinctBookIds.isEmpty()
+            ? Map.of()
+            : totals(distinctBookIds).stream()
+                .collect(Collectors.toMap(BookRating::getBookId, Function.identity()));
+
+    Map<Long, BookRatingStatsDto> stats = new LinkedHashMap<>();
+    for (Long bookId : distinctBookIds) {
+      stats.put(bookId, toStatsDto(bookId, ratings.getOrDefault(bookId, new BookRating())));
+    }
+    return stats;
   }
 
   @Override
@@ -116,6 +297,89 @@ public class ReviewServiceImpl implements ReviewService {
     return reviewRepository.existsByBookIdAndUserId(bookId, userId);
   }
 
+  /**
+   * Move a book's totals by one review change and push the average they leave to the rating facet
+   * once the current transaction commits. Until the totals have first been reconciled the average
+   * is aggregated from the reviews instead, which include the write being made
+   */
+  private void adjustRating(Long bookId, int addedRating, int removedRating) {
+    Double averageRating = bookRatingRepository.adjustRating(bookId, addedRating, removedRating);
+    if (!bookRatingReconciler.isReconciled()) {
+      averageRating = reviewRepository.getAverageRatingByBookId(bookId);
+    }
+    bookIndexManager.ratingChanged(bookId, averageRating);
+  }
+
+  /**
+   * Average rating of a book, read from its totals once they have been reconciled since startup
+   * and aggregated from its reviews before then
+   */
+  private Double averageRating(Long bookId) {
+    if (!bookRatingReconciler.isReconciled()) {
+      return reviewRepository.getAverageRatingByBookId(bookId);
+    }
+    return bookRatingRepository.findAverageRating(bookId).orElse(null);
+  }
+
+  /** Stored totals of a book once they have been reconciled, aggregated from reviews until then */
+  private Optional<BookRating> totals(Long bookId) {
+    if (!bookRatingReconciler.isReconciled()) {
+      return bookRatingRepository.aggregateFromReviews(List.of(bookId)).stream().findFirst();
+    }
+    return bookRatingRepository.findById(bookId);
+  }
+
+  /** Stored totals of books once they have been reconciled, aggregated from reviews until then */
+  private List<BookRating> totals(Collection<Long> bookIds) {
+    if (!bookRatingReconciler.isReconciled()) {
+      return bookRatingRepository.aggregateFromReviews(bookIds);
+    }
+    return bookRatingRepository.findAllById(bookIds);
+  }
+
+  /**
+   * Cut a keyset read of one review more than the page size down to a cursor page. The extra
+   * review only shows that another page follows
+   */
+  private CursorPage<ReviewDto> toCursorPage(List<ReviewDto> reviews, int size) {
+    if (reviews.size() <= size) {
+      return CursorPage.of(reviews, null);
+    }
+    List<ReviewDto> page = reviews.subList(0, size);
+    ReviewDto last = page.get(size - 1);
+    return CursorPage.of(page, new ReviewCursor(last.getCreatedAt(), last.getId()).encode());
+  }
+
+  private BookRatingStatsDto toStatsDto(Long bookId, BookRating rating) {
+    Double averageRating = rating.getAverageRating();
+    return new BookRatingStatsDto(
+        bookId,
+        averageRating != null ? averageRating : 0.0,
+        rating.getReviewCount(),
+        rating.getRatingCounts());
+  }
+
+  /**
+   * Map a failed review write to the errors the review API already reports: a second review of
+   * the same book, or a reference to a missing book or user. MySQL only names the foreign key that
+   * failed in its message text, so once the write has failed the book is looked up to tell which
+   * reference is missing. Any other violation is rethrown as is
+   */
+  private RuntimeException reviewConflict(DataIntegrityViolationException e, Long bookId) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException violation) {
+        if (violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE) {
+          return new RuntimeException("User has already reviewed this book");
+        }
+        if (violation.getErrorCode() == ER_NO_REFERENCED_ROW) {
+          return new RuntimeException(
+              bookRepository.existsById(bookId) ? "User not found" : "Book not found");
+        }
+      }
+    }
+    return e;
+  }
+
   private ReviewDto convertToDto(Review review) {
     ReviewDto dto = new ReviewDto();
     dto.setId(review.getId());
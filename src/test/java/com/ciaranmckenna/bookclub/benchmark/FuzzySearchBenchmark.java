@@ -0,0 +1,110 @@
+package com.ciaranmckenna.bookclub.benchmark;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.search.BkTree;
+import com.ciaranmckenna.bookclub.search.FuzzyBookIndex;
+import com.ciaranmckenna.bookclub.search.SearchTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures typo-tolerant search over 1M synthetic books. {@code fuzzyIndex} is the full
+ * {@link FuzzyBookIndex} lookup behind {@code /api/books/public/search?fuzzy=true}, ranking the
+ * first page of 20; {@code bkTreeLookup} and {@code vocabularyScan} isolate the edit-distance step,
+ * comparing the BK-tree with computing the distance to every distinct title and author word.
+ *
+ * <p>Every synthetic title contains "of" and "the", so the short queries measure the worst case:
+ * a common word, a typo of one, and a rare word next to one.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ciaranmckenna.bookclub.benchmark.FuzzySearchBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FuzzySearchBenchmark {
+
+    @Param({"1000000"})
+    private int catalogueSize;
+
+    /**
+     * Misspellings of generated words (one substitution, one insertion, two edits), then a word
+     * in every book, a typo of it and a rare word with it
+     */
+    @Param({"kalomyr", "dorsillra", "venbregorhal", "the", "teh", "kalomyr of the"})
+    private String query;
+
+    private FuzzyBookIndex index;
+
+    private BkTree vocabulary;
+
+    private String[] words;
+
+    @Setup
+    public void setUp() {
+        List<BookDto> books = SyntheticCatalogue.generate(catalogueSize);
+        index = new FuzzyBookIndex();
+        Set<String> distinct = new LinkedHashSet<>();
+        for (BookDto book : books) {
+            index.index(book);
+            distinct.addAll(SearchTokenizer.tokenize(book.title()));
+            distinct.addAll(SearchTokenizer.tokenize(book.author()));
+        }
+        vocabulary = new BkTree();
+        distinct.forEach(vocabulary::add);
+        words = distinct.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public List<Long> fuzzyIndex() {
+        return index.search(query).top(20);
+    }
+
+    @Benchmark
+    public List<String> bkTreeLookup() {
+        List<String> matches = new ArrayList<>();
+        for (String token : SearchTokenizer.tokenize(query)) {
+            vocabulary.search(token, 2, (word, distance) -> matches.add(word));
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public List<String> vocabularyScan() {
+        List<String> matches = new ArrayList<>();
+        for (String token : SearchTokenizer.tokenize(query)) {
+            for (String word : words) {
+                if (BkTree.distance(token, word) <= 2) {
+                    matches.add(word);
+                }
+            }
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FuzzySearchBenchmark.class.getSimpleName()).build())
+            .run();
+    }
+}
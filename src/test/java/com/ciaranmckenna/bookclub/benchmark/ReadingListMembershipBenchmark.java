@@ -0,0 +1,180 @@
+package com.ciaranmckenna.bookclub.benchmark;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.roaringbitmap.RoaringBitmap;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures "is book X in reading list Y" against MySQL for lists of 10, 1k and 100k books.
+ * {@code fetchListAndScan} runs the query behind the old entity-graph lookup and scans the rows,
+ * without Hibernate's entity hydration, so it understates that path; {@code existsQuery} is the
+ * primary key probe behind {@code ReadingListRepository.countEntries}; {@code listCache} is the
+ * bitmap lookup used when the per-list cache is enabled.
+ *
+ * <p>Needs Docker for the MySQL container. Run with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ciaranmckenna.bookclub.benchmark.ReadingListMembershipBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadingListMembershipBenchmark {
+
+    private static final long READING_LIST_ID = 1L;
+
+    private static final int INSERT_BATCH_SIZE = 5_000;
+
+    @Param({"10", "1000", "100000"})
+    private int listSize;
+
+    private MySQLContainer<?> mySQLContainer;
+
+    private Connection connection;
+
+    private PreparedStatement fetchList;
+
+    private PreparedStatement countEntry;
+
+    private RoaringBitmap cachedBookIds;
+
+    /** A book near the end of the list, so the scan cannot stop early */
+    private long probeBookId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        mySQLContainer = new MySQLContainer<>("mysql:8.0.30")
+            .withUrlParam("rewriteBatchedStatements", "true");
+        mySQLContainer.start();
+        connection = DriverManager.getConnection(
+            mySQLContainer.getJdbcUrl(), mySQLContainer.getUsername(), mySQLContainer.getPassword());
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE books (id BIGINT PRIMARY KEY, title VARCHAR(255) NOT NULL,"
+                + " author VARCHAR(255) NOT NULL, publication_date DATE, description VARCHAR(1000),"
+                + " publisher VARCHAR(1000), isbn VARCHAR(255), cover_image_url VARCHAR(255))");
+            statement.execute("CREATE TABLE reading_list_books (reading_list_id BIGINT NOT NULL,"
+                + " book_id BIGINT NOT NULL, PRIMARY KEY (reading_list_id, book_id), KEY (book_id))");
+        }
+
+        List<BookDto> books = SyntheticCatalogue.generate(listSize);
+        try (PreparedStatement insertBook = connection.prepareStatement(
+                "INSERT INTO books (id, title, author, publication_date, description, publisher)"
+                    + " VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement insertEntry = connection.prepareStatement(
+                "INSERT INTO reading_list_books (reading_list_id, book_id) VALUES (?, ?)")) {
+            for (int i = 0; i < books.size(); i++) {
+                BookDto book = books.get(i);
+                insertBook.setLong(1, book.id());
+                insertBook.setString(2, book.title());
+                insertBook.setString(3, book.author());
+                insertBook.setObject(4, book.publicationDate());
+                insertBook.setString(5, book.description());
+                insertBook.setString(6, book.publisher());
+                insertBook.addBatch();
+                insertEntry.setLong(1, READING_LIST_ID);
+                insertEntry.setLong(2, book.id());
+                insertEntry.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0 || i == books.size() - 1) {
+                    insertBook.executeBatch();
+                    insertEntry.executeBatch();
+                }
+            }
+        }
+        probeBookId = books.get(books.size() - 1).id();
+
+        fetchList = connection.prepareStatement(
+            "SELECT b.id, b.title, b.author, b.publication_date, b.description, b.publisher, b.isbn,"
+                + " b.cover_image_url FROM reading_list_books rlb JOIN books b ON b.id = rlb.book_id"
+                + " WHERE rlb.reading_list_id = ?");
+        countEntry = connection.prepareStatement(
+            "SELECT COUNT(*) FROM reading_list_books WHERE reading_list_id = ? AND book_id = ?");
+
+        cachedBookIds = new RoaringBitmap();
+        try (PreparedStatement bookIds = connection.prepareStatement(
+                "SELECT book_id FROM reading_list_books WHERE reading_list_id = ?")) {
+            bookIds.setLong(1, READING_LIST_ID);
+            try (ResultSet rows = bookIds.executeQuery()) {
+                while (rows.next()) {
+                    cachedBookIds.add(Math.toIntExact(rows.getLong(1)));
+                }
+            }
+        }
+        cachedBookIds.runOptimize();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        mySQLContainer.stop();
+    }
+
+    @Benchmark
+    public boolean fetchListAndScan() throws SQLException {
+        fetchList.setLong(1, READING_LIST_ID);
+        List<BookDto> books = new ArrayList<>();
+        try (ResultSet rows = fetchList.executeQuery()) {
+            while (rows.next()) {
+                books.add(new BookDto(
+                    rows.getLong(1),
+                    rows.getString(2),
+                    rows.getString(3),
+                    rows.getObject(4, LocalDate.class),
+                    rows.getString(5),
+                    rows.getString(6),
+                    rows.getString(7),
+                    rows.getString(8)));
+            }
+        }
+        return books.stream().anyMatch(book -> book.id() == probeBookId);
+    }
+
+    @Benchmark
+    public boolean existsQuery() throws SQLException {
+        countEntry.setLong(1, READING_LIST_ID);
+        countEntry.setLong(2, probeBookId);
+        try (ResultSet rows = countEntry.executeQuery()) {
+            rows.next();
+            return rows.getLong(1) > 0;
+        }
+    }
+
+    @Benchmark
+    public boolean listCache() {
+        return cachedBookIds.contains(Math.toIntExact(probeBookId));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(ReadingListMembershipBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
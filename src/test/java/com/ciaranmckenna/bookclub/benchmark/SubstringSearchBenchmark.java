@@ -0,0 +1,99 @@
+package com.ciaranmckenna.bookclub.benchmark;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.search.BookSubstringIndex;
+import com.ciaranmckenna.bookclub.search.SearchTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the trigram index behind findBooksByTitle / findBooksByAuthor with a full scan over the
+ * same 1M synthetic books. The scan applies the same case-insensitive "contains" test to every
+ * row, which is what {@code LOWER(title) LIKE '%term%'} does inside MySQL, minus the I/O.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ciaranmckenna.bookclub.benchmark.SubstringSearchBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class SubstringSearchBenchmark {
+
+    @Param({"1000000"})
+    private int catalogueSize;
+
+    @Param({"kalomir", "of the venbre", "dorsilra"})
+    private String query;
+
+    private BookSubstringIndex index;
+
+    private List<BookDto> books;
+
+    private String[] normalizedTitles;
+
+    private String[] normalizedAuthors;
+
+    @Setup
+    public void setUp() {
+        books = SyntheticCatalogue.generate(catalogueSize);
+        index = new BookSubstringIndex();
+        normalizedTitles = new String[books.size()];
+        normalizedAuthors = new String[books.size()];
+        for (int i = 0; i < books.size(); i++) {
+            BookDto book = books.get(i);
+            index.index(book);
+            normalizedTitles[i] = SearchTokenizer.normalize(book.title());
+            normalizedAuthors[i] = SearchTokenizer.normalize(book.author());
+        }
+    }
+
+    @Benchmark
+    public List<Long> trigramIndex() {
+        List<Long> titleMatches = index.searchTitles(query);
+        return titleMatches.isEmpty() ? index.searchAuthors(query) : titleMatches;
+    }
+
+    @Benchmark
+    public List<Long> fullScan() {
+        String normalizedQuery = SearchTokenizer.normalize(query);
+        List<Long> matches = new ArrayList<>();
+        for (int i = 0; i < normalizedTitles.length; i++) {
+            if (normalizedTitles[i].contains(normalizedQuery)) {
+                matches.add(books.get(i).id());
+            }
+        }
+        if (matches.isEmpty()) {
+            for (int i = 0; i < normalizedAuthors.length; i++) {
+                if (normalizedAuthors[i].contains(normalizedQuery)) {
+                    matches.add(books.get(i).id());
+                }
+            }
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                new OptionsBuilder().include(SubstringSearchBenchmark.class.getSimpleName()).build())
+            .run();
+    }
+}
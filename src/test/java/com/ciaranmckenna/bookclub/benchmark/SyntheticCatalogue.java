@@ -0,0 +1,57 @@
+package com.ciaranmckenna.bookclub.benchmark;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic book catalogue shared by the benchmarks. Words are built from three of
+ * forty syllables, giving a vocabulary of 64,000 words, so a given word appears in a few dozen
+ * titles per million books, much like a real catalogue
+ */
+final class SyntheticCatalogue {
+
+    static final String[] SYLLABLES = {
+        "ka", "lo", "mir", "ta", "ven", "dor", "sil", "ra", "mun", "el",
+        "qua", "bre", "zin", "fa", "gor", "hal", "ith", "jor", "kel", "lun",
+        "mar", "nor", "ost", "pel", "rin", "sar", "tor", "ul", "vyn", "wen",
+        "xa", "yor", "zel", "an", "bel", "cor", "dra", "eth", "fen", "gil"
+    };
+
+    private SyntheticCatalogue() {}
+
+    static List<BookDto> generate(int size) {
+        Random random = new Random(42);
+        List<BookDto> books = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            String title =
+                capitalize(word(random)) + " of the " + capitalize(word(random)) + " " + word(random);
+            String author = capitalize(word(random)) + " " + capitalize(word(random));
+            books.add(
+                new BookDto(
+                    id,
+                    title,
+                    author,
+                    LocalDate.of(1900 + random.nextInt(125), 1 + random.nextInt(12), 1),
+                    null,
+                    null,
+                    null,
+                    null));
+        }
+        return books;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ciaranmckenna.bookclub.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApproximateCountCacheTest {
+
+    @Test
+    void get_WithinTtl_ReusesCachedCount() {
+        // Given
+        MutableClock clock = new MutableClock();
+        ApproximateCountCache cache = new ApproximateCountCache(clock);
+        AtomicLong calls = new AtomicLong();
+
+        // When
+        long first = cache.get("books", () -> 10 + calls.getAndIncrement());
+        clock.advance(ApproximateCountCache.TTL.toMillis() - 1);
+        long second = cache.get("books", () -> 10 + calls.getAndIncrement());
+
+        // Then
+        assertEquals(10, first);
+        assertEquals(10, second);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void get_AfterTtl_RecomputesCount() {
+        // Given
+        MutableClock clock = new MutableClock();
+        ApproximateCountCache cache = new ApproximateCountCache(clock);
+        cache.get("books", () -> 10);
+
+        // When
+        clock.advance(ApproximateCountCache.TTL.toMillis());
+        long count = cache.get("books", () -> 11);
+
+        // Then
+        assertEquals(11, count);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = 1_000;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+    }
+}
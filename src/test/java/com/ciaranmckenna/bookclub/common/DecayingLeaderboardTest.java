@@ -0,0 +1,89 @@
+package com.ciaranmckenna.bookclub.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecayingLeaderboardTest {
+
+    private static final long DAY = Duration.ofDays(1).toMillis();
+
+    private static final long NOW = 1_750_000_000_000L;
+
+    @Test
+    void add_OlderWeight_HalvesEveryHalfLife() {
+        // Given
+        DecayingLeaderboard leaderboard = new DecayingLeaderboard(Duration.ofDays(7));
+
+        // When
+        leaderboard.add(1L, 4, NOW - 7 * DAY);
+        leaderboard.add(2L, 3, NOW);
+
+        // Then
+        assertEquals(2.0, leaderboard.score(1L, NOW), 1e-9);
+        List<DecayingLeaderboard.Score> top = leaderboard.top(10, NOW);
+        assertEquals(List.of(2L, 1L), top.stream().map(DecayingLeaderboard.Score::bookId).toList());
+    }
+
+    @Test
+    void add_NegativeWeight_TakesBackEarlierWeightAndRemovesEmptyBooks() {
+        // Given
+        DecayingLeaderboard leaderboard = new DecayingLeaderboard(Duration.ofDays(30));
+        leaderboard.add(1L, 1, NOW - DAY);
+        leaderboard.add(1L, 0.5, NOW);
+        leaderboard.add(2L, 1, NOW);
+        leaderboard.drainDirty();
+
+        // When
+        leaderboard.add(1L, -0.5, NOW);
+        leaderboard.add(2L, -1, NOW);
+
+        // Then
+        assertEquals(Math.pow(2, -1.0 / 30), leaderboard.score(1L, NOW), 1e-9);
+        assertEquals(0.0, leaderboard.score(2L, NOW));
+        assertEquals(1, leaderboard.size());
+        Map<Long, Double> dirty = leaderboard.drainDirty();
+        assertNotNull(dirty.get(1L));
+        assertTrue(dirty.containsKey(2L));
+        assertNull(dirty.get(2L));
+    }
+
+    @Test
+    void prune_DecayedBooks_AreDroppedFromTop() {
+        // Given
+        DecayingLeaderboard leaderboard = new DecayingLeaderboard(Duration.ofDays(1));
+        leaderboard.add(1L, 1, NOW - 10 * DAY);
+        leaderboard.add(2L, 1, NOW);
+        leaderboard.add(3L, 2, NOW);
+
+        // When
+        int removed = leaderboard.prune(0.05, NOW);
+
+        // Then
+        assertEquals(1, removed);
+        List<DecayingLeaderboard.Score> top = leaderboard.top(1, NOW);
+        assertEquals(1, top.size());
+        assertEquals(3L, top.get(0).bookId());
+        assertEquals(2.0, top.get(0).score(), 1e-9);
+    }
+
+    @Test
+    void restore_CheckpointedScore_MergesWithoutMarkingDirty() {
+        // Given
+        DecayingLeaderboard source = new DecayingLeaderboard(Duration.ofDays(7));
+        source.add(1L, 3, NOW - DAY);
+        double logScore = source.drainDirty().get(1L);
+        DecayingLeaderboard restored = new DecayingLeaderboard(Duration.ofDays(7));
+
+        // When
+        restored.restore(1L, logScore);
+
+        // Then
+        assertEquals(source.score(1L, NOW), restored.score(1L, NOW), 1e-9);
+        assertTrue(restored.drainDirty().isEmpty());
+    }
+}
@@ -0,0 +1,50 @@
+package com.ciaranmckenna.bookclub.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportWriterTest {
+
+    private static final List<String> COLUMNS = List.of("id", "title", "publicationDate");
+
+    @Test
+    void writeRow_Ndjson_WritesOneObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(ExportFormat.NDJSON, COLUMNS, out)) {
+            writer.writeRow(Arrays.asList(1L, "Say \"hi\"", LocalDate.of(2001, 2, 3)));
+            writer.writeRow(Arrays.asList(2L, "Untitled", null));
+        }
+
+        assertEquals(
+            "{\"id\":1,\"title\":\"Say \\\"hi\\\"\",\"publicationDate\":\"2001-02-03\"}\n"
+                + "{\"id\":2,\"title\":\"Untitled\",\"publicationDate\":null}\n",
+            out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writeRow_Csv_WritesHeaderAndQuotesSpecialFields() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ExportWriter writer = new ExportWriter(ExportFormat.CSV, COLUMNS, out)) {
+            writer.writeRow(Arrays.asList(1L, "Dune, \"Part\" 1", null));
+        }
+
+        assertEquals("id,title,publicationDate\r\n1,\"Dune, \"\"Part\"\" 1\",\r\n",
+            out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void fromParameter_UnknownFormat_Throws() {
+        assertEquals(ExportFormat.CSV, ExportFormat.fromParameter("CSV"));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.fromParameter("xml"));
+    }
+}
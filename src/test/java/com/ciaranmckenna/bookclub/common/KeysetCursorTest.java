@@ -0,0 +1,46 @@
+package com.ciaranmckenna.bookclub.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTest {
+
+    @Test
+    void encodeDecode_RoundTripsSortKeyAndId() {
+        KeysetCursor cursor =
+            KeysetCursor.first("publicationDate", Sort.Direction.DESC)
+                .after(LocalDate.of(1999, 12, 31), 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(Sort.by(Sort.Direction.DESC, "publicationDate").and(Sort.by(Sort.Direction.DESC, "id")),
+            decoded.toSort());
+    }
+
+    @Test
+    void encodeDecode_TitleContainingSeparator_RoundTrips() {
+        KeysetCursor cursor = KeysetCursor.first("title", Sort.Direction.ASC).after("A | B", 7L);
+
+        assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void toScrollPosition_FirstPage_IsInitial() {
+        KeysetScrollPosition position = KeysetCursor.first("title", Sort.Direction.ASC).toScrollPosition();
+
+        assertTrue(position.isInitial());
+    }
+
+    @Test
+    void decode_MalformedOrUnsupported_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class,
+            () -> KeysetCursor.first("description", Sort.Direction.ASC));
+    }
+}
@@ -0,0 +1,25 @@
+package com.ciaranmckenna.bookclub.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReviewCursorTest {
+
+    @Test
+    void encodeDecode_RoundTripsCreatedAtAndId() {
+        ReviewCursor cursor = new ReviewCursor(LocalDateTime.of(2025, 3, 14, 9, 26, 53, 589_000), 42L);
+
+        ReviewCursor decoded = ReviewCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void decode_MalformedToken_ThrowsIllegalArgument() {
+        assertThrows(IllegalArgumentException.class, () -> ReviewCursor.decode("not-a-cursor"));
+        assertNull(ReviewCursor.first().id());
+    }
+}
@@ -0,0 +1,182 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import com.ciaranmckenna.bookclub.entity.Book;
+import com.ciaranmckenna.bookclub.entity.ReadingList;
+import com.ciaranmckenna.bookclub.entity.ReadingListChange;
+import com.ciaranmckenna.bookclub.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.ciaranmckenna.bookclub.entity.ReadingListEntry.POSITION_GAP;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ReadingListRepositoryTest {
+
+    @Container
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:8.0.30");
+
+    @DynamicPropertySource
+    static void dynamicProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReadingListRepository readingListRepository;
+
+    @Autowired
+    private ReadingListChangeRepository readingListChangeRepository;
+
+    private Long readingListId;
+
+    private final List<Long> bookIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setUsername("reader");
+        owner.setEmail("reader@example.com");
+        owner.setPassword("password123");
+        entityManager.persist(owner);
+
+        for (int i = 0; i < 4; i++) {
+            Book book = new Book();
+            book.setTitle("Book " + i);
+            book.setAuthor("Author " + i);
+            book.setPublicationDate(LocalDate.of(2000 + i, 1, 1));
+            book.setCreatedBy(owner);
+            entityManager.persist(book);
+            bookIds.add(book.getId());
+        }
+
+        ReadingList readingList = new ReadingList();
+        readingList.setName("Favourites");
+        readingList.setUser(owner);
+        entityManager.persist(readingList);
+        readingListId = readingList.getId();
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void insertBooksIgnoringDuplicates_AppendsInGivenOrderSkippingDuplicatesAndUnknownIds() {
+        // Given
+        Long first = bookIds.get(0);
+        Long second = bookIds.get(1);
+        Long third = bookIds.get(2);
+        Long fourth = bookIds.get(3);
+        assertEquals(2, readingListRepository.insertBooksIgnoringDuplicates(
+                readingListId, List.of(third, first), 0L, POSITION_GAP));
+        long last = readingListRepository.findLastPosition(readingListId);
+
+        // When
+        int added = readingListRepository.insertBooksIgnoringDuplicates(
+                readingListId, List.of(fourth, first, -1L, second), last, POSITION_GAP);
+
+        // Then
+        assertEquals(2, added);
+        assertEquals(List.of(third, first, fourth, second), bookIdsInListOrder());
+        assertEquals(List.of(fourth, second),
+                readingListRepository.findBookIdsAfterPosition(readingListId, last));
+    }
+
+    @Test
+    void findNeighbourPositions_MoveAndInsertAt_PutBooksBetweenTheirNeighbours() {
+        // Given
+        Long first = bookIds.get(0);
+        Long second = bookIds.get(1);
+        Long third = bookIds.get(2);
+        Long fourth = bookIds.get(3);
+        readingListRepository.insertBooksIgnoringDuplicates(
+                readingListId, List.of(first, second, third), 0L, POSITION_GAP);
+
+        // When
+        List<Long> moveNeighbours = readingListRepository.findNeighbourPositions(readingListId, third, 0);
+        readingListRepository.updateEntryPosition(
+                readingListId, third, (moveNeighbours.get(0) + moveNeighbours.get(1)) / 2);
+        List<Long> insertNeighbours = readingListRepository.findNeighbourPositions(readingListId, fourth, 0);
+        readingListRepository.insertEntry(readingListId, fourth, insertNeighbours.get(0) - POSITION_GAP);
+
+        // Then
+        assertEquals(List.of(POSITION_GAP, 2 * POSITION_GAP), moveNeighbours);
+        assertEquals(List.of(POSITION_GAP, POSITION_GAP + POSITION_GAP / 2), insertNeighbours);
+        assertEquals(List.of(fourth, first, third, second), bookIdsInListOrder());
+    }
+
+    @Test
+    void renumberPositions_CrowdedList_RespacesKeepingOrder() {
+        // Given
+        Long first = bookIds.get(0);
+        Long second = bookIds.get(1);
+        Long third = bookIds.get(2);
+        readingListRepository.insertEntry(readingListId, first, 5L);
+        readingListRepository.insertEntry(readingListId, second, 6L);
+        readingListRepository.insertEntry(readingListId, third, 6L);
+
+        // When
+        int renumbered = readingListRepository.renumberPositions(readingListId, POSITION_GAP);
+
+        // Then
+        assertEquals(3, renumbered);
+        assertEquals(List.of(first, second, third), bookIdsInListOrder());
+        assertEquals(3 * POSITION_GAP, readingListRepository.findLastPosition(readingListId));
+        assertEquals(List.of(POSITION_GAP, 2 * POSITION_GAP),
+                readingListRepository.findNeighbourPositions(readingListId, third, 0));
+    }
+
+    @Test
+    void insertAppendedBooks_AfterAppend_LogsNewBooksInListOrder() {
+        // Given
+        Long first = bookIds.get(0);
+        Long second = bookIds.get(1);
+        Long third = bookIds.get(2);
+        readingListRepository.insertBooksIgnoringDuplicates(
+                readingListId, List.of(first), 0L, POSITION_GAP);
+        long last = readingListRepository.findLastPosition(readingListId);
+        readingListRepository.insertBooksIgnoringDuplicates(
+                readingListId, List.of(third, second), last, POSITION_GAP);
+
+        // When
+        int logged = readingListChangeRepository.insertAppendedBooks(readingListId, 2L, last);
+
+        // Then
+        assertEquals(2, logged);
+        List<ReadingListChange> changes = readingListChangeRepository
+                .findByReadingListIdAndVersionGreaterThanOrderByVersionAscIdAsc(readingListId, 0L, Limit.of(10));
+        assertEquals(List.of(third, second), changes.stream().map(ReadingListChange::getBookId).toList());
+        assertTrue(changes.stream().allMatch(c -> c.getVersion() == 2L));
+        assertTrue(changes.stream().allMatch(c -> c.getType() == ReadingListChange.Type.ADDED));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> bookIdsInListOrder() {
+        List<Number> ids = entityManager.getEntityManager()
+                .createNativeQuery("SELECT book_id FROM reading_list_books WHERE reading_list_id = :readingListId"
+                        + " ORDER BY position, book_id")
+                .setParameter("readingListId", readingListId)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+}
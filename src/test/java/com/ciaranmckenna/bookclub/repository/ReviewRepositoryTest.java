@@ -0,0 +1,173 @@
+package com.ciaranmckenna.bookclub.repository;
+
+import com.ciaranmckenna.bookclub.dto.ReviewDto;
+import com.ciaranmckenna.bookclub.entity.Book;
+import com.ciaranmckenna.bookclub.entity.Review;
+import com.ciaranmckenna.bookclub.entity.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class ReviewRepositoryTest {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Container
+    static MySQLContainer<?> mySQLContainer = new MySQLContainer<>("mysql:8.0.30");
+
+    @DynamicPropertySource
+    static void dynamicProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mySQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", mySQLContainer::getUsername);
+        registry.add("spring.datasource.password", mySQLContainer::getPassword);
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private BookRatingRepository bookRatingRepository;
+
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        User creator = user("creator");
+        entityManager.persist(creator);
+
+        book = new Book();
+        book.setTitle("Test Book");
+        book.setAuthor("Test Author");
+        book.setPublicationDate(LocalDate.of(2023, 1, 1));
+        book.setCreatedBy(creator);
+        entityManager.persist(book);
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            User reviewer = user("reviewer" + i);
+            entityManager.persist(reviewer);
+
+            Review review = new Review();
+            review.setRating(i % 5 + 1);
+            review.setReviewText("Review " + i);
+            review.setBook(book);
+            review.setUser(reviewer);
+            entityManager.persist(review);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findDtosByBookId_PageOfReviews_ReadsBookAndUsersInOneStatement() {
+        // Given
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        // When
+        List<ReviewDto> reviews =
+                reviewRepository.findDtosByBookId(book.getId(), Limit.of(PAGE_SIZE));
+
+        // Then
+        assertEquals(PAGE_SIZE, reviews.size());
+        assertTrue(reviews.stream().allMatch(r -> "Test Book".equals(r.getBookTitle())));
+        assertTrue(reviews.stream().allMatch(r -> r.getUsername().startsWith("reviewer")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findDtosByBookId_Pageable_ReadsPageAndCountInTwoStatements() {
+        // Given
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        // When
+        Page<ReviewDto> page =
+                reviewRepository.findDtosByBookId(book.getId(), PageRequest.of(0, PAGE_SIZE / 2));
+
+        // Then
+        assertEquals(PAGE_SIZE / 2, page.getNumberOfElements());
+        assertEquals(PAGE_SIZE, page.getTotalElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void upsertReview_ExistingReview_ReturnsTheReplacedRatingAndWriteTime() {
+        // Given
+        User reviewer = user("upserter");
+        entityManager.persist(reviewer);
+        entityManager.flush();
+        LocalDateTime firstWrite = LocalDateTime.of(2025, 5, 1, 12, 0, 0, 123_456_000);
+
+        // When
+        Optional<ReviewRepository.ReplacedReview> created = reviewRepository.upsertReview(
+                book.getId(), reviewer.getId(), 2, "First take", firstWrite);
+        Optional<ReviewRepository.ReplacedReview> replaced = reviewRepository.upsertReview(
+                book.getId(), reviewer.getId(), 4, "Second take", firstWrite);
+
+        // Then
+        assertTrue(created.isEmpty());
+        assertEquals(Optional.of(new ReviewRepository.ReplacedReview(2, firstWrite)), replaced);
+        Review review = reviewRepository.findByBookIdAndUserId(book.getId(), reviewer.getId()).orElseThrow();
+        assertEquals(4, review.getRating());
+        assertTrue(review.getUpdatedAt().isAfter(firstWrite));
+    }
+
+    @Test
+    void adjustRating_EachChange_ReturnsTheAverageItLeaves() {
+        // When
+        Double afterFirst = bookRatingRepository.adjustRating(book.getId(), 4, 0);
+        Double afterSecond = bookRatingRepository.adjustRating(book.getId(), 2, 0);
+        Double afterChange = bookRatingRepository.adjustRating(book.getId(), 5, 2);
+        Double afterRemovals = bookRatingRepository.adjustRating(book.getId(), 0, 5);
+        Double afterLast = bookRatingRepository.adjustRating(book.getId(), 0, 4);
+
+        // Then
+        assertEquals(4.0, afterFirst);
+        assertEquals(3.0, afterSecond);
+        assertEquals(4.5, afterChange);
+        assertEquals(4.0, afterRemovals);
+        assertNull(afterLast);
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password123");
+        return user;
+    }
+}
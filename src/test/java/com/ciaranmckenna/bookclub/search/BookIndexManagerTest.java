@@ -0,0 +1,103 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookIndexManagerTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private ObjectProvider<LuceneBookSearch> luceneBookSearch;
+
+    @InjectMocks
+    private BookIndexManager manager;
+
+    @Test
+    void rebuild_WritesDuringTheLoad_AreReplayedIntoTheSwappedInIndex() {
+        // Given
+        BookSearchIndex index = new BookSearchIndex();
+        index.index(book(1L, "Dune"));
+        ReflectionTestUtils.setField(manager, "indexes", List.of(index));
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenAnswer(invocation -> {
+            // The rebuild has read both books; these writes commit before it finishes
+            manager.bookSaved(book(1L, "Solaris"));
+            manager.bookDeleted(2L);
+            assertEquals(List.of(1L), index.search("solaris"));
+            return List.of(book(1L, "Dune"), book(2L, "Emma"));
+        });
+
+        // When
+        manager.rebuild();
+
+        // Then
+        assertTrue(manager.isReady());
+        assertEquals(List.of(1L), index.search("solaris"));
+        assertTrue(index.search("dune").isEmpty());
+        assertTrue(index.search("emma").isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void rebuild_WhenLoadFails_KeepsServingTheCurrentIndex() {
+        // Given
+        BookSearchIndex index = new BookSearchIndex();
+        index.index(book(1L, "Dune"));
+        ReflectionTestUtils.setField(manager, "indexes", List.of(index));
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+                .thenThrow(new IllegalStateException("Connection reset"));
+
+        // When
+        assertThrows(IllegalStateException.class, () -> manager.rebuild());
+        manager.bookSaved(book(2L, "Emma"));
+
+        // Then
+        assertFalse(manager.isReady());
+        assertEquals(List.of(1L), index.search("dune"));
+        assertEquals(List.of(2L), index.search("emma"));
+    }
+
+    @Test
+    void ratingChanged_InTransaction_ReachesTheFacetIndexAfterCommit() {
+        // Given
+        FacetIndex facetIndex = mock(FacetIndex.class);
+        ReflectionTestUtils.setField(manager, "indexes", List.of(facetIndex));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            manager.ratingChanged(1L, 2.0);
+
+            // Then
+            verify(facetIndex, never()).ratingChanged(any(), any());
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            verify(facetIndex).ratingChanged(1L, 2.0);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static BookDto book(Long id, String title) {
+        return new BookDto(id, title, "Author", LocalDate.of(2000, 1, 1), null, null, null, null);
+    }
+}
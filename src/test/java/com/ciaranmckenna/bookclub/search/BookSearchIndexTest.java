@@ -0,0 +1,56 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.index(book(1L, "The Left Hand of Darkness", "Ursula K. Le Guin"));
+        index.index(book(2L, "A Wizard of Earthsea", "Ursula K. Le Guin"));
+        index.index(book(3L, "Dune", "Frank Herbert"));
+    }
+
+    @Test
+    void search_TokenPrefixes_MatchesTitleAndAuthor() {
+        assertEquals(List.of(1L, 2L), index.search("ursu"));
+        assertEquals(List.of(2L), index.search("guin wiz"));
+        assertEquals(List.of(3L), index.search("DUNE"));
+    }
+
+    @Test
+    void search_NoMatchingToken_ReturnsEmpty() {
+        assertTrue(index.search("tolkien").isEmpty());
+        assertTrue(index.search("  ").isEmpty());
+    }
+
+    @Test
+    void index_UpdatedBook_ReplacesPreviousTokens() {
+        index.index(book(3L, "Children of Dune", "Frank Herbert"));
+
+        assertEquals(List.of(3L), index.search("children"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void remove_DeletedBook_NoLongerMatches() {
+        index.remove(1L);
+
+        assertEquals(List.of(2L), index.search("ursula"));
+        assertTrue(index.search("darkness").isEmpty());
+    }
+
+    private static BookDto book(Long id, String title, String author) {
+        return new BookDto(id, title, author, LocalDate.of(2000, 1, 1), null, null, null, null);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSortIndexTest {
+
+    private BookSortIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSortIndex();
+        index.index(book(1L, "dune", "Frank Herbert", 1965));
+        index.index(book(2L, "A Wizard of Earthsea", "Ursula K. Le Guin", 1968));
+        index.index(book(3L, "Cosmos", "Carl Sagan", 1980));
+        index.index(book(4L, "The Left Hand of Darkness", "Ursula K. Le Guin", 1969));
+    }
+
+    @Test
+    void page_ByTitle_IgnoresCaseAndSkipsToTheOffset() {
+        // When
+        List<Long> firstPage = index.page(List.of(1L, 2L, 3L, 4L), Sort.by("title"), 0, 2);
+        List<Long> secondPage = index.page(List.of(1L, 2L, 3L, 4L), Sort.by("title"), 2, 2);
+
+        // Then
+        assertEquals(List.of(2L, 3L), firstPage);
+        assertEquals(List.of(1L, 4L), secondPage);
+    }
+
+    @Test
+    void page_ByAuthorThenNewestFirst_BreaksTiesWithTheNextOrder() {
+        // When
+        List<Long> page = index.page(List.of(4L, 3L, 2L),
+                Sort.by(Sort.Order.asc("author"), Sort.Order.desc("publicationDate")), 0, 10);
+
+        // Then
+        assertEquals(List.of(3L, 4L, 2L), page);
+    }
+
+    @Test
+    void page_RemovedBookOrPastTheEnd_IsLeftOut() {
+        // Given
+        index.remove(3L);
+
+        // Then
+        assertEquals(List.of(2L, 1L, 4L), index.page(List.of(1L, 2L, 3L, 4L), Sort.by("title"), 0, 10));
+        assertTrue(index.page(List.of(1L, 2L), Sort.by("title"), 5, 10).isEmpty());
+    }
+
+    @Test
+    void page_UnsupportedField_Throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.page(List.of(1L), Sort.by("createdAt"), 0, 10));
+    }
+
+    private static BookDto book(Long id, String title, String author, int year) {
+        return new BookDto(id, title, author, LocalDate.of(year, 1, 1), null, null, null, null);
+    }
+}
@@ -0,0 +1,139 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.BookFacetFilter;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import com.ciaranmckenna.bookclub.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FacetIndexTest {
+
+    private static final long FICTION = 10L;
+    private static final long SCIENCE = 20L;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @InjectMocks
+    private FacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index.index(book(1L, "Ursula K. Le Guin", 1969));
+        index.index(book(2L, "Ursula K. Le Guin", 1968));
+        index.index(book(3L, "Frank Herbert", 1965));
+        index.index(book(4L, "Carl Sagan", 1980));
+
+        when(bookRepository.findAllCategoryLinks())
+            .thenReturn(List.of(link(1L, FICTION), link(2L, FICTION), link(3L, FICTION), link(4L, SCIENCE)));
+        when(reviewRepository.findAverageRatings())
+            .thenReturn(List.of(rating(1L, 4.5), rating(3L, 3.0), rating(4L, 4.0)));
+        index.rebuildComplete();
+    }
+
+    @Test
+    void search_CombinedFilters_IntersectsBitmaps() {
+        // When
+        FacetIndex.Result result =
+            index.search(new BookFacetFilter(List.of(FICTION), 1966, 1970, "le guin", 4), null);
+
+        // Then
+        assertEquals(1, result.total());
+        assertEquals(List.of(1L), result.ids(0, 10));
+    }
+
+    @Test
+    void search_FacetCountsIgnoreTheirOwnFilter() {
+        // When
+        FacetIndex.Result result =
+            index.search(new BookFacetFilter(List.of(FICTION), 1960, 1969, null, null), null);
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L), result.ids(0, 10));
+        assertEquals(Map.of(FICTION, 3L), result.categoryCounts());
+        assertEquals(Map.of(1965, 1L, 1968, 1L, 1969, 1L), result.yearCounts());
+        assertEquals(List.of(1965, 1968, 1969), List.copyOf(result.yearCounts().keySet()));
+        assertEquals(Map.of(1, 2L, 2, 2L, 3, 2L, 4, 1L, 5, 0L), result.minRatingCounts());
+    }
+
+    @Test
+    void search_TextMatchesAndPaging() {
+        // When
+        FacetIndex.Result result = index.search(new BookFacetFilter(null, null, null, null, null), List.of(4L, 2L, 1L));
+
+        // Then
+        assertEquals(3, result.total());
+        assertEquals(List.of(2L, 4L), result.ids(1, 5));
+        assertTrue(result.ids(3, 5).isEmpty());
+    }
+
+    @Test
+    void ratingChangedAndRemove_UpdateBitmaps() {
+        // When
+        index.ratingChanged(2L, 5.0);
+        index.remove(1L);
+
+        // Then
+        FacetIndex.Result result = index.search(new BookFacetFilter(null, null, null, null, 4), null);
+        assertEquals(List.of(2L, 4L), result.ids(0, 10));
+        assertEquals(Map.of(FICTION, 1L, SCIENCE, 1L), result.categoryCounts());
+    }
+
+    @Test
+    void index_UpdatedBook_KeepsCategoryAndRating() {
+        // When
+        index.index(book(3L, "Frank Herbert", 1966));
+
+        // Then
+        FacetIndex.Result result = index.search(new BookFacetFilter(List.of(FICTION), 1966, 1966, null, 3), null);
+        assertEquals(List.of(3L), result.ids(0, 10));
+    }
+
+    private static BookDto book(Long id, String author, int year) {
+        return new BookDto(id, "Book " + id, author, LocalDate.of(year, 1, 1), null, null, null, null);
+    }
+
+    private static BookRepository.BookCategoryLink link(Long bookId, Long categoryId) {
+        return new BookRepository.BookCategoryLink() {
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public Long getCategoryId() {
+                return categoryId;
+            }
+        };
+    }
+
+    private static ReviewRepository.BookAverageRating rating(Long bookId, Double averageRating) {
+        return new ReviewRepository.BookAverageRating() {
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public Double getAverageRating() {
+                return averageRating;
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyBookIndexTest {
+
+    private FuzzyBookIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FuzzyBookIndex();
+        index.index(book(1L, "The Left Hand of Darkness", "Ursula K. Le Guin"));
+        index.index(book(2L, "A Wizard of Earthsea", "Ursula K. Le Guin"));
+        index.index(book(3L, "Dune", "Frank Herbert"));
+        index.index(book(4L, "Dune Messiah", "Frank Herbert"));
+    }
+
+    @Test
+    void search_MisspelledAuthor_MatchesWithinEditDistance() {
+        assertEquals(List.of(1L, 2L), index.search("Ursla Le Gwin").top(10));
+        assertEquals(List.of(3L, 4L), index.search("herbet").top(10));
+    }
+
+    @Test
+    void search_CloserMatchesRankFirst() {
+        index.index(book(5L, "Dunes", "Anon"));
+
+        assertEquals(List.of(5L, 3L, 4L), index.search("dunes").top(10));
+    }
+
+    @Test
+    void search_Top_KeepsOnlyTheClosestMatches() {
+        index.index(book(5L, "Dunes", "Anon"));
+
+        FuzzyBookIndex.Matches matches = index.search("dunes");
+
+        assertEquals(3, matches.count());
+        assertEquals(Set.of(3L, 4L, 5L), matches.ids());
+        assertEquals(List.of(5L, 3L), matches.top(2));
+        assertTrue(matches.top(0).isEmpty());
+    }
+
+    @Test
+    void search_CommonWord_MatchesOnlyExactly() {
+        // Given
+        for (long id = 10; id < 11 + FuzzyBookIndex.COMMON_WORD_BOOKS; id++) {
+            index.index(book(id, "The Book " + id, "Anon"));
+        }
+        index.index(book(5L, "Thy Kingdom", "Anon"));
+
+        // When
+        FuzzyBookIndex.Matches matches = index.search("the kingdom");
+
+        // Then
+        assertEquals(0, matches.count());
+        assertEquals(List.of(5L), index.search("thy kingdom").top(10));
+    }
+
+    @Test
+    void search_TypoMatches_CappedRarestFirst() {
+        // Given
+        for (long id = 10; id < 11 + FuzzyBookIndex.MAX_FUZZY_BOOKS; id++) {
+            index.index(book(id, "Dunes " + id, "Anon"));
+        }
+        index.index(book(5L, "Dunk", "Anon"));
+
+        // When
+        FuzzyBookIndex.Matches matches = index.search("dune");
+
+        // Then
+        assertEquals(Set.of(3L, 4L, 5L), matches.ids());
+    }
+
+    @Test
+    void search_ShortTokensMustMatchExactly() {
+        assertEquals(0, index.search("lx").count());
+        assertEquals(0, index.search("tolkien").count());
+    }
+
+    @Test
+    void remove_DeletedBook_NoLongerMatches() {
+        index.remove(4L);
+        index.remove(3L);
+
+        assertEquals(0, index.search("dune").count());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void bkTreeSearch_MatchesBruteForceScan() {
+        // Given
+        Random random = new Random(7);
+        BkTree tree = new BkTree();
+        Set<String> words = new TreeSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            String word = randomWord(random);
+            words.add(word);
+            tree.add(word);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            String query = randomWord(random);
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                // When
+                Set<String> found = new TreeSet<>();
+                tree.search(query, maxDistance, (word, distance) -> found.add(word));
+
+                // Then
+                Set<String> expected = new TreeSet<>();
+                for (String word : words) {
+                    if (BkTree.distance(query, word) <= maxDistance) {
+                        expected.add(word);
+                    }
+                }
+                assertEquals(expected, found, query + " within " + maxDistance);
+            }
+        }
+        assertEquals(words.size(), tree.size());
+    }
+
+    @Test
+    void distance_Levenshtein() {
+        assertEquals(0, BkTree.distance("dune", "dune"));
+        assertEquals(3, BkTree.distance("kitten", "sitting"));
+        assertEquals(4, BkTree.distance("", "dune"));
+    }
+
+    private static String randomWord(Random random) {
+        int length = 3 + random.nextInt(5);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+    private static BookDto book(Long id, String title, String author) {
+        return new BookDto(id, title, author, LocalDate.of(2000, 1, 1), null, null, null, null);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.common.Isbn;
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IsbnBloomFilterTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private IsbnBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepository.count()).thenReturn(0L);
+        filter.replaceWith(filter.emptyCopy());
+    }
+
+    @Test
+    void canonicalKey_Isbn10AndIsbn13Spellings_Collide() {
+        assertEquals("9780306406157", Isbn.canonicalKey("0-306-40615-2"));
+        assertEquals("9780306406157", Isbn.canonicalKey("ISBN-13: 978-0-306-40615-7"));
+        assertEquals("9780306406157", Isbn.canonicalKey("isbn 0306406152"));
+        assertEquals("9780306406157", Isbn.canonicalKey("ISBN-10 0-306-40615-2"));
+        assertEquals("9780306406157", Isbn.canonicalKey("ISBN-13 978-0-306-40615-7"));
+        assertEquals("9780306406157", Isbn.canonicalKey("ISBN 10: 0306406152"));
+        assertEquals("9780306406157", Isbn.canonicalKey("ISBN:0306406152"));
+        assertEquals("1030456789", Isbn.canonicalKey("ISBN 1030456789"));
+        assertEquals("9780804429573", Isbn.canonicalKey("080442957X"));
+        assertEquals("0306406153", Isbn.canonicalKey("0306406153"));
+        assertNull(Isbn.canonicalKey("  "));
+        assertNull(Isbn.canonicalKey(null));
+    }
+
+    @Test
+    void mightContain_IndexedIsbn_InAnySpelling() {
+        // Given
+        filter.index(book(1L, "0-306-40615-2"));
+
+        // Then
+        assertTrue(filter.mightContain(Isbn.canonicalKey("978-0-306-40615-7")));
+        assertFalse(filter.mightContain(Isbn.canonicalKey("978-1-4028-9462-6")));
+    }
+
+    @Test
+    void mightContain_FalsePositiveRateWithinSizing() {
+        // Given
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("978" + String.format("%010d", i));
+        }
+
+        // When
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("979" + String.format("%010d", i))) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("978" + String.format("%010d", i)));
+        }
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    private static BookDto book(Long id, String isbn) {
+        return new BookDto(id, "Book " + id, "Author", LocalDate.of(2000, 1, 1), null, null, isbn, null);
+    }
+}
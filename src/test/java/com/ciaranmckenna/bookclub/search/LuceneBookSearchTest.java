@@ -0,0 +1,170 @@
+package com.ciaranmckenna.bookclub.search;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LuceneBookSearchTest {
+
+    @TempDir
+    Path indexDirectory;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private LuceneBookSearch search;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(search, "indexPath", indexDirectory);
+        search.open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        search.close();
+    }
+
+    @Test
+    void rebuild_RanksTitleMatchesAboveDescriptionMatches() {
+        // Given
+        BookDto titleMatch = book(1L, "Dune", "Frank Herbert", "Desert planet politics");
+        BookDto descriptionMatch = book(2L, "Children of Arrakis", "Anon", "A companion to Dune");
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+            .thenReturn(List.of(descriptionMatch, titleMatch));
+        when(bookRepository.findCategoryNamesByBookIdIn(any())).thenReturn(List.of());
+
+        // When
+        search.rebuild();
+
+        // Then
+        awaitUntil(() -> search.search("dune", PageRequest.of(0, 10)).getTotalElements() == 2);
+        assertEquals(List.of(1L, 2L), search.search("DÜNE", PageRequest.of(0, 10)).getContent());
+        assertEquals(List.of(2L), search.search("dune", PageRequest.of(1, 1)).getContent());
+    }
+
+    @Test
+    void bookSavedAndDeleted_AppliedByBackgroundIndexer() {
+        // Given
+        BookDto book = book(7L, "The Dispossessed", "Ursula K. Le Guin", null);
+        when(bookRepository.findByIdIn(List.of(7L))).thenReturn(List.of(book));
+        when(bookRepository.findCategoryNamesByBookIdIn(any())).thenReturn(List.of());
+
+        // When
+        search.bookSaved(7L);
+
+        // Then
+        awaitUntil(() -> search.search("le guin", PageRequest.of(0, 10)).getTotalElements() == 1);
+
+        // When
+        search.bookDeleted(7L);
+
+        // Then
+        awaitUntil(() -> search.search("le guin", PageRequest.of(0, 10)).getTotalElements() == 0);
+    }
+
+    @Test
+    void bookSaved_WhenLoadingTheBookFails_RetriesTheBatch() {
+        // Given
+        BookDto book = book(7L, "The Dispossessed", "Ursula K. Le Guin", null);
+        when(bookRepository.findByIdIn(List.of(7L)))
+            .thenThrow(new IllegalStateException("Connection reset"))
+            .thenReturn(List.of(book));
+        when(bookRepository.findCategoryNamesByBookIdIn(any())).thenReturn(List.of());
+
+        // When
+        search.bookSaved(7L);
+
+        // Then
+        awaitUntil(() -> search.search("le guin", PageRequest.of(0, 10)).getTotalElements() == 1);
+        verify(bookRepository, times(2)).findByIdIn(List.of(7L));
+        assertEquals(0, search.pendingChanges());
+    }
+
+    @Test
+    void rebuild_DropsBooksNoLongerInTheTable() {
+        // Given
+        BookDto dune = book(1L, "Dune", "Frank Herbert", null);
+        BookDto deleted = book(7L, "The Dispossessed", "Ursula K. Le Guin", null);
+        when(bookRepository.findByIdIn(List.of(7L))).thenReturn(List.of(deleted));
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+            .thenReturn(List.of(dune));
+        when(bookRepository.findCategoryNamesByBookIdIn(any())).thenReturn(List.of());
+        search.bookSaved(7L);
+        awaitUntil(() -> search.search("le guin", PageRequest.of(0, 10)).getTotalElements() == 1);
+
+        // When
+        search.rebuild();
+
+        // Then
+        awaitUntil(() -> search.search("le guin", PageRequest.of(0, 10)).getTotalElements() == 0);
+        assertEquals(List.of(1L), search.search("dune", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void categoryChanged_ReindexesTheBooksInTheCategory() {
+        // Given
+        BookDto book = book(3L, "Hyperion", "Dan Simmons", null);
+        BookRepository.BookCategoryName before = category(3L, 5L, "Science Fiction");
+        BookRepository.BookCategoryName renamed = category(3L, 5L, "Space Opera");
+        when(bookRepository.findByIdIn(List.of(3L))).thenReturn(List.of(book));
+        when(bookRepository.findCategoryNamesByBookIdIn(List.of(3L)))
+            .thenReturn(List.of(before))
+            .thenReturn(List.of(renamed));
+        search.bookSaved(3L);
+        awaitUntil(() -> search.search("science", PageRequest.of(0, 10)).getTotalElements() == 1);
+
+        // When
+        search.categoryChanged(5L);
+
+        // Then
+        awaitUntil(() -> search.search("opera", PageRequest.of(0, 10)).getTotalElements() == 1);
+        assertEquals(0, search.search("science", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    private static BookRepository.BookCategoryName category(
+            Long bookId, Long categoryId, String name) {
+        BookRepository.BookCategoryName category = mock(BookRepository.BookCategoryName.class);
+        when(category.getBookId()).thenReturn(bookId);
+        when(category.getCategoryId()).thenReturn(categoryId);
+        when(category.getCategoryName()).thenReturn(name);
+        return category;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the index");
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static BookDto book(Long id, String title, String author, String description) {
+        return new BookDto(id, title, author, LocalDate.of(2000, 1, 1), description, null, null, null);
+    }
+}
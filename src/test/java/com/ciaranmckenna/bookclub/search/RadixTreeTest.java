@@ -0,0 +1,64 @@
+package com.ciaranmckenna.bookclub.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RadixTreeTest {
+
+    private RadixTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new RadixTree();
+        tree.add("terry pratchett", "Terry Pratchett");
+        tree.add("terry pratchett", "Terry Pratchett");
+        tree.add("terry pratchett", "Terry Pratchett");
+        tree.add("terry goodkind", "Terry Goodkind");
+        tree.add("tolkien", "Tolkien");
+        tree.add("tolkien", "Tolkien");
+        tree.add("ted chiang", "Ted Chiang");
+    }
+
+    @Test
+    void topCompletions_Prefix_ReturnsHighestWeightFirst() {
+        assertEquals(
+            List.of("Terry Pratchett", "Tolkien", "Ted Chiang", "Terry Goodkind"),
+            tree.topCompletions("t", 10));
+        assertEquals(List.of("Terry Pratchett", "Tolkien"), tree.topCompletions("t", 2));
+    }
+
+    @Test
+    void topCompletions_PrefixEndingInsideLabel_MatchesSubtree() {
+        assertEquals(List.of("Terry Pratchett", "Terry Goodkind"), tree.topCompletions("ter", 10));
+        assertEquals(List.of("Terry Goodkind"), tree.topCompletions("terry g", 10));
+        assertTrue(tree.topCompletions("terrx", 10).isEmpty());
+    }
+
+    @Test
+    void removeOne_LastOccurrence_DropsCompletionAndReranks() {
+        tree.removeOne("terry pratchett");
+        tree.removeOne("terry pratchett");
+
+        assertEquals(List.of("Tolkien", "Ted Chiang", "Terry Goodkind", "Terry Pratchett"),
+            tree.topCompletions("t", 10));
+
+        tree.removeOne("terry pratchett");
+        tree.removeOne("terry goodkind");
+
+        assertEquals(List.of("Ted Chiang"), tree.topCompletions("te", 10));
+        assertEquals(2, tree.size());
+    }
+
+    @Test
+    void estimatedBytes_ShrinksWhenCleared() {
+        long populated = tree.estimatedBytes();
+        tree.clear();
+
+        assertTrue(tree.estimatedBytes() < populated);
+        assertTrue(tree.topCompletions("t", 10).isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.ciaranmckenna.bookclub.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.put(1L, "The Dune Encyclopedia");
+        index.put(2L, "Dune");
+        index.put(3L, "Dune Messiah");
+        index.put(4L, "Redundant Systems");
+    }
+
+    @Test
+    void search_Substring_RanksExactThenPrefixThenWordThenInfix() {
+        assertEquals(List.of(2L, 3L, 1L, 4L), index.search("dun"));
+        assertEquals(List.of(2L, 3L, 1L), index.search("DUNE"));
+    }
+
+    @Test
+    void search_SubstringAcrossWords_MatchesOnlyContainingText() {
+        assertEquals(List.of(1L), index.search("e dune e"));
+        assertTrue(index.search("dunes").isEmpty());
+    }
+
+    @Test
+    void search_QueryTooShort_IsRejected() {
+        assertFalse(TrigramIndex.supports("du"));
+        assertThrows(IllegalArgumentException.class, () -> index.search("du"));
+    }
+
+    @Test
+    void remove_Entry_NoLongerMatches() {
+        index.remove(2L);
+
+        assertEquals(List.of(3L, 1L, 4L), index.search("dun"));
+        assertEquals(3, index.size());
+    }
+}
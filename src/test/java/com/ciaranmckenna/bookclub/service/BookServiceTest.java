@@ -5,6 +5,10 @@ import com.ciaranmckenna.bookclub.entity.Book;
 import com.ciaranmckenna.bookclub.entity.User;
 import com.ciaranmckenna.bookclub.repository.BookRepository;
 import com.ciaranmckenna.bookclub.repository.UserRepository;
+import com.ciaranmckenna.bookclub.search.BookIndexManager;
+import com.ciaranmckenna.bookclub.search.BookSearchIndex;
+import com.ciaranmckenna.bookclub.search.BookSortIndex;
+import com.ciaranmckenna.bookclub.search.IsbnBloomFilter;
 import com.ciaranmckenna.bookclub.service.impl.BookServiceImpl;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,7 +19,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +37,18 @@ class BookServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private BookIndexManager bookIndexManager;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private BookSortIndex bookSortIndex;
+
+    @Mock
+    private IsbnBloomFilter isbnBloomFilter;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -52,7 +72,7 @@ class BookServiceTest {
     @Test
     void getBookById_ExistingBook_ReturnsBookDto() {
         // Given
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
+        when(bookRepository.findDtoById(1L)).thenReturn(Optional.of(testBookDto()));
 
         // When
         BookDto result = bookService.getBookById(1L);
@@ -61,17 +81,18 @@ class BookServiceTest {
         assertNotNull(result);
         assertEquals("Test Book", result.title());
         assertEquals("Test Author", result.author());
-        verify(bookRepository).findById(1L);
+        verify(bookRepository).findDtoById(1L);
+        verify(bookRepository, never()).findById(any());
     }
 
     @Test
     void getBookById_NonExistingBook_ThrowsException() {
         // Given
-        when(bookRepository.findById(999L)).thenReturn(Optional.empty());
+        when(bookRepository.findDtoById(999L)).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(EntityNotFoundException.class, () -> bookService.getBookById(999L));
-        verify(bookRepository).findById(999L);
+        verify(bookRepository).findDtoById(999L);
     }
 
     @Test
@@ -98,5 +119,77 @@ class BookServiceTest {
         assertNotNull(result);
         verify(userRepository).findById(1L);
         verify(bookRepository).save(any(Book.class));
+        verify(bookIndexManager).bookSaved(result);
+    }
+
+    @Test
+    void searchBooks_IndexReady_UsesIndexInsteadOfLikeQuery() {
+        // Given
+        when(bookIndexManager.isReady()).thenReturn(true);
+        when(bookSearchIndex.search("test")).thenReturn(List.of(1L));
+        when(bookRepository.findByIdIn(List.of(1L))).thenReturn(List.of(testBookDto()));
+
+        // When
+        Page<BookDto> result = bookService.searchBooks("test", PageRequest.of(0, 10));
+
+        // Then
+        assertEquals(1, result.getTotalElements());
+        assertEquals("Test Book", result.getContent().get(0).title());
+        verify(bookRepository, never()).searchByTitleOrAuthor(any(), any());
+    }
+
+    @Test
+    void searchBooks_Sorted_LoadsOnlyThePageSortedInMemory() {
+        // Given
+        List<Long> matches = List.of(1L, 2L, 3L, 4L, 5L);
+        Sort sort = Sort.by("title");
+        when(bookIndexManager.isReady()).thenReturn(true);
+        when(bookSearchIndex.search("test")).thenReturn(matches);
+        when(bookSortIndex.page(matches, sort, 2, 2)).thenReturn(List.of(4L, 1L));
+        when(bookRepository.findByIdIn(List.of(4L, 1L))).thenReturn(List.of(testBookDto(), bookDto(4L)));
+
+        // When
+        Page<BookDto> result = bookService.searchBooks("test", PageRequest.of(1, 2, sort));
+
+        // Then
+        assertEquals(5, result.getTotalElements());
+        assertEquals(List.of(4L, 1L), result.getContent().stream().map(BookDto::id).toList());
+        verify(bookRepository, never()).searchByTitleOrAuthor(any(), any());
+    }
+
+    @Test
+    void findBookByIsbn_FilterSaysAbsent_SkipsQuery() {
+        // Given
+        when(bookIndexManager.isReady()).thenReturn(true);
+        when(isbnBloomFilter.mightContain("9780306406157")).thenReturn(false);
+
+        // When
+        Optional<BookDto> result = bookService.findBookByIsbn("0-306-40615-2");
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(bookRepository, never()).findFirstByIsbnOrIsbnKey(any(), any());
+    }
+
+    @Test
+    void createBook_IsbnRegisteredInOtherSpelling_ThrowsException() {
+        // Given
+        BookDto bookDto = new BookDto(
+            null, "New Book", "New Author", LocalDate.of(2024, 1, 1), null, null, "0306406152", null);
+        when(bookIndexManager.isReady()).thenReturn(true);
+        when(isbnBloomFilter.mightContain("9780306406157")).thenReturn(true);
+        when(bookRepository.existsByIsbnOrIsbnKey("0306406152", "9780306406157")).thenReturn(true);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> bookService.createBook(bookDto, 1L));
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    private BookDto testBookDto() {
+        return new BookDto(1L, "Test Book", "Test Author", LocalDate.of(2023, 1, 1), null, null, null, null);
+    }
+
+    private BookDto bookDto(Long id) {
+        return new BookDto(id, "Book " + id, "Test Author", LocalDate.of(2023, 1, 1), null, null, null, null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,367 @@
+package com.ciaranmckenna.bookclub.service;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListChangesDto;
+import com.ciaranmckenna.bookclub.dto.ReadingListSummaryDto;
+import com.ciaranmckenna.bookclub.entity.ReadingList;
+import com.ciaranmckenna.bookclub.entity.ReadingListChange;
+import com.ciaranmckenna.bookclub.entity.User;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import com.ciaranmckenna.bookclub.repository.ReadingListChangeRepository;
+import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
+import com.ciaranmckenna.bookclub.repository.UserRepository;
+import com.ciaranmckenna.bookclub.service.impl.ReadingListChangeLog;
+import com.ciaranmckenna.bookclub.service.impl.ReadingListMembershipCache;
+import com.ciaranmckenna.bookclub.service.impl.ReadingListPositions;
+import com.ciaranmckenna.bookclub.service.impl.ReadingListServiceImpl;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingListServiceTest {
+
+    @Mock
+    private ReadingListRepository readingListRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ReadingListMembershipCache membershipCache;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private ReadingListPositions readingListPositions;
+
+    @Mock
+    private ReadingListChangeLog readingListChangeLog;
+
+    @Mock
+    private ReadingListChangeRepository readingListChangeRepository;
+
+    @Mock
+    private LeaderboardService leaderboardService;
+
+    @InjectMocks
+    private ReadingListServiceImpl readingListService;
+
+    private ReadingList testReadingList;
+
+    @BeforeEach
+    void setUp() {
+        User testUser = new User();
+        testUser.setId(1L);
+
+        testReadingList = new ReadingList();
+        testReadingList.setId(10L);
+        testReadingList.setName("Favourites");
+        testReadingList.setUser(testUser);
+    }
+
+    @Test
+    void addBookIdsToReadingList_ManyIds_InsertsInBatchesAndReturnsAddedCount() {
+        // Given
+        List<Long> bookIds = LongStream.rangeClosed(1, 2_500).boxed().toList();
+        when(readingListRepository.findAndLockById(10L)).thenReturn(Optional.of(testReadingList));
+        when(bookRepository.findExistingIds(anyCollection()))
+            .thenAnswer(invocation -> List.copyOf(invocation.getArgument(0)));
+        when(readingListPositions.append(eq(10L), anyCollection())).thenReturn(1_000, 900, 500);
+
+        // When
+        int added = readingListService.addBookIdsToReadingList(10L, bookIds);
+
+        // Then
+        assertEquals(2_400, added);
+        verify(readingListPositions, times(3)).append(eq(10L), anyCollection());
+        verify(membershipCache).evictAfterCommit(1L);
+    }
+
+    @Test
+    void addBookIdsToReadingList_MissingBook_ThrowsWithoutWriting() {
+        // Given
+        when(readingListRepository.findAndLockById(10L)).thenReturn(Optional.of(testReadingList));
+        when(bookRepository.findExistingIds(anyCollection())).thenReturn(List.of(1L));
+
+        // When & Then
+        EntityNotFoundException exception = assertThrows(
+            EntityNotFoundException.class,
+            () -> readingListService.addBookIdsToReadingList(10L, List.of(1L, 2L, 1L)));
+        assertEquals("Books not found with ids: [2]", exception.getMessage());
+        verifyNoInteractions(readingListPositions);
+    }
+
+    @Test
+    void addBookToReadingList_NewBook_ReturnsSummaryWithoutLoadingBooks() {
+        // Given
+        ReadingListSummaryDto summary =
+            new ReadingListSummaryDto(10L, "Favourites", null, null, 1L, "reader", 4L);
+        when(readingListRepository.findAndLockById(10L)).thenReturn(Optional.of(testReadingList));
+        when(bookRepository.existsById(5L)).thenReturn(true);
+        when(readingListRepository.findLastPosition(10L)).thenReturn(3_000L);
+        when(readingListPositions.append(10L, List.of(5L))).thenReturn(1);
+        when(readingListRepository.findSummaryById(10L)).thenReturn(Optional.of(summary));
+
+        // When
+        ReadingListSummaryDto updated = readingListService.addBookToReadingList(10L, 5L);
+
+        // Then
+        assertEquals(summary, updated);
+        verify(readingListChangeLog).booksAppended(testReadingList, 3_000L);
+        verify(leaderboardService).booksAddedToReadingList(List.of(5L));
+        verify(readingListRepository, never()).findById(any());
+        verify(bookRepository, never()).findBooksByReadingListIdIn(anyCollection());
+    }
+
+    @Test
+    void isBookInReadingList_ListCacheDisabled_ProbesJoinTableWithoutLoadingBooks() {
+        // Given
+        when(membershipCache.cachesLists()).thenReturn(false);
+        when(readingListRepository.countEntries(10L, 5L)).thenReturn(1L);
+
+        // When
+        boolean contained = readingListService.isBookInReadingList(10L, 5L);
+
+        // Then
+        assertTrue(contained);
+        verify(readingListRepository, never()).findWithBooksById(any());
+        verify(readingListRepository, never()).existsById(any());
+    }
+
+    @Test
+    void isBookInReadingList_MissingList_ThrowsEntityNotFound() {
+        // Given
+        when(membershipCache.cachesLists()).thenReturn(false);
+        when(readingListRepository.countEntries(99L, 5L)).thenReturn(0L);
+        when(readingListRepository.existsById(99L)).thenReturn(false);
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class,
+            () -> readingListService.isBookInReadingList(99L, 5L));
+    }
+
+    @Test
+    void getAllReadingLists_Page_CountsBooksForWholePageInOneQuery() {
+        // Given
+        ReadingList emptyList = new ReadingList();
+        emptyList.setId(11L);
+        emptyList.setName("Empty");
+        emptyList.setUser(testReadingList.getUser());
+        Pageable pageable = PageRequest.of(0, 10);
+        when(readingListRepository.findAll(pageable))
+            .thenReturn(new PageImpl<>(List.of(testReadingList, emptyList), pageable, 2));
+        ReadingListRepository.ReadingListBookCount count =
+            mock(ReadingListRepository.ReadingListBookCount.class);
+        when(count.getReadingListId()).thenReturn(10L);
+        when(count.getBookCount()).thenReturn(3L);
+        when(readingListRepository.countBooksByReadingListIdIn(List.of(10L, 11L)))
+            .thenReturn(List.of(count));
+
+        // When
+        Page<ReadingListSummaryDto> result = readingListService.getAllReadingLists(pageable);
+
+        // Then
+        assertEquals(List.of(3L, 0L),
+            result.getContent().stream().map(ReadingListSummaryDto::bookCount).toList());
+        verify(readingListRepository).countBooksByReadingListIdIn(anyCollection());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void getBooksInReadingList_MissingList_ThrowsEntityNotFound() {
+        // Given
+        when(readingListRepository.existsById(99L)).thenReturn(false);
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class,
+            () -> readingListService.getBooksInReadingList(99L, PageRequest.of(0, 20)));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void getReadingListChanges_SinceOlderVersion_ReturnsChangesInOrderWithCurrentBookDetails() {
+        // Given
+        testReadingList.setVersion(3L);
+        when(readingListRepository.findById(10L)).thenReturn(Optional.of(testReadingList));
+        when(readingListChangeRepository.findByReadingListIdAndVersionGreaterThanOrderByVersionAscIdAsc(
+                10L, 1L, Limit.of(1001)))
+            .thenReturn(List.of(
+                change(2L, 7L, ReadingListChange.Type.ADDED, null),
+                change(3L, 8L, ReadingListChange.Type.REMOVED, null)));
+        BookDto book = new BookDto(7L, "Added Book", "Author", LocalDate.of(2024, 1, 1), null, null, null, null);
+        when(bookRepository.findByIdIn(Set.of(7L))).thenReturn(List.of(book));
+
+        // When
+        ReadingListChangesDto changes = readingListService.getReadingListChanges(10L, 1L, null);
+
+        // Then
+        assertEquals(3L, changes.version());
+        assertFalse(changes.resyncRequired());
+        assertEquals(2, changes.changes().size());
+        assertEquals("ADDED", changes.changes().get(0).type());
+        assertEquals(book, changes.changes().get(0).book());
+        assertEquals("REMOVED", changes.changes().get(1).type());
+        assertNull(changes.changes().get(1).book());
+        verify(readingListRepository, never()).findWithBooksById(any());
+    }
+
+    @Test
+    void getReadingListChanges_UnknownVersion_RequiresResyncWithoutReadingLog() {
+        // Given
+        testReadingList.setVersion(3L);
+        when(readingListRepository.findById(10L)).thenReturn(Optional.of(testReadingList));
+
+        // When
+        ReadingListChangesDto changes = readingListService.getReadingListChanges(10L, 5L, null);
+
+        // Then
+        assertTrue(changes.resyncRequired());
+        assertTrue(changes.changes().isEmpty());
+        verifyNoInteractions(readingListChangeRepository, bookRepository);
+    }
+
+    @Test
+    void getReadingListChanges_PrunedVersion_RequiresResyncWithoutReadingLog() {
+        // Given
+        testReadingList.setVersion(9L);
+        testReadingList.setPrunedVersion(4L);
+        when(readingListRepository.findById(10L)).thenReturn(Optional.of(testReadingList));
+
+        // When
+        ReadingListChangesDto changes = readingListService.getReadingListChanges(10L, 3L, null);
+
+        // Then
+        assertTrue(changes.resyncRequired());
+        assertTrue(changes.changes().isEmpty());
+        verifyNoInteractions(readingListChangeRepository, bookRepository);
+    }
+
+    @Test
+    void getReadingListChanges_BooksEditedSince_ReportedAsUpdatesAfterTheLog() {
+        // Given
+        LocalDateTime seen = LocalDateTime.of(2025, 6, 1, 12, 0);
+        LocalDateTime edited = seen.plusHours(1);
+        testReadingList.setVersion(3L);
+        when(readingListRepository.findById(10L)).thenReturn(Optional.of(testReadingList));
+        when(readingListChangeRepository.findByReadingListIdAndVersionGreaterThanOrderByVersionAscIdAsc(
+                10L, 3L, Limit.of(1001)))
+            .thenReturn(List.of());
+        BookDto book =
+                new BookDto(7L, "Edited Book", "Author", LocalDate.of(2024, 1, 1), null, null, null, null);
+        when(bookRepository.findBooksOfReadingListUpdatedAfter(
+                10L, seen.minusSeconds(30), Limit.of(1001)))
+            .thenReturn(List.of(book));
+        ReadingListRepository.ReadingListSyncState state =
+                mock(ReadingListRepository.ReadingListSyncState.class);
+        when(state.getBooksUpdatedAt()).thenReturn(edited);
+        when(readingListRepository.findSyncStateById(10L)).thenReturn(Optional.of(state));
+
+        // When
+        ReadingListChangesDto changes = readingListService.getReadingListChanges(10L, 3L, seen);
+
+        // Then
+        assertFalse(changes.resyncRequired());
+        assertEquals(edited, changes.booksUpdatedAt());
+        assertEquals(1, changes.changes().size());
+        assertEquals("UPDATED", changes.changes().get(0).type());
+        assertEquals(3L, changes.changes().get(0).version());
+        assertEquals(book, changes.changes().get(0).book());
+    }
+
+    @Test
+    void cloneReadingList_ManyUsers_CopiesBooksForAllCopiesInOneStatement() {
+        // Given
+        User member = new User();
+        member.setId(2L);
+        User otherMember = new User();
+        otherMember.setId(3L);
+        when(readingListRepository.findAndLockById(10L)).thenReturn(Optional.of(testReadingList));
+        when(userRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(otherMember, member));
+        when(readingListRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ReadingList> copies = invocation.getArgument(0);
+            for (int i = 0; i < copies.size(); i++) {
+                copies.get(i).setId(20L + i);
+            }
+            return copies;
+        });
+        when(readingListRepository.copyEntries(10L, List.of(20L, 21L))).thenReturn(10_000);
+
+        // When
+        List<ReadingListSummaryDto> copies = readingListService.cloneReadingList(10L, List.of(2L, 3L, 2L));
+
+        // Then
+        assertEquals(2, copies.size());
+        assertEquals(2L, copies.get(0).userId());
+        assertEquals(3L, copies.get(1).userId());
+        assertEquals("Favourites", copies.get(1).name());
+        assertEquals(5_000, copies.get(0).bookCount());
+        verify(readingListRepository).copyEntries(10L, List.of(20L, 21L));
+        verify(readingListRepository).saveAll(argThat((List<ReadingList> saved) -> saved.stream()
+            .allMatch(copy -> copy.getVersion() == 1L && copy.getPrunedVersion() == 1L)));
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void cloneReadingList_MissingUser_ThrowsWithoutCopying() {
+        // Given
+        User member = new User();
+        member.setId(2L);
+        when(readingListRepository.findAndLockById(10L)).thenReturn(Optional.of(testReadingList));
+        when(userRepository.findAllById(List.of(2L, 4L))).thenReturn(List.of(member));
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class,
+            () -> readingListService.cloneReadingList(10L, List.of(2L, 4L)));
+        verify(readingListRepository, never()).saveAll(anyList());
+        verify(readingListRepository, never()).copyEntries(any(), anyCollection());
+    }
+
+    @Test
+    void cloneReadingList_NoUsers_ReturnsNoCopies() {
+        // Given
+        when(readingListRepository.findAndLockById(10L)).thenReturn(Optional.of(testReadingList));
+
+        // When
+        List<ReadingListSummaryDto> copies = readingListService.cloneReadingList(10L, List.of());
+
+        // Then
+        assertTrue(copies.isEmpty());
+        verify(readingListRepository, never()).saveAll(anyList());
+        verify(readingListRepository, never()).copyEntries(any(), anyCollection());
+    }
+
+    private ReadingListChange change(long version, Long bookId, ReadingListChange.Type type, Integer index) {
+        ReadingListChange change = new ReadingListChange();
+        change.setReadingListId(10L);
+        change.setVersion(version);
+        change.setBookId(bookId);
+        change.setType(type);
+        change.setIndex(index);
+        return change;
+    }
+}
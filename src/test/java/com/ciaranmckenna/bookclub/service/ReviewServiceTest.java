@@ -1,22 +1,37 @@
 package com.ciaranmckenna.bookclub.service;
 
+import com.ciaranmckenna.bookclub.common.CursorPage;
+import com.ciaranmckenna.bookclub.common.ReviewCursor;
+import com.ciaranmckenna.bookclub.dto.BookRatingStatsDto;
 import com.ciaranmckenna.bookclub.dto.ReviewDto;
 import com.ciaranmckenna.bookclub.entity.Book;
+import com.ciaranmckenna.bookclub.entity.BookRating;
 import com.ciaranmckenna.bookclub.entity.Review;
 import com.ciaranmckenna.bookclub.entity.User;
+import com.ciaranmckenna.bookclub.repository.BookRatingRepository;
 import com.ciaranmckenna.bookclub.repository.BookRepository;
 import com.ciaranmckenna.bookclub.repository.ReviewRepository;
 import com.ciaranmckenna.bookclub.repository.UserRepository;
+import com.ciaranmckenna.bookclub.search.BookIndexManager;
+import com.ciaranmckenna.bookclub.service.impl.BookRatingReconciler;
 import com.ciaranmckenna.bookclub.service.impl.ReviewServiceImpl;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,9 +45,21 @@ class ReviewServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private BookRatingRepository bookRatingRepository;
+
+    @Mock
+    private BookRatingReconciler bookRatingReconciler;
+
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private BookIndexManager bookIndexManager;
+
+    @Mock
+    private LeaderboardService leaderboardService;
+
     @InjectMocks
     private ReviewServiceImpl reviewService;
 
@@ -68,10 +95,12 @@ class ReviewServiceTest {
         reviewDto.setReviewText("Excellent book!");
         reviewDto.setBookId(1L);
 
-        when(reviewRepository.existsByBookIdAndUserId(1L, 1L)).thenReturn(false);
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(testBook));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(reviewRepository.save(any(Review.class))).thenReturn(testReview);
+        when(reviewRepository.insertReview(eq(1L), eq(1L), eq(5), eq("Excellent book!"), any()))
+                .thenReturn(1L);
+        when(bookRatingRepository.adjustRating(1L, 5, 0)).thenReturn(5.0);
+        when(bookRatingReconciler.isReconciled()).thenReturn(true);
+        when(reviewRepository.findDtoById(1L)).thenReturn(Optional.of(new ReviewDto(1L, 5,
+                "Great book!", 1L, 1L, "testuser", "Test Book", null, null)));
 
         // When
         ReviewDto result = reviewService.createReview(reviewDto, 1L);
@@ -79,19 +108,120 @@ class ReviewServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(5, result.getRating());
-        verify(reviewRepository).save(any(Review.class));
+        assertEquals("testuser", result.getUsername());
+        assertEquals("Test Book", result.getBookTitle());
+        verify(reviewRepository, never()).existsByBookIdAndUserId(any(), any());
+        verifyNoInteractions(bookRepository, userRepository);
+        verify(bookRatingRepository, never()).findAverageRating(any());
+        verify(bookIndexManager).ratingChanged(1L, 5.0);
+        verify(leaderboardService).reviewCreated(1L, 5);
     }
 
     @Test
     void createReview_UserAlreadyReviewed_ThrowsException() {
         // Given
         ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(4);
         reviewDto.setBookId(1L);
 
-        when(reviewRepository.existsByBookIdAndUserId(1L, 1L)).thenReturn(true);
+        when(reviewRepository.insertReview(any(), any(), anyInt(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry",
+                        new ConstraintViolationException("Duplicate entry", new SQLException(),
+                                ConstraintViolationException.ConstraintKind.UNIQUE, "uk_reviews")));
 
         // When & Then
-        assertThrows(RuntimeException.class, () -> reviewService.createReview(reviewDto, 1L));
+        RuntimeException exception =
+                assertThrows(RuntimeException.class, () -> reviewService.createReview(reviewDto, 1L));
+        assertEquals("User has already reviewed this book", exception.getMessage());
+        verifyNoInteractions(bookRatingRepository, leaderboardService);
+    }
+
+    @Test
+    void createReview_MissingBook_ReportsBookNotFound() {
+        // Given
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(4);
+        reviewDto.setBookId(99L);
+
+        SQLException missingBook = new SQLException("Cannot add or update a child row: a foreign"
+                + " key constraint fails (`bookclub`.`reviews`, CONSTRAINT `"
+                + Review.BOOK_FOREIGN_KEY + "` FOREIGN KEY (`book_id`) REFERENCES `books` (`id`))",
+                "23000", 1452);
+        when(reviewRepository.insertReview(any(), any(), anyInt(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("Foreign key",
+                        new ConstraintViolationException("Foreign key", missingBook, null)));
+        when(bookRepository.existsById(99L)).thenReturn(false);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> reviewService.createReview(reviewDto, 1L));
+        assertEquals("Book not found", exception.getMessage());
+    }
+
+    @Test
+    void createReview_OtherViolation_IsRethrownUnchanged() {
+        // Given
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(4);
+        reviewDto.setBookId(1L);
+
+        DataIntegrityViolationException tooLong = new DataIntegrityViolationException(
+                "Data too long", new ConstraintViolationException("Data too long",
+                        new SQLException("Data too long for column 'review_text'", "22001", 1406),
+                        null));
+        when(reviewRepository.insertReview(any(), any(), anyInt(), any(), any())).thenThrow(tooLong);
+
+        // When & Then
+        assertSame(tooLong,
+                assertThrows(DataIntegrityViolationException.class,
+                        () -> reviewService.createReview(reviewDto, 1L)));
+    }
+
+    @Test
+    void saveReview_ExistingReview_MovesTotalsAndLeaderboardByTheDifference() {
+        // Given
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(3);
+        reviewDto.setReviewText("Grew on me");
+        reviewDto.setBookId(1L);
+
+        LocalDateTime writtenAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+        when(reviewRepository.upsertReview(eq(1L), eq(1L), eq(3), eq("Grew on me"), any()))
+                .thenReturn(Optional.of(new ReviewRepository.ReplacedReview(5, writtenAt)));
+        when(bookRatingRepository.adjustRating(1L, 3, 5)).thenReturn(3.0);
+        when(bookRatingReconciler.isReconciled()).thenReturn(true);
+
+        // When
+        boolean created = reviewService.saveReview(1L, reviewDto, 1L);
+
+        // Then
+        assertFalse(created);
+        verify(bookRatingRepository, never()).findAverageRating(any());
+        verify(bookRatingRepository, never()).rebuildRange(anyLong(), anyLong());
+        verify(bookIndexManager).ratingChanged(1L, 3.0);
+        verify(leaderboardService).reviewRatingChanged(1L, 3, 5, writtenAt);
+    }
+
+    @Test
+    void saveReview_NewReviewBeforeTotalsReconciled_AveragesTheReviews() {
+        // Given
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(4);
+        reviewDto.setBookId(1L);
+
+        when(reviewRepository.upsertReview(eq(1L), eq(1L), eq(4), isNull(), any()))
+                .thenReturn(Optional.empty());
+        when(bookRatingRepository.adjustRating(1L, 4, 0)).thenReturn(4.0);
+        when(bookRatingReconciler.isReconciled()).thenReturn(false);
+        when(reviewRepository.getAverageRatingByBookId(1L)).thenReturn(4.5);
+
+        // When
+        boolean created = reviewService.saveReview(1L, reviewDto, 1L);
+
+        // Then
+        assertTrue(created);
+        verify(bookIndexManager).ratingChanged(1L, 4.5);
+        verify(leaderboardService).reviewCreated(1L, 4);
     }
 
     @Test
@@ -106,4 +236,121 @@ class ReviewServiceTest {
         assertTrue(result);
         verify(reviewRepository).existsByBookIdAndUserId(1L, 1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateReview_RatingChanged_MovesReviewBetweenHistogramBuckets() {
+        // Given
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(2);
+        reviewDto.setReviewText("Less keen on a second read");
+
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
+        when(reviewRepository.save(testReview)).thenReturn(testReview);
+        when(bookRatingRepository.adjustRating(1L, 2, 5)).thenReturn(2.0);
+        when(bookRatingReconciler.isReconciled()).thenReturn(true);
+
+        // When
+        reviewService.updateReview(1L, reviewDto, 1L);
+
+        // Then
+        verify(bookIndexManager).ratingChanged(1L, 2.0);
+    }
+
+    @Test
+    void getReviewsByBookId_FullPage_ReturnsCursorAfterLastReview() {
+        // Given
+        LocalDateTime createdAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+        ReviewDto newest = new ReviewDto(2L, 5, "Great book!", 1L, 1L, "testuser", "Test Book",
+                createdAt, createdAt);
+        ReviewDto older = new ReviewDto(1L, 4, "Good book", 1L, 2L, "otheruser", "Test Book",
+                createdAt.minusDays(1), createdAt.minusDays(1));
+        when(reviewRepository.findDtosByBookId(1L, Limit.of(2))).thenReturn(List.of(newest, older));
+
+        // When
+        CursorPage<ReviewDto> page = reviewService.getReviewsByBookId(1L, ReviewCursor.first(), 1);
+
+        // Then
+        assertEquals(List.of(newest), page.content());
+        assertTrue(page.hasNext());
+        assertEquals(new ReviewCursor(createdAt, 2L), ReviewCursor.decode(page.nextCursor()));
+        verifyNoMoreInteractions(reviewRepository);
+    }
+
+    @Test
+    void getReviewsByBookId_AfterCursor_SeeksPastItWithoutLoadingEntities() {
+        // Given
+        ReviewCursor cursor = new ReviewCursor(LocalDateTime.of(2025, 5, 1, 12, 0), 2L);
+        when(reviewRepository.findDtosByBookIdBefore(1L, cursor.createdAt(), 2L, Limit.of(21)))
+                .thenReturn(List.of());
+
+        // When
+        CursorPage<ReviewDto> page = reviewService.getReviewsByBookId(1L, cursor, 20);
+
+        // Then
+        assertTrue(page.content().isEmpty());
+        assertFalse(page.hasNext());
+        verifyNoMoreInteractions(reviewRepository);
+    }
+
+    @Test
+    void getRatingStats_ReadsTotalsWithoutAggregatingReviews() {
+        // Given
+        BookRating rating = new BookRating();
+        rating.setBookId(1L);
+        rating.setRatingSum(13);
+        rating.setReviewCount(3);
+        rating.setRating4Count(2);
+        rating.setRating5Count(1);
+        when(bookRatingReconciler.isReconciled()).thenReturn(true);
+        when(bookRatingRepository.findById(1L)).thenReturn(Optional.of(rating));
+
+        // When
+        BookRatingStatsDto stats = reviewService.getRatingStats(1L);
+
+        // Then
+        assertEquals(13.0 / 3, stats.averageRating(), 1e-9);
+        assertEquals(3, stats.reviewCount());
+        assertEquals(2L, stats.ratingCounts().get(4));
+        assertEquals(0L, stats.ratingCounts().get(1));
+        verifyNoInteractions(reviewRepository);
+    }
+
+    @Test
+    void getRatingStats_ManyBooks_ReadsAllTotalsInOneLookup() {
+        // Given
+        BookRating rating = new BookRating();
+        rating.setBookId(2L);
+        rating.setRatingSum(4);
+        rating.setReviewCount(1);
+        rating.setRating4Count(1);
+        when(bookRatingReconciler.isReconciled()).thenReturn(true);
+        when(bookRatingRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(rating));
+
+        // When
+        Map<Long, BookRatingStatsDto> stats = reviewService.getRatingStats(List.of(2L, 1L, 2L));
+
+        // Then
+        assertEquals(List.of(2L, 1L), List.copyOf(stats.keySet()));
+        assertEquals(4.0, stats.get(2L).averageRating());
+        assertEquals(0, stats.get(1L).reviewCount());
+        assertEquals(0.0, stats.get(1L).averageRating());
+        verify(bookRatingRepository).findAllById(any());
+        verifyNoMoreInteractions(bookRatingRepository);
+    }
+
+    @Test
+    void getRatingStats_BeforeFirstReconcile_AggregatesReviews() {
+        // Given
+        BookRating live = new BookRating(1L, 9, 2, 0, 0, 0, 1, 1);
+        when(bookRatingReconciler.isReconciled()).thenReturn(false);
+        when(bookRatingRepository.aggregateFromReviews(List.of(1L))).thenReturn(List.of(live));
+
+        // When
+        BookRatingStatsDto stats = reviewService.getRatingStats(1L);
+
+        // Then
+        assertEquals(4.5, stats.averageRating());
+        assertEquals(2, stats.reviewCount());
+        verify(bookRatingRepository, never()).findById(any());
+    }
+}
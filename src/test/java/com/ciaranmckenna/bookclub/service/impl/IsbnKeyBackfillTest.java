@@ -0,0 +1,62 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IsbnKeyBackfillTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private IsbnKeyBackfill backfill;
+
+    @Test
+    void backfill_WritesKeysInBatchesAndSkipsDuplicateEditions() {
+        // Given
+        BookRepository.BookIsbn isbn10 = book(1L, "0-306-40615-2");
+        BookRepository.BookIsbn sameEdition = book(2L, "978-0-306-40615-7");
+        BookRepository.BookIsbn alreadyTaken = book(3L, "080442957X");
+        when(bookRepository.findIsbnsWithoutKeyAfter(0L, Limit.of(500)))
+            .thenReturn(List.of(isbn10, sameEdition, alreadyTaken));
+        when(bookRepository.findTakenIsbnKeys(Set.of("9780306406157", "9780804429573")))
+            .thenReturn(List.of("9780804429573"));
+        when(bookRepository.setIsbnKey(1L, "9780306406157")).thenReturn(1);
+        when(transactionTemplate.execute(any()))
+            .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                .doInTransaction(null));
+
+        // When
+        backfill.backfill();
+
+        // Then
+        verify(bookRepository).setIsbnKey(1L, "9780306406157");
+        verify(bookRepository, never()).setIsbnKey(eq(2L), any());
+        verify(bookRepository, never()).setIsbnKey(eq(3L), any());
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    private static BookRepository.BookIsbn book(Long id, String isbn) {
+        BookRepository.BookIsbn book = mock(BookRepository.BookIsbn.class);
+        when(book.getId()).thenReturn(id);
+        when(book.getIsbn()).thenReturn(isbn);
+        return book;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.dto.BookDto;
+import com.ciaranmckenna.bookclub.dto.LeaderboardEntryDto;
+import com.ciaranmckenna.bookclub.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LeaderboardServiceImplTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @InjectMocks
+    private LeaderboardServiceImpl leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(leaderboardService, "trendingHalfLife", Duration.ofDays(7));
+        ReflectionTestUtils.setField(leaderboardService, "topRatedHalfLife", Duration.ofDays(30));
+        ReflectionTestUtils.setField(leaderboardService, "topRatedPriorWeight", 5.0);
+        leaderboardService.createBoards();
+        when(bookRepository.findByIdIn(anyList())).thenAnswer(invocation ->
+                invocation.<List<Long>>getArgument(0).stream().map(this::book).toList());
+    }
+
+    @Test
+    void getTopRated_RanksByAverageRatherThanVolume() {
+        // Given
+        for (int i = 0; i < 20; i++) {
+            leaderboardService.reviewCreated(1L, 3);
+        }
+        for (int i = 0; i < 4; i++) {
+            leaderboardService.reviewCreated(2L, 5);
+        }
+
+        // When
+        List<LeaderboardEntryDto> topRated = leaderboardService.getTopRated(10);
+
+        // Then
+        assertEquals(List.of(2L, 1L), topRated.stream().map(e -> e.book().id()).toList());
+        assertTrue(topRated.get(0).score() > 3.0 && topRated.get(0).score() < 5.0);
+    }
+
+    @Test
+    void getTopRated_SingleReview_IsPulledTowardsTheMean() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            leaderboardService.reviewCreated(1L, 4);
+            leaderboardService.reviewCreated(2L, 2);
+        }
+        leaderboardService.reviewCreated(3L, 5);
+
+        // When
+        List<LeaderboardEntryDto> topRated = leaderboardService.getTopRated(10);
+
+        // Then
+        assertEquals(List.of(1L, 3L, 2L), topRated.stream().map(e -> e.book().id()).toList());
+    }
+
+    @Test
+    void reviewRatingChanged_NewRating_RescoresTheBookAgainstTheLastMean() {
+        // Given
+        LocalDateTime writtenAt = LocalDateTime.now().minusSeconds(1);
+        leaderboardService.reviewCreated(1L, 1);
+        leaderboardService.reviewCreated(2L, 3);
+        assertEquals(2L, leaderboardService.getTopRated(1).get(0).book().id());
+
+        // When
+        leaderboardService.reviewRatingChanged(1L, 5, 1, writtenAt);
+
+        // Then
+        List<LeaderboardEntryDto> topRated = leaderboardService.getTopRated(10);
+        assertEquals(List.of(1L, 2L), topRated.stream().map(e -> e.book().id()).toList());
+        // The prior mean is still 2.0, from the ratings the ranking was first read with
+        assertEquals((5.0 + 5 * 2.0) / 6, topRated.get(0).score(), 1e-6);
+    }
+
+    @Test
+    void refreshTopRated_AfterRatingChange_RecomputesTheMean() {
+        // Given
+        LocalDateTime writtenAt = LocalDateTime.now().minusSeconds(1);
+        leaderboardService.reviewCreated(1L, 1);
+        leaderboardService.reviewCreated(2L, 3);
+        leaderboardService.getTopRated(10);
+        leaderboardService.reviewRatingChanged(1L, 5, 1, writtenAt);
+
+        // When
+        leaderboardService.refreshTopRated();
+
+        // Then
+        List<LeaderboardEntryDto> topRated = leaderboardService.getTopRated(10);
+        assertEquals(List.of(1L, 2L), topRated.stream().map(e -> e.book().id()).toList());
+        assertEquals(4.0 + 1.0 / 6, topRated.get(0).score(), 1e-6);
+        assertEquals((3.0 + 5 * 4.0) / 6, topRated.get(1).score(), 1e-6);
+    }
+
+    @Test
+    void bookDeleted_AfterRead_DropsTheBookFromTheRanking() {
+        // Given
+        leaderboardService.reviewCreated(1L, 4);
+        leaderboardService.reviewCreated(2L, 3);
+        leaderboardService.getTopRated(10);
+
+        // When
+        leaderboardService.bookDeleted(1L);
+
+        // Then
+        assertEquals(List.of(2L),
+                leaderboardService.getTopRated(10).stream().map(e -> e.book().id()).toList());
+    }
+
+    private BookDto book(Long id) {
+        return new BookDto(id, "Book " + id, "Author", LocalDate.of(2000, 1, 1), null, null, null, null);
+    }
+}
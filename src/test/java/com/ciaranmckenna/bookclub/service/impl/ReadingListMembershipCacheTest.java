@@ -0,0 +1,98 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingListMembershipCacheTest {
+
+    @Mock
+    private ReadingListRepository readingListRepository;
+
+    @InjectMocks
+    private ReadingListMembershipCache cache;
+
+    @Test
+    void readingListsContaining_LoadsUserMembershipOnce() {
+        // Given
+        when(readingListRepository.findBookLinksByUserId(1L))
+            .thenReturn(List.of(link(10L, 100L), link(11L, 100L), link(11L, 101L)));
+
+        // When
+        Set<Long> listsWithBook = cache.readingListsContaining(1L, 100L);
+        Set<Long> listsWithOtherBook = cache.readingListsContaining(1L, 101L);
+        Set<Long> listsWithMissingBook = cache.readingListsContaining(1L, 999L);
+
+        // Then
+        assertEquals(Set.of(10L, 11L), listsWithBook);
+        assertEquals(Set.of(11L), listsWithOtherBook);
+        assertTrue(listsWithMissingBook.isEmpty());
+        verify(readingListRepository, times(1)).findBookLinksByUserId(1L);
+    }
+
+    @Test
+    void evictAfterCommit_WithoutTransaction_ReloadsOnNextLookup() {
+        // Given
+        when(readingListRepository.findBookLinksByUserId(1L))
+            .thenReturn(List.of(link(10L, 100L)))
+            .thenReturn(List.of());
+        assertEquals(Set.of(10L), cache.readingListsContaining(1L, 100L));
+
+        // When
+        cache.evictAfterCommit(1L);
+
+        // Then
+        assertTrue(cache.readingListsContaining(1L, 100L).isEmpty());
+        verify(readingListRepository, times(2)).findBookLinksByUserId(1L);
+    }
+
+    @Test
+    void listContains_BookIdBeyondIntRange_ProbesJoinTable() {
+        // Given
+        long largeBookId = Integer.MAX_VALUE + 1L;
+        when(readingListRepository.countEntries(10L, largeBookId)).thenReturn(1L);
+
+        // When
+        boolean contains = cache.listContains(10L, largeBookId);
+
+        // Then
+        assertTrue(contains);
+        verify(readingListRepository, never()).findBookIdsByReadingListId(any());
+    }
+
+    @Test
+    void listContains_ListWithLargeBookIds_CachesTheOthers() {
+        // Given
+        when(readingListRepository.findBookIdsByReadingListId(10L))
+            .thenReturn(List.of(100L, Integer.MAX_VALUE + 1L));
+
+        // When & Then
+        assertTrue(cache.listContains(10L, 100L));
+        assertFalse(cache.listContains(10L, 101L));
+        verify(readingListRepository, times(1)).findBookIdsByReadingListId(10L);
+    }
+
+    private static ReadingListRepository.ReadingListBookLink link(Long readingListId, Long bookId) {
+        return new ReadingListRepository.ReadingListBookLink() {
+            @Override
+            public Long getReadingListId() {
+                return readingListId;
+            }
+
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.ciaranmckenna.bookclub.service.impl;
+
+import com.ciaranmckenna.bookclub.entity.ReadingListEntry;
+import com.ciaranmckenna.bookclub.repository.ReadingListRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingListPositionsTest {
+
+    private static final long GAP = ReadingListEntry.POSITION_GAP;
+
+    @Mock
+    private ReadingListRepository readingListRepository;
+
+    @InjectMocks
+    private ReadingListPositions positions;
+
+    @Test
+    void place_BetweenNeighbours_UpdatesOnlyTheMovedBookToTheMidpoint() {
+        // Given
+        when(readingListRepository.findNeighbourPositions(10L, 5L, 1)).thenReturn(List.of(GAP, 2 * GAP));
+        when(readingListRepository.updateEntryPosition(10L, 5L, GAP + GAP / 2)).thenReturn(1);
+
+        // When
+        boolean added = positions.place(10L, 5L, 2);
+
+        // Then
+        assertFalse(added);
+        verify(readingListRepository, never()).insertEntry(any(), any(), anyLong());
+        verify(readingListRepository, never()).renumberPositions(any(), anyLong());
+    }
+
+    @Test
+    void place_AtFront_InsertsBeforeFirstBook() {
+        // Given
+        when(readingListRepository.findNeighbourPositions(10L, 5L, 0)).thenReturn(List.of(GAP, 2 * GAP));
+        when(readingListRepository.updateEntryPosition(10L, 5L, 0L)).thenReturn(0);
+        when(readingListRepository.insertEntry(10L, 5L, 0L)).thenReturn(1);
+
+        // When
+        boolean added = positions.place(10L, 5L, 0);
+
+        // Then
+        assertTrue(added);
+    }
+
+    @Test
+    void place_NoRoomBetweenNeighbours_RenumbersListThenUsesMidpoint() {
+        // Given
+        when(readingListRepository.findNeighbourPositions(10L, 5L, 0))
+            .thenReturn(List.of(7L, 8L))
+            .thenReturn(List.of(GAP, 2 * GAP));
+        when(readingListRepository.updateEntryPosition(10L, 5L, GAP + GAP / 2)).thenReturn(1);
+
+        // When
+        positions.place(10L, 5L, 1);
+
+        // Then
+        verify(readingListRepository).renumberPositions(10L, GAP);
+        verify(readingListRepository).updateEntryPosition(10L, 5L, GAP + GAP / 2);
+    }
+
+    @Test
+    void place_PastTheEnd_AppendsAfterLastBook() {
+        // Given
+        when(readingListRepository.findNeighbourPositions(10L, 5L, 99)).thenReturn(List.of());
+        when(readingListRepository.findLastPosition(10L)).thenReturn(3 * GAP);
+        when(readingListRepository.updateEntryPosition(10L, 5L, 4 * GAP)).thenReturn(1);
+
+        // When & Then
+        assertFalse(positions.place(10L, 5L, 100));
+    }
+}